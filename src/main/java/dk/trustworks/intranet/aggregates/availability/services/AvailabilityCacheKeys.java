@@ -0,0 +1,71 @@
+package dk.trustworks.intranet.aggregates.availability.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.model.Company;
+import io.quarkus.cache.CacheKeyGenerator;
+import io.quarkus.cache.CacheResult;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+
+/**
+ * Typed keys for the {@code employee-availability} and {@code company-availability} caches.
+ *
+ * <p>Every entry is addressed by scope (one user, one company, or all users) and its
+ * {@code [from, to)} period, and carries the BI fact generation. Availability is read from
+ * {@code fact_user_day}, which a work write only changes once the BI refresh for that user-month
+ * commits; that refresh advances the generation, so {@link BiFactGeneration} is what retires these
+ * entries. Evicting them when the work write commits would only re-cache the old facts.</p>
+ */
+public final class AvailabilityCacheKeys {
+
+    private AvailabilityCacheKeys() {
+    }
+
+    public enum Scope { USER, COMPANY, ALL }
+
+    public record Key(BiFactGeneration.Generation generation, Scope scope, String subject,
+                      LocalDate from, LocalDate to) implements BiFactGeneration.Versioned {
+    }
+
+    abstract static class Base implements CacheKeyGenerator {
+
+        @Inject
+        BiFactGeneration generation;
+
+        Key key(Method method, Scope scope, String subject, Object from, Object to) {
+            CacheResult cacheResult = method.getAnnotation(CacheResult.class);
+            if (cacheResult != null) generation.recordLookup(cacheResult.cacheName());
+            return new Key(generation.current(), scope, subject, (LocalDate) from, (LocalDate) to);
+        }
+    }
+
+    /** {@code (String useruuid, LocalDate from, LocalDate to)}. */
+    @ApplicationScoped
+    public static class UserPeriod extends Base {
+        @Override
+        public Object generate(Method method, Object... params) {
+            return key(method, Scope.USER, (String) params[0], params[1], params[2]);
+        }
+    }
+
+    /** {@code (Company company, LocalDate from, LocalDate to)}. */
+    @ApplicationScoped
+    public static class CompanyPeriod extends Base {
+        @Override
+        public Object generate(Method method, Object... params) {
+            return key(method, Scope.COMPANY, ((Company) params[0]).getUuid(), params[1], params[2]);
+        }
+    }
+
+    /** {@code (LocalDate from, LocalDate to)} across all users. */
+    @ApplicationScoped
+    public static class AllPeriod extends Base {
+        @Override
+        public Object generate(Method method, Object... params) {
+            return key(method, Scope.ALL, null, params[0], params[1]);
+        }
+    }
+}
@@ -28,27 +28,27 @@ public class AvailabilityService {
     @PersistenceContext
     EntityManager em;
 
-    @CacheResult(cacheName = "employee-availability")
+    @CacheResult(cacheName = "employee-availability", keyGenerator = AvailabilityCacheKeys.AllPeriod.class)
     public List<EmployeeAvailabilityPerMonth> getAllEmployeeAvailabilityByPeriod(LocalDate fromdate, LocalDate todate) {
         return getEmployeeAvailabilityPerMonths(
                 BiDataPerDay.<BiDataPerDay>stream("STR_TO_DATE(CONCAT(year, '-', month, '-01'), '%Y-%m-%d') >= STR_TO_DATE(CONCAT(?1, '-', ?2, '-01'), '%Y-%m-%d') AND STR_TO_DATE(CONCAT(year, '-', month, '-01'), '%Y-%m-%d') < STR_TO_DATE(CONCAT(?3, '-', ?4, '-01'), '%Y-%m-%d') and (consultantType = 'CONSULTANT' or consultantType = 'STUDENT') and statusType not in ('TERMINATED','PREBOARDING') ", fromdate.getYear(), fromdate.getMonthValue(), todate.getYear(), todate.getMonthValue()).toList()
         );
     }
 
-    @CacheResult(cacheName = "employee-availability")
+    @CacheResult(cacheName = "employee-availability", keyGenerator = AvailabilityCacheKeys.CompanyPeriod.class)
     public List<EmployeeAvailabilityPerMonth> getCompanyEmployeeAvailabilityByPeriod(Company company, LocalDate fromdate, LocalDate todate) {
         return getEmployeeAvailabilityPerMonths(
                 BiDataPerDay.<BiDataPerDay>stream("STR_TO_DATE(CONCAT(year, '-', month, '-01'), '%Y-%m-%d') >= STR_TO_DATE(CONCAT(?1, '-', ?2, '-01'), '%Y-%m-%d') AND STR_TO_DATE(CONCAT(year, '-', month, '-01'), '%Y-%m-%d') < STR_TO_DATE(CONCAT(?3, '-', ?4, '-01'), '%Y-%m-%d') and company = ?5 and consultantType IN ('CONSULTANT','STAFF','STUDENT') and statusType not in ('TERMINATED','PREBOARDING') ", fromdate.getYear(), fromdate.getMonthValue(), todate.getYear(), todate.getMonthValue(), company).toList()
         );
     }
 
-    @CacheResult(cacheName = "company-availability")
+    @CacheResult(cacheName = "company-availability", keyGenerator = AvailabilityCacheKeys.CompanyPeriod.class)
     public List<CompanyAvailabilityPerMonth> getCompanyAvailabilityByPeriod(Company company, LocalDate startDate, LocalDate endDate) {
         String sql = "STR_TO_DATE(CONCAT(year, '-', month, '-01'), '%Y-%m-%d') >= STR_TO_DATE(CONCAT(?1, '-', ?2, '-01'), '%Y-%m-%d') AND STR_TO_DATE(CONCAT(year, '-', month, '-01'), '%Y-%m-%d') < STR_TO_DATE(CONCAT(?3, '-', ?4, '-01'), '%Y-%m-%d') and company = ?5 and consultantType = 'CONSULTANT' and statusType != 'TERMINATED'";
         return getEmployeeAvailabilityPerMonths(company, startDate, endDate, sql);
     }
 
-    @CacheResult(cacheName = "employee-availability")
+    @CacheResult(cacheName = "employee-availability", keyGenerator = AvailabilityCacheKeys.UserPeriod.class)
     public List<BiDataPerDay> getEmployeeDataPerDay(String useruuid, LocalDate fromDate, LocalDate toDate) {
         return BiDataPerDay.<BiDataPerDay>stream("documentDate >= ?1 AND documentDate < ?2 AND user = ?3", fromDate, toDate, User.findById(useruuid))
                 .sorted(Comparator.comparing(BiDataPerDay::getDocumentDate))
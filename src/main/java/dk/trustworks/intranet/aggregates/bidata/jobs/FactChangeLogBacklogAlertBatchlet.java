@@ -1,10 +1,10 @@
 package dk.trustworks.intranet.aggregates.bidata.jobs;
 
+import dk.trustworks.intranet.aggregates.bidata.services.BiFreshnessTelemetry;
 import dk.trustworks.intranet.communicationsservice.services.SlackService;
 import io.quarkus.scheduler.Scheduled;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.persistence.EntityManager;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
@@ -15,7 +15,9 @@ import java.util.concurrent.atomic.AtomicReference;
 /**
  * Watchdog for {@code fact_change_log} — fires a Slack alert when the
  * unprocessed backlog grows unhealthy (typically because
- * {@code sp_incremental_bi_refresh()} has stalled). Runs every 5 minutes.
+ * {@code sp_incremental_bi_refresh()} has stalled). Runs every 5 minutes and
+ * reads the backlog through {@link BiFreshnessTelemetry}, so the alert and the
+ * freshness metrics always agree.
  *
  * <p>Repeat-suppression: while a breach is firing continuously, the channel
  * receives at most one message per {@link #ALERT_REPEAT_INTERVAL}. The window
@@ -28,7 +30,7 @@ public class FactChangeLogBacklogAlertBatchlet {
     static final Duration ALERT_REPEAT_INTERVAL = Duration.ofMinutes(60);
 
     @Inject
-    EntityManager em;
+    BiFreshnessTelemetry telemetry;
 
     @Inject
     SlackService slackService;
@@ -57,12 +59,9 @@ public class FactChangeLogBacklogAlertBatchlet {
     }
 
     void checkBacklog() {
-        Object[] row = (Object[]) em.createNativeQuery(
-                "SELECT COUNT(*), TIMESTAMPDIFF(MINUTE, MIN(created_at), NOW()) " +
-                "FROM fact_change_log WHERE processed_at IS NULL")
-                .getSingleResult();
-        long pending = ((Number) row[0]).longValue();
-        Long oldestPendingMinutes = row[1] == null ? null : ((Number) row[1]).longValue();
+        BiFreshnessTelemetry.Backlog backlog = telemetry.backlog();
+        long pending = backlog.pending();
+        Long oldestPendingMinutes = backlog.oldestPendingMinutes();
 
         boolean alert = pending > maxPending
                 || (oldestPendingMinutes != null && oldestPendingMinutes > maxOldestPendingMinutes);
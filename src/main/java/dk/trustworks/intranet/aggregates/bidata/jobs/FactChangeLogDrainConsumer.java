@@ -0,0 +1,445 @@
+package dk.trustworks.intranet.aggregates.bidata.jobs;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.aggregates.bidata.services.BiFreshnessTelemetry;
+import dk.trustworks.intranet.batch.model.UserMonth;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Java-side replacement for the 5-minute MariaDB event {@code ev_bi_incremental_refresh}
+ * ({@code sp_incremental_bi_refresh}, V456 body). Off by default; enabled with
+ * {@code bi.incremental-drain.enabled=true}.
+ *
+ * <p>Every poll tick tails {@code fact_change_log} by id. New rows start a debounce window: the
+ * drain runs once the log has been quiet for {@code quiet-period}, or at the latest
+ * {@code max-delay} after the first unseen change, so a burst of saves collapses into one drain
+ * and freshness drops from minutes to seconds. A failed drain is retried after
+ * {@code retry-backoff}, doubling per consecutive failure up to {@code max-retry-backoff}.</p>
+ *
+ * <p>A drain follows the stored procedure step for step, so the two can run side by side while
+ * the event is being retired:</p>
+ * <ol>
+ *   <li>{@code GET_LOCK('bi_refresh', 0)} on a dedicated coordinator connection — the same
+ *       advisory lock the event and {@code sp_nightly_bi_refresh} take, so nothing is drained
+ *       twice. A busy lock just defers the drain to the next tick.</li>
+ *   <li>Snapshot {@code v_max_id}, flip {@code bi_refresh_watermark} to RUNNING with a fresh
+ *       token, and coalesce the pending rows into at most {@code max-user-months} (user, month)
+ *       keys, oldest change first.</li>
+ *   <li>Recompute on a bounded worker pool: availability then budgets per user-month (each key
+ *       is one task, so its steps stay ordered), then {@code sp_aggregate_work} once per distinct
+ *       month — it rewrites the month for every user, so running it per key would repeat the work
+ *       and deadlock on the same rows.</li>
+ *   <li>{@code sp_refresh_fact_tables()}, {@code sp_refresh_opex_mat_post_pass()}, per-user-month
+ *       marking bounded by {@code v_max_id}, and the watermark certification
+ *       ({@code incremental_refresh_version + 1}, previous state restored). Any failure sets the
+ *       watermark FAILED, exactly like the procedure's exit handler.</li>
+ * </ol>
+ *
+ * <p>Once this runs in production the event can be switched off with
+ * {@code ALTER EVENT ev_bi_incremental_refresh DISABLE}; until then both drains share the lock.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class FactChangeLogDrainConsumer {
+
+    static final String LOCK_NAME = "bi_refresh";
+    static final String PIPELINE = "FACT_USER_DAY";
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    BiFreshnessTelemetry telemetry;
+
+    @Inject
+    BiFactGeneration factGeneration;
+
+    @ConfigProperty(name = "bi.incremental-drain.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "bi.incremental-drain.quiet-period", defaultValue = "3s")
+    Duration quietPeriod;
+
+    @ConfigProperty(name = "bi.incremental-drain.max-delay", defaultValue = "30s")
+    Duration maxDelay;
+
+    @ConfigProperty(name = "bi.incremental-drain.max-user-months", defaultValue = "200")
+    int maxUserMonths;
+
+    @ConfigProperty(name = "bi.incremental-drain.workers", defaultValue = "4")
+    int workers;
+
+    @ConfigProperty(name = "bi.incremental-drain.retry-backoff", defaultValue = "30s")
+    Duration retryBackoff;
+
+    @ConfigProperty(name = "bi.incremental-drain.max-retry-backoff", defaultValue = "15m")
+    Duration maxRetryBackoff;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    // Debounce state; only touched by the (non-overlapping) scheduler thread.
+    private long lastSeenId;
+    private Instant firstUnseenChangeAt;
+    private Instant lastChangeAt;
+    private int consecutiveFailures;
+    private Instant nextAttemptAt;
+
+    @Scheduled(every = "${bi.incremental-drain.poll-interval:2s}", identity = "fact-change-log-drain",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void scheduledRun() {
+        if (!enabled) return;
+        try {
+            tick(Instant.now());
+        } catch (SQLException | RuntimeException e) {
+            log.errorf(e, "FactChangeLogDrainConsumer failed");
+        }
+    }
+
+    void tick(Instant now) throws SQLException {
+        long maxId = newestChangeId();
+        if (maxId > lastSeenId) {
+            lastSeenId = maxId;
+            lastChangeAt = now;
+            if (firstUnseenChangeAt == null) firstUnseenChangeAt = now;
+        }
+        if (!isDue(now, firstUnseenChangeAt, lastChangeAt, quietPeriod, maxDelay)) return;
+        if (nextAttemptAt != null && now.isBefore(nextAttemptAt)) return;
+
+        DrainResult result;
+        try {
+            result = drain();
+        } catch (SQLException | RuntimeException e) {
+            // The rows are still pending, so the window stays open; the retry waits out a backoff
+            // that grows with every consecutive failure instead of firing again at the next poll.
+            consecutiveFailures++;
+            nextAttemptAt = now.plus(backoff(consecutiveFailures, retryBackoff, maxRetryBackoff));
+            log.warnf("Incremental BI drain failed %d time(s) in a row; next attempt at %s",
+                    consecutiveFailures, nextAttemptAt);
+            throw e;
+        }
+        if (result == DrainResult.LOCK_BUSY) return;
+        consecutiveFailures = 0;
+        nextAttemptAt = null;
+        // Move this instance's analytics caches to the new generation now rather than at the next poll.
+        if (result == DrainResult.DRAINED || result == DrainResult.CAPPED) factGeneration.refresh();
+        // A capped drain leaves rows pending; keep the window open so the next tick continues.
+        if (result != DrainResult.CAPPED) firstUnseenChangeAt = null;
+    }
+
+    /**
+     * Debounce rule: drain once the change log has been quiet for {@code quiet}, or once the
+     * oldest unseen change has waited {@code maxDelay} even if changes keep arriving.
+     */
+    static boolean isDue(Instant now, Instant firstUnseenChangeAt, Instant lastChangeAt,
+                         Duration quiet, Duration maxDelay) {
+        if (firstUnseenChangeAt == null) return false;
+        return !now.isBefore(lastChangeAt.plus(quiet)) || !now.isBefore(firstUnseenChangeAt.plus(maxDelay));
+    }
+
+    /** {@code base} doubled per consecutive failure after the first, capped at {@code max}. */
+    static Duration backoff(int consecutiveFailures, Duration base, Duration max) {
+        Duration delay = base;
+        for (int i = 1; i < consecutiveFailures && delay.compareTo(max) < 0; i++) delay = delay.multipliedBy(2);
+        return delay.compareTo(max) < 0 ? delay : max;
+    }
+
+    /** Distinct months of the drained keys, in order; each gets one {@code sp_aggregate_work} call. */
+    static List<LocalDate> distinctMonths(List<UserMonth> keys) {
+        TreeSet<LocalDate> months = new TreeSet<>();
+        for (UserMonth key : keys) months.add(key.getMonth());
+        return new ArrayList<>(months);
+    }
+
+    enum DrainResult { LOCK_BUSY, EMPTY, DRAINED, CAPPED }
+
+    DrainResult drain() throws SQLException {
+        try (Connection coordinator = dataSource.getConnection()) {
+            if (!acquireLock(coordinator)) {
+                log.debug("bi_refresh lock busy; incremental drain deferred");
+                return DrainResult.LOCK_BUSY;
+            }
+            int previousIsolation = coordinator.getTransactionIsolation();
+            String token = null;
+            try {
+                long maxId = pendingMaxId(coordinator);
+                if (maxId == 0) return DrainResult.EMPTY;
+
+                String previousState = refreshState(coordinator);
+                token = startRefresh(coordinator);
+                coordinator.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+                long started = System.nanoTime();
+                List<UserMonth> keys = coalesce(coordinator, maxId);
+                recompute(keys);
+                call(coordinator, "CALL sp_refresh_fact_tables()");
+                call(coordinator, "CALL sp_refresh_opex_mat_post_pass()");
+                markProcessed(coordinator, keys, maxId);
+                certify(coordinator, token, previousState);
+                token = null;
+                long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+                telemetry.recordDrain("app", elapsedMs, keys.size());
+                log.infof("Incremental BI drain done: userMonths=%d months=%d maxId=%d in %d ms",
+                        keys.size(), distinctMonths(keys).size(), maxId, elapsedMs);
+                return keys.size() >= maxUserMonths ? DrainResult.CAPPED : DrainResult.DRAINED;
+            } catch (SQLException | RuntimeException e) {
+                registry.counter("bi.incremental_drain.failures").increment();
+                if (token != null) markFailed(coordinator, token);
+                throw e;
+            } finally {
+                coordinator.setTransactionIsolation(previousIsolation);
+                releaseLock(coordinator);
+            }
+        }
+    }
+
+    private long newestChangeId() throws SQLException {
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT COALESCE(MAX(id), 0) FROM fact_change_log WHERE id > ?")) {
+            ps.setLong(1, lastSeenId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return Math.max(rs.getLong(1), lastSeenId);
+            }
+        }
+    }
+
+    private static boolean acquireLock(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT GET_LOCK('" + LOCK_NAME + "', 0)")) {
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    private static void releaseLock(Connection c) {
+        try (Statement s = c.createStatement()) {
+            s.execute("DO RELEASE_LOCK('" + LOCK_NAME + "')");
+        } catch (SQLException e) {
+            // The lock dies with the session anyway; the pool closes broken connections.
+            log.warnf(e, "Could not release %s lock", LOCK_NAME);
+        }
+    }
+
+    private static long pendingMaxId(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT COALESCE(MAX(id), 0) FROM fact_change_log WHERE processed_at IS NULL")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String refreshState(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT refresh_state FROM bi_refresh_watermark WHERE pipeline_name = ?")) {
+            ps.setString(1, PIPELINE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "UNINITIALIZED";
+            }
+        }
+    }
+
+    /** Flips the watermark to RUNNING under a fresh token; returns the token. */
+    private static String startRefresh(Connection c) throws SQLException {
+        String token = UUID.randomUUID().toString();
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE bi_refresh_watermark " +
+                "SET refresh_state = 'RUNNING', active_refresh_token = ? " +
+                "WHERE pipeline_name = ? AND active_refresh_token IS NULL")) {
+            ps.setString(1, token);
+            ps.setString(2, PIPELINE);
+            if (ps.executeUpdate() != 1) {
+                throw new IllegalStateException(PIPELINE + " incremental refresh could not be started");
+            }
+        }
+        return token;
+    }
+
+    private List<UserMonth> coalesce(Connection c, long maxId) throws SQLException {
+        List<UserMonth> keys = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT useruuid, DATE_FORMAT(MIN(affected_date), '%Y-%m-01') " +
+                "FROM fact_change_log " +
+                "WHERE processed_at IS NULL AND id <= ? " +
+                "GROUP BY useruuid, DATE_FORMAT(affected_date, '%Y-%m-01') " +
+                "ORDER BY MIN(id) LIMIT ?")) {
+            ps.setLong(1, maxId);
+            ps.setInt(2, maxUserMonths);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) keys.add(new UserMonth(rs.getString(1), LocalDate.parse(rs.getString(2))));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Two phases on the worker pool, with a barrier in between: per-key availability + budgets,
+     * then work aggregation per distinct month (it reads the availability rows phase one wrote).
+     */
+    private void recompute(List<UserMonth> keys) throws SQLException {
+        List<Runnable> userMonthTasks = new ArrayList<>();
+        for (UserMonth key : keys) {
+            userMonthTasks.add(() -> onWorkerConnection(c -> {
+                callRange(c, "CALL sp_recalculate_availability(?, ?, ?)", key.getMonth(), key.getUseruuid());
+                callRange(c, "CALL sp_recalculate_budgets(?, ?, ?)", key.getMonth(), key.getUseruuid());
+            }));
+        }
+        runAll(userMonthTasks);
+
+        List<Runnable> monthTasks = new ArrayList<>();
+        for (LocalDate month : distinctMonths(keys)) {
+            monthTasks.add(() -> onWorkerConnection(c -> callRange(c, "CALL sp_aggregate_work(?, ?)", month, null)));
+        }
+        runAll(monthTasks);
+    }
+
+    private void runAll(List<Runnable> tasks) throws SQLException {
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) futures.add(executor().submit(task));
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for incremental drain workers", e);
+            } catch (ExecutionException e) {
+                // Wait for every task before failing so no worker is still writing when the watermark goes FAILED.
+                if (failure == null) failure = e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @FunctionalInterface
+    interface SqlWork {
+        void run(Connection c) throws SQLException;
+    }
+
+    private void onWorkerConnection(SqlWork work) {
+        try (Connection c = dataSource.getConnection()) {
+            int previousIsolation = c.getTransactionIsolation();
+            c.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            try {
+                work.run(c);
+            } finally {
+                c.setTransactionIsolation(previousIsolation);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Incremental drain step failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void callRange(Connection c, String sql, LocalDate month, String useruuid) throws SQLException {
+        try (CallableStatement cs = c.prepareCall(sql)) {
+            cs.setDate(1, Date.valueOf(month));
+            cs.setDate(2, Date.valueOf(month.plusMonths(1)));
+            if (useruuid != null) cs.setString(3, useruuid);
+            cs.execute();
+        }
+    }
+
+    private static void call(Connection c, String sql) throws SQLException {
+        try (CallableStatement cs = c.prepareCall(sql)) {
+            cs.execute();
+        }
+    }
+
+    /** Same shape as the procedure: one autocommit statement per key, bounded by {@code maxId}. */
+    private static void markProcessed(Connection c, List<UserMonth> keys, long maxId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE fact_change_log SET processed_at = NOW() " +
+                "WHERE processed_at IS NULL AND id <= ? AND useruuid = ? " +
+                "AND affected_date >= ? AND affected_date < ?")) {
+            for (UserMonth key : keys) {
+                ps.setLong(1, maxId);
+                ps.setString(2, key.getUseruuid());
+                ps.setDate(3, Date.valueOf(key.getMonth()));
+                ps.setDate(4, Date.valueOf(key.getMonth().plusMonths(1)));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static void certify(Connection c, String token, String previousState) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE bi_refresh_watermark " +
+                "SET last_incremental_refresh_at = UTC_TIMESTAMP(6), " +
+                "    incremental_refresh_version = incremental_refresh_version + 1, " +
+                "    refresh_state = ?, active_refresh_token = NULL " +
+                "WHERE pipeline_name = ? AND active_refresh_token = ?")) {
+            ps.setString(1, previousState);
+            ps.setString(2, PIPELINE);
+            ps.setString(3, token);
+            if (ps.executeUpdate() != 1) {
+                throw new IllegalStateException(PIPELINE + " incremental refresh could not be certified");
+            }
+        }
+    }
+
+    private static void markFailed(Connection c, String token) {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE bi_refresh_watermark SET refresh_state = 'FAILED', active_refresh_token = NULL " +
+                " WHERE pipeline_name = ? AND active_refresh_token = ?")) {
+            ps.setString(1, PIPELINE);
+            ps.setString(2, token);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            log.errorf(e, "Could not mark %s watermark FAILED", PIPELINE);
+        }
+    }
+
+    private ExecutorService executor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+                        Thread t = new Thread(r, "bi-drain-" + threadCounter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+                current = executor;
+            }
+        }
+        return current;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ExecutorService current = executor;
+        if (current != null) current.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package dk.trustworks.intranet.aggregates.bidata.jobs;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Daily reaper for {@code bi_refresh_state_transition} (V531) — prunes transitions
+ * older than {@link #retentionDays}, the same way {@link ChangeLogRetentionBatchlet}
+ * prunes {@code fact_change_log}. {@code BiFreshnessTelemetry} only reads the last
+ * 24 hours, so the retention just bounds how far back the log can be inspected by hand.
+ * Runs at 02:20 UTC; idempotent and self-recovering.
+ */
+@JBossLog
+@ApplicationScoped
+public class StateTransitionRetentionBatchlet {
+
+    static final int DELETE_CHUNK_SIZE = 10_000;
+
+    @Inject
+    EntityManager em;
+
+    @ConfigProperty(name = "bi.refresh-state-transition.retention-days", defaultValue = "30")
+    int retentionDays;
+
+    @Scheduled(cron = "0 20 2 * * ?", identity = "bi-refresh-state-transition-retention")
+    public void scheduledRun() {
+        try {
+            long deleted = run();
+            log.infof("StateTransitionRetentionBatchlet: deleted %d rows older than %d days",
+                    deleted, retentionDays);
+        } catch (RuntimeException e) {
+            log.errorf(e, "StateTransitionRetentionBatchlet failed");
+        }
+    }
+
+    long run() {
+        long totalDeleted = 0L;
+        int deletedInChunk;
+        do {
+            deletedInChunk = deleteOneChunkInOwnTransaction();
+            totalDeleted += deletedInChunk;
+        } while (deletedInChunk == DELETE_CHUNK_SIZE);
+        return totalDeleted;
+    }
+
+    // One transaction per chunk, as in ChangeLogRetentionBatchlet; package-private
+    // so unit tests can spy past the JTA round-trip.
+    int deleteOneChunkInOwnTransaction() {
+        return QuarkusTransaction.requiringNew().call(this::deleteOneChunk);
+    }
+
+    int deleteOneChunk() {
+        // changed_at is written in UTC by the V531 trigger.
+        return em.createNativeQuery(
+                "DELETE FROM bi_refresh_state_transition " +
+                "WHERE changed_at < DATE_SUB(UTC_TIMESTAMP(6), INTERVAL :days DAY) " +
+                "LIMIT " + DELETE_CHUNK_SIZE)
+                .setParameter("days", retentionDays)
+                .executeUpdate();
+    }
+}
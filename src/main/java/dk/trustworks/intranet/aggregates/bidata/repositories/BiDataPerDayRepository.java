@@ -1,16 +1,183 @@
 package dk.trustworks.intranet.aggregates.bidata.repositories;
 
 import dk.trustworks.intranet.aggregates.bidata.model.BiDataPerDay;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.Query;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @ApplicationScoped
 public class BiDataPerDayRepository implements PanacheRepository<BiDataPerDay> {
 
+    /** Rows per multi-row statement in {@link #upsertDays}; 200 rows × 18 bind parameters by default. */
+    @ConfigProperty(name = "bi.fact-user-day.upsert-chunk-size", defaultValue = "200")
+    int upsertChunkSize;
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * The availability columns of a {@code fact_user_day} row.
+     */
+    public record Availability(String companyUuid, BigDecimal grossAvailableHours, BigDecimal unavailableHours,
+                               BigDecimal vacationHours, BigDecimal sickHours, BigDecimal maternityLeaveHours,
+                               BigDecimal nonPaydLeaveHours, BigDecimal paidLeaveHours, String consultantType,
+                               String statusType, boolean twBonusEligible) {
+    }
+
+    /**
+     * One {@code fact_user_day} row for {@link #upsertDays}. A null column group is left untouched
+     * on existing rows, exactly like the single-row upserts that only name their own columns.
+     *
+     * @param availability availability columns, or null
+     * @param workHours    {@code registered_billable_hours}, or null
+     * @param revenue      {@code registered_amount}, or null
+     * @param salary       {@code salary}, or null
+     */
+    public record DayRow(String useruuid, LocalDate documentDate, Availability availability,
+                         Double workHours, Double revenue, Integer salary) {
+
+        public static DayRow work(String useruuid, LocalDate documentDate, double workHours, double revenue) {
+            return new DayRow(useruuid, documentDate, null, workHours, revenue, null);
+        }
+
+        public static DayRow availability(String useruuid, LocalDate documentDate, Availability availability) {
+            return new DayRow(useruuid, documentDate, availability, null, null, null);
+        }
+
+        /** Which column groups the row carries; rows are batched per shape so every VALUES tuple has the same columns. */
+        int shape() {
+            return (availability != null ? 1 : 0) | (workHours != null ? 2 : 0) | (revenue != null ? 4 : 0) | (salary != null ? 8 : 0);
+        }
+    }
+
+    /**
+     * Batched form of {@link #insertOrUpdateData}, {@link #insertOrUpdateWork}, {@link #insertOrUpdateRevenue}
+     * and {@link #insertOrUpdateSalary}: every row becomes one tuple of a chunked multi-row
+     * {@code INSERT ... ON DUPLICATE KEY UPDATE}, with all of its column groups merged into that tuple.
+     * Must run inside a transaction.
+     *
+     * <p>Recorded under the {@code bi.fact_user_day.upsert} timer and the
+     * {@code bi.fact_user_day.upsert.rows} counter; rows/sec is the counter rate over the timer total.</p>
+     *
+     * @return number of rows written
+     */
+    public int upsertDays(List<DayRow> rows) {
+        if (rows == null || rows.isEmpty()) return 0;
+        Timer.Sample sample = Timer.start(registry);
+        Map<Integer, List<DayRow>> byShape = new LinkedHashMap<>();
+        for (DayRow row : rows) {
+            if (row.shape() == 0) continue;
+            byShape.computeIfAbsent(row.shape(), k -> new ArrayList<>()).add(row);
+        }
+        int chunkSize = Math.max(1, upsertChunkSize);
+        int written = 0;
+        try {
+            for (Map.Entry<Integer, List<DayRow>> entry : byShape.entrySet()) {
+                List<DayRow> shapeRows = entry.getValue();
+                for (int from = 0; from < shapeRows.size(); from += chunkSize) {
+                    List<DayRow> chunk = shapeRows.subList(from, Math.min(from + chunkSize, shapeRows.size()));
+                    upsertChunk(entry.getKey(), chunk);
+                    written += chunk.size();
+                }
+            }
+        } finally {
+            sample.stop(registry.timer("bi.fact_user_day.upsert"));
+            registry.counter("bi.fact_user_day.upsert.rows").increment(written);
+        }
+        return written;
+    }
+
+    private void upsertChunk(int shape, List<DayRow> chunk) {
+        boolean availability = (shape & 1) != 0;
+        boolean work = (shape & 2) != 0;
+        boolean revenue = (shape & 4) != 0;
+        boolean salary = (shape & 8) != 0;
+
+        StringBuilder sql = new StringBuilder("INSERT INTO fact_user_day (useruuid, document_date, year, month, day, ");
+        if (availability) {
+            sql.append("companyuuid, gross_available_hours, unavailable_hours, vacation_hours, sick_hours, ")
+               .append("maternity_leave_hours, non_payd_leave_hours, paid_leave_hours, consultant_type, status_type, ")
+               .append("is_tw_bonus_eligible, ");
+        }
+        if (work) sql.append("registered_billable_hours, ");
+        if (revenue) sql.append("registered_amount, ");
+        if (salary) sql.append("salary, ");
+        sql.append("last_update) VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:useruuid").append(i).append(", :documentDate").append(i).append(", :year").append(i)
+               .append(", :month").append(i).append(", :day").append(i).append(", ");
+            if (availability) {
+                sql.append(":companyUuid").append(i).append(", :gross").append(i).append(", :unavailable").append(i)
+                   .append(", :vacation").append(i).append(", :sick").append(i).append(", :maternity").append(i)
+                   .append(", :nonPaid").append(i).append(", :paid").append(i).append(", :consultantType").append(i)
+                   .append(", :statusType").append(i).append(", :bonusEligible").append(i).append(", ");
+            }
+            if (work) sql.append(":workHours").append(i).append(", ");
+            if (revenue) sql.append(":revenue").append(i).append(", ");
+            if (salary) sql.append(":salary").append(i).append(", ");
+            sql.append("NOW())");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE ");
+        if (availability) {
+            sql.append("companyuuid = VALUES(companyuuid), ")
+               .append("gross_available_hours = VALUES(gross_available_hours), ")
+               .append("unavailable_hours = VALUES(unavailable_hours), ")
+               .append("vacation_hours = VALUES(vacation_hours), ")
+               .append("sick_hours = VALUES(sick_hours), ")
+               .append("maternity_leave_hours = VALUES(maternity_leave_hours), ")
+               .append("non_payd_leave_hours = VALUES(non_payd_leave_hours), ")
+               .append("paid_leave_hours = VALUES(paid_leave_hours), ")
+               .append("consultant_type = VALUES(consultant_type), ")
+               .append("status_type = VALUES(status_type), ")
+               .append("is_tw_bonus_eligible = VALUES(is_tw_bonus_eligible), ");
+        }
+        if (work) sql.append("registered_billable_hours = VALUES(registered_billable_hours), ");
+        if (revenue) sql.append("registered_amount = VALUES(registered_amount), ");
+        if (salary) sql.append("salary = VALUES(salary), ");
+        sql.append("last_update = NOW()");
+
+        Query query = getEntityManager().createNativeQuery(sql.toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            DayRow row = chunk.get(i);
+            LocalDate day = row.documentDate();
+            query.setParameter("useruuid" + i, row.useruuid());
+            query.setParameter("documentDate" + i, day);
+            query.setParameter("year" + i, day.getYear());
+            query.setParameter("month" + i, day.getMonthValue());
+            query.setParameter("day" + i, day.getDayOfMonth());
+            if (availability) {
+                Availability a = row.availability();
+                query.setParameter("companyUuid" + i, a.companyUuid());
+                query.setParameter("gross" + i, a.grossAvailableHours());
+                query.setParameter("unavailable" + i, a.unavailableHours());
+                query.setParameter("vacation" + i, a.vacationHours());
+                query.setParameter("sick" + i, a.sickHours());
+                query.setParameter("maternity" + i, a.maternityLeaveHours());
+                query.setParameter("nonPaid" + i, a.nonPaydLeaveHours());
+                query.setParameter("paid" + i, a.paidLeaveHours());
+                query.setParameter("consultantType" + i, a.consultantType());
+                query.setParameter("statusType" + i, a.statusType());
+                query.setParameter("bonusEligible" + i, a.twBonusEligible());
+            }
+            if (work) query.setParameter("workHours" + i, BigDecimal.valueOf(row.workHours()));
+            if (revenue) query.setParameter("revenue" + i, BigDecimal.valueOf(row.revenue()));
+            if (salary) query.setParameter("salary" + i, row.salary());
+        }
+        query.executeUpdate();
+    }
+
     public void insertOrUpdateSalary(String userUuid, LocalDate documentDate, int year, int month, int day, int salary) {
         String sql = "INSERT INTO fact_user_day (useruuid, document_date, year, month, day, salary, last_update) " +
                      "VALUES (:useruuid, :documentDate, :year, :month, :day, :salary, NOW()) " +
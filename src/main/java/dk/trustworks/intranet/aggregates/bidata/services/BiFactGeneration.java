@@ -0,0 +1,126 @@
+package dk.trustworks.intranet.aggregates.bidata.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.cache.CacheManager;
+import io.quarkus.cache.CompositeCacheKey;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The fact-table generation that analytics caches key their entries on, read from the
+ * {@code FACT_USER_DAY} row of {@code bi_refresh_watermark}.
+ *
+ * <p>Both refresh paths bump the row when they commit: the incremental drain increments
+ * {@code incremental_refresh_version}, the nightly refresh stamps {@code last_full_refresh_at}.
+ * The pair is polled every few seconds; when it changes, every key built by
+ * {@link BiFactVersionKeyGenerator} moves to the new generation, and entries of older
+ * generations are dropped from the {@link #VERSIONED_CACHES}. Because the generation is part of
+ * the key, a computation that started before the refresh and finishes after it can only write
+ * under the old, unreachable key — the caches can therefore keep long TTLs.</p>
+ *
+ * <p>A lookup made while the watermark is RUNNING is counted as stale-served
+ * ({@code bi.cache.stale_served}): it answers from the generation the refresh is replacing.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class BiFactGeneration {
+
+    /** Caches whose keys carry the generation; must match the {@code @CacheResult} names using the generator. */
+    public static final List<String> VERSIONED_CACHES = List.of(
+            "delivery-utilization-ttm", "delivery-forecast-utilization", "delivery-bench-count",
+            "delivery-overload-count", "delivery-realization-rate", "delivery-avg-project-margin",
+            "delivery-capacity-planning", "delivery-resource-heatmap",
+            "employee-availability", "company-availability",
+            "utilization", "budget-fulfillment");
+
+    /** Identity of one committed state of the BI fact tables. */
+    public record Generation(long incrementalVersion, LocalDateTime lastFullRefreshAt) {
+        static final Generation UNKNOWN = new Generation(-1, null);
+    }
+
+    /** A typed cache key that carries its generation (keys not built by {@link BiFactVersionKeyGenerator}). */
+    public interface Versioned {
+        Generation generation();
+    }
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    CacheManager cacheManager;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicReference<Generation> current = new AtomicReference<>(Generation.UNKNOWN);
+    private volatile boolean refreshing;
+
+    public Generation current() {
+        return current.get();
+    }
+
+    /** Counts the lookup for the stale-served metric; called by the key generators. */
+    public void recordLookup(String cacheName) {
+        if (refreshing) registry.counter("bi.cache.stale_served", "cache", cacheName).increment();
+    }
+
+    @Scheduled(every = "${bi.cache-generation.poll-interval:10s}", identity = "bi-cache-generation",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void poll() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warnf("bi-cache-generation poll failed: %s", e.getMessage());
+        }
+    }
+
+    /** Re-reads the watermark; drops superseded entries when the generation moved. */
+    public void refresh() {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(
+                        "SELECT incremental_refresh_version, last_full_refresh_at, refresh_state " +
+                        "FROM bi_refresh_watermark WHERE pipeline_name = 'FACT_USER_DAY'")
+                .getResultList();
+        if (rows.isEmpty()) return;
+        Object[] row = rows.get(0);
+        Generation next = new Generation(row[0] == null ? 0L : ((Number) row[0]).longValue(), toLocalDateTime(row[1]));
+        refreshing = "RUNNING".equals(String.valueOf(row[2]));
+
+        Generation previous = current.getAndSet(next);
+        if (!next.equals(previous)) {
+            log.infof("BI fact generation %s -> %s; dropping superseded analytics cache entries", previous, next);
+            registry.counter("bi.cache.generation.changes").increment();
+            evictOlderThan(next);
+        }
+    }
+
+    private void evictOlderThan(Generation generation) {
+        for (String name : VERSIONED_CACHES) {
+            cacheManager.getCache(name).ifPresent(cache ->
+                    cache.invalidateIf(key -> !isGeneration(key, generation)).await().indefinitely());
+        }
+    }
+
+    static boolean isGeneration(Object key, Generation generation) {
+        if (key instanceof Versioned versioned) return Objects.equals(versioned.generation(), generation);
+        return key instanceof CompositeCacheKey composite
+                && composite.getKeyElements().length > 0
+                && Objects.equals(composite.getKeyElements()[0], generation);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDateTime ldt) return ldt;
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime();
+        return LocalDateTime.parse(value.toString().replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,31 @@
+package dk.trustworks.intranet.aggregates.bidata.services;
+
+import io.quarkus.cache.CacheKeyGenerator;
+import io.quarkus.cache.CacheResult;
+import io.quarkus.cache.CompositeCacheKey;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.lang.reflect.Method;
+
+/**
+ * Cache key = (current {@link BiFactGeneration.Generation}, method arguments...). Use on
+ * {@code @CacheResult} methods whose results are derived from the BI fact tables, and add the
+ * cache name to {@link BiFactGeneration#VERSIONED_CACHES}.
+ */
+@ApplicationScoped
+public class BiFactVersionKeyGenerator implements CacheKeyGenerator {
+
+    @Inject
+    BiFactGeneration generation;
+
+    @Override
+    public Object generate(Method method, Object... methodParams) {
+        CacheResult cacheResult = method.getAnnotation(CacheResult.class);
+        if (cacheResult != null) generation.recordLookup(cacheResult.cacheName());
+        Object[] elements = new Object[methodParams.length + 1];
+        elements[0] = generation.current();
+        System.arraycopy(methodParams, 0, elements, 1, methodParams.length);
+        return new CompositeCacheKey(elements);
+    }
+}
@@ -0,0 +1,254 @@
+package dk.trustworks.intranet.aggregates.bidata.services;
+
+import dk.trustworks.intranet.perf.PerfMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * How stale the BI facts are relative to source edits, from {@code fact_change_log} (the
+ * pending backlog), {@code bi_refresh_watermark} (per-pipeline state and last success) and
+ * {@code bi_refresh_state_transition} (every {@code refresh_state} change, logged by a trigger
+ * on the watermark, see V531).
+ *
+ * <p>One surface feeds three consumers: Micrometer gauges/counters, a 60s EMF snapshot through
+ * {@link PerfMetrics}, and the {@code /batch/bi-freshness} endpoint. The backlog alert reads the
+ * same {@link #backlog()} numbers. {@link #snapshot()} and {@link #backlog()} only read; the
+ * gauges and transition counters are moved by the scheduled {@link #emit()} alone, so polling the
+ * endpoint cannot skew them.</p>
+ *
+ * <p>Drain duration and user-months per run are reported by the Java drain
+ * ({@code FactChangeLogDrainConsumer}) via {@link #recordDrain}. Runs of the MariaDB event are
+ * only visible as {@code incremental_refresh_version} advancing, which is emitted as
+ * {@code BiIncrementalRefreshes} per sample.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class BiFreshnessTelemetry {
+
+    /** Numeric encoding of {@code refresh_state} for the state gauge. */
+    static final List<String> REFRESH_STATES = List.of("UNINITIALIZED", "RUNNING", "READY", "FAILED");
+
+    /** How far back {@link Snapshot#stateTransitions()} counts. */
+    static final Duration TRANSITION_WINDOW = Duration.ofHours(24);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    PerfMetrics perfMetrics;
+
+    public record Backlog(long pending, Long oldestPendingSeconds) {
+        public Long oldestPendingMinutes() {
+            return oldestPendingSeconds == null ? null : oldestPendingSeconds / 60;
+        }
+    }
+
+    public record PipelineState(String pipeline, String refreshState, LocalDate certifiedCompleteThroughDate,
+                                LocalDateTime lastFullRefreshAt, LocalDateTime lastIncrementalRefreshAt,
+                                long incrementalRefreshVersion, Long lastSuccessAgeSeconds) {}
+
+    public record DrainRun(String source, Instant finishedAt, long durationMs, int userMonths) {}
+
+    public record Snapshot(Instant sampledAt, Backlog backlog, List<PipelineState> pipelines,
+                           DrainRun lastDrain, Map<String, Long> stateTransitions) {}
+
+    private final AtomicLong pendingGauge = new AtomicLong();
+    private final AtomicLong oldestPendingGauge = new AtomicLong();
+    private final Map<String, AtomicLong> lastSuccessAgeGauges = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> stateGauges = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastVersions = new ConcurrentHashMap<>();
+    private final AtomicReference<DrainRun> lastDrain = new AtomicReference<>();
+    /** Transitions logged before this instance started are not counted again. */
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong lastTransitionId = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        registry.gauge("bi.fact_change_log.pending", pendingGauge);
+        registry.gauge("bi.fact_change_log.oldest_pending_seconds", oldestPendingGauge);
+    }
+
+    @Scheduled(every = "60s", identity = "bi-freshness-metrics",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void emit() {
+        try {
+            Snapshot snapshot = snapshot();
+            updateGauges(snapshot);
+            countTransitions();
+            perfMetrics.emit(backlogMetrics(snapshot.backlog()), Map.of(), Map.of());
+            for (PipelineState p : snapshot.pipelines()) {
+                List<PerfMetrics.Metric> metrics = new ArrayList<>();
+                if (p.lastSuccessAgeSeconds() != null) {
+                    metrics.add(new PerfMetrics.Metric("BiLastSuccessAgeSeconds", "Seconds", p.lastSuccessAgeSeconds()));
+                }
+                metrics.add(new PerfMetrics.Metric("BiIncrementalRefreshes", "Count", versionDelta(p)));
+                perfMetrics.emit(metrics, Map.of("pipeline", p.pipeline()), Map.of("refreshState", p.refreshState()));
+            }
+        } catch (Exception e) {
+            log.warnf("bi-freshness-metrics emit failed: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Live backlog, watermark state, last drain and the {@code from->to} transition counts of the
+     * last {@link #TRANSITION_WINDOW}. Read-only.
+     */
+    public Snapshot snapshot() {
+        Instant now = Instant.now();
+        return new Snapshot(now, backlog(), pipelines(now), lastDrain.get(),
+                stateTransitions(now.minus(TRANSITION_WINDOW)));
+    }
+
+    /** Pending {@code fact_change_log} rows and the age of the oldest one. */
+    public Backlog backlog() {
+        Object[] row = (Object[]) em.createNativeQuery(
+                        "SELECT COUNT(*), TIMESTAMPDIFF(SECOND, MIN(created_at), NOW()) " +
+                        "FROM fact_change_log WHERE processed_at IS NULL")
+                .getSingleResult();
+        return new Backlog(((Number) row[0]).longValue(),
+                row[1] == null ? null : ((Number) row[1]).longValue());
+    }
+
+    /** Watermark rows with the age of each pipeline's last success. */
+    @SuppressWarnings("unchecked")
+    List<PipelineState> pipelines(Instant now) {
+        List<Object[]> rows = em.createNativeQuery(
+                        "SELECT pipeline_name, refresh_state, certified_complete_through_date, " +
+                        "       last_full_refresh_at, last_incremental_refresh_at, incremental_refresh_version " +
+                        "FROM bi_refresh_watermark ORDER BY pipeline_name")
+                .getResultList();
+        List<PipelineState> pipelines = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            String pipeline = (String) row[0];
+            String state = String.valueOf(row[1]);
+            LocalDateTime full = toLocalDateTime(row[3]);
+            LocalDateTime incremental = toLocalDateTime(row[4]);
+            pipelines.add(new PipelineState(pipeline, state, toLocalDate(row[2]), full, incremental,
+                    row[5] == null ? 0L : ((Number) row[5]).longValue(), ageSeconds(full, incremental, now)));
+        }
+        return pipelines;
+    }
+
+    /** Logged transitions since {@code since}, counted per {@code from->to}. */
+    @SuppressWarnings("unchecked")
+    Map<String, Long> stateTransitions(Instant since) {
+        List<Object[]> rows = em.createNativeQuery(
+                        "SELECT from_state, to_state, COUNT(*) FROM bi_refresh_state_transition " +
+                        "WHERE changed_at >= :since GROUP BY from_state, to_state")
+                .setParameter("since", LocalDateTime.ofInstant(since, ZoneOffset.UTC))
+                .getResultList();
+        Map<String, Long> counts = new TreeMap<>();
+        for (Object[] row : rows) {
+            counts.put(row[0] + "->" + row[1], ((Number) row[2]).longValue());
+        }
+        return counts;
+    }
+
+    /** Called by the Java incremental drain after a certified run. */
+    public void recordDrain(String source, long durationMs, int userMonths) {
+        registry.timer("bi.incremental_drain.duration", "source", source).record(durationMs, TimeUnit.MILLISECONDS);
+        registry.summary("bi.incremental_drain.user_months", "source", source).record(userMonths);
+        lastDrain.set(new DrainRun(source, Instant.now(), durationMs, userMonths));
+        perfMetrics.emit(List.of(
+                        new PerfMetrics.Metric("BiDrainDurationMs", "Milliseconds", durationMs),
+                        new PerfMetrics.Metric("BiDrainUserMonths", "Count", userMonths)),
+                Map.of("source", source), Map.of());
+    }
+
+    private void updateGauges(Snapshot snapshot) {
+        Backlog backlog = snapshot.backlog();
+        pendingGauge.set(backlog.pending());
+        oldestPendingGauge.set(backlog.oldestPendingSeconds() == null ? 0 : backlog.oldestPendingSeconds());
+        for (PipelineState p : snapshot.pipelines()) {
+            stateGauges.computeIfAbsent(p.pipeline(), name ->
+                            registry.gauge("bi.refresh.state", Tags.of("pipeline", name), new AtomicLong()))
+                    .set(REFRESH_STATES.indexOf(p.refreshState()));
+            lastSuccessAgeGauges.computeIfAbsent(p.pipeline(), name ->
+                            registry.gauge("bi.refresh.last_success_age_seconds", Tags.of("pipeline", name), new AtomicLong()))
+                    .set(p.lastSuccessAgeSeconds() == null ? -1 : p.lastSuccessAgeSeconds());
+        }
+    }
+
+    /**
+     * Counts the transitions logged since the previous sample. The log is written by the trigger
+     * in the same transaction as the state change, so a RUNNING or FAILED state that lasted less
+     * than one sample interval is still counted.
+     */
+    @SuppressWarnings("unchecked")
+    void countTransitions() {
+        List<Object[]> rows = em.createNativeQuery(
+                        "SELECT id, pipeline_name, from_state, to_state FROM bi_refresh_state_transition " +
+                        "WHERE id > :after AND changed_at >= :since ORDER BY id")
+                .setParameter("after", lastTransitionId.get())
+                .setParameter("since", LocalDateTime.ofInstant(startedAt, ZoneOffset.UTC))
+                .getResultList();
+        for (Object[] row : rows) {
+            String pipeline = (String) row[1];
+            String from = String.valueOf(row[2]);
+            String to = String.valueOf(row[3]);
+            registry.counter("bi.refresh_state.transitions", "pipeline", pipeline, "from", from, "to", to).increment();
+            log.infof("bi_refresh_watermark %s: %s -> %s", pipeline, from, to);
+            lastTransitionId.set(((Number) row[0]).longValue());
+        }
+    }
+
+    private long versionDelta(PipelineState p) {
+        Long previous = lastVersions.put(p.pipeline(), p.incrementalRefreshVersion());
+        return previous == null ? 0 : Math.max(0, p.incrementalRefreshVersion() - previous);
+    }
+
+    List<PerfMetrics.Metric> backlogMetrics(Backlog backlog) {
+        List<PerfMetrics.Metric> out = new ArrayList<>();
+        out.add(new PerfMetrics.Metric("FactChangeLogPending", "Count", backlog.pending()));
+        if (backlog.oldestPendingSeconds() != null) {
+            out.add(new PerfMetrics.Metric("FactChangeLogOldestPendingSeconds", "Seconds", backlog.oldestPendingSeconds()));
+        }
+        return out;
+    }
+
+    /** Seconds since the newer of the two refresh timestamps (stored as UTC), or null if never refreshed. */
+    static Long ageSeconds(LocalDateTime lastFull, LocalDateTime lastIncremental, Instant now) {
+        LocalDateTime last = lastFull == null ? lastIncremental
+                : lastIncremental == null || lastFull.isAfter(lastIncremental) ? lastFull : lastIncremental;
+        if (last == null) return null;
+        return Math.max(0, Duration.between(last.toInstant(ZoneOffset.UTC), now).getSeconds());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDateTime ldt) return ldt;
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime();
+        return LocalDateTime.parse(value.toString().replace(' ', 'T'));
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDate ld) return ld;
+        if (value instanceof java.sql.Date d) return d.toLocalDate();
+        return LocalDate.parse(value.toString());
+    }
+}
@@ -4,6 +4,7 @@ import dk.trustworks.intranet.aggregates.clientstatus.ClientStatusMath;
 import dk.trustworks.intranet.aggregates.clientstatus.ClientStatusRecon;
 import dk.trustworks.intranet.aggregates.clientstatus.dto.*;
 import dk.trustworks.intranet.aggregates.clientstatus.model.ClientMonthControl;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -23,6 +24,9 @@ public class ClientStatusService {
     @Inject
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     private static double num(Object value) {
         return value == null ? 0d : ((Number) value).doubleValue();
     }
@@ -42,7 +46,7 @@ public class ClientStatusService {
                 SELECT w.clientuuid AS client_id,
                        DATE_FORMAT(w.registered, '%Y%m') AS month_key,
                        SUM(IFNULL(w.rate,0) * w.workduration) AS expected
-                FROM work_full w
+                """ + workFullSource.from("w") + """
                 WHERE w.rate > 0
                   AND w.clientuuid IS NOT NULL
                   AND w.clientuuid <> :internalClient
@@ -247,7 +251,7 @@ public class ClientStatusService {
                        AVG(w.rate) AS avg_rate,
                        SUM(IFNULL(w.rate,0) * w.workduration) AS value,
                        MAX(COALESCE(CONCAT(hu.firstname, ' ', hu.lastname), w.workas)) AS helped_name
-                FROM work_full w
+                """ + workFullSource.from("w") + """
                 LEFT JOIN `user` u ON u.uuid = w.useruuid
                 LEFT JOIN project p ON p.uuid = w.projectuuid
                 LEFT JOIN `user` hu ON hu.uuid = w.workas AND w.workas <> '' AND w.workas <> w.useruuid
@@ -426,7 +430,7 @@ public class ClientStatusService {
 
         Object expectedObj = em.createNativeQuery("""
                 SELECT SUM(IFNULL(w.rate,0) * w.workduration)
-                FROM work_full w
+                """ + workFullSource.from("w") + """
                 WHERE w.clientuuid = :client
                   AND w.rate > 0
                   AND w.registered >= :fromDate AND w.registered < :toDate
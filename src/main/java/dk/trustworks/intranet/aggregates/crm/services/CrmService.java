@@ -3,6 +3,7 @@ package dk.trustworks.intranet.aggregates.crm.services;
 import dk.trustworks.intranet.aggregates.budgets.services.BudgetService;
 import dk.trustworks.intranet.aggregates.crm.model.ConsultantContract;
 import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import dk.trustworks.intranet.dao.workservice.services.WorkService;
 import dk.trustworks.intranet.domain.user.entity.User;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -26,6 +27,9 @@ public class CrmService {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     @Inject
     WorkService workService;
 
@@ -63,7 +67,7 @@ public class CrmService {
                     -- Pre-aggregate actual data
                     LEFT JOIN (
                         SELECT contractuuid, useruuid, SUM(workduration * rate) AS totalActual
-                        FROM work_full
+                        """ + workFullSource.from("wf") + """
                         GROUP BY contractuuid, useruuid
                     ) w ON w.contractuuid = cc.contractuuid AND w.useruuid = cc.useruuid
                     
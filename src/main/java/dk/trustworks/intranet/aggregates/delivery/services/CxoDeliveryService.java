@@ -1,5 +1,6 @@
 package dk.trustworks.intranet.aggregates.delivery.services;
 
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactVersionKeyGenerator;
 import dk.trustworks.intranet.aggregates.delivery.dto.AvgProjectMarginDTO;
 import dk.trustworks.intranet.aggregates.delivery.dto.BenchConsultantDTO;
 import dk.trustworks.intranet.aggregates.delivery.dto.BenchCountDTO;
@@ -14,6 +15,7 @@ import dk.trustworks.intranet.aggregates.delivery.dto.ResourceHeatmapCellDTO;
 import dk.trustworks.intranet.aggregates.delivery.dto.ResourceHeatmapDTO;
 import dk.trustworks.intranet.aggregates.delivery.dto.UtilizationTTMDTO;
 import dk.trustworks.intranet.aggregates.delivery.dto.cxo.StaffingGapForecastMonthDTO;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import dk.trustworks.intranet.utils.TwConstants;
 import io.quarkus.cache.CacheResult;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -52,6 +54,9 @@ public class CxoDeliveryService {
     @Inject
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     /**
      * Calculates Company Billable Utilization (TTM) KPI.
      * Returns utilization percentage over a trailing 12-month window.
@@ -68,7 +73,7 @@ public class CxoDeliveryService {
      * @param companyIds Multi-select company filter (UUIDs)
      * @return UtilizationTTMDTO with current/prior percentages, YoY change, and sparkline
      */
-    @CacheResult(cacheName = "delivery-utilization-ttm")
+    @CacheResult(cacheName = "delivery-utilization-ttm", keyGenerator = BiFactVersionKeyGenerator.class)
     public UtilizationTTMDTO getUtilizationTTM(
             LocalDate fromDate,
             LocalDate toDate,
@@ -263,7 +268,7 @@ public class CxoDeliveryService {
      * @param companyIds Multi-select company filter
      * @return ForecastUtilizationDTO with current/prior percentages, change, and sparkline
      */
-    @CacheResult(cacheName = "delivery-forecast-utilization")
+    @CacheResult(cacheName = "delivery-forecast-utilization", keyGenerator = BiFactVersionKeyGenerator.class)
     public ForecastUtilizationDTO getForecastUtilization(
             LocalDate fromDate,
             LocalDate toDate,
@@ -515,7 +520,7 @@ public class CxoDeliveryService {
      * @param companyIds Multi-select company filter
      * @return BenchCountDTO with current/prior counts and absolute change
      */
-    @CacheResult(cacheName = "delivery-bench-count")
+    @CacheResult(cacheName = "delivery-bench-count", keyGenerator = BiFactVersionKeyGenerator.class)
     public BenchCountDTO getBenchCount(
             LocalDate fromDate,
             LocalDate toDate,
@@ -647,7 +652,7 @@ public class CxoDeliveryService {
      * @param companyIds Multi-select company filter
      * @return OverloadCountDTO with current/prior counts and absolute change
      */
-    @CacheResult(cacheName = "delivery-overload-count")
+    @CacheResult(cacheName = "delivery-overload-count", keyGenerator = BiFactVersionKeyGenerator.class)
     public OverloadCountDTO getOverloadCount(
             LocalDate fromDate,
             LocalDate toDate,
@@ -1012,7 +1017,7 @@ public class CxoDeliveryService {
      * @param companyIds Multi-select company filter (UUIDs)
      * @return RealizationRateDTO with current/prior percentages, YoY change, and sparkline
      */
-    @CacheResult(cacheName = "delivery-realization-rate")
+    @CacheResult(cacheName = "delivery-realization-rate", keyGenerator = BiFactVersionKeyGenerator.class)
     public RealizationRateDTO getRealizationRate(
             LocalDate fromDate,
             LocalDate toDate,
@@ -1087,7 +1092,7 @@ public class CxoDeliveryService {
         sql.append("SELECT ");
         sql.append("  SUM(CASE WHEN w.rate > 0 THEN w.workduration * w.rate ELSE 0 END) AS billed_value, ");
         sql.append("  SUM(w.workduration * w.rate) AS expected_value ");
-        sql.append("FROM work_full_optimized w ");
+        sql.append("FROM ").append(workFullSource.table()).append(" w ");
         sql.append("WHERE w.registered >= :fromDate ");
         sql.append("  AND w.registered <= :toDate ");
         sql.append("  AND w.type = 'CONSULTANT' ");
@@ -1203,7 +1208,7 @@ public class CxoDeliveryService {
      * @param companyIds Multi-select company filter (UUIDs)
      * @return AvgProjectMarginDTO with current/prior percentages, YoY change, and sparkline
      */
-    @CacheResult(cacheName = "delivery-avg-project-margin")
+    @CacheResult(cacheName = "delivery-avg-project-margin", keyGenerator = BiFactVersionKeyGenerator.class)
     public AvgProjectMarginDTO getAvgProjectMargin(
             LocalDate fromDate,
             LocalDate toDate,
@@ -1437,7 +1442,7 @@ public class CxoDeliveryService {
      * @param companyIds Optional company filter
      * @return CapacityPlanningDTO with 13 weeks of data
      */
-    @CacheResult(cacheName = "delivery-capacity-planning")
+    @CacheResult(cacheName = "delivery-capacity-planning", keyGenerator = BiFactVersionKeyGenerator.class)
     public CapacityPlanningDTO getCapacityPlanning(
             Set<String> practices,
             Set<String> companyIds) {
@@ -1587,7 +1592,7 @@ public class CxoDeliveryService {
      * @param companyIds Optional company filter
      * @return ResourceHeatmapDTO with teams, weeks, and utilization cells
      */
-    @CacheResult(cacheName = "delivery-resource-heatmap")
+    @CacheResult(cacheName = "delivery-resource-heatmap", keyGenerator = BiFactVersionKeyGenerator.class)
     public ResourceHeatmapDTO getResourceHeatmap(
             Set<String> practices,
             Set<String> companyIds) {
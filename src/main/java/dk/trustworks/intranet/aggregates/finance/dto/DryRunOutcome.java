@@ -40,6 +40,10 @@ import java.util.Map;
  *                             {@code economics.import.dry-run} property at
  *                             refresh-call time, so log consumers can confirm
  *                             which mode produced this outcome.
+ * @param perCompany           company UUID → row counts and fetch/write timings
+ *                             of that company's part of the run, in
+ *                             import order. Empty when the producer does not
+ *                             track them.
  */
 public record DryRunOutcome(
         int totalIntendedInserts,
@@ -47,6 +51,13 @@ public record DryRunOutcome(
         Map<String, BigDecimal> perCompanyDkk,
         Map<Integer, BigDecimal> perAccountDkk,
         Map<EconomicRevenueImportService.DedupLayer, Integer> skippedByLayer,
-        boolean dryRun
+        boolean dryRun,
+        Map<String, EconomicRevenueImportService.CompanyImport> perCompany
 ) {
+
+    public DryRunOutcome(int totalIntendedInserts, int totalActualInserts,
+                         Map<String, BigDecimal> perCompanyDkk, Map<Integer, BigDecimal> perAccountDkk,
+                         Map<EconomicRevenueImportService.DedupLayer, Integer> skippedByLayer, boolean dryRun) {
+        this(totalIntendedInserts, totalActualInserts, perCompanyDkk, perAccountDkk, skippedByLayer, dryRun, Map.of());
+    }
 }
@@ -27,7 +27,9 @@ import java.time.LocalDateTime;
  *
  * <p><b>Window scoping (2026-07-01 fix):</b> the freshness query is restricted to the same
  * month_key window that {@link dk.trustworks.intranet.aggregates.finance.services.OpexDistributionRefreshService#refresh()}
- * rewrites every night — {@code [currentFY - refreshWindowFyBack, currentFY + 1)}. Rows for
+ * maintains every night — {@code [currentFY - refreshWindowFyBack, currentFY + 1)}. The refresh
+ * only rewrites months whose inputs changed, but it bumps refreshed_at on the unchanged ones, so
+ * refreshed_at still means "verified by the last successful run". Rows for
  * older fiscal years are written once and never touched again, so their refreshed_at ages out
  * indefinitely. A prior version ran {@code MIN(refreshed_at)} over ALL rows, so those frozen
  * historical rows tripped the check to DOWN a day or two after each fiscal-year boundary even
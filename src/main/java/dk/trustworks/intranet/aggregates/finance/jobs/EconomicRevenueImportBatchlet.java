@@ -102,13 +102,14 @@ public class EconomicRevenueImportBatchlet {
             }
 
             DryRunOutcome outcome = refreshService.refresh(from, to);
-            log.infof("e-conomic revenue import complete: dryRun=%s intended=%d actual=%d perCompany=%s perAccount=%s skipped=%s window=[%s..%s]",
+            log.infof("e-conomic revenue import complete: dryRun=%s intended=%d actual=%d perCompany=%s perAccount=%s skipped=%s companies=%s window=[%s..%s]",
                     outcome.dryRun(),
                     outcome.totalIntendedInserts(),
                     outcome.totalActualInserts(),
                     outcome.perCompanyDkk(),
                     outcome.perAccountDkk(),
                     outcome.skippedByLayer(),
+                    outcome.perCompany(),
                     from, to);
 
             // Derive per-consultant attribution for in-scope phantoms (decision #3).
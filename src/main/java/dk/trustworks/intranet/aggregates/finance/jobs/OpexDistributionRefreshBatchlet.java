@@ -23,8 +23,10 @@ import java.util.concurrent.atomic.AtomicReference;
  * fact_user_day and fact_salary_monthly are guaranteed fresh.
  *
  * <p>Cold-start guard: if the table is empty on startup (fresh deploy,
- * RDS backup restore), kicks off a one-shot refresh on a worker thread
- * so the readiness probe doesn't have to wait for it.
+ * RDS backup restore), kicks off a one-shot forced refresh on a worker thread
+ * so the readiness probe doesn't have to wait for it. Forced, because the
+ * stored source hashes may survive a cleared table and would otherwise mark
+ * every month as unchanged.
  *
  * <p>Failure handling: catches all exceptions (so the scheduler keeps
  * running), routes errors to Sentry via JBoss-log, and posts a Slack
@@ -59,7 +61,8 @@ public class OpexDistributionRefreshBatchlet {
     public void scheduledRun() {
         try {
             RefreshOutcome outcome = refreshService.refresh();
-            log.infof("fact_opex_distribution_mat refreshed: inserted=%d deleted=%d took=%dms window=[%s..%s)",
+            log.infof("fact_opex_distribution_mat refreshed: recomputed=%d unchanged=%d inserted=%d deleted=%d took=%dms window=[%s..%s)",
+                    outcome.slicesRecomputed(), outcome.slicesUnchanged(),
                     outcome.inserted(), outcome.deleted(), outcome.took().toMillis(),
                     outcome.windowFrom(), outcome.windowTo());
             lastAlertSent.set(null);
@@ -82,7 +85,7 @@ public class OpexDistributionRefreshBatchlet {
             log.warnf("fact_opex_distribution_mat is empty on startup — triggering one-shot refresh asynchronously");
             managedExecutor.submit(() -> {
                 try {
-                    refreshService.refresh();
+                    refreshService.refresh(true);
                 } catch (Exception e) {
                     log.errorf(e, "startup one-shot refresh failed");
                     fireSlackAlertIfNeeded(e);
@@ -45,6 +45,7 @@ import dk.trustworks.intranet.aggregates.finance.dto.cxo.RevenuePracticeDTO;
 import dk.trustworks.intranet.aggregates.finance.model.CareerLevelBonus;
 import dk.trustworks.intranet.aggregates.finance.health.SalaryGLAnomalyCheck;
 import dk.trustworks.intranet.aggregates.finance.services.ConsultantInsightsService;
+import dk.trustworks.intranet.aggregates.finance.services.CxoDashboardService;
 import dk.trustworks.intranet.aggregates.finance.services.CxoFinanceService;
 import dk.trustworks.intranet.model.Company;
 import dk.trustworks.intranet.aggregates.finance.usecases.CareerLevelEconomicsUseCase;
@@ -104,6 +105,59 @@ public class CxoFinanceResource {
     @Inject
     dk.trustworks.intranet.services.PracticeService practiceService;
 
+    @Inject
+    CxoDashboardService cxoDashboardService;
+
+    /**
+     * Computes several dashboard KPIs in one call from shared fact slices.
+     *
+     * <p>Each KPI value has the shape its own endpoint returns (e.g. {@code revenue-margin-trend}
+     * → list of {@link MonthlyRevenueMarginDTO}); a KPI that fails carries an error instead.
+     * Filters apply to every KPI that accepts them, exactly as on the single endpoints.</p>
+     *
+     * @param kpis Comma-separated KPI names (optional, all supported KPIs when omitted)
+     * @param asOfDate Anchor for the as-of KPIs (optional, defaults to today)
+     * @param practices Comma-separated practice codes or uuids, for utilization-trend (optional)
+     * @return per-KPI values and timings plus the load time of each fact slice read
+     */
+    @GET
+    @Path("/dashboard")
+    public CxoDashboardService.Dashboard getDashboard(
+            @QueryParam("kpis") String kpis,
+            @QueryParam("fromDate") LocalDate fromDate,
+            @QueryParam("toDate") LocalDate toDate,
+            @QueryParam("asOfDate") LocalDate asOfDate,
+            @QueryParam("sectors") String sectors,
+            @QueryParam("serviceLines") String serviceLines,
+            @QueryParam("contractTypes") String contractTypes,
+            @QueryParam("clientId") String clientId,
+            @QueryParam("companyIds") String companyIds,
+            @QueryParam("practices") String practices) {
+
+        log.debugf("GET /finance/cxo/dashboard: kpis=%s, fromDate=%s, toDate=%s, asOfDate=%s, companyIds=%s",
+                kpis, fromDate, toDate, asOfDate, companyIds);
+
+        List<String> kpiNames = kpis == null || kpis.isBlank()
+                ? List.copyOf(cxoDashboardService.supportedKpis())
+                : java.util.Arrays.stream(kpis.split(",")).map(String::trim).filter(k -> !k.isEmpty()).toList();
+        for (String kpi : kpiNames) {
+            if (!cxoDashboardService.supportedKpis().contains(kpi)) {
+                throw new BadRequestException("Unknown KPI '" + kpi + "' (supported: "
+                        + String.join(",", cxoDashboardService.supportedKpis()) + ")");
+            }
+        }
+
+        CxoDashboardService.Filters filters = new CxoDashboardService.Filters(
+                fromDate, toDate, asOfDate,
+                parseCommaSeparated(sectors),
+                parseCommaSeparated(serviceLines),
+                parseCommaSeparated(contractTypes),
+                clientId,
+                parseCommaSeparated(companyIds),
+                practiceService.normalizePracticeFilter(parseCommaSeparated(practices)));
+        return cxoDashboardService.compute(kpiNames, filters);
+    }
+
     /**
      * Gets monthly revenue and margin trend data.
      *
@@ -0,0 +1,537 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import dk.trustworks.intranet.aggregates.finance.dto.GrossMarginTTMDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.MonthlyRevenueMarginDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.MonthlyUtilizationDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.RevenueYTDDataDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.TTMRevenueGrowthDTO;
+import dk.trustworks.intranet.aggregates.utilization.services.UtilizationCalculationHelper;
+import dk.trustworks.intranet.aggregates.utilization.services.UtilizationCalculationHelper.FiscalYearRange;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Computes a set of CxO dashboard KPIs in one request.
+ *
+ * <p>The individual {@code /finance/cxo/*} endpoints each scan the fact tables for their own
+ * window. Here the monthly slices the core KPIs share are read once per request — company
+ * revenue ({@code fact_company_revenue_mat}), dimension-filtered direct delivery cost
+ * ({@code fact_project_financials_mat}) and utilization hours ({@code fact_user_day}) — over
+ * the union of the windows those KPIs need, and the KPIs are derived from them in memory with
+ * the same arithmetic as {@link CxoFinanceService}. A slice is loaded by the first KPI that
+ * needs it; KPIs needing the same slice wait for that one load.</p>
+ *
+ * <p>KPIs without a shared slice delegate to their {@link CxoFinanceService} method. All KPIs run
+ * on at most {@code cxo.dashboard.parallelism} workers, each database read in its own
+ * transaction, so one page view holds that many connections at most. A failing KPI is reported
+ * with its error and does not fail the others.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class CxoDashboardService {
+
+    public static final String REVENUE_MARGIN_TREND = "revenue-margin-trend";
+    public static final String UTILIZATION_TREND = "utilization-trend";
+    public static final String REVENUE_YTD_VS_BUDGET = "revenue-ytd-vs-budget";
+    public static final String TTM_REVENUE_GROWTH = "ttm-revenue-growth";
+    public static final String GROSS_MARGIN_TTM = "gross-margin-ttm";
+
+    /** Shared filter set; null dates default the way the single endpoints default them. */
+    public record Filters(LocalDate fromDate, LocalDate toDate, LocalDate asOfDate,
+                          Set<String> sectors, Set<String> serviceLines, Set<String> contractTypes,
+                          String clientId, Set<String> companyIds, Set<String> practices) {}
+
+    /** One KPI's value (the DTO its own endpoint returns) or its error, with its wall time. */
+    public record KpiResult(Object value, long durationMs, boolean fromSlices, String error) {}
+
+    /** {@code slices} holds the load time of every slice the request actually read. */
+    public record Dashboard(Map<String, KpiResult> kpis, Map<String, Long> slices, long durationMs) {}
+
+    private record Kpi(boolean fromSlices, BiFunction<Filters, Slices, Object> compute) {}
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    CxoFinanceService cxoFinanceService;
+
+    @Inject
+    FinanceCubeService financeCubeService;
+
+    @Inject
+    ManagedExecutor executor;
+
+    /** KPIs computed concurrently per request; 1 computes them on the request thread. */
+    @ConfigProperty(name = "cxo.dashboard.parallelism", defaultValue = "4")
+    int parallelism = 1;
+
+    private final Map<String, Kpi> kpis = new LinkedHashMap<>();
+
+    public CxoDashboardService() {
+        kpis.put(REVENUE_MARGIN_TREND, new Kpi(true, this::revenueMarginTrend));
+        kpis.put(UTILIZATION_TREND, new Kpi(true, this::utilizationTrend));
+        kpis.put(REVENUE_YTD_VS_BUDGET, new Kpi(true, this::revenueYtdVsBudget));
+        kpis.put(TTM_REVENUE_GROWTH, new Kpi(true, this::ttmRevenueGrowth));
+        kpis.put(GROSS_MARGIN_TTM, new Kpi(true, this::grossMarginTtm));
+
+        delegate("realization-rate", f -> cxoFinanceService.getRealizationRate(
+                f.fromDate(), toDateOrToday(f), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        delegate("backlog-coverage", f -> cxoFinanceService.getBacklogCoverage(
+                asOf(f), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        delegate("revenue-per-fte", f -> cxoFinanceService.getRevenuePerBillableFTETTM(
+                f.fromDate(), toDateOrToday(f), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        delegate("billable-utilization-4w", f -> cxoFinanceService.getBillableUtilizationLast4Weeks(
+                asOf(f), f.serviceLines(), f.companyIds()));
+        delegate("forecast-utilization-8w", f -> cxoFinanceService.getForecastUtilization(
+                asOf(f), f.serviceLines(), f.companyIds()));
+        delegate("voluntary-attrition-12m", f -> cxoFinanceService.getVoluntaryAttrition(
+                asOf(f), f.serviceLines(), f.companyIds()));
+        delegate("pipeline-backlog-trend", f -> cxoFinanceService.getPipelineBacklogTrend(
+                f.fromDate(), f.toDate(), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        delegate("client-retention", f -> cxoFinanceService.getClientRetention(
+                f.fromDate(), f.toDate(), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        delegate("repeat-business-share", f -> cxoFinanceService.getRepeatBusinessShare(
+                f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        delegate("top-5-clients-share", f -> cxoFinanceService.getTop5ClientsShare(
+                f.fromDate(), f.toDate(), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+    }
+
+    private void delegate(String name, Function<Filters, Object> call) {
+        kpis.put(name, new Kpi(false, (f, slices) -> inTransaction(() -> call.apply(f))));
+    }
+
+    public Set<String> supportedKpis() {
+        return kpis.keySet();
+    }
+
+    /**
+     * @param kpiNames KPI names from {@link #supportedKpis()}, in the order the response keeps
+     * @throws IllegalArgumentException for an unknown KPI name
+     */
+    public Dashboard compute(List<String> kpiNames, Filters filters) {
+        long started = System.currentTimeMillis();
+        List<String> requested = List.copyOf(new LinkedHashSet<>(kpiNames));
+        for (String name : requested) {
+            if (!kpis.containsKey(name)) throw new IllegalArgumentException("Unknown KPI: " + name);
+        }
+        Slices slices = new Slices(filters);
+        Map<String, KpiResult> results = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>(requested);
+
+        Runnable worker = () -> {
+            String name;
+            while ((name = pending.poll()) != null) {
+                Kpi kpi = kpis.get(name);
+                long kpiStarted = System.currentTimeMillis();
+                try {
+                    Object value = kpi.compute().apply(filters, slices);
+                    results.put(name, new KpiResult(value, System.currentTimeMillis() - kpiStarted, kpi.fromSlices(), null));
+                } catch (Exception e) {
+                    log.warnf(e, "CxO dashboard KPI %s failed", name);
+                    results.put(name, new KpiResult(null, System.currentTimeMillis() - kpiStarted, kpi.fromSlices(),
+                            e.getClass().getSimpleName() + ": " + e.getMessage()));
+                }
+            }
+        };
+
+        int workers = Math.min(Math.max(parallelism, 1), requested.size());
+        if (workers <= 1 || executor == null) {
+            worker.run();
+        } else {
+            List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(CompletableFuture.runAsync(worker, executor));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        }
+
+        Map<String, KpiResult> ordered = new LinkedHashMap<>();
+        for (String name : requested) ordered.put(name, results.get(name));
+        long duration = System.currentTimeMillis() - started;
+        log.debugf("CxO dashboard: %d KPIs in %d ms, slices %s", requested.size(), duration, slices.loadTimes());
+        return new Dashboard(ordered, slices.loadTimes(), duration);
+    }
+
+    // -------------------------------------------------------------------------
+    // KPIs over the shared slices — same arithmetic as the CxoFinanceService methods
+    // -------------------------------------------------------------------------
+
+    private List<MonthlyRevenueMarginDTO> revenueMarginTrend(Filters f, Slices slices) {
+        String fromKey = UtilizationCalculationHelper.toMonthKey(trendFrom(f));
+        String toKey = UtilizationCalculationHelper.toMonthKey(trendTo(f));
+        NavigableMap<String, Double> revenue = slices.revenue().subMap(fromKey, true, toKey, true);
+        NavigableMap<String, Double> cost = slices.cost().subMap(fromKey, true, toKey, true);
+
+        Set<String> months = new TreeSet<>(cost.keySet());
+        months.addAll(revenue.keySet());
+        List<MonthlyRevenueMarginDTO> dtos = new ArrayList<>();
+        for (String monthKey : months) {
+            int year = Integer.parseInt(monthKey.substring(0, 4));
+            int monthNumber = Integer.parseInt(monthKey.substring(4));
+            double monthRevenue = revenue.getOrDefault(monthKey, 0.0);
+            double monthCost = cost.getOrDefault(monthKey, 0.0);
+            Double marginPercent = monthRevenue > 0 ? ((monthRevenue - monthCost) / monthRevenue) * 100.0 : null;
+            dtos.add(new MonthlyRevenueMarginDTO(monthKey, year, monthNumber,
+                    CxoFinanceService.formatMonthLabel(year, monthNumber), monthRevenue, monthCost, marginPercent));
+        }
+        return dtos;
+    }
+
+    private List<MonthlyUtilizationDTO> utilizationTrend(Filters f, Slices slices) {
+        List<MonthlyUtilizationDTO> dtos = new ArrayList<>();
+        for (Map.Entry<String, double[]> month : slices.userDays().entrySet()) {
+            String monthKey = month.getKey();
+            int year = Integer.parseInt(monthKey.substring(0, 4));
+            int monthNumber = Integer.parseInt(monthKey.substring(4));
+            double billable = month.getValue()[0];
+            double absence = month.getValue()[1];
+            double netAvailable = month.getValue()[2];
+            double grossAvailable = month.getValue()[3];
+            Double utilizationPercent = netAvailable > 0
+                    ? UtilizationCalculationHelper.calcPercent(billable, netAvailable)
+                    : null;
+            dtos.add(new MonthlyUtilizationDTO(monthKey, year, monthNumber,
+                    CxoFinanceService.formatMonthLabel(year, monthNumber), billable,
+                    Math.max(0, netAvailable - billable), absence, netAvailable, grossAvailable, utilizationPercent));
+        }
+        return dtos;
+    }
+
+    private RevenueYTDDataDTO revenueYtdVsBudget(Filters f, Slices slices) {
+        LocalDate asOf = asOf(f);
+        FiscalYearRange currentFY = UtilizationCalculationHelper.getFiscalYearRange(fiscalYearOf(asOf));
+        FiscalYearRange priorFY = UtilizationCalculationHelper.getFiscalYearRange(currentFY.fiscalYear() - 1);
+        LocalDate priorYearEnd = priorFY.start().plusMonths(ChronoUnit.MONTHS.between(currentFY.start(), asOf));
+
+        double actualYTD = sum(slices.revenue(), currentFY.start(), asOf);
+        double budgetYTD = inTransaction(() -> cxoFinanceService.queryBudgetRevenue(currentFY.start(), asOf,
+                f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companyIds()));
+        double priorYearYTD = sum(slices.revenue(), priorFY.start(), priorYearEnd);
+        double[] sparkline = sparkline(slices.revenue(), asOf.minusMonths(11).withDayOfMonth(1), asOf);
+
+        double attainmentPercent = budgetYTD > 0 ? (actualYTD / budgetYTD) * 100.0 : 0.0;
+        double yoyChangePercent = priorYearYTD > 0 ? ((actualYTD - priorYearYTD) / priorYearYTD) * 100.0 : 0.0;
+        return new RevenueYTDDataDTO(actualYTD, budgetYTD, attainmentPercent, actualYTD - budgetYTD,
+                priorYearYTD, yoyChangePercent, sparkline);
+    }
+
+    private TTMRevenueGrowthDTO ttmRevenueGrowth(Filters f, Slices slices) {
+        LocalDate anchor = anchor(f);
+        LocalDate currentStart = anchor.minusMonths(11).withDayOfMonth(1);
+        double currentTTM = sum(slices.revenue(), currentStart, anchor);
+        double priorTTM = sum(slices.revenue(), currentStart.minusYears(1), anchor.minusYears(1));
+        double growthPercent = priorTTM > 0 ? ((currentTTM - priorTTM) / priorTTM) * 100.0 : 0.0;
+        return new TTMRevenueGrowthDTO(currentTTM, priorTTM, growthPercent,
+                sparkline(slices.revenue(), currentStart, anchor));
+    }
+
+    private GrossMarginTTMDTO grossMarginTtm(Filters f, Slices slices) {
+        LocalDate anchor = anchor(f);
+        LocalDate currentStart = anchor.minusMonths(11).withDayOfMonth(1);
+        LocalDate priorStart = currentStart.minusYears(1);
+        LocalDate priorEnd = anchor.minusYears(1);
+
+        double currentRevenue = sum(slices.revenue(), currentStart, anchor);
+        double priorRevenue = sum(slices.revenue(), priorStart, priorEnd);
+        // Direct cost is booked GL plus QUEUED internal cost, neither of which is a shared slice.
+        double currentCost = inTransaction(() -> glCost(f, currentStart, anchor));
+        double priorCost = inTransaction(() -> glCost(f, priorStart, priorEnd));
+
+        double currentMargin = currentRevenue > 0 ? ((currentRevenue - currentCost) / currentRevenue) * 100.0 : 0.0;
+        double priorMargin = priorRevenue > 0 ? ((priorRevenue - priorCost) / priorRevenue) * 100.0 : 0.0;
+
+        String fromKey = UtilizationCalculationHelper.toMonthKey(currentStart);
+        String toKey = UtilizationCalculationHelper.toMonthKey(anchor);
+        NavigableMap<String, Double> revenue = slices.revenue().subMap(fromKey, true, toKey, true);
+        NavigableMap<String, Double> cost = slices.cost().subMap(fromKey, true, toKey, true);
+        Set<String> months = new TreeSet<>(revenue.keySet());
+        months.addAll(cost.keySet());
+        double[] sparkline = new double[12];
+        int i = 0;
+        for (String monthKey : months) {
+            if (i == 12) break;
+            double monthRevenue = revenue.getOrDefault(monthKey, 0.0);
+            double monthCost = cost.getOrDefault(monthKey, 0.0);
+            sparkline[i++] = monthRevenue > 0 ? ((monthRevenue - monthCost) / monthRevenue) * 100.0 : 0.0;
+        }
+
+        return new GrossMarginTTMDTO(currentRevenue, currentCost, currentMargin,
+                priorRevenue, priorCost, priorMargin, currentMargin - priorMargin, sparkline);
+    }
+
+    private double glCost(Filters f, LocalDate from, LocalDate to) {
+        return cxoFinanceService.queryActualCosts(from, to, f.sectors(), f.serviceLines(), f.contractTypes(),
+                f.clientId(), f.companyIds())
+                + cxoFinanceService.queryQueuedInternalCostForWindow(UtilizationCalculationHelper.toMonthKey(from),
+                UtilizationCalculationHelper.toMonthKey(to), f.companyIds());
+    }
+
+    private static double sum(NavigableMap<String, Double> byMonth, LocalDate from, LocalDate to) {
+        return byMonth.subMap(UtilizationCalculationHelper.toMonthKey(from), true,
+                        UtilizationCalculationHelper.toMonthKey(to), true)
+                .values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    /** Months with data, oldest first, in up to 12 slots — as {@code queryCompanyRevenueSparkline} fills them. */
+    private static double[] sparkline(NavigableMap<String, Double> byMonth, LocalDate from, LocalDate to) {
+        double[] sparkline = new double[12];
+        int i = 0;
+        for (double value : byMonth.subMap(UtilizationCalculationHelper.toMonthKey(from), true,
+                UtilizationCalculationHelper.toMonthKey(to), true).values()) {
+            if (i == 12) break;
+            sparkline[i++] = value;
+        }
+        return sparkline;
+    }
+
+    // -------------------------------------------------------------------------
+    // Windows — the defaults of the single endpoints
+    // -------------------------------------------------------------------------
+
+    private static LocalDate asOf(Filters f) {
+        return f.asOfDate() != null ? f.asOfDate() : LocalDate.now();
+    }
+
+    private static LocalDate toDateOrToday(Filters f) {
+        return f.toDate() != null ? f.toDate() : LocalDate.now();
+    }
+
+    private static LocalDate anchor(Filters f) {
+        LocalDate to = toDateOrToday(f);
+        return to.withDayOfMonth(to.lengthOfMonth());
+    }
+
+    private static LocalDate trendFrom(Filters f) {
+        return f.fromDate() != null ? f.fromDate().withDayOfMonth(1) : LocalDate.now().minusMonths(11).withDayOfMonth(1);
+    }
+
+    private static LocalDate trendTo(Filters f) {
+        return f.toDate() != null ? f.toDate().withDayOfMonth(1).plusMonths(1).minusDays(1) : LocalDate.now();
+    }
+
+    private static int fiscalYearOf(LocalDate date) {
+        return date.getMonthValue() >= 7 ? date.getYear() : date.getYear() - 1;
+    }
+
+    /** Month keys covering every revenue window above: trend, both TTMs, both fiscal YTDs, sparklines. */
+    static String[] revenueWindow(Filters f) {
+        LocalDate asOf = asOf(f);
+        LocalDate priorFYStart = UtilizationCalculationHelper.getFiscalYearRange(fiscalYearOf(asOf) - 1).start();
+        LocalDate priorTTMStart = anchor(f).minusMonths(11).withDayOfMonth(1).minusYears(1);
+        LocalDate from = min(min(trendFrom(f), priorTTMStart), priorFYStart);
+        LocalDate to = max(max(trendTo(f), anchor(f)), asOf);
+        return new String[]{UtilizationCalculationHelper.toMonthKey(from), UtilizationCalculationHelper.toMonthKey(to)};
+    }
+
+    /** Month keys covering the trend window and the current TTM (the gross-margin sparkline). */
+    static String[] costWindow(Filters f) {
+        LocalDate from = min(trendFrom(f), anchor(f).minusMonths(11).withDayOfMonth(1));
+        LocalDate to = max(trendTo(f), anchor(f));
+        return new String[]{UtilizationCalculationHelper.toMonthKey(from), UtilizationCalculationHelper.toMonthKey(to)};
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    // -------------------------------------------------------------------------
+    // Slice loading
+    // -------------------------------------------------------------------------
+
+    /** Runs a read on a worker thread in its own transaction, so it gets its own session. */
+    protected <T> T inTransaction(Callable<T> read) {
+        return QuarkusTransaction.requiringNew().call(read);
+    }
+
+    /** month_key → company revenue, companyIds only (revenue KPIs are company-total). */
+    @SuppressWarnings("unchecked")
+    protected NavigableMap<String, Double> loadRevenue(String fromKey, String toKey, Set<String> companyIds) {
+        boolean hasCompanies = companyIds != null && !companyIds.isEmpty();
+        var query = em.createNativeQuery(
+                "SELECT r.month_key, COALESCE(SUM(r.net_revenue_dkk), 0.0) AS monthly_revenue " +
+                "FROM fact_company_revenue_mat r " +
+                "WHERE r.month_key BETWEEN :fromKey AND :toKey " +
+                (hasCompanies ? "AND r.company_id IN (:companyIds) " : "") +
+                "GROUP BY r.month_key", Tuple.class);
+        query.setParameter("fromKey", fromKey);
+        query.setParameter("toKey", toKey);
+        if (hasCompanies) query.setParameter("companyIds", companyIds);
+
+        NavigableMap<String, Double> byMonth = new TreeMap<>();
+        for (Tuple row : (List<Tuple>) query.getResultList()) {
+            byMonth.put((String) row.get("month_key"), ((Number) row.get("monthly_revenue")).doubleValue());
+        }
+        return byMonth;
+    }
+
+    /** month_key → direct delivery cost with every dimension filter applied; from the finance cube when loaded. */
+    @SuppressWarnings("unchecked")
+    protected NavigableMap<String, Double> loadCost(String fromKey, String toKey, Filters f) {
+        FinanceCube cube = financeCubeService == null ? null : financeCubeService.current();
+        if (cube != null) {
+            return cube.sumByMonth(FinanceCube.Measure.DIRECT_DELIVERY_COST, new FinanceCube.Filter(fromKey, toKey,
+                    f.companyIds(), f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), null));
+        }
+        boolean hasSectors = f.sectors() != null && !f.sectors().isEmpty();
+        boolean hasServiceLines = f.serviceLines() != null && !f.serviceLines().isEmpty();
+        boolean hasContractTypes = f.contractTypes() != null && !f.contractTypes().isEmpty();
+        boolean hasClient = f.clientId() != null && !f.clientId().isBlank();
+        boolean hasCompanies = f.companyIds() != null && !f.companyIds().isEmpty();
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT f.month_key, COALESCE(SUM(f.direct_delivery_cost_dkk), 0.0) AS monthly_cost " +
+                "FROM fact_project_financials_mat f " +
+                "WHERE f.month_key BETWEEN :fromKey AND :toKey ");
+        if (hasSectors) sql.append("AND f.sector_id IN (:sectors) ");
+        if (hasServiceLines) sql.append("AND f.service_line_id IN (:serviceLines) ");
+        if (hasContractTypes) sql.append("AND f.contract_type_id IN (:contractTypes) ");
+        if (hasClient) sql.append("AND f.client_id = :clientId ");
+        if (hasCompanies) sql.append("AND f.companyuuid IN (:companyIds) ");
+        sql.append("GROUP BY f.month_key");
+
+        var query = em.createNativeQuery(sql.toString(), Tuple.class);
+        query.setParameter("fromKey", fromKey);
+        query.setParameter("toKey", toKey);
+        if (hasSectors) query.setParameter("sectors", f.sectors());
+        if (hasServiceLines) query.setParameter("serviceLines", f.serviceLines());
+        if (hasContractTypes) query.setParameter("contractTypes", f.contractTypes());
+        if (hasClient) query.setParameter("clientId", f.clientId());
+        if (hasCompanies) query.setParameter("companyIds", f.companyIds());
+
+        NavigableMap<String, Double> byMonth = new TreeMap<>();
+        for (Tuple row : (List<Tuple>) query.getResultList()) {
+            byMonth.put((String) row.get("month_key"), ((Number) row.get("monthly_cost")).doubleValue());
+        }
+        return byMonth;
+    }
+
+    /** month_key → {billable, absence, net available, gross available} hours of active consultants. */
+    @SuppressWarnings("unchecked")
+    protected NavigableMap<String, double[]> loadUserDays(LocalDate from, LocalDate to, Filters f) {
+        boolean hasPractices = f.practices() != null && !f.practices().isEmpty();
+        boolean hasCompanies = f.companyIds() != null && !f.companyIds().isEmpty();
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT CONCAT(LPAD(bdd.year, 4, '0'), LPAD(bdd.month, 2, '0')) AS month_key, " +
+                "  COALESCE(SUM(bdd.registered_billable_hours), 0) AS billable_hours, " +
+                "  COALESCE(SUM(bdd.vacation_hours + bdd.sick_hours + bdd.maternity_leave_hours " +
+                "      + bdd.non_payd_leave_hours + bdd.paid_leave_hours), 0) AS absence_hours, " +
+                "  COALESCE(SUM(bdd.net_available_hours), 0) AS net_available_hours, " +
+                "  COALESCE(SUM(bdd.gross_available_hours), 0) AS gross_available_hours " +
+                "FROM fact_user_day bdd " +
+                "JOIN user u ON u.uuid = bdd.useruuid " +
+                "WHERE bdd.document_date >= :fromDate " +
+                "  AND bdd.document_date <= :toDate " +
+                "  AND bdd.consultant_type = 'CONSULTANT' " +
+                "  AND bdd.status_type = 'ACTIVE' ");
+        if (hasPractices) {
+            sql.append("  AND COALESCE((SELECT prc.code FROM practice prc WHERE prc.uuid = u.practice_uuid), 'UD') IN (:practices) ");
+        } else {
+            sql.append(UtilizationCalculationHelper.activePracticeUserFilter("u"));
+        }
+        if (hasCompanies) sql.append("  AND bdd.companyuuid IN (:companyIds) ");
+        sql.append("GROUP BY bdd.year, bdd.month");
+
+        var query = em.createNativeQuery(sql.toString(), Tuple.class);
+        query.setParameter("fromDate", from);
+        query.setParameter("toDate", to);
+        if (hasPractices) query.setParameter("practices", f.practices());
+        if (hasCompanies) query.setParameter("companyIds", f.companyIds());
+
+        NavigableMap<String, double[]> byMonth = new TreeMap<>();
+        for (Tuple row : (List<Tuple>) query.getResultList()) {
+            byMonth.put((String) row.get("month_key"), new double[]{
+                    ((Number) row.get("billable_hours")).doubleValue(),
+                    ((Number) row.get("absence_hours")).doubleValue(),
+                    ((Number) row.get("net_available_hours")).doubleValue(),
+                    ((Number) row.get("gross_available_hours")).doubleValue()});
+        }
+        return byMonth;
+    }
+
+    /** The slices of one request, each loaded at most once, on first use. */
+    final class Slices {
+
+        private final Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+        private final Slice<NavigableMap<String, Double>> revenue;
+        private final Slice<NavigableMap<String, Double>> cost;
+        private final Slice<NavigableMap<String, double[]>> userDays;
+
+        Slices(Filters filters) {
+            String[] revenueWindow = revenueWindow(filters);
+            String[] costWindow = costWindow(filters);
+            revenue = new Slice<>("fact_company_revenue_mat",
+                    () -> loadRevenue(revenueWindow[0], revenueWindow[1], filters.companyIds()));
+            cost = new Slice<>("fact_project_financials_mat",
+                    () -> loadCost(costWindow[0], costWindow[1], filters));
+            userDays = new Slice<>("fact_user_day",
+                    () -> loadUserDays(trendFrom(filters), trendTo(filters), filters));
+        }
+
+        NavigableMap<String, Double> revenue() {
+            return revenue.get();
+        }
+
+        NavigableMap<String, Double> cost() {
+            return cost.get();
+        }
+
+        NavigableMap<String, double[]> userDays() {
+            return userDays.get();
+        }
+
+        Map<String, Long> loadTimes() {
+            return new TreeMap<>(loadTimes);
+        }
+
+        /** Own lock per slice: KPIs waiting for revenue do not hold up the cost load. */
+        private final class Slice<T> {
+
+            private final String table;
+            private final Callable<T> load;
+            private T value;
+
+            Slice(String table, Callable<T> load) {
+                this.table = table;
+                this.load = load;
+            }
+
+            synchronized T get() {
+                if (value == null) {
+                    long started = System.currentTimeMillis();
+                    value = inTransaction(load);
+                    loadTimes.put(table, System.currentTimeMillis() - started);
+                }
+                return value;
+            }
+        }
+    }
+}
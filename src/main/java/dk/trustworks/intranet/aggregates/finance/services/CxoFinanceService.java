@@ -39,6 +39,7 @@ import dk.trustworks.intranet.aggregates.finance.dto.BudgetHoursByMonthDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.FutureNetAvailableDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.UtilizationConsultantDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.MonthlyAbsenceWaterfallDTO;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import dk.trustworks.intranet.utils.TwConstants;
 import dk.trustworks.intranet.financeservice.model.enums.CostSource;
 import dk.trustworks.intranet.financeservice.model.enums.RevenueBasis;
@@ -101,12 +102,18 @@ public class CxoFinanceService {
     @Inject
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     @Inject
     DistributionAwareOpexProvider opexProvider;
 
     @Inject
     PracticeService practiceService;
 
+    @Inject
+    FinanceCubeService financeCubeService;
+
     /**
      * F3 — internal-cost timing alignment (default OFF, prod-safe).
      *
@@ -185,82 +192,91 @@ public class CxoFinanceService {
         java.util.Map<String, Double> revenueByMonth = queryCompanyRevenueByMonth(
                 fromMonthKey, toMonthKey, companyIds);
 
-        // Cost: fact_project_financials_mat with all dimension filters.
-        // V118 migration added companyuuid column. The grain is unique per
-        // (project_id, month_key, companyuuid): a project-month split across multiple
-        // companies has one row per company, with no same-company duplicates. So the
-        // correct collapse to a single value per (project_id, month_key) is SUM across
-        // companies — MAX would silently drop the other companies' contributions.
-        // Strategy: GROUP BY project_id + month_key with SUM(cost) before aggregating by calendar month.
-        StringBuilder costInner = new StringBuilder(
-                "SELECT " +
-                "    f.project_id, " +
-                "    f.month_key, " +
-                "    f.year, " +
-                "    f.month_number, " +
-                "    SUM(f.direct_delivery_cost_dkk) AS cost " +
-                "FROM fact_project_financials_mat f " +
-                "WHERE f.month_key >= :fromMonthKey " +
-                "  AND f.month_key <= :toMonthKey "
-        );
-        if (sectors != null && !sectors.isEmpty()) {
-            costInner.append("  AND f.sector_id IN (:sectors) ");
-        }
-        if (serviceLines != null && !serviceLines.isEmpty()) {
-            costInner.append("  AND f.service_line_id IN (:serviceLines) ");
-        }
-        if (contractTypes != null && !contractTypes.isEmpty()) {
-            costInner.append("  AND f.contract_type_id IN (:contractTypes) ");
-        }
-        if (clientId != null && !clientId.isBlank()) {
-            costInner.append("  AND f.client_id = :clientId ");
-        }
-        if (companyIds != null && !companyIds.isEmpty()) {
-            costInner.append("  AND f.companyuuid IN (:companyIds) ");
-        }
-        costInner.append("GROUP BY f.project_id, f.month_key, f.year, f.month_number");
-
-        String costSql = "SELECT d.month_key, d.year, d.month_number, SUM(d.cost) AS cost " +
-                         "FROM (" + costInner + ") AS d " +
-                         "GROUP BY d.year, d.month_number, d.month_key " +
-                         "ORDER BY d.year ASC, d.month_number ASC";
+        // Cost: fact_project_financials_mat with all dimension filters, from the in-memory
+        // cube of the current BI generation when it is available.
+        java.util.Map<String, double[]> costByMonth = new java.util.LinkedHashMap<>();
+        FinanceCube cube = financeCube();
+        if (cube != null) {
+            cube.sumByMonth(FinanceCube.Measure.DIRECT_DELIVERY_COST, new FinanceCube.Filter(fromMonthKey, toMonthKey,
+                            companyIds, sectors, serviceLines, contractTypes, clientId, null))
+                    .forEach((mk, cost) -> costByMonth.put(mk, new double[]{
+                            Integer.parseInt(mk.substring(0, 4)), Integer.parseInt(mk.substring(4)), cost}));
+        } else {
+            // V118 migration added companyuuid column. The grain is unique per
+            // (project_id, month_key, companyuuid): a project-month split across multiple
+            // companies has one row per company, with no same-company duplicates. So the
+            // correct collapse to a single value per (project_id, month_key) is SUM across
+            // companies — MAX would silently drop the other companies' contributions.
+            // Strategy: GROUP BY project_id + month_key with SUM(cost) before aggregating by calendar month.
+            StringBuilder costInner = new StringBuilder(
+                    "SELECT " +
+                    "    f.project_id, " +
+                    "    f.month_key, " +
+                    "    f.year, " +
+                    "    f.month_number, " +
+                    "    SUM(f.direct_delivery_cost_dkk) AS cost " +
+                    "FROM fact_project_financials_mat f " +
+                    "WHERE f.month_key >= :fromMonthKey " +
+                    "  AND f.month_key <= :toMonthKey "
+            );
+            if (sectors != null && !sectors.isEmpty()) {
+                costInner.append("  AND f.sector_id IN (:sectors) ");
+            }
+            if (serviceLines != null && !serviceLines.isEmpty()) {
+                costInner.append("  AND f.service_line_id IN (:serviceLines) ");
+            }
+            if (contractTypes != null && !contractTypes.isEmpty()) {
+                costInner.append("  AND f.contract_type_id IN (:contractTypes) ");
+            }
+            if (clientId != null && !clientId.isBlank()) {
+                costInner.append("  AND f.client_id = :clientId ");
+            }
+            if (companyIds != null && !companyIds.isEmpty()) {
+                costInner.append("  AND f.companyuuid IN (:companyIds) ");
+            }
+            costInner.append("GROUP BY f.project_id, f.month_key, f.year, f.month_number");
 
-        var costQuery = em.createNativeQuery(costSql, Tuple.class);
-        costQuery.setParameter("fromMonthKey", fromMonthKey);
-        costQuery.setParameter("toMonthKey", toMonthKey);
-        if (sectors != null && !sectors.isEmpty()) {
-            costQuery.setParameter("sectors", sectors);
-        }
-        if (serviceLines != null && !serviceLines.isEmpty()) {
-            costQuery.setParameter("serviceLines", serviceLines);
-        }
-        if (contractTypes != null && !contractTypes.isEmpty()) {
-            costQuery.setParameter("contractTypes", contractTypes);
-        }
-        if (clientId != null && !clientId.isBlank()) {
-            costQuery.setParameter("clientId", clientId);
-        }
-        if (companyIds != null && !companyIds.isEmpty()) {
-            costQuery.setParameter("companyIds", companyIds);
-        }
+            String costSql = "SELECT d.month_key, d.year, d.month_number, SUM(d.cost) AS cost " +
+                             "FROM (" + costInner + ") AS d " +
+                             "GROUP BY d.year, d.month_number, d.month_key " +
+                             "ORDER BY d.year ASC, d.month_number ASC";
 
-        @SuppressWarnings("unchecked")
-        List<Tuple> costRows = costQuery.getResultList();
+            var costQuery = em.createNativeQuery(costSql, Tuple.class);
+            costQuery.setParameter("fromMonthKey", fromMonthKey);
+            costQuery.setParameter("toMonthKey", toMonthKey);
+            if (sectors != null && !sectors.isEmpty()) {
+                costQuery.setParameter("sectors", sectors);
+            }
+            if (serviceLines != null && !serviceLines.isEmpty()) {
+                costQuery.setParameter("serviceLines", serviceLines);
+            }
+            if (contractTypes != null && !contractTypes.isEmpty()) {
+                costQuery.setParameter("contractTypes", contractTypes);
+            }
+            if (clientId != null && !clientId.isBlank()) {
+                costQuery.setParameter("clientId", clientId);
+            }
+            if (companyIds != null && !companyIds.isEmpty()) {
+                costQuery.setParameter("companyIds", companyIds);
+            }
 
-        log.debugf("Cost query returned %d rows", costRows.size());
+            @SuppressWarnings("unchecked")
+            List<Tuple> costRows = costQuery.getResultList();
+
+            log.debugf("Cost query returned %d rows", costRows.size());
+            for (Tuple row : costRows) {
+                String mk = (String) row.get("month_key");
+                int year  = ((Number) row.get("year")).intValue();
+                int month = ((Number) row.get("month_number")).intValue();
+                double cost = row.get("cost") != null ? ((Number) row.get("cost")).doubleValue() : 0.0;
+                costByMonth.put(mk, new double[]{year, month, cost});
+            }
+        }
 
         // Merge revenue (company-total) and cost (dimension-filtered) into monthly DTOs.
         // The set of months is driven by the cost query (project activity defines months shown).
         // Months present only in revenue are included by iterating the revenue map for any
         // months that have no cost row.
-        java.util.Map<String, double[]> costByMonth = new java.util.LinkedHashMap<>();
-        for (Tuple row : costRows) {
-            String mk = (String) row.get("month_key");
-            int year  = ((Number) row.get("year")).intValue();
-            int month = ((Number) row.get("month_number")).intValue();
-            double cost = row.get("cost") != null ? ((Number) row.get("cost")).doubleValue() : 0.0;
-            costByMonth.put(mk, new double[]{year, month, cost});
-        }
 
         // Union of months from both sources, sorted chronologically
         java.util.Set<String> allMonthKeys = new java.util.TreeSet<>(costByMonth.keySet());
@@ -298,7 +314,7 @@ public class CxoFinanceService {
     /**
      * Formats year and month into a user-friendly label (e.g., "Jan 2025").
      */
-    private String formatMonthLabel(int year, int monthNumber) {
+    static String formatMonthLabel(int year, int monthNumber) {
         String[] monthNames = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
         return monthNames[monthNumber - 1] + " " + year;
     }
@@ -1192,6 +1208,13 @@ public class CxoFinanceService {
             Set<String> sectors, Set<String> serviceLines,
             Set<String> contractTypes, String clientId, Set<String> companyIds) {
 
+        FinanceCube cube = financeCube();
+        if (cube != null) {
+            return cube.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, new FinanceCube.Filter(
+                    UtilizationCalculationHelper.toMonthKey(fromDate), UtilizationCalculationHelper.toMonthKey(toDate),
+                    companyIds, sectors, serviceLines, contractTypes, clientId, null));
+        }
+
         // Build dynamic SQL that sums recognized revenue across companies per project-month.
         // NOTE: V118 migration added companyuuid column. The grain is unique per
         //       (project_id, month_key, companyuuid); a project-month split across companies
@@ -1277,7 +1300,7 @@ public class CxoFinanceService {
      *         Credits/reversals are honored — a negative entry nets against positive entries
      *         in the same period rather than being inflated by {@code ABS()}.
      */
-    private double queryActualCosts(
+    double queryActualCosts(
             LocalDate fromDate, LocalDate toDate,
             Set<String> sectors, Set<String> serviceLines,
             Set<String> contractTypes, String clientId, Set<String> companyIds) {
@@ -2123,6 +2146,52 @@ public class CxoFinanceService {
         // Cost: fact_project_financials_mat with all dimension filters (SUM across companies per project-month).
         // Grain is unique per (project_id, month_key, companyuuid), so SUM collapses a multi-company
         // project-month correctly; MAX would silently drop the other companies' cost.
+        java.util.Map<String, Double> costByMonth = queryMonthlyDirectCostFromCube(
+                fromKey, toKey, sectors, serviceLines, contractTypes, clientId, companyIds);
+        if (costByMonth == null) {
+            costByMonth = queryMonthlyDirectCost(fromKey, toKey, sectors, serviceLines, contractTypes, clientId, companyIds);
+        }
+
+        // Build 12-element sparkline ordered by month_key.
+        // Collect all months present in either map, sort, then fill array.
+        java.util.Set<String> allMonths = new java.util.TreeSet<>(revenueByMonth.keySet());
+        allMonths.addAll(costByMonth.keySet());
+        List<String> sortedMonths = new java.util.ArrayList<>(allMonths);
+
+        double[] sparklineData = new double[12];
+        for (int i = 0; i < sortedMonths.size() && i < 12; i++) {
+            String mk = sortedMonths.get(i);
+            double monthlyRevenue = revenueByMonth.getOrDefault(mk, 0.0);
+            double monthlyCost    = costByMonth.getOrDefault(mk, 0.0);
+            sparklineData[i] = (monthlyRevenue > 0)
+                    ? ((monthlyRevenue - monthlyCost) / monthlyRevenue) * 100.0
+                    : 0.0;
+        }
+
+        return sparklineData;
+    }
+
+    /** The in-memory project-financials cube, or null when it is disabled, not loaded or not injected. */
+    private FinanceCube financeCube() {
+        return financeCubeService == null ? null : financeCubeService.current();
+    }
+
+    /** Monthly direct delivery cost from the finance cube, or null when it is unavailable. */
+    private java.util.Map<String, Double> queryMonthlyDirectCostFromCube(
+            String fromKey, String toKey,
+            Set<String> sectors, Set<String> serviceLines,
+            Set<String> contractTypes, String clientId, Set<String> companyIds) {
+        FinanceCube cube = financeCube();
+        if (cube == null) return null;
+        return cube.sumByMonth(FinanceCube.Measure.DIRECT_DELIVERY_COST, new FinanceCube.Filter(
+                fromKey, toKey, companyIds, sectors, serviceLines, contractTypes, clientId, null));
+    }
+
+    /** SQL path of {@link #queryMonthlyDirectCostFromCube}: month_key → direct delivery cost. */
+    private java.util.Map<String, Double> queryMonthlyDirectCost(
+            String fromKey, String toKey,
+            Set<String> sectors, Set<String> serviceLines,
+            Set<String> contractTypes, String clientId, Set<String> companyIds) {
         StringBuilder costSql = new StringBuilder(
                 "SELECT f.month_key, " +
                 "       COALESCE(SUM(f.direct_delivery_cost_dkk), 0.0) AS monthly_cost " +
@@ -2178,24 +2247,7 @@ public class CxoFinanceService {
         for (Tuple row : costResults) {
             costByMonth.put((String) row.get("month_key"), ((Number) row.get("monthly_cost")).doubleValue());
         }
-
-        // Build 12-element sparkline ordered by month_key.
-        // Collect all months present in either map, sort, then fill array.
-        java.util.Set<String> allMonths = new java.util.TreeSet<>(revenueByMonth.keySet());
-        allMonths.addAll(costByMonth.keySet());
-        List<String> sortedMonths = new java.util.ArrayList<>(allMonths);
-
-        double[] sparklineData = new double[12];
-        for (int i = 0; i < sortedMonths.size() && i < 12; i++) {
-            String mk = sortedMonths.get(i);
-            double monthlyRevenue = revenueByMonth.getOrDefault(mk, 0.0);
-            double monthlyCost    = costByMonth.getOrDefault(mk, 0.0);
-            sparklineData[i] = (monthlyRevenue > 0)
-                    ? ((monthlyRevenue - monthlyCost) / monthlyRevenue) * 100.0
-                    : 0.0;
-        }
-
-        return sparklineData;
+        return costByMonth;
     }
 
     /**
@@ -2203,7 +2255,7 @@ public class CxoFinanceService {
      * Uses fiscal year filtering for efficient querying.
      * Note: Client filter does NOT apply to budget (budget is set at company/practice/sector/contract level).
      */
-    private double queryBudgetRevenue(
+    double queryBudgetRevenue(
             LocalDate fromDate, LocalDate toDate,
             Set<String> sectors, Set<String> serviceLines,
             Set<String> contractTypes, String clientId, Set<String> companyIds) {
@@ -2651,7 +2703,7 @@ public class CxoFinanceService {
                 "    YEAR(w.registered) AS year_val, " +
                 "    MONTH(w.registered) AS month_val, " +
                 "    SUM(CASE WHEN w.rate > 0 AND w.workduration > 0 THEN w.workduration ELSE 0 END) / 160.33 AS monthly_fte " +
-                "  FROM work_full w " +
+                "  FROM " + workFullSource.table() + " w " +
                 "  WHERE w.registered >= :fromDate " +
                 "    AND w.registered <= :toDate " +
                 "    AND w.type = 'CONSULTANT' " +
@@ -2719,7 +2771,7 @@ public class CxoFinanceService {
                 "SELECT " +
                 "  CONCAT(YEAR(w.registered), LPAD(MONTH(w.registered), 2, '0')) AS month_key, " +
                 "  SUM(CASE WHEN w.rate > 0 AND w.workduration > 0 THEN w.workduration ELSE 0 END) / 160.33 AS monthly_fte " +
-                "FROM work_full w " +
+                "FROM " + workFullSource.table() + " w " +
                 "WHERE w.registered >= :fromDate " +
                 "  AND w.registered <= :toDate " +
                 "  AND w.type = 'CONSULTANT' " +
@@ -2798,7 +2850,7 @@ public class CxoFinanceService {
         // Expected revenue = Σ(workduration × rate) where rate > 0 and workduration > 0
         StringBuilder sql = new StringBuilder(
                 "SELECT COALESCE(SUM(CASE WHEN w.rate > 0 AND w.workduration > 0 THEN w.workduration * w.rate ELSE 0 END), 0.0) AS expected_revenue " +
-                "FROM work_full w " +
+                "FROM " + workFullSource.table() + " w " +
                 "WHERE w.registered >= :fromDate " +
                 "  AND w.registered <= :toDate " +
                 "  AND w.type = 'CONSULTANT' "
@@ -2876,7 +2928,7 @@ public class CxoFinanceService {
                 "SELECT " +
                 "  CONCAT(YEAR(w.registered), LPAD(MONTH(w.registered), 2, '0')) AS month_key, " +
                 "  COALESCE(SUM(CASE WHEN w.rate > 0 AND w.workduration > 0 THEN w.workduration * w.rate ELSE 0 END), 0.0) AS expected_revenue " +
-                "FROM work_full w " +
+                "FROM " + workFullSource.table() + " w " +
                 "WHERE w.registered >= :fromDate " +
                 "  AND w.registered <= :toDate " +
                 "  AND w.type = 'CONSULTANT' "
@@ -3091,6 +3143,22 @@ public class CxoFinanceService {
         String fromKey = UtilizationCalculationHelper.toMonthKey(fromDate);
         String toKey = UtilizationCalculationHelper.toMonthKey(toDate);
 
+        FinanceCube cube = financeCube();
+        if (cube != null) {
+            java.util.Map<String, Double> byClient = cube.sumBy(FinanceCube.Dimension.CLIENT,
+                    FinanceCube.Measure.RECOGNIZED_REVENUE, new FinanceCube.Filter(fromKey, toKey,
+                            companyIds, sectors, serviceLines, contractTypes, null, TwConstants.EXCLUDED_CLIENT_IDS),
+                    true);
+            byClient.remove(null);
+            double totalRevenue = byClient.values().stream().mapToDouble(Double::doubleValue).sum();
+            double top5Revenue = byClient.values().stream()
+                    .sorted(java.util.Comparator.reverseOrder())
+                    .limit(5)
+                    .mapToDouble(Double::doubleValue)
+                    .sum();
+            return Map.of("totalRevenue", totalRevenue, "top5Revenue", top5Revenue);
+        }
+
         // Build SQL query with CTE to rank clients by revenue
         StringBuilder sql = new StringBuilder(
                 "WITH client_revenue AS ( " +
@@ -5735,7 +5803,7 @@ public class CxoFinanceService {
      * @param companyIds Optional debtor company filter; null/empty = all debtors
      * @return Summed QUEUED INTERNAL cost in DKK across the window
      */
-    private double queryQueuedInternalCostForWindow(
+    double queryQueuedInternalCostForWindow(
             String fromKey, String toKey, Set<String> companyIds) {
 
         StringBuilder sql = new StringBuilder(
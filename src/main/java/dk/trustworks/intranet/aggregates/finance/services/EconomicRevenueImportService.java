@@ -18,6 +18,7 @@ import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
 
 import jakarta.ws.rs.core.Response;
@@ -31,12 +32,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -84,11 +90,25 @@ import java.util.regex.Pattern;
  * future refinement can add a static factory method on Invoice that wraps
  * the same fields safely.
  *
- * <h2>Per-voucher REQUIRES_NEW transaction</h2>
- * Each insert lives in its own transaction (see
- * {@link #insertInvoiceAndItem}). A single voucher failure (constraint
- * violation, broken row data, transient lock) does NOT roll back the whole
- * batch — the failure is counted, logged, and the loop continues.
+ * <h2>Pipeline</h2>
+ * {@link #refresh} runs in three stages:
+ * <ol>
+ *   <li><b>Fetch</b> — the companies are fetched from e-conomic concurrently
+ *       ({@code economics.import.parallelism}), outside any transaction. Every
+ *       client of one agreement shares an {@link EconomicsRequestPacer}
+ *       ({@code economics.import.requests-per-second}).</li>
+ *   <li><b>Dedup</b> — the aggregated vouchers are cut into pages
+ *       ({@code economics.import.page-size}). Layers 2–4 run for a whole page in
+ *       one keyed lookup ({@link #dedupePage}).</li>
+ *   <li><b>Write</b> — the survivors of a page are written with one multi-row
+ *       INSERT per table, in one transaction per page ({@link #importPage}).</li>
+ * </ol>
+ * A page whose write fails — a lost V338 race or any other error — is rolled back
+ * and replayed voucher by voucher, one REQUIRES_NEW transaction per insert
+ * ({@link #insertInvoiceAndItem}). So a single bad voucher still cannot sink the
+ * batch. Re-runs are idempotent: an imported entry is a Layer 3 hit on the next run.
+ * {@link DryRunOutcome#perCompany()} reports row counts and fetch/write timings
+ * per company.
  *
  * <h2>Sentinel write on empty refreshes</h2>
  * If a refresh completes with zero net inserts (everything was already
@@ -103,8 +123,8 @@ import java.util.regex.Pattern;
  * Default {@code economics.import.dry-run=true} in PR 2. The refresh still
  * walks every layer, aggregates vouchers, computes the
  * {@link DryRunOutcome#perCompanyDkk()} / {@link DryRunOutcome#perAccountDkk()}
- * sums and logs them. Only the per-voucher
- * {@link #insertInvoiceAndItem} call is skipped — verified in unit tests via
+ * sums and logs them. Only the page write
+ * ({@link #importPage}) is skipped — verified in unit tests via
  * {@code verify(em, never())}. PR 3 flips the flag off co-deployed with V341.
  */
 @ApplicationScoped
@@ -168,55 +188,200 @@ public class EconomicRevenueImportService {
             defaultValue = "https://apis.e-conomic.com/journalsapi/v13.0.1")
     URI journalsApiUri;
 
+    /** Companies fetched from e-conomic concurrently; 1 fetches them one after another. */
+    @ConfigProperty(name = "economics.import.parallelism", defaultValue = "3")
+    int parallelism = 1;
+
+    /** Aggregated vouchers deduped with one lookup and written in one transaction. */
+    @ConfigProperty(name = "economics.import.page-size", defaultValue = "200")
+    int pageSize = 200;
+
+    /** Request ceiling per e-conomic agreement (see {@link EconomicsRequestPacer}). */
+    @ConfigProperty(name = "economics.import.requests-per-second", defaultValue = "4")
+    double requestsPerSecond = 4;
+
     @Inject
     EntityManager em;
 
-    /** Self-proxy so {@code @Transactional} engages on the draft mirror's write phase. */
+    @Inject
+    ManagedExecutor executor;
+
+    /** Self-proxy so {@code @Transactional} engages on the page writes and the draft mirror's write phase. */
     @Inject
     EconomicRevenueImportService self;
 
+    /** One pacer per agreement grant token, shared by every client built for that agreement. */
+    private final Map<String, EconomicsRequestPacer> pacers = new ConcurrentHashMap<>();
+
     /**
      * Walks the 3 companies × revenue accounts × accounting years in
      * {@code [from..to]}, runs the 4-layer dedup, and inserts surviving
      * vouchers as PHANTOM invoices. Always invoked with a 24-month lookback
      * by the batchlet.
      *
-     * <p>The wrapping {@code @Transactional} covers reads only — the per-voucher
-     * INSERTs live in {@link #insertInvoiceAndItem}'s nested REQUIRES_NEW
-     * transaction so single-voucher failure cannot roll back the batch.
+     * <p>Deliberately NOT {@code @Transactional}: no transaction is open while
+     * e-conomic is called (same rule as {@link #refreshDraftMirror}). Each page of
+     * vouchers is deduped and written in its own transaction by {@link #importPage}.
      */
-    @Transactional
     public DryRunOutcome refresh(LocalDate from, LocalDate to) {
-        log.infof("EconomicRevenueImportService.refresh begin: from=%s to=%s dryRun=%s",
-                from, to, dryRun);
+        log.infof("EconomicRevenueImportService.refresh begin: from=%s to=%s dryRun=%s parallelism=%d pageSize=%d",
+                from, to, dryRun, parallelism, pageSize);
 
         Map<String, BigDecimal> perCompanyDkk = new LinkedHashMap<>();
         Map<Integer, BigDecimal> perAccountDkk = new HashMap<>();
         EnumMap<DedupLayer, Integer> skippedByLayer = new EnumMap<>(DedupLayer.class);
         for (DedupLayer dl : DedupLayer.values()) skippedByLayer.put(dl, 0);
+        Map<String, CompanyImport> perCompany = new LinkedHashMap<>();
 
         int totalIntendedInserts = 0;
         int totalActualInserts = 0;
         LocalDateTime refreshedAt = LocalDateTime.now();
 
+        // Step 0: integration keys, on the calling thread (Panache lookups).
+        Map<String, IntegrationKey.IntegrationKeyValue> keysByCompany = loadIntegrationKeys();
+
+        // Stage 1: fetch, filter and aggregate every company concurrently. Pure HTTP +
+        // in-memory work; the per-agreement pacer keeps each tenant under its rate limit.
+        Map<String, CompanyFetch> fetched = fetchAll(keysByCompany, from, to);
+
+        // Stages 2 + 3: per page, one keyed dedup lookup and one multi-row write.
+        for (CompanyFetch fetch : fetched.values()) {
+            String companyUuid = fetch.companyUuid();
+            if (fetch.error() != null) {
+                perCompany.put(companyUuid, new CompanyImport(fetch.entriesFetched(), 0, 0, 0,
+                        fetch.layer1Skipped(), fetch.fetchMs(), 0, fetch.error()));
+                continue;
+            }
+            skippedByLayer.merge(DedupLayer.LAYER_1_ACCOUNT_HARDSKIP, fetch.layer1Skipped(), Integer::sum);
+
+            long writeStarted = System.nanoTime();
+            int intended = 0;
+            int inserted = 0;
+            int skipped = fetch.layer1Skipped();
+            List<AggregatedVoucher> vouchers = fetch.vouchers();
+            for (int start = 0; start < vouchers.size(); start += pageSize) {
+                List<AggregatedVoucher> page = vouchers.subList(start, Math.min(start + pageSize, vouchers.size()));
+                PageOutcome result = dryRun ? dedupePage(page) : writePage(page, refreshedAt);
+                result.skippedByLayer().forEach((layer, n) -> skippedByLayer.merge(layer, n, Integer::sum));
+                skipped += result.skippedByLayer().values().stream().mapToInt(Integer::intValue).sum();
+
+                // Reported as the amount that WOULD BE STORED, not abs(): a dry run whose
+                // totals cannot go down hides every reversal in the batch, and abs() on the
+                // e-conomic amount is the same mistake this importer made for real until
+                // 2026-05.
+                for (AggregatedVoucher v : result.survivors()) {
+                    BigDecimal storedAmount = deriveStoredAmount(v.sumAmount());
+                    perCompanyDkk.merge(v.companyUuid(), storedAmount, BigDecimal::add);
+                    perAccountDkk.merge(v.account(), storedAmount, BigDecimal::add);
+                    if (dryRun) {
+                        log.infof("EconomicRevenueImportService DRY_RUN intended insert: company=%s acc=%d voucher=%d entry=%d entryAmount=%s storedAmount=%s",
+                                v.companyUuid(), v.account(), v.voucherNumber(), v.minEntryNumber(),
+                                v.sumAmount(), storedAmount);
+                    }
+                }
+                intended += result.survivors().size();
+                inserted += result.inserted();
+            }
+            totalIntendedInserts += intended;
+            totalActualInserts += inserted;
+
+            CompanyImport stats = new CompanyImport(fetch.entriesFetched(), vouchers.size(), intended, inserted,
+                    skipped, fetch.fetchMs(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStarted), null);
+            perCompany.put(companyUuid, stats);
+            log.infof("EconomicRevenueImportService: company=%s summary %s sumDkk=%s",
+                    companyUuid, stats, perCompanyDkk.getOrDefault(companyUuid, BigDecimal.ZERO));
+        }
+
+        // Sentinel write: if zero net inserts, bump the oldest imported row's
+        // refresh timestamp so the freshness check doesn't flip DOWN purely
+        // because no new vouchers exist this cycle. Idempotent — picking the
+        // ASC-ordered first row means subsequent empty refreshes keep
+        // ratcheting the same row's timestamp forward.
+        if (totalActualInserts == 0 && !dryRun) {
+            int updated = self.advanceRefreshSentinel(refreshedAt);
+            log.infof("EconomicRevenueImportService: sentinel write — zero net inserts, advanced %d row's refresh timestamp to %s",
+                    updated, refreshedAt);
+        }
+
+        DryRunOutcome outcome = new DryRunOutcome(
+                totalIntendedInserts,
+                totalActualInserts,
+                Collections.unmodifiableMap(perCompanyDkk),
+                Collections.unmodifiableMap(perAccountDkk),
+                Collections.unmodifiableMap(skippedByLayer),
+                dryRun,
+                Collections.unmodifiableMap(perCompany));
+        log.infof("EconomicRevenueImportService.refresh complete: %s", outcome);
+        return outcome;
+    }
+
+    /**
+     * The e-conomic integration keys of every company in {@link #ALL_COMPANY_UUIDS}
+     * that exists, in that order. Panache lookups, so called on the request thread.
+     */
+    Map<String, IntegrationKey.IntegrationKeyValue> loadIntegrationKeys() {
+        Map<String, IntegrationKey.IntegrationKeyValue> keysByCompany = new LinkedHashMap<>();
         for (String companyUuid : ALL_COMPANY_UUIDS) {
             Company company = Company.findById(companyUuid);
             if (company == null) {
                 log.warnf("EconomicRevenueImportService: company %s not found — skipping", companyUuid);
                 continue;
             }
+            keysByCompany.put(companyUuid, IntegrationKey.getIntegrationKeyValue(company));
+        }
+        return keysByCompany;
+    }
 
-            // Step 1: Load integration keys for this company.
-            IntegrationKey.IntegrationKeyValue keys = IntegrationKey.getIntegrationKeyValue(company);
+    /**
+     * Stage 1 for every company, on up to {@code economics.import.parallelism} workers.
+     * Results come back in {@link #ALL_COMPANY_UUIDS} order so logs and outcome maps
+     * stay deterministic.
+     */
+    Map<String, CompanyFetch> fetchAll(Map<String, IntegrationKey.IntegrationKeyValue> keysByCompany,
+                                       LocalDate from, LocalDate to) {
+        ConcurrentLinkedQueue<Map.Entry<String, IntegrationKey.IntegrationKeyValue>> pending =
+                new ConcurrentLinkedQueue<>(keysByCompany.entrySet());
+        Map<String, CompanyFetch> results = new ConcurrentHashMap<>();
+        Runnable worker = () -> {
+            Map.Entry<String, IntegrationKey.IntegrationKeyValue> next;
+            while ((next = pending.poll()) != null) {
+                results.put(next.getKey(), fetchCompany(next.getKey(), next.getValue(), from, to));
+            }
+        };
+
+        int workers = Math.min(Math.max(parallelism, 1), keysByCompany.size());
+        if (workers <= 1 || executor == null) {
+            worker.run();
+        } else {
+            List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(CompletableFuture.runAsync(worker, executor));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        }
+
+        Map<String, CompanyFetch> ordered = new LinkedHashMap<>();
+        for (String companyUuid : keysByCompany.keySet()) ordered.put(companyUuid, results.get(companyUuid));
+        return ordered;
+    }
 
+    /**
+     * Stage 1 for one company: accounts, accounting years and entries from e-conomic,
+     * then the type/date filter, Layer 1 and voucher aggregation. A failing call ends
+     * this company's import with {@link CompanyFetch#error()} set; the others continue.
+     */
+    CompanyFetch fetchCompany(String companyUuid, IntegrationKey.IntegrationKeyValue keys,
+                              LocalDate from, LocalDate to) {
+        long started = System.nanoTime();
+        try (EconomicsAPI api = buildEconomicsApi(keys)) {
             // Step 2: fetch profitAndLoss accounts (for the accountNumber → name
             // lookup map used as clientname fallback). Build map keyed by number.
             List<AccountInfo> accounts;
-            try (EconomicsAPI api = buildEconomicsApi(keys)) {
+            try {
                 accounts = fetchRevenueAccounts(api, companyUuid);
             } catch (Exception ex) {
                 log.errorf(ex, "EconomicRevenueImportService: failed to list accounts for company %s", companyUuid);
-                continue;
+                return CompanyFetch.failed(companyUuid, started, "account listing failed: " + ex.getMessage());
             }
             Map<Integer, String> accountNameMap = new HashMap<>();
             for (AccountInfo a : accounts) accountNameMap.put(a.accountNumber(), a.accountName());
@@ -226,11 +391,11 @@ public class EconomicRevenueImportService {
             // E-conomic tenants use non-standard codes (A/S = "2025_6_2026a")
             // so we ask the API rather than hardcoding "_6_" patterns.
             List<String> yearCodes;
-            try (EconomicsAPI api = buildEconomicsApi(keys)) {
+            try {
                 yearCodes = discoverAccountingYears(api, from, to);
             } catch (Exception ex) {
                 log.errorf(ex, "EconomicRevenueImportService: failed to discover accounting-years for company %s", companyUuid);
-                continue;
+                return CompanyFetch.failed(companyUuid, started, "accounting-year discovery failed: " + ex.getMessage());
             }
             log.infof("EconomicRevenueImportService: company=%s yearCodes=%s", companyUuid, yearCodes);
 
@@ -239,14 +404,14 @@ public class EconomicRevenueImportService {
             // AND entries on account 2180 (financeVoucher special case via the
             // URL-scoped /accounts/{n}/.../entries endpoint).
             List<EntryDto> entries = new ArrayList<>();
-            try (EconomicsAPI api = buildEconomicsApi(keys)) {
+            try {
                 for (String yearCode : yearCodes) {
                     entries.addAll(fetchEntriesByType(api, yearCode, "manualDebtorInvoice", accountNameMap));
                     entries.addAll(fetchEntriesForAccount(api, 2180, yearCode, accountNameMap));
                 }
             } catch (Exception ex) {
                 log.errorf(ex, "EconomicRevenueImportService: failed to fetch entries for company %s", companyUuid);
-                continue;
+                return CompanyFetch.failed(companyUuid, started, "entry fetch failed: " + ex.getMessage());
             }
             log.infof("EconomicRevenueImportService: company=%s entriesFetched=%d", companyUuid, entries.size());
 
@@ -264,111 +429,109 @@ public class EconomicRevenueImportService {
                 }
                 filtered.add(e);
             }
-            skippedByLayer.merge(DedupLayer.LAYER_1_ACCOUNT_HARDSKIP, layer1Skipped, Integer::sum);
             log.infof("EconomicRevenueImportService: company=%s entriesAfterTypeFilter=%d layer1Skipped=%d",
                     companyUuid, filtered.size(), layer1Skipped);
 
             // Step 8: aggregate by voucher.
             List<AggregatedVoucher> aggregated = aggregateByVoucher(companyUuid, filtered);
             log.infof("EconomicRevenueImportService: company=%s aggregatedVouchers=%d", companyUuid, aggregated.size());
+            return new CompanyFetch(companyUuid, aggregated, entries.size(), layer1Skipped,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), null);
+        } catch (Exception ex) {
+            log.errorf(ex, "EconomicRevenueImportService: e-conomic client failed for company %s", companyUuid);
+            return CompanyFetch.failed(companyUuid, started, ex.getMessage());
+        }
+    }
 
-            // Step 9: per-voucher dedup + insert.
-            for (AggregatedVoucher v : aggregated) {
-                Optional<DedupLayer> hit = findExistingByVoucherColumns(v);
-                if (hit.isPresent()) {
-                    skippedByLayer.merge(hit.get(), 1, Integer::sum);
-                    continue;
-                }
-                hit = findExistingByEntryNumber(v);
-                if (hit.isPresent()) {
-                    skippedByLayer.merge(hit.get(), 1, Integer::sum);
-                    continue;
-                }
-                hit = findExistingByFakturaText(v);
-                if (hit.isPresent()) {
-                    skippedByLayer.merge(hit.get(), 1, Integer::sum);
-                    continue;
-                }
+    /**
+     * Live write of one page. Any failure rolls the whole page back; the page is then
+     * replayed voucher by voucher so only the offending vouchers are lost, exactly as
+     * before pages. A concurrent writer that wins the V338 unique index is counted as
+     * Layer 3; any other failure (a refused sign, a broken row, a lock timeout) is
+     * logged by the replay and the batch continues.
+     */
+    private PageOutcome writePage(List<AggregatedVoucher> page, LocalDateTime refreshedAt) {
+        try {
+            return self.importPage(page, refreshedAt);
+        } catch (RuntimeException ex) {
+            if (constraintViolation(ex) != null) {
+                log.warnf("EconomicRevenueImportService: V338 unique-index race in a page of %d vouchers (company=%s) — replaying voucher by voucher",
+                        page.size(), page.get(0).companyUuid());
+            } else {
+                log.errorf(ex, "EconomicRevenueImportService: page of %d vouchers failed (company=%s) — replaying voucher by voucher",
+                        page.size(), page.get(0).companyUuid());
+            }
+            return replayVoucherByVoucher(page, refreshedAt);
+        }
+    }
 
-                // Survivor: record per-company / per-account sums and either insert or count intent.
-                // Reported as the amount that WOULD BE STORED, not abs(): a dry run whose
-                // totals cannot go down hides every reversal in the batch, and abs() on the
-                // e-conomic amount is the same mistake this importer made for real until
-                // 2026-05.
-                BigDecimal storedAmount = deriveStoredAmount(v.sumAmount());
-                perCompanyDkk.merge(v.companyUuid(), storedAmount, BigDecimal::add);
-                perAccountDkk.merge(v.account(), storedAmount, BigDecimal::add);
-                totalIntendedInserts++;
-
-                if (dryRun) {
-                    log.infof("EconomicRevenueImportService DRY_RUN intended insert: company=%s acc=%d voucher=%d entry=%d entryAmount=%s storedAmount=%s",
-                            v.companyUuid(), v.account(), v.voucherNumber(), v.minEntryNumber(),
-                            v.sumAmount(), storedAmount);
-                    continue;
-                }
+    /**
+     * Stages 2 + 3 for one page in one transaction: {@link #dedupePage} then
+     * {@link #insertPage}. Either every survivor of the page is written or none is.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public PageOutcome importPage(List<AggregatedVoucher> page, LocalDateTime refreshedAt) {
+        PageOutcome deduped = dedupePage(page);
+        int inserted = insertPage(deduped.survivors(), refreshedAt, PostingStatus.BOOKED.name());
+        return new PageOutcome(deduped.survivors(), deduped.skippedByLayer(), inserted);
+    }
 
-                try {
-                    insertInvoiceAndItem(v, refreshedAt);
-                    totalActualInserts++;
-                } catch (SQLIntegrityConstraintViolationException race) {
-                    // V338's uniq_invoices_economic_entry caught a concurrent insert.
-                    // This is the race-final dedup — treat exactly like a Layer 3 hit.
-                    skippedByLayer.merge(DedupLayer.LAYER_3_ENTRY_COLLISION, 1, Integer::sum);
-                    log.warnf("EconomicRevenueImportService: V338 unique-index race on company=%s entry=%d — counted as LAYER_3",
+    /** Pre-page behaviour: the three single-voucher lookups and one transaction per insert. */
+    private PageOutcome replayVoucherByVoucher(List<AggregatedVoucher> page, LocalDateTime refreshedAt) {
+        List<AggregatedVoucher> survivors = new ArrayList<>();
+        EnumMap<DedupLayer, Integer> skipped = new EnumMap<>(DedupLayer.class);
+        int inserted = 0;
+        for (AggregatedVoucher v : page) {
+            Optional<DedupLayer> hit = findExistingByVoucherColumns(v);
+            if (hit.isEmpty()) hit = findExistingByEntryNumber(v);
+            if (hit.isEmpty()) hit = findExistingByFakturaText(v);
+            if (hit.isPresent()) {
+                skipped.merge(hit.get(), 1, Integer::sum);
+                continue;
+            }
+            survivors.add(v);
+            try {
+                self.insertInvoiceAndItem(v, refreshedAt);
+                inserted++;
+            } catch (SQLIntegrityConstraintViolationException race) {
+                skipped.merge(DedupLayer.LAYER_3_ENTRY_COLLISION, 1, Integer::sum);
+                log.warnf("EconomicRevenueImportService: V338 unique-index race on company=%s entry=%d — counted as LAYER_3",
+                        v.companyUuid(), v.minEntryNumber());
+            } catch (RuntimeException ex) {
+                if (constraintViolation(ex) != null) {
+                    skipped.merge(DedupLayer.LAYER_3_ENTRY_COLLISION, 1, Integer::sum);
+                    log.warnf("EconomicRevenueImportService: V338 unique-index race (wrapped) on company=%s entry=%d — counted as LAYER_3",
+                            v.companyUuid(), v.minEntryNumber());
+                } else {
+                    log.errorf(ex, "EconomicRevenueImportService: insert failed for company=%s entry=%d (non-constraint) — counted as failure, batch continues",
                             v.companyUuid(), v.minEntryNumber());
-                } catch (RuntimeException ex) {
-                    // Unwrap Hibernate / JPA wrappers around the SQL exception.
-                    Throwable root = ex;
-                    while (root != null && !(root instanceof SQLIntegrityConstraintViolationException)) {
-                        root = root.getCause();
-                    }
-                    if (root != null) {
-                        skippedByLayer.merge(DedupLayer.LAYER_3_ENTRY_COLLISION, 1, Integer::sum);
-                        log.warnf("EconomicRevenueImportService: V338 unique-index race (wrapped) on company=%s entry=%d — counted as LAYER_3",
-                                v.companyUuid(), v.minEntryNumber());
-                    } else {
-                        log.errorf(ex, "EconomicRevenueImportService: insert failed for company=%s entry=%d (non-constraint) — counted as failure, batch continues",
-                                v.companyUuid(), v.minEntryNumber());
-                    }
                 }
             }
-
-            // Step 10: per-company log summary.
-            log.infof("EconomicRevenueImportService: company=%s summary intended=%d actual=%d sumDkk=%s skipped=%s",
-                    companyUuid, totalIntendedInserts, totalActualInserts,
-                    perCompanyDkk.getOrDefault(companyUuid, BigDecimal.ZERO),
-                    skippedByLayer);
         }
+        return new PageOutcome(survivors, skipped, inserted);
+    }
 
-        // Sentinel write: if zero net inserts, bump the oldest imported row's
-        // refresh timestamp so the freshness check doesn't flip DOWN purely
-        // because no new vouchers exist this cycle. Idempotent — picking the
-        // ASC-ordered first row means subsequent empty refreshes keep
-        // ratcheting the same row's timestamp forward.
-        if (totalActualInserts == 0 && !dryRun) {
-            int updated = em.createNativeQuery(
-                            "UPDATE invoices SET economics_entry_refreshed_at = :now " +
-                                    "WHERE uuid = (" +
-                                    "  SELECT uuid FROM (" +
-                                    "    SELECT uuid FROM invoices " +
-                                    "    WHERE economics_entry_number IS NOT NULL " +
-                                    "    ORDER BY economics_entry_refreshed_at ASC LIMIT 1" +
-                                    "  ) AS oldest)")
-                    .setParameter("now", refreshedAt)
-                    .executeUpdate();
-            log.infof("EconomicRevenueImportService: sentinel write — zero net inserts, advanced %d row's refresh timestamp to %s",
-                    updated, refreshedAt);
+    /** Unwraps Hibernate / JPA wrappers down to the SQL constraint violation, if any. */
+    private static SQLIntegrityConstraintViolationException constraintViolation(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLIntegrityConstraintViolationException sce) return sce;
         }
+        return null;
+    }
 
-        DryRunOutcome outcome = new DryRunOutcome(
-                totalIntendedInserts,
-                totalActualInserts,
-                Collections.unmodifiableMap(perCompanyDkk),
-                Collections.unmodifiableMap(perAccountDkk),
-                Collections.unmodifiableMap(skippedByLayer),
-                dryRun);
-        log.infof("EconomicRevenueImportService.refresh complete: %s", outcome);
-        return outcome;
+    /** Advances the oldest imported row's refresh timestamp; see the class comment. */
+    @Transactional
+    public int advanceRefreshSentinel(LocalDateTime refreshedAt) {
+        return em.createNativeQuery(
+                        "UPDATE invoices SET economics_entry_refreshed_at = :now " +
+                                "WHERE uuid = (" +
+                                "  SELECT uuid FROM (" +
+                                "    SELECT uuid FROM invoices " +
+                                "    WHERE economics_entry_number IS NOT NULL " +
+                                "    ORDER BY economics_entry_refreshed_at ASC LIMIT 1" +
+                                "  ) AS oldest)")
+                .setParameter("now", refreshedAt)
+                .executeUpdate();
     }
 
     // ------------------------------------------------------------------------
@@ -551,6 +714,7 @@ public class EconomicRevenueImportService {
         try (EconomicsJournalsAPI api = RestClientBuilder.newBuilder()
                 .baseUri(journalsApiUri)
                 .register(new EconomicsDynamicHeaderFilter(keys.appSecretToken(), keys.agreementGrantToken()))
+                .register(pacerFor(keys))
                 .build(EconomicsJournalsAPI.class)) {
             String cursor = null;
             int pages = 0;
@@ -610,9 +774,15 @@ public class EconomicRevenueImportService {
         return RestClientBuilder.newBuilder()
                 .baseUri(URI.create(keys.url()))
                 .register(new EconomicsDynamicHeaderFilter(keys.appSecretToken(), keys.agreementGrantToken()))
+                .register(pacerFor(keys))
                 .build(EconomicsAPI.class);
     }
 
+    /** The request pacer of the agreement {@code keys} belong to. */
+    EconomicsRequestPacer pacerFor(IntegrationKey.IntegrationKeyValue keys) {
+        return pacers.computeIfAbsent(keys.agreementGrantToken(), token -> new EconomicsRequestPacer(requestsPerSecond));
+    }
+
     /**
      * Lists revenue accounts for the tenant and filters out the deny-list
      * (Layer 1). Returns {@code (accountNumber, accountName)} tuples — the
@@ -918,26 +1088,7 @@ public class EconomicRevenueImportService {
      * duplicates.
      */
     Optional<DedupLayer> findExistingByFakturaText(AggregatedVoucher v) {
-        // Layer 4a: e-conomic provides invoiceNumber directly on the entry
-        // (verified against live API 2026-05-13). When non-zero, prefer it
-        // over the regex-on-text fallback — same dedup intent, no parser
-        // ambiguity. The regex path remains for pre-API-v18 entries that
-        // only carry the reference in free text.
-        Integer invoiceNum = null;
-        if (v.invoiceNumber() > 0) {
-            invoiceNum = v.invoiceNumber();
-        } else if (v.representativeText() != null) {
-            Matcher m = FAKTURA_TEXT_PATTERN.matcher(v.representativeText());
-            if (m.find()) {
-                try {
-                    invoiceNum = Integer.parseInt(m.group(1) + m.group(2));
-                } catch (NumberFormatException ex) {
-                    log.warnf("EconomicRevenueImportService: Layer 4 parseInt overflow on text=%s — skipping layer",
-                            v.representativeText());
-                    return Optional.empty();
-                }
-            }
-        }
+        Integer invoiceNum = layer4InvoiceNumber(v);
         if (invoiceNum == null) return Optional.empty();
         @SuppressWarnings("unchecked")
         List<Object> rs = em.createNativeQuery(
@@ -950,6 +1101,103 @@ public class EconomicRevenueImportService {
         return rs.isEmpty() ? Optional.empty() : Optional.of(DedupLayer.LAYER_4_TEXT_MATCH);
     }
 
+    /**
+     * The Trustworks invoice number Layer 4 looks for, or null when the voucher
+     * carries none (or an unparseable one).
+     */
+    private static Integer layer4InvoiceNumber(AggregatedVoucher v) {
+        // Layer 4a: e-conomic provides invoiceNumber directly on the entry
+        // (verified against live API 2026-05-13). When non-zero, prefer it
+        // over the regex-on-text fallback — same dedup intent, no parser
+        // ambiguity. The regex path remains for pre-API-v18 entries that
+        // only carry the reference in free text.
+        if (v.invoiceNumber() > 0) return v.invoiceNumber();
+        if (v.representativeText() == null) return null;
+        Matcher m = FAKTURA_TEXT_PATTERN.matcher(v.representativeText());
+        if (!m.find()) return null;
+        try {
+            return Integer.parseInt(m.group(1) + m.group(2));
+        } catch (NumberFormatException ex) {
+            log.warnf("EconomicRevenueImportService: Layer 4 parseInt overflow on text=%s — skipping layer",
+                    v.representativeText());
+            return null;
+        }
+    }
+
+    /**
+     * Layers 2–4 for a whole page of one company's vouchers in ONE round trip.
+     *
+     * <p>Each layer's natural key — voucher number (against the three voucher
+     * columns), e-conomic entry number, Trustworks invoice number — is looked up
+     * with an {@code IN} list, and the hits come back as hashed keys. Each voucher
+     * is then classified in memory in the same fail-fast order as the single-voucher
+     * helpers above, so the skip counts do not change.</p>
+     *
+     * <p>In live mode each survivor's own voucher and entry keys are added as it is
+     * accepted. A later voucher in the same page that shares them is caught the same
+     * way the old voucher-by-voucher loop caught it once the first one was committed.</p>
+     */
+    PageOutcome dedupePage(List<AggregatedVoucher> page) {
+        EnumMap<DedupLayer, Integer> skipped = new EnumMap<>(DedupLayer.class);
+        if (page.isEmpty()) return new PageOutcome(List.of(), skipped, 0);
+
+        String companyUuid = page.get(0).companyUuid();
+        Set<Integer> voucherNumbers = new HashSet<>();
+        Set<Integer> entryNumbers = new HashSet<>();
+        Set<Integer> invoiceNumbers = new HashSet<>();
+        for (AggregatedVoucher v : page) {
+            voucherNumbers.add(v.voucherNumber());
+            entryNumbers.add(v.minEntryNumber());
+            Integer invoiceNum = layer4InvoiceNumber(v);
+            if (invoiceNum != null) invoiceNumbers.add(invoiceNum);
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT 'V' AS k, economics_voucher_number AS n FROM invoices " +
+                        "WHERE companyuuid = :company AND economics_voucher_number IN (:vouchers) " +
+                "UNION ALL SELECT 'V', economics_booked_number FROM invoices " +
+                        "WHERE companyuuid = :company AND economics_booked_number IN (:vouchers) " +
+                "UNION ALL SELECT 'V', economics_draft_number FROM invoices " +
+                        "WHERE companyuuid = :company AND economics_draft_number IN (:vouchers) " +
+                "UNION ALL SELECT 'E', economics_entry_number FROM invoices " +
+                        "WHERE companyuuid = :company AND economics_entry_number IN (:entries) ");
+        if (!invoiceNumbers.isEmpty()) {
+            sql.append("UNION ALL SELECT 'I', invoicenumber FROM invoices " +
+                    "WHERE companyuuid = :company AND invoicenumber IN (:invoiceNumbers) ");
+        }
+        Query q = em.createNativeQuery(sql.toString())
+                .setParameter("company", companyUuid)
+                .setParameter("vouchers", voucherNumbers)
+                .setParameter("entries", entryNumbers);
+        if (!invoiceNumbers.isEmpty()) q.setParameter("invoiceNumbers", invoiceNumbers);
+
+        Set<String> existing = new HashSet<>();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = q.getResultList();
+        for (Object[] r : rows) {
+            existing.add(r[0] + "|" + ((Number) r[1]).longValue());
+        }
+
+        List<AggregatedVoucher> survivors = new ArrayList<>();
+        for (AggregatedVoucher v : page) {
+            Integer invoiceNum = layer4InvoiceNumber(v);
+            DedupLayer hit = existing.contains("V|" + v.voucherNumber()) ? DedupLayer.LAYER_2_VOUCHER_COLLISION
+                    : existing.contains("E|" + v.minEntryNumber()) ? DedupLayer.LAYER_3_ENTRY_COLLISION
+                    : invoiceNum != null && existing.contains("I|" + invoiceNum) ? DedupLayer.LAYER_4_TEXT_MATCH
+                    : null;
+            if (hit != null) {
+                skipped.merge(hit, 1, Integer::sum);
+                continue;
+            }
+            survivors.add(v);
+            if (!dryRun) {
+                existing.add("V|" + v.voucherNumber());
+                existing.add("E|" + v.minEntryNumber());
+            }
+        }
+        return new PageOutcome(survivors, skipped, 0);
+    }
+
     // ------------------------------------------------------------------------
     // Insert path
     // ------------------------------------------------------------------------
@@ -1016,19 +1264,9 @@ public class EconomicRevenueImportService {
         String itemUuid = UUID.randomUUID().toString();
         LocalDate invoiceDate = v.entryDate() != null ? v.entryDate() : LocalDate.now();
         LocalDate dueDate = invoiceDate;          // no payment terms on auto-imports
-        BigDecimal rate = deriveStoredAmount(v.sumAmount());
+        BigDecimal rate = guardedStoredAmount(v);
         String description = "e-conomic entry " + v.minEntryNumber();
 
-        // Guard, not decoration: this is the invariant both previous versions broke,
-        // and breaking it silently mis-states revenue for months. Refuse the row
-        // rather than write one whose sign is not derived from the entry.
-        if (rate.add(v.sumAmount().setScale(2, RoundingMode.HALF_UP)).signum() != 0) {
-            throw new IllegalStateException(String.format(
-                    "PHANTOM import refused: stored amount %s is not the negation of e-conomic "
-                            + "entry amount %s (company=%s entry=%d voucher=%d)",
-                    rate, v.sumAmount(), v.companyUuid(), v.minEntryNumber(), v.voucherNumber()));
-        }
-
         try {
             Query q = em.createNativeQuery(
                     "INSERT INTO invoices (" +
@@ -1090,6 +1328,96 @@ public class EconomicRevenueImportService {
         }
     }
 
+    /**
+     * {@link #deriveStoredAmount}, refusing the voucher when the result is not the
+     * exact negation of the entry amount.
+     */
+    private static BigDecimal guardedStoredAmount(AggregatedVoucher v) {
+        BigDecimal rate = deriveStoredAmount(v.sumAmount());
+        // Guard, not decoration: this is the invariant both previous versions broke,
+        // and breaking it silently mis-states revenue for months. Refuse the row
+        // rather than write one whose sign is not derived from the entry.
+        if (rate.add(v.sumAmount().setScale(2, RoundingMode.HALF_UP)).signum() != 0) {
+            throw new IllegalStateException(String.format(
+                    "PHANTOM import refused: stored amount %s is not the negation of e-conomic "
+                            + "entry amount %s (company=%s entry=%d voucher=%d)",
+                    rate, v.sumAmount(), v.companyUuid(), v.minEntryNumber(), v.voucherNumber()));
+        }
+        return rate;
+    }
+
+    /**
+     * The rows of {@link #insertInvoiceAndItem} for a whole page: one multi-row
+     * {@code INSERT INTO invoices} and one multi-row {@code INSERT INTO invoiceitems},
+     * in the caller's transaction. Every voucher passes the sign guard before
+     * anything is written.
+     *
+     * @return the number of invoices inserted
+     */
+    int insertPage(List<AggregatedVoucher> vouchers, LocalDateTime refreshedAt, String postingStatus) {
+        if (vouchers.isEmpty()) return 0;
+        List<BigDecimal> rates = new ArrayList<>(vouchers.size());
+        for (AggregatedVoucher v : vouchers) rates.add(guardedStoredAmount(v));
+
+        StringBuilder invoiceSql = new StringBuilder(
+                "INSERT INTO invoices (" +
+                        "  uuid, type, status, invoicenumber, year, month, companyuuid, " +
+                        "  clientname, currency, invoicedate, duedate, " +
+                        "  economics_voucher_number, economics_entry_number, economics_accounting_year, " +
+                        "  economics_entry_refreshed_at, economics_posting_status, " +
+                        "  invoice_ref, vat, discount, " +
+                        "  internal_invoice_skip" +
+                        ") VALUES ");
+        StringBuilder itemSql = new StringBuilder(
+                "INSERT INTO invoiceitems (" +
+                        "  uuid, invoiceuuid, itemname, description, rate, hours, position, " +
+                        "  origin, consultantuuid" +
+                        ") VALUES ");
+        for (int i = 0; i < vouchers.size(); i++) {
+            if (i > 0) {
+                invoiceSql.append(", ");
+                itemSql.append(", ");
+            }
+            invoiceSql.append("(:uuid").append(i).append(", 'PHANTOM', 'CREATED', 0, :year").append(i)
+                    .append(", :month").append(i).append(", :companyUuid").append(i)
+                    .append(", :clientname").append(i).append(", 'DKK', :invoiceDate").append(i)
+                    .append(", :invoiceDate").append(i)           // no payment terms on auto-imports
+                    .append(", :voucherNumber").append(i).append(", :entryNumber").append(i)
+                    .append(", :accountingYear").append(i).append(", :refreshedAt, :postingStatus, 0, 0.0, 0.0, false)");
+            itemSql.append("(:itemUuid").append(i).append(", :uuid").append(i)
+                    .append(", 'e-conomic auto-import', :description").append(i)
+                    .append(", :rate").append(i).append(", 1.0, 0, 'BASE', NULL)");
+        }
+
+        Query invoices = em.createNativeQuery(invoiceSql.toString());
+        Query items = em.createNativeQuery(itemSql.toString());
+        invoices.setParameter("refreshedAt", refreshedAt);
+        invoices.setParameter("postingStatus", postingStatus);
+        for (int i = 0; i < vouchers.size(); i++) {
+            AggregatedVoucher v = vouchers.get(i);
+            String invoiceUuid = UUID.randomUUID().toString();
+            LocalDate invoiceDate = v.entryDate() != null ? v.entryDate() : LocalDate.now();
+            invoices.setParameter("uuid" + i, invoiceUuid);
+            invoices.setParameter("year" + i, invoiceDate.getYear());
+            invoices.setParameter("month" + i, invoiceDate.getMonthValue());
+            invoices.setParameter("companyUuid" + i, v.companyUuid());
+            invoices.setParameter("clientname" + i, v.clientname() != null ? v.clientname() : "");
+            invoices.setParameter("invoiceDate" + i, invoiceDate);
+            invoices.setParameter("voucherNumber" + i, v.voucherNumber());
+            invoices.setParameter("entryNumber" + i, v.minEntryNumber());
+            invoices.setParameter("accountingYear" + i, v.accountingYear());
+            items.setParameter("itemUuid" + i, UUID.randomUUID().toString());
+            items.setParameter("uuid" + i, invoiceUuid);
+            items.setParameter("description" + i, "e-conomic entry " + v.minEntryNumber());
+            items.setParameter("rate" + i, rates.get(i));
+        }
+        int inserted = invoices.executeUpdate();
+        items.executeUpdate();
+        log.infof("EconomicRevenueImportService: inserted %d PHANTOM invoices for company=%s",
+                inserted, vouchers.get(0).companyUuid());
+        return inserted;
+    }
+
     // ------------------------------------------------------------------------
     // JSON helpers — used by tests for parity
     // ------------------------------------------------------------------------
@@ -1177,6 +1505,29 @@ public class EconomicRevenueImportService {
         LAYER_4_TEXT_MATCH
     }
 
+    /**
+     * One company's share of a {@link #refresh} run, reported in
+     * {@link DryRunOutcome#perCompany()}. {@code skipped} counts every dedup layer
+     * including Layer 1; {@code error} is set when the e-conomic fetch failed and
+     * nothing was imported for the company.
+     */
+    public record CompanyImport(int entriesFetched, int vouchers, int intended, int inserted, int skipped,
+                                long fetchMs, long writeMs, String error) {}
+
+    /** Stage 1 result for one company: its aggregated vouchers, or the error that stopped the fetch. */
+    record CompanyFetch(String companyUuid, List<AggregatedVoucher> vouchers, int entriesFetched,
+                        int layer1Skipped, long fetchMs, String error) {
+
+        static CompanyFetch failed(String companyUuid, long startedNanos, String error) {
+            return new CompanyFetch(companyUuid, List.of(), 0, 0,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos), error);
+        }
+    }
+
+    /** Dedup survivors and skips of one page, and how many survivors were written. */
+    public record PageOutcome(List<AggregatedVoucher> survivors, Map<DedupLayer, Integer> skippedByLayer,
+                              int inserted) {}
+
     /** Per-account row from {@code GET /accounts}. */
     record AccountInfo(int accountNumber, String accountName) {}
 
@@ -0,0 +1,45 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces the requests of one e-conomic agreement at least {@code 1 / requestsPerSecond}
+ * apart, whichever thread or REST client issues them. Registered on every client built for
+ * the agreement, so fetching several companies concurrently cannot burst a single
+ * agreement into HTTP 429. A rate of zero or less disables pacing.
+ */
+class EconomicsRequestPacer implements ClientRequestFilter {
+
+    private final long intervalNanos;
+    private long nextSlot = System.nanoTime();
+
+    EconomicsRequestPacer(double requestsPerSecond) {
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+    }
+
+    @Override
+    public void filter(ClientRequestContext ctx) {
+        acquire();
+    }
+
+    /** Blocks until this agreement's next request slot. */
+    void acquire() {
+        if (intervalNanos == 0) return;
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlot);
+            nextSlot = slot + intervalNanos;
+            wait = slot - now;
+        }
+        if (wait <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
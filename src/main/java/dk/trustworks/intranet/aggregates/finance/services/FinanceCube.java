@@ -0,0 +1,243 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable, column-oriented copy of {@code fact_project_financials_mat}.
+ *
+ * <p>Rows are kept sorted by month, so a month range is one contiguous slice found by binary
+ * search. Each dimension is dictionary-encoded into an {@code int[]} of codes (code 0 is SQL
+ * NULL) and each measure is a {@code double[]}. A filter value set is turned into a
+ * {@code boolean[]} over the dictionary once per query, so the scan itself touches only
+ * primitive arrays.</p>
+ *
+ * <p>Filters have the SQL semantics of the {@code CxoFinanceService} queries they replace:
+ * {@code IN}/{@code =} never match NULL, and {@code NOT IN} drops NULL as well.</p>
+ */
+public final class FinanceCube {
+
+    public enum Dimension { PROJECT, COMPANY, CLIENT, SECTOR, SERVICE_LINE, CONTRACT_TYPE }
+
+    public enum Measure {
+        RECOGNIZED_REVENUE, DIRECT_DELIVERY_COST, EMPLOYEE_SALARY_COST,
+        EXTERNAL_CONSULTANT_COST, PROJECT_EXPENSE_COST, TOTAL_HOURS
+    }
+
+    /** One {@code fact_project_financials_mat} row, as read by the loader. */
+    public record Row(String projectId, String monthKey, String companyuuid, String clientId, String sectorId,
+                      String serviceLineId, String contractTypeId, double recognizedRevenue,
+                      double directDeliveryCost, double employeeSalaryCost, double externalConsultantCost,
+                      double projectExpenseCost, double totalHours) {}
+
+    /**
+     * Month keys are inclusive YYYYMM bounds (null = open); empty or null sets do not filter.
+     * {@code excludedClients} drops those clients and rows without a client.
+     */
+    public record Filter(String fromKey, String toKey, Set<String> companies, Set<String> sectors,
+                         Set<String> serviceLines, Set<String> contractTypes, String clientId,
+                         Collection<String> excludedClients) {
+
+        public static Filter months(String fromKey, String toKey) {
+            return new Filter(fromKey, toKey, null, null, null, null, null, null);
+        }
+    }
+
+    private final BiFactGeneration.Generation generation;
+    private final LocalDateTime builtAt;
+    private final int[] month;
+    private final int[][] codes;
+    private final String[][] dictionaries;
+    private final double[][] measures;
+
+    private FinanceCube(BiFactGeneration.Generation generation, int[] month, int[][] codes,
+                        String[][] dictionaries, double[][] measures) {
+        this.generation = generation;
+        this.builtAt = LocalDateTime.now();
+        this.month = month;
+        this.codes = codes;
+        this.dictionaries = dictionaries;
+        this.measures = measures;
+    }
+
+    public static FinanceCube build(List<Row> rows, BiFactGeneration.Generation generation) {
+        List<Row> sorted = rows.stream().sorted(Comparator.comparing(Row::monthKey)).toList();
+        int n = sorted.size();
+        int dimensions = Dimension.values().length;
+        int[] month = new int[n];
+        int[][] codes = new int[dimensions][n];
+        double[][] measures = new double[Measure.values().length][n];
+        List<Map<String, Integer>> encoders = new ArrayList<>(dimensions);
+        for (int d = 0; d < dimensions; d++) encoders.add(new HashMap<>());
+
+        for (int r = 0; r < n; r++) {
+            Row row = sorted.get(r);
+            month[r] = Integer.parseInt(row.monthKey());
+            codes[Dimension.PROJECT.ordinal()][r] = encode(encoders.get(Dimension.PROJECT.ordinal()), row.projectId());
+            codes[Dimension.COMPANY.ordinal()][r] = encode(encoders.get(Dimension.COMPANY.ordinal()), row.companyuuid());
+            codes[Dimension.CLIENT.ordinal()][r] = encode(encoders.get(Dimension.CLIENT.ordinal()), row.clientId());
+            codes[Dimension.SECTOR.ordinal()][r] = encode(encoders.get(Dimension.SECTOR.ordinal()), row.sectorId());
+            codes[Dimension.SERVICE_LINE.ordinal()][r] = encode(encoders.get(Dimension.SERVICE_LINE.ordinal()), row.serviceLineId());
+            codes[Dimension.CONTRACT_TYPE.ordinal()][r] = encode(encoders.get(Dimension.CONTRACT_TYPE.ordinal()), row.contractTypeId());
+            measures[Measure.RECOGNIZED_REVENUE.ordinal()][r] = row.recognizedRevenue();
+            measures[Measure.DIRECT_DELIVERY_COST.ordinal()][r] = row.directDeliveryCost();
+            measures[Measure.EMPLOYEE_SALARY_COST.ordinal()][r] = row.employeeSalaryCost();
+            measures[Measure.EXTERNAL_CONSULTANT_COST.ordinal()][r] = row.externalConsultantCost();
+            measures[Measure.PROJECT_EXPENSE_COST.ordinal()][r] = row.projectExpenseCost();
+            measures[Measure.TOTAL_HOURS.ordinal()][r] = row.totalHours();
+        }
+
+        String[][] dictionaries = new String[dimensions][];
+        for (int d = 0; d < dimensions; d++) {
+            String[] dictionary = new String[encoders.get(d).size() + 1];
+            encoders.get(d).forEach((value, code) -> dictionary[code] = value);
+            dictionaries[d] = dictionary;
+        }
+        return new FinanceCube(generation, month, codes, dictionaries, measures);
+    }
+
+    private static int encode(Map<String, Integer> encoder, String value) {
+        if (value == null) return 0;
+        return encoder.computeIfAbsent(value, v -> encoder.size() + 1);
+    }
+
+    public BiFactGeneration.Generation generation() {
+        return generation;
+    }
+
+    public LocalDateTime builtAt() {
+        return builtAt;
+    }
+
+    public int rowCount() {
+        return month.length;
+    }
+
+    public int cardinality(Dimension dimension) {
+        return dictionaries[dimension.ordinal()].length - 1;
+    }
+
+    public double sum(Measure measure, Filter filter) {
+        double[] values = measures[measure.ordinal()];
+        Scan scan = new Scan(filter);
+        double total = 0;
+        for (int r = scan.from; r < scan.to; r++) {
+            if (scan.matches(r)) total += values[r];
+        }
+        return total;
+    }
+
+    /** Month key → sum, for every month with at least one matching row (as {@code GROUP BY month_key}). */
+    public NavigableMap<String, Double> sumByMonth(Measure measure, Filter filter) {
+        double[] values = measures[measure.ordinal()];
+        Scan scan = new Scan(filter);
+        NavigableMap<String, Double> byMonth = new TreeMap<>();
+        int r = scan.from;
+        while (r < scan.to) {
+            int m = month[r];
+            double total = 0;
+            boolean any = false;
+            for (; r < scan.to && month[r] == m; r++) {
+                if (scan.matches(r)) {
+                    total += values[r];
+                    any = true;
+                }
+            }
+            if (any) byMonth.put(String.valueOf(m), total);
+        }
+        return byMonth;
+    }
+
+    /**
+     * Dimension value → sum, for every value with at least one matching row; the NULL group is
+     * keyed {@code null}. {@code positiveRowsOnly} keeps only rows whose measure is above zero.
+     */
+    public Map<String, Double> sumBy(Dimension dimension, Measure measure, Filter filter, boolean positiveRowsOnly) {
+        double[] values = measures[measure.ordinal()];
+        int[] group = codes[dimension.ordinal()];
+        double[] totals = new double[dictionaries[dimension.ordinal()].length];
+        boolean[] seen = new boolean[totals.length];
+        Scan scan = new Scan(filter);
+        for (int r = scan.from; r < scan.to; r++) {
+            if (!scan.matches(r) || (positiveRowsOnly && values[r] <= 0)) continue;
+            totals[group[r]] += values[r];
+            seen[group[r]] = true;
+        }
+        Map<String, Double> byValue = new HashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            if (seen[code]) byValue.put(dictionaries[dimension.ordinal()][code], totals[code]);
+        }
+        return byValue;
+    }
+
+    /** Row range and dictionary masks of one filter. */
+    private final class Scan {
+
+        final int from;
+        final int to;
+        private final boolean[][] masks = new boolean[Dimension.values().length][];
+
+        Scan(Filter filter) {
+            from = filter.fromKey() == null ? 0 : firstIndexAtOrAfter(Integer.parseInt(filter.fromKey()));
+            to = filter.toKey() == null ? month.length : firstIndexAtOrAfter(Integer.parseInt(filter.toKey()) + 1);
+            include(Dimension.COMPANY, filter.companies());
+            include(Dimension.SECTOR, filter.sectors());
+            include(Dimension.SERVICE_LINE, filter.serviceLines());
+            include(Dimension.CONTRACT_TYPE, filter.contractTypes());
+            if (filter.clientId() != null && !filter.clientId().isBlank()) {
+                include(Dimension.CLIENT, Set.of(filter.clientId()));
+            }
+            if (filter.excludedClients() != null && !filter.excludedClients().isEmpty()) {
+                String[] dictionary = dictionaries[Dimension.CLIENT.ordinal()];
+                boolean[] mask = masks[Dimension.CLIENT.ordinal()];
+                if (mask == null) {
+                    mask = new boolean[dictionary.length];
+                    Arrays.fill(mask, 1, mask.length, true);
+                    masks[Dimension.CLIENT.ordinal()] = mask;
+                }
+                for (int code = 1; code < dictionary.length; code++) {
+                    if (filter.excludedClients().contains(dictionary[code])) mask[code] = false;
+                }
+            }
+        }
+
+        private void include(Dimension dimension, Set<String> values) {
+            if (values == null || values.isEmpty()) return;
+            String[] dictionary = dictionaries[dimension.ordinal()];
+            boolean[] mask = new boolean[dictionary.length];
+            for (int code = 1; code < dictionary.length; code++) {
+                mask[code] = values.contains(dictionary[code]);
+            }
+            masks[dimension.ordinal()] = mask;
+        }
+
+        boolean matches(int row) {
+            for (int d = 0; d < masks.length; d++) {
+                if (masks[d] != null && !masks[d][codes[d][row]]) return false;
+            }
+            return true;
+        }
+
+        private int firstIndexAtOrAfter(int monthKey) {
+            int lo = 0;
+            int hi = month.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (month[mid] < monthKey) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the {@link FinanceCube} of the current BI fact generation.
+ *
+ * <p>{@code fact_project_financials_mat} only changes when a BI refresh commits, and every
+ * refresh advances {@link BiFactGeneration}. {@link #current()} hands out the cube built for the
+ * current generation and rebuilds it once the generation has moved; a scheduled check does the
+ * same in the background so a dashboard rarely pays for the rebuild. While one thread rebuilds,
+ * others keep answering from the previous cube, the same stale-while-refreshing the versioned
+ * analytics caches accept.</p>
+ *
+ * <p>{@link #current()} returns null when the cube is disabled
+ * ({@code cxo.finance-cube.enabled=false}) or has never loaded; callers then run their SQL.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class FinanceCubeService {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    BiFactGeneration factGeneration;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "cxo.finance-cube.enabled", defaultValue = "true")
+    boolean enabled = true;
+
+    private final AtomicReference<FinanceCube> cube = new AtomicReference<>();
+    private final ReentrantLock rebuilding = new ReentrantLock();
+
+    @Scheduled(every = "${cxo.finance-cube.check-interval:30s}", identity = "cxo-finance-cube",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledCheck() {
+        if (!enabled) return;
+        try {
+            current();
+        } catch (RuntimeException e) {
+            log.warnf("cxo-finance-cube check failed: %s", e.getMessage());
+        }
+    }
+
+    /** The cube of the current generation, a previous one while it is being rebuilt, or null. */
+    public FinanceCube current() {
+        if (!enabled) return null;
+        BiFactGeneration.Generation generation = factGeneration.current();
+        FinanceCube existing = cube.get();
+        if (existing != null && existing.generation().equals(generation)) return existing;
+
+        if (existing == null) {
+            rebuilding.lock();
+        } else if (!rebuilding.tryLock()) {
+            registry.counter("cxo.finance_cube.stale_served").increment();
+            return existing;
+        }
+        try {
+            FinanceCube latest = cube.get();
+            if (latest != null && latest.generation().equals(generation)) return latest;
+            FinanceCube rebuilt = rebuild(generation);
+            cube.set(rebuilt);
+            return rebuilt;
+        } catch (RuntimeException e) {
+            log.warnf(e, "Finance cube rebuild for generation %s failed", generation);
+            return cube.get();
+        } finally {
+            rebuilding.unlock();
+        }
+    }
+
+    private FinanceCube rebuild(BiFactGeneration.Generation generation) {
+        long started = System.nanoTime();
+        List<FinanceCube.Row> rows = QuarkusTransaction.requiringNew().call(this::loadRows);
+        FinanceCube rebuilt = FinanceCube.build(rows, generation);
+        long elapsed = System.nanoTime() - started;
+        registry.timer("cxo.finance_cube.rebuild").record(elapsed, TimeUnit.NANOSECONDS);
+        log.infof("Finance cube rebuilt for generation %s: %d rows, %d companies, %d clients in %d ms",
+                generation, rebuilt.rowCount(), rebuilt.cardinality(FinanceCube.Dimension.COMPANY),
+                rebuilt.cardinality(FinanceCube.Dimension.CLIENT), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return rebuilt;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<FinanceCube.Row> loadRows() {
+        List<Object[]> rows = em.createNativeQuery("""
+                        SELECT project_id, month_key, companyuuid, client_id, sector_id, service_line_id,
+                               contract_type_id, recognized_revenue_dkk, direct_delivery_cost_dkk,
+                               employee_salary_cost_dkk, external_consultant_cost_dkk,
+                               project_expense_cost_dkk, total_hours
+                        FROM fact_project_financials_mat
+                        ORDER BY month_key
+                        """)
+                .getResultList();
+        List<FinanceCube.Row> result = new ArrayList<>(rows.size());
+        for (Object[] r : rows) {
+            result.add(new FinanceCube.Row((String) r[0], (String) r[1], (String) r[2], (String) r[3],
+                    (String) r[4], (String) r[5], (String) r[6], toDouble(r[7]), toDouble(r[8]),
+                    toDouble(r[9]), toDouble(r[10]), toDouble(r[11]), toDouble(r[12])));
+        }
+        return result;
+    }
+
+    private static double toDouble(Object value) {
+        return value == null ? 0d : ((Number) value).doubleValue();
+    }
+}
@@ -13,15 +13,19 @@ import dk.trustworks.intranet.financeservice.model.enums.CostType;
 import dk.trustworks.intranet.financeservice.model.enums.PostingStatus;
 import dk.trustworks.intranet.model.Company;
 import dk.trustworks.intranet.utils.DateUtils;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
-import jakarta.transaction.Transactional;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -29,16 +33,29 @@ import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Refreshes {@code fact_opex_distribution_mat} by running the existing
  * {@link IntercompanyCalcService#loadFiscalYear} + distribution algorithm
  * once per night and writing the resulting {@link OpexRow}s into the table.
  *
+ * <p>The refresh is incremental: only (month, posting status) slices whose inputs
+ * changed since the previous run are recomputed, each swapped in its own transaction
+ * and the independent slices in parallel. See {@link #refresh(boolean)} and
+ * {@code V530__Opex_distribution_source_hash.sql}.
+ *
  * <p>The provider that powers the CXO EBITDA forecast endpoint reads from this
  * table for unsettled months instead of recomputing on the request path.
  *
@@ -103,6 +120,22 @@ public class OpexDistributionRefreshService {
      */
     private static final Set<CostType> OPEX_COST_TYPES = Set.of(CostType.OPEX, CostType.SALARIES);
 
+    /**
+     * Version of the distribution logic. Bump it with any change that makes
+     * {@link #computeDistributionRowsForMonth} turn the same inputs into different rows: stored
+     * hashes then stop matching and the next refresh recomputes every slice.
+     */
+    static final int ALGORITHM_VERSION = 1;
+
+    /**
+     * Prefix of every source hash: {@link #ALGORITHM_VERSION} plus the mappings and cost types
+     * above, so editing those invalidates the stored hashes without a version bump.
+     */
+    static final String ALGORITHM_SALT = "algorithm=" + ALGORITHM_VERSION
+            + ";categories=" + new TreeMap<>(GROUPNAME_TO_EXPENSE_CATEGORY)
+            + ";costCenters=" + new TreeMap<>(GROUPNAME_TO_COST_CENTER)
+            + ";costTypes=" + new TreeSet<>(OPEX_COST_TYPES) + ";";
+
     @Inject
     IntercompanyCalcService intercompanyCalcService;
 
@@ -115,15 +148,63 @@ public class OpexDistributionRefreshService {
     @ConfigProperty(name = "dk.trustworks.intranet.aggregates.accounting.salary-buffer-multiplier", defaultValue = "1.02")
     double salaryBufferMultiplier;
 
-    public record RefreshOutcome(int inserted, int deleted, Duration took,
-                                 LocalDate windowFrom, LocalDate windowTo) {}
+    @ConfigProperty(name = "dk.trustworks.intranet.opex-distribution.refresh-parallelism", defaultValue = "4")
+    int parallelism = 1;
+
+    @Inject
+    ManagedExecutor executor;
 
     /**
-     * Rebuild all rows in the window [currentFY - fyBack, currentFY + 1).
-     * Idempotent — safe to call any number of times.
+     * Outcome of one refresh. A slice is one (month, posting status) pair of the window;
+     * {@code slicesRecomputed} were swapped because their inputs changed (or the refresh was
+     * forced), {@code slicesUnchanged} only had their {@code refreshed_at} bumped.
      */
-    @Transactional
+    public record RefreshOutcome(int inserted, int deleted, Duration took,
+                                 LocalDate windowFrom, LocalDate windowTo,
+                                 int slicesRecomputed, int slicesUnchanged) {
+        public RefreshOutcome(int inserted, int deleted, Duration took,
+                              LocalDate windowFrom, LocalDate windowTo) {
+            this(inserted, deleted, took, windowFrom, windowTo, 0, 0);
+        }
+    }
+
+    /** One (month, posting status) pair — the unit that is compared, recomputed and swapped. */
+    record MonthSlice(YearMonth month, PostingStatus status) {
+        String monthKey() {
+            return formatMonthKey(month);
+        }
+    }
+
+    /** A slice whose inputs changed, with everything needed to recompute it off-transaction. */
+    record SliceWork(MonthSlice slice, MonthData md, Map<String, BigDecimal> lumps, Map<String, String> hashes) {}
+
+    /** Per-status source data for the window plus the hashes stored by the previous refresh. */
+    record Sources(Map<PostingStatus, FiscalYearData> data, Map<MonthSlice, Map<String, String>> storedHashes) {}
+
+    record SliceSwap(int deleted, int inserted) {}
+
+    /** Incremental refresh of the window; see {@link #refresh(boolean)}. */
     public RefreshOutcome refresh() {
+        return refresh(false);
+    }
+
+    /**
+     * Brings every (month, posting status) slice of the window [currentFY - fyBack, currentFY + 1)
+     * up to date with its inputs. Idempotent — safe to call any number of times.
+     *
+     * <p>Each slice's inputs are fingerprinted per company ({@link #sourceHashes}) and compared
+     * with the hashes stored by the previous run in {@code fact_opex_distribution_source_hash}.
+     * Only slices whose hash set differs are recomputed. Each one is swapped in its own
+     * transaction (delete, insert, rewrite hashes), so readers of
+     * {@link DistributionAwareOpexProvider} see either the old or the new month, never a
+     * half-written one. Changed slices are independent and run on {@code refresh-parallelism}
+     * lanes. Unchanged slices only get their {@code refreshed_at} bumped, which keeps
+     * {@code OpexDistributionFreshnessCheck} meaning "verified against its inputs".
+     *
+     * @param force recompute every slice regardless of its stored hashes (cold start, or after
+     *              the table was cleared by hand)
+     */
+    public RefreshOutcome refresh(boolean force) {
         Instant start = Instant.now();
 
         FiscalYearRange currentFy =
@@ -131,32 +212,263 @@ public class OpexDistributionRefreshService {
         LocalDate windowFrom = currentFy.start().minusYears(fyBack);
         LocalDate windowToExclusive = currentFy.end().plusDays(1);
 
-        int inserted = 0;
         LocalDateTime refreshedAt = LocalDateTime.now();
 
         String fromKey = UtilizationCalculationHelper.toMonthKey(windowFrom);
         String toKey = UtilizationCalculationHelper.toMonthKey(windowToExclusive);
 
-        int deleted = em.createNativeQuery(
-                "DELETE FROM fact_opex_distribution_mat " +
+        Sources sources = loadSources(windowFrom, windowToExclusive, fromKey, toKey);
+        List<SliceWork> changed = new ArrayList<>();
+        List<MonthSlice> unchanged = new ArrayList<>();
+        planSlices(sources, force, changed, unchanged);
+
+        SliceSwap swapped = replaceSlices(changed, refreshedAt);
+        if (!unchanged.isEmpty()) touchSlices(unchanged, refreshedAt);
+
+        Duration took = Duration.between(start, Instant.now());
+        log.infof("Refreshed fact_opex_distribution_mat: recomputed=%d unchanged=%d deleted=%d inserted=%d took=%dms window=[%s..%s)",
+                changed.size(), unchanged.size(), swapped.deleted(), swapped.inserted(), took.toMillis(),
+                windowFrom, windowToExclusive);
+
+        return new RefreshOutcome(swapped.inserted(), swapped.deleted(), took, windowFrom, windowToExclusive,
+                changed.size(), unchanged.size());
+    }
+
+    /**
+     * Splits the window into slices whose per-company hashes differ from the stored ones
+     * ({@code changed}) and slices that can be left alone ({@code unchanged}). A company that
+     * appears or disappears changes the hash set as well.
+     */
+    void planSlices(Sources sources, boolean force, List<SliceWork> changed, List<MonthSlice> unchanged) {
+        for (var entry : sources.data().entrySet()) {
+            FiscalYearData fyData = entry.getValue();
+            for (var month : fyData.perMonth.entrySet()) {
+                MonthSlice slice = new MonthSlice(month.getKey(), entry.getKey());
+                Map<String, BigDecimal> lumps = fyData.lumpsByMonth
+                        .getOrDefault(month.getKey(), Collections.emptyMap());
+                Map<String, String> hashes = sourceHashes(month.getValue(), lumps);
+                if (force || !hashes.equals(sources.storedHashes().getOrDefault(slice, Map.of()))) {
+                    changed.add(new SliceWork(slice, month.getValue(), lumps, hashes));
+                } else {
+                    unchanged.add(slice);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes and swaps the changed slices on up to {@link #parallelism} lanes. A slice that
+     * fails keeps its old rows and hashes, so the next run retries it; the other slices still
+     * complete, and the first failure is rethrown afterwards so the batchlet alerts.
+     */
+    SliceSwap replaceSlices(List<SliceWork> changed, LocalDateTime refreshedAt) {
+        if (changed.isEmpty()) return new SliceSwap(0, 0);
+
+        ConcurrentLinkedQueue<SliceWork> pending = new ConcurrentLinkedQueue<>(changed);
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicInteger inserted = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        AtomicInteger failed = new AtomicInteger();
+        Runnable worker = () -> {
+            SliceWork work;
+            while ((work = pending.poll()) != null) {
+                try {
+                    List<OpexRow> rows = computeDistributionRowsForMonth(work.slice().month(), work.md(), work.lumps());
+                    SliceSwap swap = replaceSlice(work.slice(), rows, work.hashes(), refreshedAt);
+                    deleted.addAndGet(swap.deleted());
+                    inserted.addAndGet(swap.inserted());
+                } catch (RuntimeException e) {
+                    log.warnf(e, "OPEX distribution refresh failed for %s %s",
+                            work.slice().status(), work.slice().monthKey());
+                    failed.incrementAndGet();
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        int workers = Math.min(Math.max(parallelism, 1), changed.size());
+        if (workers <= 1 || executor == null) {
+            worker.run();
+        } else {
+            List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(CompletableFuture.runAsync(worker, executor));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException(String.format(
+                    "%d of %d OPEX distribution slices failed to refresh", failed.get(), changed.size()),
+                    failure.get());
+        }
+        return new SliceSwap(deleted.get(), inserted.get());
+    }
+
+    // -----------------------------------------------------------------------
+    // Transactional steps. Protected so unit tests can replace the database.
+    // -----------------------------------------------------------------------
+
+    /** Loads the window once per posting status, plus the stored hashes, in one read transaction. */
+    protected Sources loadSources(LocalDate windowFrom, LocalDate windowToExclusive, String fromKey, String toKey) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Map<PostingStatus, FiscalYearData> data = new EnumMap<>(PostingStatus.class);
+            for (PostingStatus postingStatus : PostingStatus.values()) {
+                data.put(postingStatus, intercompanyCalcService.loadFiscalYear(
+                        windowFrom, windowToExclusive, salaryBufferMultiplier, postingStatus));
+            }
+            return new Sources(data, loadStoredHashes(fromKey, toKey));
+        });
+    }
+
+    /** Replaces one slice's rows and hashes atomically. */
+    protected SliceSwap replaceSlice(MonthSlice slice, List<OpexRow> rows, Map<String, String> hashes,
+                                     LocalDateTime refreshedAt) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            int deleted = em.createNativeQuery(
+                    "DELETE FROM fact_opex_distribution_mat " +
+                    "WHERE month_key = :monthKey AND posting_status = :postingStatus")
+                    .setParameter("monthKey", slice.monthKey())
+                    .setParameter("postingStatus", slice.status().name())
+                    .executeUpdate();
+            int inserted = bulkInsert(rows, refreshedAt, slice.status());
+            writeHashes(slice, hashes, refreshedAt);
+            return new SliceSwap(deleted, inserted);
+        });
+    }
+
+    /** Marks unchanged slices as verified at {@code refreshedAt}; their amounts stay as they are. */
+    protected void touchSlices(List<MonthSlice> slices, LocalDateTime refreshedAt) {
+        Map<PostingStatus, List<String>> monthsByStatus = new EnumMap<>(PostingStatus.class);
+        for (MonthSlice slice : slices) {
+            monthsByStatus.computeIfAbsent(slice.status(), k -> new ArrayList<>()).add(slice.monthKey());
+        }
+        QuarkusTransaction.requiringNew().run(() -> monthsByStatus.forEach((postingStatus, monthKeys) -> {
+            for (String table : List.of("fact_opex_distribution_mat", "fact_opex_distribution_source_hash")) {
+                em.createNativeQuery("UPDATE " + table + " SET refreshed_at = :refreshedAt " +
+                                "WHERE posting_status = :postingStatus AND month_key IN (:monthKeys)")
+                        .setParameter("refreshedAt", refreshedAt)
+                        .setParameter("postingStatus", postingStatus.name())
+                        .setParameter("monthKeys", monthKeys)
+                        .executeUpdate();
+            }
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<MonthSlice, Map<String, String>> loadStoredHashes(String fromKey, String toKey) {
+        List<Object[]> rows = em.createNativeQuery(
+                "SELECT month_key, posting_status, company_id, content_hash " +
+                "FROM fact_opex_distribution_source_hash " +
                 "WHERE month_key >= :fromKey AND month_key < :toKey")
                 .setParameter("fromKey", fromKey)
                 .setParameter("toKey", toKey)
+                .getResultList();
+        Map<MonthSlice, Map<String, String>> stored = new HashMap<>();
+        for (Object[] r : rows) {
+            MonthSlice slice = new MonthSlice(
+                    YearMonth.parse((String) r[0], MONTH_KEY_FORMAT),
+                    PostingStatus.valueOf((String) r[1]));
+            stored.computeIfAbsent(slice, k -> new HashMap<>()).put((String) r[2], (String) r[3]);
+        }
+        return stored;
+    }
+
+    private void writeHashes(MonthSlice slice, Map<String, String> hashes, LocalDateTime refreshedAt) {
+        em.createNativeQuery(
+                "DELETE FROM fact_opex_distribution_source_hash " +
+                "WHERE month_key = :monthKey AND posting_status = :postingStatus")
+                .setParameter("monthKey", slice.monthKey())
+                .setParameter("postingStatus", slice.status().name())
                 .executeUpdate();
+        if (hashes.isEmpty()) return;
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO fact_opex_distribution_source_hash " +
+                "(month_key, posting_status, company_id, content_hash, refreshed_at) VALUES ");
+        List<Map.Entry<String, String>> entries = new ArrayList<>(hashes.entrySet());
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:monthKey, :postingStatus, :company").append(i)
+               .append(", :hash").append(i).append(", :refreshedAt)");
+        }
+        Query q = em.createNativeQuery(sql.toString())
+                .setParameter("monthKey", slice.monthKey())
+                .setParameter("postingStatus", slice.status().name())
+                .setParameter("refreshedAt", refreshedAt);
+        for (int i = 0; i < entries.size(); i++) {
+            q.setParameter("company" + i, entries.get(i).getKey())
+             .setParameter("hash" + i, entries.get(i).getValue());
+        }
+        q.executeUpdate();
+    }
+
+    // -----------------------------------------------------------------------
+    // Change detection
+    // -----------------------------------------------------------------------
+
+    /**
+     * Fingerprints everything the distribution reads for one month, per company: the
+     * company's GL postings per account, its consultant count, ratio and staff salary base,
+     * and its OPEX/SALARIES accounts with their mapping flags and lumps. Any change to those
+     * changes the company's SHA-256, and with it the month's hash set.
+     *
+     * <p>Keys are sorted before hashing and amounts are compared by value
+     * ({@code 700.00} equals {@code 700}), so reloading identical data yields identical hashes.
+     * Each hash starts with {@link #ALGORITHM_SALT}, so a deploy that changes the distribution
+     * recomputes slices whose inputs did not change.
+     */
+    static Map<String, String> sourceHashes(MonthData md, Map<String, BigDecimal> lumpsByAccount) {
+        return sourceHashes(md, lumpsByAccount, ALGORITHM_SALT);
+    }
 
-        for (PostingStatus postingStatus : PostingStatus.values()) {
-            FiscalYearData fyData = intercompanyCalcService.loadFiscalYear(
-                    windowFrom, windowToExclusive, salaryBufferMultiplier, postingStatus);
-            List<YearMonth> allMonths = new ArrayList<>(fyData.perMonth.keySet());
-            List<OpexRow> allRows = computeDistributionForMonths(allMonths, fyData);
-            inserted += bulkInsert(allRows, refreshedAt, postingStatus);
+    static Map<String, String> sourceHashes(MonthData md, Map<String, BigDecimal> lumpsByAccount, String salt) {
+        Map<String, StringBuilder> content = new TreeMap<>();
+        for (Company company : md.companies) {
+            String uuid = company.getUuid();
+            StringBuilder sb = content.computeIfAbsent(uuid, k -> new StringBuilder(salt));
+            sb.append("consultants=").append(plain(md.consultantCount.get(uuid)))
+              .append(";ratio=").append(plain(md.ratioByCompany.get(uuid)))
+              .append(";staff=").append(plain(md.staffBaseBI102.get(uuid)));
+            new TreeMap<>(md.glByCompanyAccountRange.getOrDefault(uuid, Collections.emptyMap()))
+                    .forEach((accountCode, amount) ->
+                            sb.append(";gl").append(accountCode).append('=').append(plain(amount)));
         }
 
-        Duration took = Duration.between(start, Instant.now());
-        log.infof("Refreshed fact_opex_distribution_mat: deleted=%d inserted=%d took=%dms window=[%s..%s)",
-                deleted, inserted, took.toMillis(), windowFrom, windowToExclusive);
+        Map<String, Map<String, String>> accountsByCompany = new TreeMap<>();
+        for (AccountingCategory category : md.categories) {
+            for (AccountingAccount account : category.getAccounts()) {
+                if (!OPEX_COST_TYPES.contains(account.getCostType())) continue;
+                accountsByCompany
+                        .computeIfAbsent(account.getCompany().getUuid(), k -> new TreeMap<>())
+                        .put(account.getUuid(), account.getAccountCode() + "," + account.getCostType()
+                                + "," + account.isShared() + "," + account.isSalary()
+                                + "," + category.getAccountname()
+                                + ",lump=" + plain(lumpsByAccount.get(account.getUuid())));
+            }
+        }
+        accountsByCompany.forEach((uuid, accounts) -> {
+            StringBuilder sb = content.computeIfAbsent(uuid, k -> new StringBuilder(salt));
+            accounts.forEach((accountUuid, description) ->
+                    sb.append(";account").append(accountUuid).append('=').append(description));
+        });
+
+        Map<String, String> hashes = new TreeMap<>();
+        content.forEach((uuid, sb) -> hashes.put(uuid, sha256(sb.toString())));
+        return hashes;
+    }
 
-        return new RefreshOutcome(inserted, deleted, took, windowFrom, windowToExclusive);
+    private static String plain(BigDecimal value) {
+        return value == null ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
     }
 
     // -----------------------------------------------------------------------
@@ -169,7 +481,8 @@ public class OpexDistributionRefreshService {
      * Batch-loads fiscal year data via {@link IntercompanyCalcService#loadFiscalYear} and
      * computes distribution for each requested month. The {@code fyData} parameter is
      * required pre-loaded by the caller — that lets {@link #refresh()} share one
-     * batch load with the algorithm.
+     * batch load with the algorithm. The refresh itself goes month by month through
+     * {@link #computeDistributionRowsForMonth}; this entry point serves the parity test.
      *
      * <p>No filters are applied here — the refresh always materializes every row.
      * Filtering happens on the read path inside {@link DistributionAwareOpexProvider}.
@@ -338,6 +651,9 @@ public class OpexDistributionRefreshService {
         return GROUPNAME_TO_COST_CENTER.getOrDefault(groupname, "GENERAL");
     }
 
+    private static final java.time.format.DateTimeFormatter MONTH_KEY_FORMAT =
+            java.time.format.DateTimeFormatter.ofPattern("yyyyMM");
+
     private static String formatMonthKey(YearMonth ym) {
         return String.format("%04d%02d", ym.getYear(), ym.getMonthValue());
     }
@@ -368,7 +684,7 @@ public class OpexDistributionRefreshService {
                .append(", :ds").append(i).append(", :ra").append(i).append(")");
         }
         // Idempotency safety: surrogate key collisions are impossible inside one
-        // refresh (we DELETE the window first), but ON DUPLICATE KEY UPDATE
+        // slice swap (we DELETE the slice first), but ON DUPLICATE KEY UPDATE
         // protects against accidental concurrent runs.
         sql.append(" ON DUPLICATE KEY UPDATE " +
                 "  opex_amount_dkk = VALUES(opex_amount_dkk), " +
@@ -378,8 +694,7 @@ public class OpexDistributionRefreshService {
         Query q = em.createNativeQuery(sql.toString());
         for (int i = 0; i < rows.size(); i++) {
             OpexRow r = rows.get(i);
-            YearMonth ym = YearMonth.parse(r.monthKey(),
-                    java.time.format.DateTimeFormatter.ofPattern("yyyyMM"));
+            YearMonth ym = YearMonth.parse(r.monthKey(), MONTH_KEY_FORMAT);
             int monthVal = ym.getMonthValue();
             int yearVal = ym.getYear();
             int fyVal = DateUtils.fiscalYearStart(ym.atDay(1)).getYear();
@@ -27,6 +27,10 @@ import dk.trustworks.intranet.aggregates.finance.dto.TeamUtilizationTrendDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.TimeRegistrationComplianceDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.TimeRegistrationComplianceDTO.MonthlyCompliance;
 import dk.trustworks.intranet.aggregates.finance.dto.UnprofitableConsultantDTO;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberMonth;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearDataService;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -41,6 +45,7 @@ import java.time.YearMonth;
 import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -59,6 +64,10 @@ import java.util.stream.Collectors;
  *
  * <p><strong>Utilization rule:</strong> Always SUM hours first, then divide.
  * Never average pre-computed percentages.
+ *
+ * <p>The overview KPIs and the utilization heatmap read the fiscal year's shared
+ * {@link TeamFiscalYearData} (the same one-time load of every team's member-months the team-lead
+ * bonus uses) when their window lies within its completed months, and run their own SQL otherwise.
  */
 @JBossLog
 @ApplicationScoped
@@ -67,6 +76,9 @@ public class TeamDashboardService {
     @Inject
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     @Inject
     ConsultantInsightsService consultantInsightsService;
 
@@ -76,6 +88,9 @@ public class TeamDashboardService {
     @Inject
     dk.trustworks.intranet.aggregates.finance.services.analytics.ProfitabilityProvider profitabilityProvider;
 
+    @Inject
+    TeamFiscalYearDataService teamFiscalYearData;
+
     // -----------------------------------------------------------------------
     // Shared helpers
     // -----------------------------------------------------------------------
@@ -191,26 +206,38 @@ public class TeamDashboardService {
         // Team name
         String teamName = getTeamName(teamId);
 
-        // KPI: utilization + revenue — ONE query on the shared temporal membership
-        // contract, so the overview reconciles to the krone with the Revenue-vs-Cost
-        // trend and Revenue-per-Member (audit C4).
-        var kpiRow = querySingleRow("""
-                SELECT COALESCE(SUM(fud.registered_billable_hours), 0) AS billable,
-                       COALESCE(SUM(fud.net_available_hours), 0) AS net_available,
-                       COALESCE(SUM(fud.registered_amount), 0) AS revenue
-                FROM fact_user_day fud
-                """ + teamMemberTemporalJoin("fud", "document_date") + """
-                WHERE fud.consultant_type = 'CONSULTANT' AND fud.status_type = 'ACTIVE'
-                  AND fud.document_date >= :fromDate AND fud.document_date <= :toDate
-                """,
-                Map.of("teamId", teamId,
-                        "fromDate", fy.start(),
-                        "toDate", effectiveEnd));
-
-        double billable = numVal(kpiRow, "billable");
-        double netAvail = numVal(kpiRow, "net_available");
+        // KPI: utilization + revenue on the shared temporal membership contract, so the
+        // overview reconciles to the krone with the Revenue-vs-Cost trend and
+        // Revenue-per-Member (audit C4). The fiscal year's shared member-months carry the
+        // same sums; only a window they do not cover falls back to the query.
+        double billable = 0;
+        double netAvail = 0;
+        double revenue = 0;
+        TeamFiscalYearData data = teamFiscalYearData.forFiscalYear(fiscalYear);
+        if (data.coversExactly(YearMonth.from(fy.start()), YearMonth.from(effectiveEnd))) {
+            for (MemberMonth m : data.memberMonths(teamId)) {
+                billable += m.billable();
+                netAvail += m.available();
+                revenue += m.revenue();
+            }
+        } else {
+            var kpiRow = querySingleRow("""
+                    SELECT COALESCE(SUM(fud.registered_billable_hours), 0) AS billable,
+                           COALESCE(SUM(fud.net_available_hours), 0) AS net_available,
+                           COALESCE(SUM(fud.registered_amount), 0) AS revenue
+                    FROM fact_user_day fud
+                    """ + teamMemberTemporalJoin("fud", "document_date") + """
+                    WHERE fud.consultant_type = 'CONSULTANT' AND fud.status_type = 'ACTIVE'
+                      AND fud.document_date >= :fromDate AND fud.document_date <= :toDate
+                    """,
+                    Map.of("teamId", teamId,
+                            "fromDate", fy.start(),
+                            "toDate", effectiveEnd));
+            billable = numVal(kpiRow, "billable");
+            netAvail = numVal(kpiRow, "net_available");
+            revenue = numVal(kpiRow, "revenue");
+        }
         Double utilPct = netAvail > 0 ? (billable / netAvail) * 100.0 : null;
-        double revenue = numVal(kpiRow, "revenue");
 
         // KPI: salary cost — consultants only, matching the revenue population
         var salaryRow = querySingleRow("""
@@ -382,26 +409,6 @@ public class TeamDashboardService {
             return new TeamUtilizationHeatmapDTO(List.of(), List.of());
         }
 
-        // Shared temporal membership contract — per-day team membership resolution
-        @SuppressWarnings("unchecked")
-        List<Tuple> rows = em.createNativeQuery("""
-                SELECT fud.useruuid AS user_id, u.firstname, u.lastname,
-                       CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
-                       COALESCE(SUM(fud.registered_billable_hours), 0) AS billable,
-                       COALESCE(SUM(fud.net_available_hours), 0) AS net_available
-                FROM fact_user_day fud
-                JOIN `user` u ON u.uuid = fud.useruuid
-                """ + teamMemberTemporalJoin("fud", "document_date") + """
-                WHERE fud.consultant_type = 'CONSULTANT' AND fud.status_type = 'ACTIVE'
-                  AND fud.document_date >= :fromDate AND fud.document_date <= :toDate
-                GROUP BY fud.useruuid, u.firstname, u.lastname, fud.year, fud.month
-                ORDER BY u.lastname, u.firstname, fud.year, fud.month
-                """, Tuple.class)
-                .setParameter("teamId", teamId)
-                .setParameter("fromDate", sixMonthsBack)
-                .setParameter("toDate", effectiveEnd)
-                .getResultList();
-
         // Build month list
         List<String> months = new ArrayList<>();
         YearMonth ym = YearMonth.from(sixMonthsBack);
@@ -411,23 +418,45 @@ public class TeamDashboardService {
             ym = ym.plusMonths(1);
         }
 
-        // Group by user
+        // Group by user, ordered by last name, first name. A window inside the fiscal year's
+        // completed months is read from its shared member-months (ACTIVE days, per-day team
+        // membership); an earlier window runs the query on the same temporal contract.
         Map<String, Map<String, Object>> userData = new LinkedHashMap<>();
-        for (Tuple row : rows) {
-            String uid = (String) row.get("user_id");
-            userData.computeIfAbsent(uid, k -> {
-                Map<String, Object> m = new LinkedHashMap<>();
-                m.put("firstname", row.get("firstname"));
-                m.put("lastname", row.get("lastname"));
-                m.put("data", new LinkedHashMap<String, Double>());
-                return m;
-            });
-            String mk = (String) row.get("month_key");
-            double b = numVal(row, "billable");
-            double n = numVal(row, "net_available");
+        TeamFiscalYearData data = teamFiscalYearData.forFiscalYear(fiscalYear);
+        if (data.covers(YearMonth.from(sixMonthsBack), endYm)) {
+            List<MemberMonth> memberMonths = data.memberMonths(teamId).stream()
+                    .filter(m -> m.activeDays() > 0 && months.contains(m.monthKey()))
+                    .sorted(Comparator.comparing((MemberMonth m) -> nullToEmpty(m.lastName()), String.CASE_INSENSITIVE_ORDER)
+                            .thenComparing(m -> nullToEmpty(m.firstName()), String.CASE_INSENSITIVE_ORDER))
+                    .toList();
+            for (MemberMonth m : memberMonths) {
+                putHeatmapCell(userData, m.useruuid(), m.firstName(), m.lastName(),
+                        m.monthKey(), m.billable(), m.available());
+            }
+        } else {
             @SuppressWarnings("unchecked")
-            Map<String, Double> dataMap = (Map<String, Double>) userData.get(uid).get("data");
-            dataMap.put(mk, n > 0 ? (b / n) * 100.0 : null);
+            List<Tuple> rows = em.createNativeQuery("""
+                    SELECT fud.useruuid AS user_id, u.firstname, u.lastname,
+                           CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
+                           COALESCE(SUM(fud.registered_billable_hours), 0) AS billable,
+                           COALESCE(SUM(fud.net_available_hours), 0) AS net_available
+                    FROM fact_user_day fud
+                    JOIN `user` u ON u.uuid = fud.useruuid
+                    """ + teamMemberTemporalJoin("fud", "document_date") + """
+                    WHERE fud.consultant_type = 'CONSULTANT' AND fud.status_type = 'ACTIVE'
+                      AND fud.document_date >= :fromDate AND fud.document_date <= :toDate
+                    GROUP BY fud.useruuid, u.firstname, u.lastname, fud.year, fud.month
+                    ORDER BY u.lastname, u.firstname, fud.year, fud.month
+                    """, Tuple.class)
+                    .setParameter("teamId", teamId)
+                    .setParameter("fromDate", sixMonthsBack)
+                    .setParameter("toDate", effectiveEnd)
+                    .getResultList();
+            for (Tuple row : rows) {
+                putHeatmapCell(userData, (String) row.get("user_id"), (String) row.get("firstname"),
+                        (String) row.get("lastname"), (String) row.get("month_key"),
+                        numVal(row, "billable"), numVal(row, "net_available"));
+            }
         }
 
         List<MemberUtilizationRow> members = new ArrayList<>();
@@ -446,6 +475,25 @@ public class TeamDashboardService {
         return new TeamUtilizationHeatmapDTO(months, members);
     }
 
+    private static void putHeatmapCell(Map<String, Map<String, Object>> userData, String uid,
+                                       String firstname, String lastname, String monthKey,
+                                       double billable, double netAvailable) {
+        userData.computeIfAbsent(uid, k -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("firstname", firstname);
+            m.put("lastname", lastname);
+            m.put("data", new LinkedHashMap<String, Double>());
+            return m;
+        });
+        @SuppressWarnings("unchecked")
+        Map<String, Double> dataMap = (Map<String, Double>) userData.get(uid).get("data");
+        dataMap.put(monthKey, netAvailable > 0 ? (billable / netAvailable) * 100.0 : null);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
     // -----------------------------------------------------------------------
     // 4. Budget Fulfillment
     // -----------------------------------------------------------------------
@@ -1200,7 +1248,7 @@ public class TeamDashboardService {
                 SELECT COALESCE(c_client.uuid, 'unknown') AS client_uuid,
                        COALESCE(c_client.name, 'Unknown client') AS client_name,
                        COALESCE(SUM(wf.workduration * wf.rate), 0) AS revenue
-                FROM work_full wf
+                """ + workFullSource.from("wf") + """
                 """ + teamMemberTemporalJoin("wf", "registered") + """
                 JOIN fact_user_day fud ON fud.useruuid = wf.useruuid
                     AND fud.document_date = wf.registered
@@ -4,6 +4,7 @@ import dk.trustworks.intranet.aggregates.finance.dto.ClientConsultantDetailDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.ClientProfitabilityRowDTO;
 import dk.trustworks.intranet.aggregates.finance.dto.OpexRow;
 import dk.trustworks.intranet.aggregates.finance.services.DistributionAwareOpexProvider;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -21,6 +22,9 @@ public class ClientProfitabilityProvider {
     @Inject
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     @Inject
     DistributionAwareOpexProvider distributionProvider;
 
@@ -130,7 +134,7 @@ public class ClientProfitabilityProvider {
             ) pf ON pf.client_id = rev.client_id
             LEFT JOIN (
                 SELECT wf.clientuuid AS client_id, COUNT(DISTINCT wf.useruuid) AS n
-                FROM work_full wf
+                """ + workFullSource.from("wf") + """
                 WHERE DATE_FORMAT(wf.registered, '%Y%m') BETWEEN :fromKey AND :toKey
                   AND wf.clientuuid IS NOT NULL
                   AND wf.rate > 0
@@ -179,7 +183,7 @@ public class ClientProfitabilityProvider {
                         AVG(mvr.break_even_rate_actual) * SUM(wf.workduration)
                       - SUM(wf.workduration * wf.rate)
                     ) AS gap_dkk
-                FROM work_full wf
+                """ + workFullSource.from("wf") + """
                 JOIN user_career_level ucl ON ucl.useruuid = wf.useruuid
                     AND ucl.active_from = (
                         SELECT MAX(ucl2.active_from) FROM user_career_level ucl2
@@ -320,7 +324,7 @@ public class ClientProfitabilityProvider {
                 SELECT wf.useruuid,
                        SUM(wf.workduration)             AS hrs,
                        SUM(wf.workduration * wf.rate)   AS amount
-                FROM work_full wf
+                """ + workFullSource.from("wf") + """
                 WHERE wf.clientuuid = :clientId
                   AND wf.rate > 0
                   AND DATE_FORMAT(wf.registered, '%Y%m') BETWEEN :fromKey AND :toKey
@@ -35,6 +35,7 @@ import lombok.extern.jbosslog.JBossLog;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceStatus.CREATED;
@@ -74,74 +75,112 @@ public class InvoiceGenerator {
     public List<ProjectSummary> loadProjectSummaryByYearAndMonth(LocalDate month) {
         log.debug("InvoiceController.loadProjectSummaryByYearAndMonth");
         log.debug("month = " + month);
-        log.debug("LOAD findByYearAndMonth");
-        List<WorkFull> workResources = workService.findByYearAndMonth(month);
-        log.debug("workResources.size() = " + workResources.size());
-
+        long start = System.currentTimeMillis();
+        List<WorkFull> workResources = workService.findByYearAndMonth(month).stream()
+                .filter(work -> work.getWorkduration() > 0)
+                .toList();
         Collection<Invoice> invoices = invoiceService.findInvoicesForSingleMonth(month);
-        log.debug("invoices.size() = " + invoices.size());
-
-        Map<String, ProjectSummary> projectSummaryMap = new HashMap<>();
 
+        // Dimensions in three queries: tasks only for rows the view could not place,
+        // then every project and client any row resolves to.
+        Map<String, Task> tasks = byUuid(taskService.findByUuids(workResources.stream()
+                .filter(InvoiceGenerator::resolvesViaTask)
+                .map(WorkFull::getTaskuuid).filter(Objects::nonNull).collect(Collectors.toSet())), Task::getUuid);
+        Set<String> projectUuids = new HashSet<>();
         for (WorkFull work : workResources) {
-            Project project;
-            Client client;
-            if(work.getProjectuuid()==null || work.getClientuuid()==null) {
-                project = projectService.findByUuid(taskService.findByUuid(work.getTaskuuid()).getProjectuuid());
-                client = clientService.findByUuid(project.getClientuuid());
-            } else {
-                project = projectService.findByUuid(work.getProjectuuid());
-                client = clientService.findByUuid(work.getClientuuid());
-            }
-            if(!(work.getWorkduration()>0)) continue;
+            if (!resolvesViaTask(work)) projectUuids.add(work.getProjectuuid());
+        }
+        tasks.values().forEach(task -> { if (task.getProjectuuid() != null) projectUuids.add(task.getProjectuuid()); });
+        Map<String, Project> projects = byUuid(projectService.findByUuids(projectUuids), Project::getUuid);
+        Set<String> clientUuids = new HashSet<>();
+        for (WorkFull work : workResources) {
+            if (!resolvesViaTask(work)) clientUuids.add(work.getClientuuid());
+        }
+        tasks.values().stream()
+                .map(task -> projects.get(task.getProjectuuid()))
+                .filter(Objects::nonNull)
+                .forEach(project -> { if (project.getClientuuid() != null) clientUuids.add(project.getClientuuid()); });
+        Map<String, Client> clients = byUuid(clientService.findByUuids(clientUuids), Client::getUuid);
+
+        List<ProjectSummary> summaries = summarize(workResources, invoices, tasks, projects, clients);
+        log.debugf("Project summaries for %s: %d work rows, %d invoices, %d summaries in %d ms",
+                month, workResources.size(), invoices.size(), summaries.size(), System.currentTimeMillis() - start);
+        return summaries;
+    }
 
-            double invoicedamount = 0.0;
+    /**
+     * One pass over the month's work: the first row of each (contract, project) opens a
+     * summary, resolving its project and client from the preloaded maps and attaching the
+     * month's CREATED and DRAFT invoices for that pair; every row adds its amount.
+     */
+    static List<ProjectSummary> summarize(List<WorkFull> workResources, Collection<Invoice> invoices,
+                                          Map<String, Task> tasks, Map<String, Project> projects,
+                                          Map<String, Client> clients) {
+        Map<String, List<Invoice>> invoicesByContractProject = new HashMap<>();
+        for (Invoice invoice : invoices) {
+            if (invoice.projectuuid == null || invoice.getContractuuid() == null) continue;
+            invoicesByContractProject.computeIfAbsent(invoice.getContractuuid() + invoice.projectuuid, k -> new ArrayList<>()).add(invoice);
+        }
 
-            if(!projectSummaryMap.containsKey(work.getContractuuid() + work.getProjectuuid())) {
-                int numberOfInvoicesRelatedToProject = 0;
+        Map<String, ProjectSummary> projectSummaryMap = new HashMap<>();
+        for (WorkFull work : workResources) {
+            if(!(work.getWorkduration()>0)) continue;
+            String key = work.getContractuuid() + work.getProjectuuid();
+            ProjectSummary projectSummary = projectSummaryMap.get(key);
+            if (projectSummary == null) {
+                Project project;
+                Client client;
+                if (resolvesViaTask(work)) {
+                    project = projects.get(tasks.get(work.getTaskuuid()).getProjectuuid());
+                    client = clients.get(project.getClientuuid());
+                } else {
+                    project = projects.get(work.getProjectuuid());
+                    client = clients.get(work.getClientuuid());
+                }
 
                 List<Invoice> relatedInvoices = new ArrayList<>();
-                for (Invoice invoice : invoices) {
-                    if(invoice.projectuuid.equals(work.getProjectuuid()) &&
-                            invoice.getContractuuid().equals(work.getContractuuid()) && (
-                            invoice.status.equals(CREATED))) {
-                        numberOfInvoicesRelatedToProject++;
+                List<Invoice> relatedDraftInvoices = new ArrayList<>();
+                double invoicedamount = 0.0;
+                for (Invoice invoice : invoicesByContractProject.getOrDefault(key, List.of())) {
+                    if (invoice.status.equals(CREATED)) {
                         relatedInvoices.add(invoice);
                         for (InvoiceItem invoiceitem : invoice.invoiceitems) {
                             invoicedamount += (invoice.type.equals(InvoiceType.INVOICE)?
                                     (invoiceitem.hours*invoiceitem.rate):
                                     -(invoiceitem.hours*invoiceitem.rate));
                         }
+                    } else if (invoice.status.equals(InvoiceStatus.DRAFT)) {
+                        relatedDraftInvoices.add(invoice);
                     }
                 }
 
-                List<Invoice> relatedDraftInvoices = invoices.stream().filter(invoice ->
-                        invoice.projectuuid.equals(work.getProjectuuid()) &&
-                                invoice.getContractuuid().equals(work.getContractuuid()) && (
-                                invoice.status.equals(InvoiceStatus.DRAFT))
-                ).collect(Collectors.toList());
-
-                ProjectSummary projectSummary = new ProjectSummary(
+                projectSummary = new ProjectSummary(
                         work.getContractuuid(), work.getProjectuuid(),
                         project.getName(),
                         client,
                         client.getName(),
                         project.getCustomerreference(),
                         0,
-                        invoicedamount, numberOfInvoicesRelatedToProject, ProjectSummaryType.CONTRACT);
+                        invoicedamount, relatedInvoices.size(), ProjectSummaryType.CONTRACT);
                 projectSummary.setInvoiceList(relatedInvoices);
                 projectSummary.setDraftInvoiceList(relatedDraftInvoices);
-                projectSummaryMap.put(work.getContractuuid() + work.getProjectuuid(), projectSummary);
+                projectSummaryMap.put(key, projectSummary);
             }
-            if(work.getUseruuid()==null) log.debug("work u = " + work);
-            if(work.getTaskuuid()==null) log.debug("work t = " + work);
-
-            ProjectSummary projectSummary = projectSummaryMap.get(work.getContractuuid() + work.getProjectuuid());
             projectSummary.addAmount(work.getWorkduration() * work.getRate());
         }
         return Lists.newArrayList(projectSummaryMap.values());
     }
 
+    private static boolean resolvesViaTask(WorkFull work) {
+        return work.getProjectuuid() == null || work.getClientuuid() == null;
+    }
+
+    private static <T> Map<String, T> byUuid(List<T> rows, Function<T, String> uuid) {
+        Map<String, T> map = new HashMap<>();
+        rows.forEach(row -> map.put(uuid.apply(row), row));
+        return map;
+    }
+
     @Transactional
     public Invoice createDraftInvoiceFromProject(String contractuuid, String projectuuid, LocalDate month, String type) {
         log.infof("createDraftInvoiceFromProject contract=%s project=%s month=%s type=%s",
@@ -13,18 +13,15 @@ import dk.trustworks.intranet.aggregates.invoice.bonus.dto.TeamleadBonusConfigDT
 import dk.trustworks.intranet.aggregates.invoice.bonus.dto.TeamleadMonthlyDetailDTO;
 import dk.trustworks.intranet.aggregates.invoice.bonus.dto.TeamleadMonthlyDetailDTO.MemberDetail;
 import dk.trustworks.intranet.aggregates.invoice.bonus.dto.TeamleadMonthlyDetailDTO.MonthDetail;
-import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadAdjustmentType;
-import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadBonusAdjustment;
-import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadBonusLeaderExclusion;
-import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadBonusMemberOverride;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberMonth;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberOverride;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.TeamMonth;
 import dk.trustworks.intranet.domain.user.entity.Team;
 import dk.trustworks.intranet.security.RequestHeaderHolder;
 import dk.trustworks.intranet.userservice.model.TeamRole;
 import dk.trustworks.intranet.userservice.model.enums.TeamMemberType;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.NotFoundException;
 import lombok.extern.jbosslog.JBossLog;
@@ -44,8 +41,10 @@ import java.util.*;
  * team-dashboard tab.
  *
  * <p>The pure formulas (raw points, pool share, hybrid split, recomposed utilization) live in
- * {@link TeamleadBonusMath}; this class only assembles inputs (SQL, temporal leader resolution) and
- * rounds outputs for display.</p>
+ * {@link TeamleadBonusMath}; the fiscal year's inputs for every team (rosters, hours, leader periods,
+ * overrides, exclusions, adjustments) come from the shared {@link TeamFiscalYearData}, so the ranking,
+ * the Σpoints denominator and every leader row of a request read the same one-time load. This class
+ * only resolves leaders per month, assembles the per-team aggregates and rounds outputs for display.</p>
  *
  * <p>One grid row is emitted per (team, leader) — every user who held the LEADER role on a
  * teamleadbonus team during the FY — plus an {@code "unknown"} row for teams with no LEADER role.
@@ -57,12 +56,8 @@ import java.util.*;
 @ApplicationScoped
 public class TeamBonusProjectionService {
 
-    private static final String LEAVE_STATUS_SQL = "'MATERNITY_LEAVE','PAID_LEAVE','NON_PAY_LEAVE'";
     private static final String UNKNOWN_LEADER_UUID = "unknown";
 
-    @Inject
-    EntityManager em;
-
     @Inject
     RequestHeaderHolder requestHeaderHolder;
 
@@ -75,6 +70,9 @@ public class TeamBonusProjectionService {
     @Inject
     PartnerBonusPayoutService partnerBonusPayoutService;
 
+    @Inject
+    TeamFiscalYearDataService fiscalYearData;
+
     // =====================================================================
     // Access control
     // =====================================================================
@@ -178,48 +176,43 @@ public class TeamBonusProjectionService {
 
     /**
      * Returns bonus ranking data for all bonus-eligible teams, sorted by rawPoints descending. Uses
-     * the effective config, admin util-overrides, member overrides (via the fact predicate) and
-     * skips fully-excluded teams; the primary leader is shown as today.
+     * the effective config, admin util-overrides, member overrides and skips fully-excluded teams;
+     * the primary leader is shown as today.
      */
     public List<AllTeamsBonusRankingDTO> getAllTeamsBonusRanking(String currentTeamId, int fiscalYear) {
-        List<Team> bonusTeams = Team.list("teamleadbonus = true");
-
         // Deliberately NOT buildContext(): the ranking consumes only points/factor/util/size and the
-        // exclusion set, so skip the pool-basis (Overskud/OPEX/GL), company-revenue and Σpoints
-        // machinery — this endpoint backs every teamlead's own tab and must stay cheap.
+        // exclusion set, so skip the pool-basis (Overskud/OPEX/GL) machinery — this endpoint backs
+        // every teamlead's own tab and must stay cheap.
+        TeamFiscalYearData data = fiscalYearData.forFiscalYear(fiscalYear);
+        TeamleadBonusConfigDTO config = configService.getEffectiveConfig(fiscalYear);
         LocalDate fyStart = LocalDate.of(fiscalYear, 7, 1);
         LocalDate fyEnd = LocalDate.of(fiscalYear + 1, 6, 30);
-        List<YearMonth> consideredMonths = getConsideredMonths(fyStart, fyEnd);
-        TeamleadBonusConfigDTO config = configService.getEffectiveConfig(fiscalYear);
-        Map<String, AdjustmentAggregate> adjustments = loadAdjustments(fiscalYear);
-        Map<String, Map<String, String>> leaderExclusions = loadLeaderExclusions(fiscalYear);
-        Set<String> fullyExcludedTeamIds = computeFullyExcludedTeams(leaderExclusions, fyStart, fyEnd);
 
-        if (consideredMonths.isEmpty()) {
-            return bonusTeams.stream()
+        if (data.months().isEmpty()) {
+            return data.bonusTeams().entrySet().stream()
                     .map(t -> new AllTeamsBonusRankingDTO(
-                            t.getUuid(), t.getName(), findLeaderNameForTeam(t.getUuid(), fyStart, fyEnd),
-                            0.0, config.teamFactorTier1(), 0.0, 0, t.getUuid().equals(currentTeamId)))
+                            t.getKey(), t.getValue(), findLeaderNameForTeam(data.leaderPeriods(t.getKey()), fyStart, fyEnd),
+                            0.0, config.teamFactorTier1(), 0.0, 0, t.getKey().equals(currentTeamId)))
                     .sorted(Comparator.comparing(AllTeamsBonusRankingDTO::teamName))
                     .toList();
         }
 
         List<AllTeamsBonusRankingDTO> rankings = new ArrayList<>();
-        for (Team team : bonusTeams) {
-            if (fullyExcludedTeamIds.contains(team.getUuid())) continue;
-            TeamAggregate agg = computeTeamAggregate(team, consideredMonths, config, fyStart, fyEnd, adjustments);
+        for (Map.Entry<String, String> team : data.bonusTeams().entrySet()) {
+            if (data.fullyExcludedTeamIds().contains(team.getKey())) continue;
+            TeamAggregate agg = computeTeamAggregate(team.getKey(), team.getValue(), data, config);
             String leaderName = agg.leaderWindows().isEmpty()
-                    ? findLeaderNameForTeam(team.getUuid(), fyStart, fyEnd)
+                    ? findLeaderNameForTeam(data.leaderPeriods(team.getKey()), fyStart, fyEnd)
                     : primaryWindow(agg.leaderWindows()).leaderName();
             rankings.add(new AllTeamsBonusRankingDTO(
-                    team.getUuid(),
-                    team.getName(),
+                    team.getKey(),
+                    team.getValue(),
                     leaderName,
                     round(agg.teamRawPoints(), 6),
                     agg.teamFactor(),
                     round(agg.recomposedTeamUtil(), 4),
                     (int) Math.round(agg.teamAvgSize()),
-                    team.getUuid().equals(currentTeamId)));
+                    team.getKey().equals(currentTeamId)));
         }
 
         rankings.sort(Comparator.comparingDouble(AllTeamsBonusRankingDTO::rawPoints).reversed());
@@ -229,8 +222,9 @@ public class TeamBonusProjectionService {
     /**
      * Read-only month-by-month drill-down of the utilization inputs for one team, for admins to
      * validate the collapsed dashboard figures. For every considered fiscal-year month it returns the
-     * per-member utilization rows using EXACTLY the same predicates as {@link #calculateMonthlyUtilization}
-     * (dated MEMBER teamroles, {@code CONSULTANT}, leader-excluded, member-override applied), so the
+     * per-member utilization rows using EXACTLY the same inclusion rule as the bonus math
+     * ({@link TeamFiscalYearData#includedInBonus}: dated MEMBER teamroles, {@code CONSULTANT},
+     * leader-excluded, member-override applied), so the
      * <em>included</em> members sum 1:1 to the team totals the bonus math consumes. The roster now
      * also surfaces full-leave members (default-excluded, toggleable); members whose only rows are
      * {@code TERMINATED}/{@code PREBOARDING} stay hidden. Each month also carries the leader holding
@@ -247,34 +241,15 @@ public class TeamBonusProjectionService {
             throw new NotFoundException("Team not found: " + teamId);
         }
 
-        LocalDate fyStart = LocalDate.of(fiscalYear, 7, 1);
-        LocalDate fyEnd = LocalDate.of(fiscalYear + 1, 6, 30);
-        List<YearMonth> months = getConsideredMonths(fyStart, fyEnd);
+        TeamFiscalYearData data = fiscalYearData.forFiscalYear(fiscalYear);
+        List<YearMonth> months = data.months();
         if (months.isEmpty()) {
             return new TeamleadMonthlyDetailDTO(team.getUuid(), team.getName(), fiscalYear, List.of());
         }
 
-        List<String> monthKeys = months.stream().map(TeamBonusProjectionService::monthKey).toList();
-
-        Map<String, MemberOverrideInfo> teamOverrides = loadTeamMemberOverrides(teamId, monthKeys);
-        Set<String> excludedLeaders = loadTeamLeaderExclusions(fiscalYear, teamId);
-
-        Map<String, List<MemberDetail>> membersByMonth = loadMemberDetails(teamId, monthKeys, teamOverrides);
-        List<LeaderPeriod> leaderPeriods = loadLeaderPeriods(teamId, fyStart, fyEnd);
-
-        Map<String, LeaderPeriod> leaderByMonth = new LinkedHashMap<>();
-        for (YearMonth ym : months) {
-            LeaderPeriod leader = resolveLeaderOfMonth(ym, leaderPeriods);
-            if (leader != null) {
-                leaderByMonth.put(monthKey(ym), leader);
-            }
-        }
-
-        Set<String> leaderUuids = new HashSet<>();
-        for (LeaderPeriod leader : leaderByMonth.values()) {
-            leaderUuids.add(leader.uuid());
-        }
-        Map<String, Double> leaderRevenueByMonthUser = loadLeaderMonthlyRevenue(leaderUuids, monthKeys);
+        Set<String> excludedLeaders = data.leaderExclusionsByTeam().getOrDefault(teamId, Map.of()).keySet();
+        Map<String, List<MemberDetail>> membersByMonth = memberDetails(data, teamId);
+        List<LeaderPeriod> leaderPeriods = data.leaderPeriods(teamId);
 
         List<MonthDetail> monthDetails = new ArrayList<>();
         for (YearMonth ym : months) {
@@ -286,12 +261,10 @@ public class TeamBonusProjectionService {
             double teamAvailable = round(included.stream().mapToDouble(MemberDetail::availableHours).sum(), 2);
             Double teamUtil = utilizationOrNull(teamBillable, teamAvailable);
 
-            LeaderPeriod leader = leaderByMonth.get(key);
+            LeaderPeriod leader = resolveLeaderOfMonth(ym, leaderPeriods);
             String leaderUuid = leader != null ? leader.uuid() : null;
             String leaderName = leader != null ? leader.name() : null;
-            double leaderRevenue = leader != null
-                    ? leaderRevenueByMonthUser.getOrDefault(key + "|" + leader.uuid(), 0.0)
-                    : 0.0;
+            double leaderRevenue = leader != null ? data.leaderRevenue(leader.uuid(), key) : 0.0;
             boolean leaderExcluded = leader != null && excludedLeaders.contains(leader.uuid());
 
             monthDetails.add(new MonthDetail(
@@ -312,33 +285,26 @@ public class TeamBonusProjectionService {
      * disabled member-months and fully-excluded teams removed from its team-revenue and the excluded
      * teams' member salaries added back on the cost side), total pool amount, Σpoints across all
      * non-fully-excluded teamleadbonus teams, the derived price-per-point, and the admin adjustments
-     * keyed by leader UUID.
+     * keyed by leader UUID. Everything but the config and the pool basis comes from the shared
+     * {@link TeamFiscalYearData} of the year.
      */
     public TeamleadContext buildContext(int fiscalYear) {
         LocalDate fyStart = LocalDate.of(fiscalYear, 7, 1);
         LocalDate fyEnd = LocalDate.of(fiscalYear + 1, 6, 30);
-        List<YearMonth> consideredMonths = getConsideredMonths(fyStart, fyEnd);
+        TeamFiscalYearData data = fiscalYearData.forFiscalYear(fiscalYear);
+        List<YearMonth> consideredMonths = data.months();
         TeamleadBonusConfigDTO config = configService.getEffectiveConfig(fiscalYear);
-        Map<String, AdjustmentAggregate> adjustments = loadAdjustments(fiscalYear);
-
-        Map<String, Map<String, String>> leaderExclusions = loadLeaderExclusions(fiscalYear);
-        Set<String> fullyExcludedTeamIds = computeFullyExcludedTeams(leaderExclusions, fyStart, fyEnd);
-
-        LocalDate consideredEnd = consideredMonths.isEmpty()
-                ? fyStart.minusDays(1)
-                : consideredMonths.getLast().atEndOfMonth();
-        double teamRevenue = consideredMonths.isEmpty()
-                ? 0.0
-                : calculateCompanyRevenue(fyStart, consideredEnd, fullyExcludedTeamIds);
+        Set<String> fullyExcludedTeamIds = data.fullyExcludedTeamIds();
 
+        double teamRevenue = data.poolRevenue();
         PoolBasisBreakdown poolBasis = overskudService.computePoolBasis(fiscalYear, teamRevenue, config, consideredMonths, fullyExcludedTeamIds);
         double poolAmount = TeamleadBonusMath.poolAmount(poolBasis.poolBasis(), config.poolSharePercent());
-        double sumRawPoints = calculateSumRawPoints(consideredMonths, config, fyStart, fyEnd, adjustments, fullyExcludedTeamIds);
+        double sumRawPoints = calculateSumRawPoints(data, config);
         double pricePerPoint = TeamleadBonusMath.pricePerPoint(poolAmount, sumRawPoints);
 
         return new TeamleadContext(fiscalYear, fyStart, fyEnd, consideredMonths, config,
-                poolBasis, poolAmount, sumRawPoints, pricePerPoint, adjustments,
-                leaderExclusions, fullyExcludedTeamIds);
+                poolBasis, poolAmount, sumRawPoints, pricePerPoint, data.adjustmentsByLeader(),
+                data.leaderExclusionsByTeam(), fullyExcludedTeamIds, data);
     }
 
     /**
@@ -392,152 +358,42 @@ public class TeamBonusProjectionService {
                 .orElseThrow();
     }
 
-    // ---- adjustments ----
-
-    /** Loads and aggregates admin adjustments for the FY, keyed by leader (user) UUID. */
-    private Map<String, AdjustmentAggregate> loadAdjustments(int fiscalYear) {
-        Map<String, Double> splitByUser = new HashMap<>();
-        Map<String, Double> prepaidByUser = new HashMap<>();
-        Map<String, Double> utilOverrideByUser = new HashMap<>();
-        Map<String, String> utilNoteByUser = new HashMap<>();
-
-        for (TeamleadBonusAdjustment a : TeamleadBonusAdjustment.listByFiscalYear(fiscalYear)) {
-            if (a.adjustmentType == TeamleadAdjustmentType.SPLIT_BONUS) {
-                splitByUser.merge(a.useruuid, a.amount != null ? a.amount : 0.0, Double::sum);
-            } else if (a.adjustmentType == TeamleadAdjustmentType.PREPAID_DEDUCTION) {
-                prepaidByUser.merge(a.useruuid, a.amount != null ? a.amount : 0.0, Double::sum);
-            } else if (a.adjustmentType == TeamleadAdjustmentType.UTIL_OVERRIDE && a.utilOverride != null) {
-                utilOverrideByUser.put(a.useruuid, a.utilOverride);
-                utilNoteByUser.put(a.useruuid, a.note);
-            }
-        }
-
-        Set<String> users = new HashSet<>();
-        users.addAll(splitByUser.keySet());
-        users.addAll(prepaidByUser.keySet());
-        users.addAll(utilOverrideByUser.keySet());
-
-        Map<String, AdjustmentAggregate> result = new HashMap<>();
-        for (String user : users) {
-            result.put(user, new AdjustmentAggregate(
-                    utilOverrideByUser.get(user),
-                    utilNoteByUser.get(user),
-                    splitByUser.getOrDefault(user, 0.0),
-                    prepaidByUser.getOrDefault(user, 0.0)));
-        }
-        return result;
-    }
-
-    // ---- leader exclusions / fully-excluded teams ----
-
-    /** Leader exclusions for the FY, keyed {@code teamuuid → (useruuid → note)}. */
-    private Map<String, Map<String, String>> loadLeaderExclusions(int fiscalYear) {
-        Map<String, Map<String, String>> result = new HashMap<>();
-        for (TeamleadBonusLeaderExclusion e : TeamleadBonusLeaderExclusion.listByFiscalYear(fiscalYear)) {
-            result.computeIfAbsent(e.teamuuid, k -> new HashMap<>()).put(e.useruuid, e.note);
-        }
-        return result;
-    }
-
-    /**
-     * Teams whose every real leader (a user holding the LEADER role during the FY) is excluded. Teams
-     * with no LEADER role at all (only an {@code "unknown"} leader) are never fully excluded.
-     */
-    private Set<String> computeFullyExcludedTeams(Map<String, Map<String, String>> leaderExclusions,
-                                                  LocalDate fyStart, LocalDate fyEnd) {
-        if (leaderExclusions.isEmpty()) return Set.of();
-        Map<String, Set<String>> leadersByTeam = loadTeamLeaderUuids(fyStart, fyEnd);
-        Set<String> fully = new HashSet<>();
-        for (Map.Entry<String, Set<String>> e : leadersByTeam.entrySet()) {
-            Set<String> excluded = leaderExclusions.getOrDefault(e.getKey(), Map.of()).keySet();
-            if (!e.getValue().isEmpty() && excluded.containsAll(e.getValue())) {
-                fully.add(e.getKey());
-            }
-        }
-        return fully;
-    }
-
-    /** Distinct LEADER user UUIDs per teamleadbonus team overlapping the FY window. */
-    private Map<String, Set<String>> loadTeamLeaderUuids(LocalDate fyStart, LocalDate fyEnd) {
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = em.createNativeQuery("""
-                SELECT tr.teamuuid, tr.useruuid
-                FROM teamroles tr
-                JOIN team t ON t.uuid = tr.teamuuid AND t.teamleadbonus = 1
-                WHERE tr.membertype = 'LEADER'
-                  AND tr.startdate <= :fyEnd
-                  AND (tr.enddate > :fyStart OR tr.enddate IS NULL)
-                """)
-                .setParameter("fyEnd", fyEnd)
-                .setParameter("fyStart", fyStart)
-                .getResultList();
-        Map<String, Set<String>> result = new HashMap<>();
-        for (Object[] r : rows) {
-            result.computeIfAbsent((String) r[0], k -> new HashSet<>()).add((String) r[1]);
-        }
-        return result;
-    }
-
     // =====================================================================
     // Private calculation
     // =====================================================================
 
-    /**
-     * Considered months: completed months within the fiscal year (the current incomplete month is
-     * excluded). A still-running FY caps at the previous completed month.
-     */
-    private List<YearMonth> getConsideredMonths(LocalDate fyStart, LocalDate fyEnd) {
-        YearMonth start = YearMonth.from(fyStart);
-        YearMonth lastConsidered = fyEnd.isAfter(LocalDate.now())
-                ? YearMonth.now().minusMonths(1)
-                : YearMonth.from(fyEnd);
-
-        if (lastConsidered.isBefore(start)) {
-            return List.of();
-        }
-
-        List<YearMonth> months = new ArrayList<>();
-        YearMonth current = start;
-        while (!current.isAfter(lastConsidered)) {
-            months.add(current);
-            current = current.plusMonths(1);
-        }
-        return months;
-    }
-
     private TeamAggregate computeTeamAggregate(Team team, TeamleadContext ctx) {
-        return computeTeamAggregate(team, ctx.consideredMonths(), ctx.config(),
-                ctx.fyStart(), ctx.fyEnd(), ctx.adjustmentsByLeader());
+        return computeTeamAggregate(team.getUuid(), team.getName(), ctx.data(), ctx.config());
     }
 
     /**
      * Computes the team-level aggregate for the hybrid split: the recomposed FY utilization (spec §7)
      * and full-FY {@code teamRawPoints}, plus one leader window per real leader (own-window effective
      * utilization, own-window average size/factor and own-window points). Member overrides are applied
-     * inside {@link #calculateMonthlyUtilization} via SQL; util-overrides are applied per leader window.
+     * by {@link TeamFiscalYearData#teamMonths}; util-overrides are applied per leader window.
      */
-    private TeamAggregate computeTeamAggregate(Team team, List<YearMonth> consideredMonths,
-                                               TeamleadBonusConfigDTO config, LocalDate fyStart, LocalDate fyEnd,
-                                               Map<String, AdjustmentAggregate> adjustments) {
-        String teamId = team.getUuid();
-        List<MonthUtilRow> utilRows = calculateMonthlyUtilization(teamId, consideredMonths);
+    private TeamAggregate computeTeamAggregate(String teamId, String teamName, TeamFiscalYearData data,
+                                               TeamleadBonusConfigDTO config) {
+        List<YearMonth> consideredMonths = data.months();
+        Map<String, AdjustmentAggregate> adjustments = data.adjustmentsByLeader();
+        List<TeamMonth> utilRows = data.teamMonths(teamId);
 
-        // Months carrying member data, keyed by YearMonth (row month is "YYYY-MM", ISO-parseable).
+        // Months carrying member data, keyed by YearMonth.
         // A row without ACTIVE data (only force-included leave members) contributes headcount to the
         // size averages but must NEVER contribute a utilization observation (spec §2: enabling a
         // full-leave member leaves utilization untouched) — pre-override such months produced no row.
-        Map<YearMonth, MonthUtilRow> dataByMonth = new LinkedHashMap<>();
-        for (MonthUtilRow mu : utilRows) {
-            dataByMonth.put(YearMonth.parse(mu.month()), mu);
+        Map<YearMonth, TeamMonth> dataByMonth = new LinkedHashMap<>();
+        for (TeamMonth mu : utilRows) {
+            dataByMonth.put(mu.month(), mu);
         }
 
         // Display list for the own-tab DTO: exactly the months with ACTIVE data (old behavior).
         List<MonthlyUtilization> monthlyUtil = utilRows.stream()
-                .filter(MonthUtilRow::hasActiveData)
-                .map(mu -> new MonthlyUtilization(mu.month(), mu.utilization(), mu.memberCount()))
+                .filter(TeamMonth::hasActiveData)
+                .map(mu -> new MonthlyUtilization(mu.month().toString(), mu.utilization(), mu.memberCount()))
                 .toList();
 
-        List<LeaderPeriod> leaderPeriods = loadLeaderPeriods(teamId, fyStart, fyEnd);
+        List<LeaderPeriod> leaderPeriods = data.leaderPeriods(teamId);
 
         // Distinct real leaders in first-appearance order (stable output).
         LinkedHashMap<String, String> leaderNames = new LinkedHashMap<>();
@@ -571,9 +427,9 @@ public class TeamBonusProjectionService {
 
         // Team-wide average size (over months with members, incl. headcount-only leave months)
         // → team factor.
-        List<MonthUtilRow> nonEmpty = utilRows.stream().filter(m -> m.memberCount() > 0).toList();
+        List<TeamMonth> nonEmpty = utilRows.stream().filter(m -> m.memberCount() > 0).toList();
         double teamAvgSize = nonEmpty.isEmpty() ? 0.0
-                : nonEmpty.stream().mapToInt(MonthUtilRow::memberCount).average().orElse(0.0);
+                : nonEmpty.stream().mapToInt(TeamMonth::memberCount).average().orElse(0.0);
         double teamFactor = TeamleadBonusMath.teamFactor(teamAvgSize, config);
 
         // Per-leader windows. Size averages use every data month; utilization averages and the
@@ -611,7 +467,7 @@ public class TeamBonusProjectionService {
         double recomposedTeamUtil = TeamleadBonusMath.recomposedUtilization(effArr, cntArr, unassignedArr);
         double teamRawPoints = TeamleadBonusMath.rawPoints(recomposedTeamUtil, minUtil, teamFactor);
 
-        return new TeamAggregate(teamId, team.getName(), monthlyUtil, recomposedTeamUtil, teamAvgSize,
+        return new TeamAggregate(teamId, teamName, monthlyUtil, recomposedTeamUtil, teamAvgSize,
                 teamFactor, teamRawPoints, List.copyOf(windows), coveredMonths);
     }
 
@@ -627,7 +483,7 @@ public class TeamBonusProjectionService {
         double rowPoolShare = teamPoolShare * slice;
         double rowAdjustedPoolBonus = teamPoolShare * coveredFraction * slice;
 
-        double ownRevenue = calculateLeaderOwnRevenueInMonths(w.leaderUuid(), w.attributedMonthKeys());
+        double ownRevenue = ctx.data().leaderRevenue(w.leaderUuid(), w.attributedMonthKeys());
         double proratedThreshold = TeamleadBonusMath.proratedThreshold(
                 ctx.config().productionThresholdAnnual(), w.monthsAsLeader());
         double productionBonus = TeamleadBonusMath.productionBonus(
@@ -728,255 +584,55 @@ public class TeamBonusProjectionService {
                 0.0);
     }
 
-    /**
-     * Monthly utilization for a team over the considered months, from {@code fact_user_day} joined
-     * to teamroles MEMBER. Rows of users who additionally hold an active LEADER role on the SAME team
-     * that day are excluded (guards against dual MEMBER+LEADER rows). Member-overrides are applied:
-     * force-excluded member-months (included = 0) drop out entirely, and force-included leave months
-     * (included = 1, status MATERNITY/PAID/NON_PAY_LEAVE) count toward the headcount only (their fact
-     * rows carry 0 billable/available so utilization is untouched).
-     */
-    private List<MonthUtilRow> calculateMonthlyUtilization(String teamId, List<YearMonth> months) {
-        if (months.isEmpty()) return List.of();
-
-        List<String> monthKeys = months.stream()
-                .map(ym -> String.format("%04d%02d", ym.getYear(), ym.getMonthValue()))
-                .toList();
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = em.createNativeQuery("""
-                SELECT CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
-                       SUM(CASE WHEN fud.status_type = 'ACTIVE' THEN fud.registered_billable_hours ELSE 0 END) AS total_billable,
-                       SUM(CASE WHEN fud.status_type = 'ACTIVE' THEN fud.net_available_hours ELSE 0 END) AS total_available,
-                       COUNT(DISTINCT fud.useruuid) AS member_count,
-                       SUM(fud.status_type = 'ACTIVE') AS active_rows
-                FROM fact_user_day fud
-                JOIN teamroles tr ON tr.useruuid = fud.useruuid
-                    AND tr.teamuuid = :teamId
-                    AND tr.membertype = 'MEMBER'
-                    AND tr.startdate <= fud.document_date
-                    AND (tr.enddate IS NULL OR tr.enddate > fud.document_date)
-                LEFT JOIN teamlead_bonus_member_override o
-                    ON o.teamuuid = tr.teamuuid
-                    AND o.useruuid = fud.useruuid
-                    AND o.month = CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0'))
-                WHERE fud.consultant_type = 'CONSULTANT'
-                  AND (o.uuid IS NULL OR o.included = 1)
-                  AND (fud.status_type = 'ACTIVE'
-                       OR (o.included = 1 AND fud.status_type IN (%s)))
-                  AND CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) IN (:monthKeys)
-                  AND NOT EXISTS (
-                        SELECT 1 FROM teamroles ldr
-                        WHERE ldr.useruuid = fud.useruuid
-                          AND ldr.teamuuid = :teamId
-                          AND ldr.membertype = 'LEADER'
-                          AND ldr.startdate <= fud.document_date
-                          AND (ldr.enddate IS NULL OR ldr.enddate > fud.document_date)
-                  )
-                GROUP BY fud.year, fud.month
-                ORDER BY fud.year, fud.month
-                """.formatted(LEAVE_STATUS_SQL))
-                .setParameter("teamId", teamId)
-                .setParameter("monthKeys", monthKeys)
-                .getResultList();
-
-        return rows.stream().map(row -> {
-            String monthKey = (String) row[0];
-            double billable = ((Number) row[1]).doubleValue();
-            double available = ((Number) row[2]).doubleValue();
-            int memberCount = ((Number) row[3]).intValue();
-            boolean hasActiveData = ((Number) row[4]).intValue() > 0;
-            double utilization = available > 0 ? billable / available : 0.0;
-            String formattedMonth = monthKey.substring(0, 4) + "-" + monthKey.substring(4);
-            return new MonthUtilRow(formattedMonth, utilization, memberCount, hasActiveData);
-        }).toList();
-    }
-
     /** Config-driven Σ raw points across all non-fully-excluded teamleadbonus teams. */
-    private double calculateSumRawPoints(List<YearMonth> consideredMonths, TeamleadBonusConfigDTO config,
-                                         LocalDate fyStart, LocalDate fyEnd,
-                                         Map<String, AdjustmentAggregate> adjustments,
-                                         Set<String> fullyExcludedTeamIds) {
-        List<Team> bonusTeams = Team.list("teamleadbonus = true");
+    private double calculateSumRawPoints(TeamFiscalYearData data, TeamleadBonusConfigDTO config) {
         double sumPoints = 0.0;
-        for (Team team : bonusTeams) {
-            if (fullyExcludedTeamIds.contains(team.getUuid())) continue;
-            sumPoints += computeTeamAggregate(team, consideredMonths, config, fyStart, fyEnd, adjustments).teamRawPoints();
+        for (Map.Entry<String, String> team : data.bonusTeams().entrySet()) {
+            if (data.fullyExcludedTeamIds().contains(team.getKey())) continue;
+            sumPoints += computeTeamAggregate(team.getKey(), team.getValue(), data, config).teamRawPoints();
         }
         return sumPoints;
     }
 
-    /**
-     * Registered revenue of teamleadbonus-team MEMBERs over the considered window, EXCLUDING rows of
-     * users who hold an active LEADER role on ANY teamleadbonus team that day (the pool excludes
-     * teamleads' own production), force-excluded member-months and fully-excluded teams' members.
-     * Feeds the pool-basis estimate as {@code teamRevenue}.
-     */
-    private double calculateCompanyRevenue(LocalDate from, LocalDate to, Set<String> excludedTeamIds) {
-        boolean hasExclusions = excludedTeamIds != null && !excludedTeamIds.isEmpty();
-        String excludeClause = hasExclusions ? "  AND tr.teamuuid NOT IN (:excludedTeamIds)\n" : "";
-        String sql = """
-                SELECT COALESCE(SUM(fud.registered_amount), 0)
-                FROM fact_user_day fud
-                JOIN teamroles tr ON tr.useruuid = fud.useruuid
-                    AND tr.membertype = 'MEMBER'
-                    AND tr.startdate <= fud.document_date
-                    AND (tr.enddate > fud.document_date OR tr.enddate IS NULL)
-                JOIN team t ON t.uuid = tr.teamuuid
-                    AND t.teamleadbonus = 1
-                LEFT JOIN teamlead_bonus_member_override o
-                    ON o.teamuuid = tr.teamuuid
-                    AND o.useruuid = fud.useruuid
-                    AND o.month = CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0'))
-                WHERE fud.document_date >= :from
-                  AND fud.document_date <= :to
-                  AND fud.consultant_type = 'CONSULTANT'
-                  AND (o.uuid IS NULL OR o.included = 1)
-                  AND (fud.status_type = 'ACTIVE'
-                       OR (o.included = 1 AND fud.status_type IN (%s)))
-                """.formatted(LEAVE_STATUS_SQL)
-                + excludeClause
-                + """
-                  AND NOT EXISTS (
-                        SELECT 1 FROM teamroles ldr
-                        JOIN team lt ON lt.uuid = ldr.teamuuid AND lt.teamleadbonus = 1
-                        WHERE ldr.useruuid = fud.useruuid
-                          AND ldr.membertype = 'LEADER'
-                          AND ldr.startdate <= fud.document_date
-                          AND (ldr.enddate IS NULL OR ldr.enddate > fud.document_date)
-                  )
-                """;
-
-        Query q = em.createNativeQuery(sql)
-                .setParameter("from", from)
-                .setParameter("to", to);
-        if (hasExclusions) {
-            q.setParameter("excludedTeamIds", excludedTeamIds);
-        }
-        return ((Number) q.getSingleResult()).doubleValue();
-    }
-
-    /** A leader's own registered revenue within the given (attributed) months only. */
-    private double calculateLeaderOwnRevenueInMonths(String leaderUuid, List<String> monthKeys) {
-        if (monthKeys == null || monthKeys.isEmpty()) return 0.0;
-        Object result = em.createNativeQuery("""
-                SELECT COALESCE(SUM(fud.registered_amount), 0)
-                FROM fact_user_day fud
-                WHERE fud.useruuid = :leaderUuid
-                  AND CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) IN (:monthKeys)
-                  AND fud.consultant_type = 'CONSULTANT'
-                  AND fud.status_type = 'ACTIVE'
-                """)
-                .setParameter("leaderUuid", leaderUuid)
-                .setParameter("monthKeys", monthKeys)
-                .getSingleResult();
-        return ((Number) result).doubleValue();
-    }
-
     // =====================================================================
-    // Monthly drill-down queries (validate-inputs view)
+    // Monthly drill-down (validate-inputs view)
     // =====================================================================
 
     /**
-     * Per-member rows for a team over the given months, keyed by month. Uses the SAME MEMBER-teamrole,
-     * {@code CONSULTANT} and leader-excluded predicates as {@link #calculateMonthlyUtilization}, but
-     * additionally surfaces full-leave members and per-member day counts so the admin can toggle them.
-     * Hours are ACTIVE-status only (leave rows carry 0 hours), display-rounded to 2 decimals. Effective
-     * inclusion (default {@code activeDays > 0}, flipped by an override) matches the collapsed query
-     * 1:1, so the included members here sum to the team totals the bonus math consumes.
+     * Per-member rows for a team over the considered months, keyed by month: every member-month with
+     * ACTIVE or leave days on which the member did not also lead the team, so full-leave members are
+     * surfaced for the admin to toggle. Hours are ACTIVE-status only (leave rows carry 0 hours),
+     * display-rounded to 2 decimals. Inclusion is {@link TeamFiscalYearData#includedInBonus}, the rule
+     * the collapsed team months use, so the included members here sum to the team totals the bonus
+     * math consumes.
      */
-    private Map<String, List<MemberDetail>> loadMemberDetails(String teamId, List<String> monthKeys,
-                                                              Map<String, MemberOverrideInfo> teamOverrides) {
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = em.createNativeQuery("""
-                SELECT CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
-                       fud.useruuid AS useruuid,
-                       u.firstname AS firstname,
-                       u.lastname AS lastname,
-                       SUM(CASE WHEN fud.status_type = 'ACTIVE' THEN fud.registered_billable_hours ELSE 0 END) AS billable,
-                       SUM(CASE WHEN fud.status_type = 'ACTIVE' THEN fud.net_available_hours ELSE 0 END) AS available,
-                       SUM(CASE WHEN fud.status_type = 'ACTIVE' THEN 1 ELSE 0 END) AS active_days,
-                       SUM(CASE WHEN fud.status_type IN (%1$s) THEN 1 ELSE 0 END) AS leave_days,
-                       SUM(CASE WHEN fud.status_type = 'MATERNITY_LEAVE' THEN 1 ELSE 0 END) AS maternity_days,
-                       SUM(CASE WHEN fud.status_type = 'PAID_LEAVE' THEN 1 ELSE 0 END) AS paid_days,
-                       SUM(CASE WHEN fud.status_type = 'NON_PAY_LEAVE' THEN 1 ELSE 0 END) AS nonpay_days
-                FROM fact_user_day fud
-                JOIN teamroles tr ON tr.useruuid = fud.useruuid
-                    AND tr.teamuuid = :teamId
-                    AND tr.membertype = 'MEMBER'
-                    AND tr.startdate <= fud.document_date
-                    AND (tr.enddate IS NULL OR tr.enddate > fud.document_date)
-                JOIN user u ON u.uuid = fud.useruuid
-                WHERE fud.consultant_type = 'CONSULTANT'
-                  AND fud.status_type IN ('ACTIVE',%1$s)
-                  AND CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) IN (:monthKeys)
-                  AND NOT EXISTS (
-                        SELECT 1 FROM teamroles ldr
-                        WHERE ldr.useruuid = fud.useruuid
-                          AND ldr.teamuuid = :teamId
-                          AND ldr.membertype = 'LEADER'
-                          AND ldr.startdate <= fud.document_date
-                          AND (ldr.enddate IS NULL OR ldr.enddate > fud.document_date)
-                  )
-                GROUP BY fud.year, fud.month, fud.useruuid, u.firstname, u.lastname
-                ORDER BY fud.year, fud.month, u.lastname, u.firstname
-                """.formatted(LEAVE_STATUS_SQL))
-                .setParameter("teamId", teamId)
-                .setParameter("monthKeys", monthKeys)
-                .getResultList();
-
+    private static Map<String, List<MemberDetail>> memberDetails(TeamFiscalYearData data, String teamId) {
         Map<String, List<MemberDetail>> byMonth = new LinkedHashMap<>();
-        for (Object[] row : rows) {
-            String monthKey = (String) row[0];
-            String useruuid = (String) row[1];
-            String firstName = (String) row[2];
-            String lastName = (String) row[3];
-            double billable = round(((Number) row[4]).doubleValue(), 2);
-            double available = round(((Number) row[5]).doubleValue(), 2);
-            int activeDays = ((Number) row[6]).intValue();
-            int leaveDays = ((Number) row[7]).intValue();
-            int maternityDays = ((Number) row[8]).intValue();
-            int paidDays = ((Number) row[9]).intValue();
-            int nonpayDays = ((Number) row[10]).intValue();
-
-            MemberOverrideInfo override = teamOverrides.get(useruuid + "|" + monthKey);
+        for (MemberMonth m : data.memberMonths(teamId)) {
+            int activeDays = m.memberActiveDays();
+            int leaveDays = m.memberLeaveDays();
+            if (activeDays == 0 && leaveDays == 0) continue;
+            double billable = round(m.memberBillable(), 2);
+            double available = round(m.memberAvailable(), 2);
+
+            MemberOverride override = data.override(teamId, m.useruuid(), m.monthKey());
             boolean overridden = override != null;
-            boolean included = overridden ? override.included() : activeDays > 0;
 
             String leaveStatus = leaveDays > 0
                     ? (activeDays == 0 ? "FULL_LEAVE" : "PARTIAL_LEAVE")
                     : null;
-            String leaveType = dominantLeaveType(maternityDays, paidDays, nonpayDays);
+            String leaveType = dominantLeaveType(m.maternityDays(), m.paidLeaveDays(), m.nonPayLeaveDays());
 
             MemberDetail member = new MemberDetail(
-                    useruuid, fullName(firstName, lastName),
+                    m.useruuid(), fullName(m.firstName(), m.lastName()),
                     billable, available, utilizationOrNull(billable, available),
                     leaveStatus, leaveType, activeDays, leaveDays,
-                    included, overridden, overridden ? override.note() : null);
-            byMonth.computeIfAbsent(monthKey, k -> new ArrayList<>()).add(member);
+                    data.includedInBonus(m), overridden, overridden ? override.note() : null);
+            byMonth.computeIfAbsent(m.monthKey(), k -> new ArrayList<>()).add(member);
         }
         return byMonth;
     }
 
-    /** Member overrides for a team over the given months, keyed {@code "<useruuid>|<monthKey>"}. */
-    private Map<String, MemberOverrideInfo> loadTeamMemberOverrides(String teamId, List<String> monthKeys) {
-        Map<String, MemberOverrideInfo> result = new HashMap<>();
-        for (TeamleadBonusMemberOverride o : TeamleadBonusMemberOverride.listByTeamAndMonths(teamId, monthKeys)) {
-            result.put(o.useruuid + "|" + o.month, new MemberOverrideInfo(o.included, o.note));
-        }
-        return result;
-    }
-
-    /** Excluded leader UUIDs for one team in a fiscal year. */
-    private Set<String> loadTeamLeaderExclusions(int fiscalYear, String teamId) {
-        Set<String> result = new HashSet<>();
-        for (TeamleadBonusLeaderExclusion e :
-                TeamleadBonusLeaderExclusion.<TeamleadBonusLeaderExclusion>list("fiscalYear = ?1 and teamuuid = ?2", fiscalYear, teamId)) {
-            result.add(e.useruuid);
-        }
-        return result;
-    }
-
     /** Dominant leave type of a month (highest day count); {@code null} when there is no leave. */
     private static String dominantLeaveType(int maternityDays, int paidDays, int nonpayDays) {
         if (maternityDays <= 0 && paidDays <= 0 && nonpayDays <= 0) return null;
@@ -992,115 +648,26 @@ public class TeamBonusProjectionService {
         return type;
     }
 
-    /**
-     * All LEADER teamroles for a team overlapping the fiscal-year window, as pure {@link LeaderPeriod}
-     * value objects (end is exclusive, {@code null} for open-ended). The per-month winner is resolved
-     * in-memory by {@link #resolveLeaderOfMonth}.
-     */
-    private List<LeaderPeriod> loadLeaderPeriods(String teamId, LocalDate fyStart, LocalDate fyEnd) {
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = em.createNativeQuery("""
-                SELECT tr.useruuid, u.firstname, u.lastname, tr.startdate, tr.enddate
-                FROM teamroles tr
-                JOIN user u ON u.uuid = tr.useruuid
-                WHERE tr.teamuuid = :teamId
-                  AND tr.membertype = 'LEADER'
-                  AND tr.startdate <= :fyEnd
-                  AND (tr.enddate > :fyStart OR tr.enddate IS NULL)
-                ORDER BY tr.startdate ASC
-                """)
-                .setParameter("teamId", teamId)
-                .setParameter("fyStart", fyStart)
-                .setParameter("fyEnd", fyEnd)
-                .getResultList();
-
-        List<LeaderPeriod> periods = new ArrayList<>();
-        for (Object[] row : rows) {
-            String uuid = (String) row[0];
-            String name = fullName((String) row[1], (String) row[2]);
-            LocalDate start = toLocalDate(row[3]);
-            LocalDate endExclusive = row[4] != null ? toLocalDate(row[4]) : null;
-            periods.add(new LeaderPeriod(uuid, name, start, endExclusive));
-        }
-        return periods;
-    }
-
-    /**
-     * A leader's own registered revenue per month (same {@code CONSULTANT}/{@code ACTIVE} filter as
-     * {@link #calculateLeaderOwnRevenueInMonths}), keyed by {@code "<monthKey>|<useruuid>"}. Returns an
-     * empty map when no month has a resolved leader.
-     */
-    private Map<String, Double> loadLeaderMonthlyRevenue(Set<String> leaderUuids, List<String> monthKeys) {
-        if (leaderUuids.isEmpty()) {
-            return Map.of();
-        }
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = em.createNativeQuery("""
-                SELECT CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
-                       fud.useruuid AS useruuid,
-                       COALESCE(SUM(fud.registered_amount), 0) AS revenue
-                FROM fact_user_day fud
-                WHERE fud.useruuid IN (:leaderUuids)
-                  AND CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) IN (:monthKeys)
-                  AND fud.consultant_type = 'CONSULTANT'
-                  AND fud.status_type = 'ACTIVE'
-                GROUP BY fud.year, fud.month, fud.useruuid
-                """)
-                .setParameter("leaderUuids", leaderUuids)
-                .setParameter("monthKeys", monthKeys)
-                .getResultList();
-
-        Map<String, Double> byMonthUser = new HashMap<>();
-        for (Object[] row : rows) {
-            String monthKey = (String) row[0];
-            String useruuid = (String) row[1];
-            double revenue = ((Number) row[2]).doubleValue();
-            byMonthUser.put(monthKey + "|" + useruuid, revenue);
-        }
-        return byMonthUser;
-    }
-
     /**
      * Finds the primary leader for a team during a fiscal year (longest tenure), clipping the LEADER
      * period to the FY and counting whole months (partial month = 1, capped at last completed month).
      * Used for ranking display names only.
      */
-    private LeaderInfo findLeaderForTeam(String teamId, LocalDate fyStart, LocalDate fyEnd) {
-        @SuppressWarnings("unchecked")
-        List<Object[]> rows = em.createNativeQuery("""
-                SELECT tr.useruuid,
-                       u.firstname, u.lastname,
-                       tr.startdate, tr.enddate
-                FROM teamroles tr
-                JOIN user u ON u.uuid = tr.useruuid
-                WHERE tr.teamuuid = :teamId
-                  AND tr.membertype = 'LEADER'
-                  AND tr.startdate <= :fyEnd
-                  AND (tr.enddate > :fyStart OR tr.enddate IS NULL)
-                ORDER BY tr.startdate ASC
-                """)
-                .setParameter("teamId", teamId)
-                .setParameter("fyStart", fyStart)
-                .setParameter("fyEnd", fyEnd)
-                .getResultList();
-
-        if (rows.isEmpty()) {
+    private LeaderInfo findLeaderForTeam(List<LeaderPeriod> periods, LocalDate fyStart, LocalDate fyEnd) {
+        if (periods.isEmpty()) {
             return new LeaderInfo(UNKNOWN_LEADER_UUID, "Unknown Leader", 0);
         }
 
         Map<String, LeaderCandidate> candidates = new LinkedHashMap<>();
-        for (Object[] row : rows) {
-            String uuid = (String) row[0];
-            String firstName = (String) row[1];
-            String lastName = (String) row[2];
-            LocalDate roleStart = toLocalDate(row[3]);
-            LocalDate roleEnd = row[4] != null ? toLocalDate(row[4]) : fyEnd;
+        for (LeaderPeriod period : periods) {
+            LocalDate roleStart = period.start();
+            LocalDate roleEnd = period.endExclusive() != null ? period.endExclusive() : fyEnd;
 
             LocalDate effectiveStart = roleStart.isBefore(fyStart) ? fyStart : roleStart;
             LocalDate effectiveEnd = roleEnd.isAfter(fyEnd) ? fyEnd : roleEnd;
 
-            candidates.merge(uuid,
-                    new LeaderCandidate(uuid, firstName + " " + lastName, effectiveStart, effectiveEnd),
+            candidates.merge(period.uuid(),
+                    new LeaderCandidate(period.uuid(), period.name(), effectiveStart, effectiveEnd),
                     (existing, newer) -> new LeaderCandidate(
                             existing.uuid(),
                             existing.name(),
@@ -1118,8 +685,8 @@ public class TeamBonusProjectionService {
     }
 
     /** Leader name for a team (simplified lookup for ranking). */
-    private String findLeaderNameForTeam(String teamId, LocalDate fyStart, LocalDate fyEnd) {
-        return findLeaderForTeam(teamId, fyStart, fyEnd).name();
+    private String findLeaderNameForTeam(List<LeaderPeriod> periods, LocalDate fyStart, LocalDate fyEnd) {
+        return findLeaderForTeam(periods, fyStart, fyEnd).name();
     }
 
     /** Whole months the leader held the role within the FY (partial month = 1, current month excluded). */
@@ -1280,13 +847,6 @@ public class TeamBonusProjectionService {
         return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).doubleValue();
     }
 
-    private static LocalDate toLocalDate(Object value) {
-        if (value == null) return null;
-        if (value instanceof LocalDate ld) return ld;
-        if (value instanceof java.sql.Date d) return d.toLocalDate();
-        return LocalDate.parse(value.toString());
-    }
-
     // =====================================================================
     // Value types
     // =====================================================================
@@ -1305,16 +865,6 @@ public class TeamBonusProjectionService {
     public record AdjustmentAggregate(Double utilOverride, String utilOverrideNote,
                                       double splitBonus, double prepaidManual) {}
 
-    /** A member override's effective state for the drill-down roster. */
-    private record MemberOverrideInfo(boolean included, String note) {}
-
-    /**
-     * One considered month's collapsed team inputs. {@code hasActiveData} is false when the month's
-     * only qualifying rows are force-included leave members (0/0 hours): such a month contributes
-     * headcount to the size averages but never a utilization observation.
-     */
-    private record MonthUtilRow(String month, double utilization, int memberCount, boolean hasActiveData) {}
-
     /**
      * A single leader's own-window inputs for the hybrid split: months attributed by majority rule,
      * the own-window effective utilization (admin override applied), own-window average size/factor
@@ -1336,7 +886,7 @@ public class TeamBonusProjectionService {
                                   PoolBasisBreakdown poolBasis, double poolAmount, double sumRawPoints,
                                   double pricePerPoint, Map<String, AdjustmentAggregate> adjustmentsByLeader,
                                   Map<String, Map<String, String>> leaderExclusionsByTeam,
-                                  Set<String> fullyExcludedTeamIds) {}
+                                  Set<String> fullyExcludedTeamIds, TeamFiscalYearData data) {}
 
     /** Fully-computed per-team leader bonus row (display-rounded). */
     public record LeaderBonusRow(String teamId, String teamName, String leaderUuid, String leaderName,
@@ -0,0 +1,244 @@
+package dk.trustworks.intranet.aggregates.invoice.bonus.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamBonusProjectionService.AdjustmentAggregate;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamBonusProjectionService.LeaderPeriod;
+
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * The team analytics inputs of one fiscal year, loaded once for every team by
+ * {@link TeamFiscalYearDataService}: monthly member rosters with their hours, revenue and leave
+ * days, LEADER periods, member overrides, leader exclusions, admin adjustments and the leaders' own
+ * monthly revenue, over the considered (completed) months of the year.
+ *
+ * <p>Pure and immutable. The team-lead bonus ranking, projection, Σpoints and the team dashboard
+ * derive their figures from the same instance, so an all-teams page no longer re-queries the fact
+ * tables per team. The derivations here reproduce the per-team SQL they replace: a member-month
+ * counts for the bonus when the member had ACTIVE days on which they did not also lead the same
+ * team, unless a member override flips it.</p>
+ */
+public final class TeamFiscalYearData {
+
+    /**
+     * What an instance was loaded from: the fiscal year, its last considered month, the BI fact
+     * generation and a fingerprint of the admin-maintained inputs (teams, team roles, user names,
+     * overrides, exclusions, adjustments). A changed key means the instance must be reloaded.
+     */
+    public record Key(int fiscalYear, YearMonth lastMonth, BiFactGeneration.Generation generation,
+                      long inputRows, long inputChecksum) {}
+
+    /**
+     * One user's month on one team (per-day MEMBER role). {@code billable}, {@code available},
+     * {@code revenue} and {@code activeDays} cover every ACTIVE day; the {@code member*} and leave
+     * figures only the days the user did not also lead this team; {@code poolRevenue} and
+     * {@code poolLeaveRevenue} only the days the user did not lead any teamleadbonus team.
+     */
+    public record MemberMonth(String teamId, String useruuid, String monthKey, String firstName, String lastName,
+                              double billable, double available, double revenue, int activeDays,
+                              double memberBillable, double memberAvailable, int memberActiveDays,
+                              int memberLeaveDays, int maternityDays, int paidLeaveDays, int nonPayLeaveDays,
+                              double poolRevenue, double poolLeaveRevenue) {}
+
+    /** A member override's effective state for one (team, user, month). */
+    public record MemberOverride(boolean included, String note) {}
+
+    /**
+     * One month's collapsed bonus inputs for a team. {@code hasActiveData} is false when the month's
+     * only qualifying members are force-included leave members (0/0 hours): such a month contributes
+     * headcount to the size averages but never a utilization observation.
+     */
+    public record TeamMonth(YearMonth month, double billable, double available, int memberCount,
+                            boolean hasActiveData) {
+        public double utilization() {
+            return available > 0 ? billable / available : 0.0;
+        }
+    }
+
+    private final Key key;
+    private final List<YearMonth> months;
+    private final Map<String, String> bonusTeams;
+    private final Map<String, List<MemberMonth>> memberMonthsByTeam = new HashMap<>();
+    private final Map<String, List<LeaderPeriod>> leaderPeriodsByTeam;
+    private final Map<String, MemberOverride> overrides;
+    private final Map<String, AdjustmentAggregate> adjustmentsByLeader;
+    private final Map<String, Map<String, String>> leaderExclusionsByTeam;
+    private final Map<String, Double> leaderRevenueByMonthUser;
+    private final Set<String> fullyExcludedTeamIds;
+
+    /**
+     * @param bonusTeams               teamleadbonus teams, {@code uuid → name}, in display order
+     * @param memberMonths             member-months of every team, ordered by month, last and first name
+     * @param leaderPeriodsByTeam      LEADER roles overlapping the fiscal year per team, by start date
+     * @param overrides                member overrides keyed {@code "<teamuuid>|<useruuid>|<monthKey>"}
+     * @param leaderExclusionsByTeam   leader exclusions, {@code teamuuid → (useruuid → note)}
+     * @param leaderRevenueByMonthUser leaders' own ACTIVE revenue keyed {@code "<monthKey>|<useruuid>"}
+     */
+    TeamFiscalYearData(Key key, List<YearMonth> months, Map<String, String> bonusTeams,
+                       List<MemberMonth> memberMonths, Map<String, List<LeaderPeriod>> leaderPeriodsByTeam,
+                       Map<String, MemberOverride> overrides, Map<String, AdjustmentAggregate> adjustmentsByLeader,
+                       Map<String, Map<String, String>> leaderExclusionsByTeam,
+                       Map<String, Double> leaderRevenueByMonthUser) {
+        this.key = key;
+        this.months = List.copyOf(months);
+        this.bonusTeams = Collections.unmodifiableMap(new LinkedHashMap<>(bonusTeams));
+        for (MemberMonth m : memberMonths) {
+            memberMonthsByTeam.computeIfAbsent(m.teamId(), k -> new ArrayList<>()).add(m);
+        }
+        this.leaderPeriodsByTeam = Map.copyOf(leaderPeriodsByTeam);
+        this.overrides = Map.copyOf(overrides);
+        this.adjustmentsByLeader = Map.copyOf(adjustmentsByLeader);
+        this.leaderExclusionsByTeam = Map.copyOf(leaderExclusionsByTeam);
+        this.leaderRevenueByMonthUser = Map.copyOf(leaderRevenueByMonthUser);
+        this.fullyExcludedTeamIds = computeFullyExcludedTeams();
+    }
+
+    public Key key() {
+        return key;
+    }
+
+    public int fiscalYear() {
+        return key.fiscalYear();
+    }
+
+    /** The considered months: completed months of the fiscal year, in order. */
+    public List<YearMonth> months() {
+        return months;
+    }
+
+    /** True when the considered months are exactly {@code from..to}. */
+    public boolean coversExactly(YearMonth from, YearMonth to) {
+        return !months.isEmpty() && months.getFirst().equals(from) && months.getLast().equals(to);
+    }
+
+    /** True when every month of {@code from..to} is a considered month. */
+    public boolean covers(YearMonth from, YearMonth to) {
+        return !months.isEmpty() && !from.isAfter(to)
+                && !from.isBefore(months.getFirst()) && !to.isAfter(months.getLast());
+    }
+
+    /** Teamleadbonus teams, {@code uuid → name}. */
+    public Map<String, String> bonusTeams() {
+        return bonusTeams;
+    }
+
+    /** The team's member-months, ordered by month, last and first name. */
+    public List<MemberMonth> memberMonths(String teamId) {
+        return memberMonthsByTeam.getOrDefault(teamId, List.of());
+    }
+
+    public List<LeaderPeriod> leaderPeriods(String teamId) {
+        return leaderPeriodsByTeam.getOrDefault(teamId, List.of());
+    }
+
+    public MemberOverride override(String teamId, String useruuid, String monthKey) {
+        return overrides.get(teamId + "|" + useruuid + "|" + monthKey);
+    }
+
+    public Map<String, AdjustmentAggregate> adjustmentsByLeader() {
+        return adjustmentsByLeader;
+    }
+
+    public Map<String, Map<String, String>> leaderExclusionsByTeam() {
+        return leaderExclusionsByTeam;
+    }
+
+    /**
+     * Teamleadbonus teams whose every real leader (a user holding the LEADER role during the FY) is
+     * excluded. Teams with no LEADER role at all are never fully excluded.
+     */
+    public Set<String> fullyExcludedTeamIds() {
+        return fullyExcludedTeamIds;
+    }
+
+    /**
+     * Whether a member-month counts towards the team's bonus utilization and headcount: by default
+     * when the member had ACTIVE non-leader days; a force-include also admits full-leave months, a
+     * force-exclude drops the month.
+     */
+    public boolean includedInBonus(MemberMonth m) {
+        MemberOverride override = override(m.teamId(), m.useruuid(), m.monthKey());
+        if (override == null) return m.memberActiveDays() > 0;
+        return override.included() && (m.memberActiveDays() > 0 || m.memberLeaveDays() > 0);
+    }
+
+    /**
+     * The team's collapsed bonus inputs per month over the included member-months. Only months with
+     * at least one included member get a row.
+     */
+    public List<TeamMonth> teamMonths(String teamId) {
+        Map<String, double[]> hours = new TreeMap<>();
+        Map<String, int[]> counts = new TreeMap<>();
+        for (MemberMonth m : memberMonths(teamId)) {
+            if (!includedInBonus(m)) continue;
+            double[] h = hours.computeIfAbsent(m.monthKey(), k -> new double[2]);
+            h[0] += m.memberBillable();
+            h[1] += m.memberAvailable();
+            int[] c = counts.computeIfAbsent(m.monthKey(), k -> new int[2]);
+            c[0]++;
+            if (m.memberActiveDays() > 0) c[1]++;
+        }
+        List<TeamMonth> result = new ArrayList<>(hours.size());
+        hours.forEach((monthKey, h) -> {
+            int[] c = counts.get(monthKey);
+            result.add(new TeamMonth(parseMonthKey(monthKey), h[0], h[1], c[0], c[1] > 0));
+        });
+        return result;
+    }
+
+    /**
+     * Registered revenue of teamleadbonus-team members over the considered months, excluding days on
+     * which the member led any teamleadbonus team, force-excluded member-months and fully-excluded
+     * teams. Force-included member-months also count their leave-day revenue. Feeds the pool basis
+     * as {@code teamRevenue}.
+     */
+    public double poolRevenue() {
+        double total = 0.0;
+        for (String teamId : bonusTeams.keySet()) {
+            if (fullyExcludedTeamIds.contains(teamId)) continue;
+            for (MemberMonth m : memberMonths(teamId)) {
+                MemberOverride override = override(teamId, m.useruuid(), m.monthKey());
+                if (override == null) {
+                    total += m.poolRevenue();
+                } else if (override.included()) {
+                    total += m.poolRevenue() + m.poolLeaveRevenue();
+                }
+            }
+        }
+        return total;
+    }
+
+    /** A leader's own registered revenue within the given months. */
+    public double leaderRevenue(String useruuid, Collection<String> monthKeys) {
+        double total = 0.0;
+        for (String monthKey : monthKeys) {
+            total += leaderRevenue(useruuid, monthKey);
+        }
+        return total;
+    }
+
+    public double leaderRevenue(String useruuid, String monthKey) {
+        return leaderRevenueByMonthUser.getOrDefault(monthKey + "|" + useruuid, 0.0);
+    }
+
+    private Set<String> computeFullyExcludedTeams() {
+        if (leaderExclusionsByTeam.isEmpty()) return Set.of();
+        Set<String> fully = new HashSet<>();
+        for (String teamId : bonusTeams.keySet()) {
+            Set<String> leaders = new HashSet<>();
+            for (LeaderPeriod lp : leaderPeriods(teamId)) {
+                leaders.add(lp.uuid());
+            }
+            Set<String> excluded = leaderExclusionsByTeam.getOrDefault(teamId, Map.of()).keySet();
+            if (!leaders.isEmpty() && excluded.containsAll(leaders)) {
+                fully.add(teamId);
+            }
+        }
+        return Set.copyOf(fully);
+    }
+
+    private static YearMonth parseMonthKey(String monthKey) {
+        return YearMonth.of(Integer.parseInt(monthKey.substring(0, 4)), Integer.parseInt(monthKey.substring(4)));
+    }
+}
@@ -0,0 +1,371 @@
+package dk.trustworks.intranet.aggregates.invoice.bonus.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadAdjustmentType;
+import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadBonusAdjustment;
+import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadBonusLeaderExclusion;
+import dk.trustworks.intranet.aggregates.invoice.bonus.model.TeamleadBonusMemberOverride;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamBonusProjectionService.AdjustmentAggregate;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamBonusProjectionService.LeaderPeriod;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberMonth;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberOverride;
+import dk.trustworks.intranet.domain.user.entity.Team;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds one {@link TeamFiscalYearData} per fiscal year, loaded with a constant number of set-based
+ * queries for all teams at once.
+ *
+ * <p>An instance stays valid while its {@link TeamFiscalYearData.Key} does: the fact rows only change
+ * when a BI refresh commits (which advances {@link BiFactGeneration}), and the admin-maintained inputs
+ * are fingerprinted by one cheap query per lookup. Bonus payouts are computed from this data, so every
+ * lookup re-reads the watermark instead of trusting the generation's periodic poll, and a lookup with
+ * a moved key waits for the reload. Unlike the finance cube, an instance older than the last committed
+ * refresh is therefore not served.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class TeamFiscalYearDataService {
+
+    static final String LEAVE_STATUS_SQL = "'MATERNITY_LEAVE','PAID_LEAVE','NON_PAY_LEAVE'";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    BiFactGeneration factGeneration;
+
+    private final Map<Integer, TeamFiscalYearData> loaded = new ConcurrentHashMap<>();
+    private final ReentrantLock loading = new ReentrantLock();
+
+    /** The data of the fiscal year starting 1 July {@code fiscalYear}, reloaded when its inputs changed. */
+    public TeamFiscalYearData forFiscalYear(int fiscalYear) {
+        TeamFiscalYearData.Key key = currentKey(fiscalYear);
+        TeamFiscalYearData existing = loaded.get(fiscalYear);
+        if (existing != null && existing.key().equals(key)) return existing;
+
+        loading.lock();
+        try {
+            TeamFiscalYearData latest = loaded.get(fiscalYear);
+            if (latest != null && latest.key().equals(key)) return latest;
+            long started = System.nanoTime();
+            TeamFiscalYearData data = load(key);
+            loaded.put(fiscalYear, data);
+            log.infof("Team data for FY %d loaded for generation %s: %d months, %d bonus teams in %d ms",
+                    fiscalYear, key.generation(), data.months().size(), data.bonusTeams().size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return data;
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    /**
+     * Considered months: completed months within the fiscal year (the current incomplete month is
+     * excluded). A still-running FY caps at the previous completed month.
+     */
+    static List<YearMonth> consideredMonths(LocalDate fyStart, LocalDate fyEnd) {
+        YearMonth start = YearMonth.from(fyStart);
+        YearMonth lastConsidered = fyEnd.isAfter(LocalDate.now())
+                ? YearMonth.now().minusMonths(1)
+                : YearMonth.from(fyEnd);
+
+        if (lastConsidered.isBefore(start)) {
+            return List.of();
+        }
+
+        List<YearMonth> months = new ArrayList<>();
+        YearMonth current = start;
+        while (!current.isAfter(lastConsidered)) {
+            months.add(current);
+            current = current.plusMonths(1);
+        }
+        return months;
+    }
+
+    TeamFiscalYearData.Key currentKey(int fiscalYear) {
+        // The scheduled poll lags a committed refresh by up to its interval; payouts must not.
+        factGeneration.refresh();
+        LocalDate fyStart = LocalDate.of(fiscalYear, 7, 1);
+        LocalDate fyEnd = LocalDate.of(fiscalYear + 1, 6, 30);
+        List<YearMonth> months = consideredMonths(fyStart, fyEnd);
+        Object[] row = (Object[]) em.createNativeQuery("""
+                SELECT COUNT(*), COALESCE(SUM(CRC32(fp)), 0)
+                FROM (
+                    SELECT CONCAT_WS('|', 'team', uuid, name, teamleadbonus) AS fp
+                    FROM team
+                    UNION ALL
+                    SELECT CONCAT_WS('|', 'role', uuid, teamuuid, useruuid, membertype, startdate,
+                                     COALESCE(enddate, '-'))
+                    FROM teamroles
+                    UNION ALL
+                    SELECT CONCAT_WS('|', 'user', uuid, COALESCE(firstname, '-'), COALESCE(lastname, '-'))
+                    FROM user
+                    UNION ALL
+                    SELECT CONCAT_WS('|', 'override', uuid, teamuuid, useruuid, month, included,
+                                     COALESCE(note, '-'))
+                    FROM teamlead_bonus_member_override
+                    WHERE month BETWEEN :fromKey AND :toKey
+                    UNION ALL
+                    SELECT CONCAT_WS('|', 'exclusion', uuid, teamuuid, useruuid, COALESCE(note, '-'))
+                    FROM teamlead_bonus_leader_exclusion
+                    WHERE fiscal_year = :fiscalYear
+                    UNION ALL
+                    SELECT CONCAT_WS('|', 'adjustment', uuid, useruuid, adjustment_type, COALESCE(amount, '-'),
+                                     COALESCE(util_override, '-'), COALESCE(note, '-'))
+                    FROM teamlead_bonus_adjustment
+                    WHERE fiscal_year = :fiscalYear
+                ) inputs
+                """)
+                .setParameter("fromKey", TeamBonusProjectionService.monthKey(YearMonth.from(fyStart)))
+                .setParameter("toKey", TeamBonusProjectionService.monthKey(YearMonth.from(fyEnd)))
+                .setParameter("fiscalYear", fiscalYear)
+                .getSingleResult();
+        return new TeamFiscalYearData.Key(fiscalYear, months.isEmpty() ? null : months.getLast(),
+                factGeneration.current(), ((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    TeamFiscalYearData load(TeamFiscalYearData.Key key) {
+        int fiscalYear = key.fiscalYear();
+        LocalDate fyStart = LocalDate.of(fiscalYear, 7, 1);
+        LocalDate fyEnd = LocalDate.of(fiscalYear + 1, 6, 30);
+        List<YearMonth> months = consideredMonths(fyStart, fyEnd);
+
+        Map<String, String> bonusTeams = new LinkedHashMap<>();
+        for (Team team : Team.<Team>list("teamleadbonus = true order by name")) {
+            bonusTeams.put(team.getUuid(), team.getName());
+        }
+
+        if (months.isEmpty()) {
+            return new TeamFiscalYearData(key, months, bonusTeams, List.of(),
+                    loadLeaderPeriods(fyStart, fyEnd), Map.of(), loadAdjustments(fiscalYear),
+                    loadLeaderExclusions(fiscalYear), Map.of());
+        }
+
+        LocalDate from = months.getFirst().atDay(1);
+        LocalDate to = months.getLast().atEndOfMonth();
+        List<String> monthKeys = months.stream().map(TeamBonusProjectionService::monthKey).toList();
+        return new TeamFiscalYearData(key, months, bonusTeams,
+                loadMemberMonths(from, to),
+                loadLeaderPeriods(fyStart, fyEnd),
+                loadMemberOverrides(monthKeys),
+                loadAdjustments(fiscalYear),
+                loadLeaderExclusions(fiscalYear),
+                loadLeaderRevenue(from, to, fyStart, fyEnd));
+    }
+
+    /**
+     * Every team's member-months from {@code fact_user_day} joined to the dated MEMBER teamroles,
+     * {@code CONSULTANT} ACTIVE and leave days only. Each day is flagged once for a same-team LEADER
+     * role (dropped from the bonus utilization) and once for a LEADER role on any teamleadbonus team
+     * (dropped from the pool revenue).
+     */
+    @SuppressWarnings("unchecked")
+    private List<MemberMonth> loadMemberMonths(LocalDate from, LocalDate to) {
+        List<Object[]> rows = em.createNativeQuery("""
+                SELECT d.teamuuid, d.useruuid, d.month_key, u.firstname, u.lastname,
+                       SUM(CASE WHEN d.status_type = 'ACTIVE' THEN d.billable ELSE 0 END) AS billable,
+                       SUM(CASE WHEN d.status_type = 'ACTIVE' THEN d.available ELSE 0 END) AS available,
+                       SUM(CASE WHEN d.status_type = 'ACTIVE' THEN d.revenue ELSE 0 END) AS revenue,
+                       SUM(d.status_type = 'ACTIVE') AS active_days,
+                       SUM(CASE WHEN d.status_type = 'ACTIVE' AND d.leads_team = 0 THEN d.billable ELSE 0 END) AS member_billable,
+                       SUM(CASE WHEN d.status_type = 'ACTIVE' AND d.leads_team = 0 THEN d.available ELSE 0 END) AS member_available,
+                       SUM(d.status_type = 'ACTIVE' AND d.leads_team = 0) AS member_active_days,
+                       SUM(d.status_type IN (%1$s) AND d.leads_team = 0) AS member_leave_days,
+                       SUM(d.status_type = 'MATERNITY_LEAVE' AND d.leads_team = 0) AS maternity_days,
+                       SUM(d.status_type = 'PAID_LEAVE' AND d.leads_team = 0) AS paid_days,
+                       SUM(d.status_type = 'NON_PAY_LEAVE' AND d.leads_team = 0) AS nonpay_days,
+                       SUM(CASE WHEN d.status_type = 'ACTIVE' AND d.leads_bonus_team = 0 THEN d.revenue ELSE 0 END) AS pool_revenue,
+                       SUM(CASE WHEN d.status_type IN (%1$s) AND d.leads_bonus_team = 0 THEN d.revenue ELSE 0 END) AS pool_leave_revenue
+                FROM (
+                    SELECT tr.teamuuid, fud.useruuid, fud.status_type,
+                           CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
+                           fud.registered_billable_hours AS billable,
+                           fud.net_available_hours AS available,
+                           fud.registered_amount AS revenue,
+                           EXISTS (
+                               SELECT 1 FROM teamroles ldr
+                               WHERE ldr.useruuid = fud.useruuid
+                                 AND ldr.teamuuid = tr.teamuuid
+                                 AND ldr.membertype = 'LEADER'
+                                 AND ldr.startdate <= fud.document_date
+                                 AND (ldr.enddate IS NULL OR ldr.enddate > fud.document_date)
+                           ) AS leads_team,
+                           EXISTS (
+                               SELECT 1 FROM teamroles ldr
+                               JOIN team lt ON lt.uuid = ldr.teamuuid AND lt.teamleadbonus = 1
+                               WHERE ldr.useruuid = fud.useruuid
+                                 AND ldr.membertype = 'LEADER'
+                                 AND ldr.startdate <= fud.document_date
+                                 AND (ldr.enddate IS NULL OR ldr.enddate > fud.document_date)
+                           ) AS leads_bonus_team
+                    FROM fact_user_day fud
+                    JOIN teamroles tr ON tr.useruuid = fud.useruuid
+                        AND tr.membertype = 'MEMBER'
+                        AND tr.startdate <= fud.document_date
+                        AND (tr.enddate IS NULL OR tr.enddate > fud.document_date)
+                    WHERE fud.consultant_type = 'CONSULTANT'
+                      AND fud.status_type IN ('ACTIVE',%1$s)
+                      AND fud.document_date >= :from
+                      AND fud.document_date <= :to
+                ) d
+                JOIN user u ON u.uuid = d.useruuid
+                GROUP BY d.teamuuid, d.useruuid, d.month_key, u.firstname, u.lastname
+                ORDER BY d.month_key, u.lastname, u.firstname
+                """.formatted(LEAVE_STATUS_SQL))
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+
+        List<MemberMonth> result = new ArrayList<>(rows.size());
+        for (Object[] r : rows) {
+            result.add(new MemberMonth((String) r[0], (String) r[1], (String) r[2], (String) r[3], (String) r[4],
+                    toDouble(r[5]), toDouble(r[6]), toDouble(r[7]), toInt(r[8]),
+                    toDouble(r[9]), toDouble(r[10]), toInt(r[11]), toInt(r[12]),
+                    toInt(r[13]), toInt(r[14]), toInt(r[15]),
+                    toDouble(r[16]), toDouble(r[17])));
+        }
+        return result;
+    }
+
+    /**
+     * LEADER teamroles of every team overlapping the fiscal year, as {@link LeaderPeriod} value
+     * objects (end exclusive, {@code null} for open-ended) ordered by start date.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, List<LeaderPeriod>> loadLeaderPeriods(LocalDate fyStart, LocalDate fyEnd) {
+        List<Object[]> rows = em.createNativeQuery("""
+                SELECT tr.teamuuid, tr.useruuid, u.firstname, u.lastname, tr.startdate, tr.enddate
+                FROM teamroles tr
+                JOIN user u ON u.uuid = tr.useruuid
+                WHERE tr.membertype = 'LEADER'
+                  AND tr.startdate <= :fyEnd
+                  AND (tr.enddate > :fyStart OR tr.enddate IS NULL)
+                ORDER BY tr.teamuuid, tr.startdate ASC
+                """)
+                .setParameter("fyStart", fyStart)
+                .setParameter("fyEnd", fyEnd)
+                .getResultList();
+
+        Map<String, List<LeaderPeriod>> result = new HashMap<>();
+        for (Object[] r : rows) {
+            String name = ((r[2] != null ? (String) r[2] : "") + " " + (r[3] != null ? (String) r[3] : "")).trim();
+            result.computeIfAbsent((String) r[0], k -> new ArrayList<>())
+                    .add(new LeaderPeriod((String) r[1], name, toLocalDate(r[4]), toLocalDate(r[5])));
+        }
+        return result;
+    }
+
+    /** Member overrides over the considered months, keyed {@code "<teamuuid>|<useruuid>|<monthKey>"}. */
+    private Map<String, MemberOverride> loadMemberOverrides(List<String> monthKeys) {
+        Map<String, MemberOverride> result = new HashMap<>();
+        for (TeamleadBonusMemberOverride o : TeamleadBonusMemberOverride.listByMonths(monthKeys)) {
+            result.put(o.teamuuid + "|" + o.useruuid + "|" + o.month, new MemberOverride(o.included, o.note));
+        }
+        return result;
+    }
+
+    /** Loads and aggregates admin adjustments for the FY, keyed by leader (user) UUID. */
+    private Map<String, AdjustmentAggregate> loadAdjustments(int fiscalYear) {
+        Map<String, Double> splitByUser = new HashMap<>();
+        Map<String, Double> prepaidByUser = new HashMap<>();
+        Map<String, Double> utilOverrideByUser = new HashMap<>();
+        Map<String, String> utilNoteByUser = new HashMap<>();
+
+        for (TeamleadBonusAdjustment a : TeamleadBonusAdjustment.listByFiscalYear(fiscalYear)) {
+            if (a.adjustmentType == TeamleadAdjustmentType.SPLIT_BONUS) {
+                splitByUser.merge(a.useruuid, a.amount != null ? a.amount : 0.0, Double::sum);
+            } else if (a.adjustmentType == TeamleadAdjustmentType.PREPAID_DEDUCTION) {
+                prepaidByUser.merge(a.useruuid, a.amount != null ? a.amount : 0.0, Double::sum);
+            } else if (a.adjustmentType == TeamleadAdjustmentType.UTIL_OVERRIDE && a.utilOverride != null) {
+                utilOverrideByUser.put(a.useruuid, a.utilOverride);
+                utilNoteByUser.put(a.useruuid, a.note);
+            }
+        }
+
+        Set<String> users = new HashSet<>();
+        users.addAll(splitByUser.keySet());
+        users.addAll(prepaidByUser.keySet());
+        users.addAll(utilOverrideByUser.keySet());
+
+        Map<String, AdjustmentAggregate> result = new HashMap<>();
+        for (String user : users) {
+            result.put(user, new AdjustmentAggregate(
+                    utilOverrideByUser.get(user),
+                    utilNoteByUser.get(user),
+                    splitByUser.getOrDefault(user, 0.0),
+                    prepaidByUser.getOrDefault(user, 0.0)));
+        }
+        return result;
+    }
+
+    /** Leader exclusions for the FY, keyed {@code teamuuid → (useruuid → note)}. */
+    private Map<String, Map<String, String>> loadLeaderExclusions(int fiscalYear) {
+        Map<String, Map<String, String>> result = new HashMap<>();
+        for (TeamleadBonusLeaderExclusion e : TeamleadBonusLeaderExclusion.listByFiscalYear(fiscalYear)) {
+            result.computeIfAbsent(e.teamuuid, k -> new HashMap<>()).put(e.useruuid, e.note);
+        }
+        return result;
+    }
+
+    /**
+     * Own registered revenue ({@code CONSULTANT}, ACTIVE) per month of every user holding a LEADER
+     * role during the FY, keyed {@code "<monthKey>|<useruuid>"}.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> loadLeaderRevenue(LocalDate from, LocalDate to, LocalDate fyStart, LocalDate fyEnd) {
+        List<Object[]> rows = em.createNativeQuery("""
+                SELECT CONCAT(LPAD(fud.year, 4, '0'), LPAD(fud.month, 2, '0')) AS month_key,
+                       fud.useruuid AS useruuid,
+                       COALESCE(SUM(fud.registered_amount), 0) AS revenue
+                FROM fact_user_day fud
+                WHERE fud.useruuid IN (
+                        SELECT tr.useruuid FROM teamroles tr
+                        WHERE tr.membertype = 'LEADER'
+                          AND tr.startdate <= :fyEnd
+                          AND (tr.enddate > :fyStart OR tr.enddate IS NULL)
+                  )
+                  AND fud.document_date >= :from
+                  AND fud.document_date <= :to
+                  AND fud.consultant_type = 'CONSULTANT'
+                  AND fud.status_type = 'ACTIVE'
+                GROUP BY fud.year, fud.month, fud.useruuid
+                """)
+                .setParameter("fyStart", fyStart)
+                .setParameter("fyEnd", fyEnd)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+
+        Map<String, Double> result = new HashMap<>();
+        for (Object[] r : rows) {
+            result.put(r[0] + "|" + r[1], toDouble(r[2]));
+        }
+        return result;
+    }
+
+    private static double toDouble(Object value) {
+        return value == null ? 0d : ((Number) value).doubleValue();
+    }
+
+    private static int toInt(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDate ld) return ld;
+        if (value instanceof java.sql.Date d) return d.toLocalDate();
+        return LocalDate.parse(value.toString());
+    }
+}
@@ -25,7 +25,7 @@ import java.util.Set;
  * <ul>
  *   <li>{@code teamRevenue} is supplied by the caller (registered revenue of MEMBERs of
  *       teamleadbonus teams, teamlead production excluded — see
- *       {@code TeamBonusProjectionService.calculateCompanyRevenue}).</li>
+ *       {@link TeamFiscalYearData#poolRevenue}).</li>
  *   <li>{@code totalGroupCosts} = group-wide OPEX+salaries (from {@link DistributionAwareOpexProvider})
  *       + external GL direct costs (finance_details × accounting_accounts cost_type='DIRECT_COSTS',
  *       intercompany transfer-price accounts excluded), summed over the considered months.</li>
@@ -1,6 +1,6 @@
 package dk.trustworks.intranet.aggregates.invoice.events;
 
-import dk.trustworks.intranet.aggregates.invoice.services.InvoiceAttributionService;
+import dk.trustworks.intranet.aggregates.invoice.services.InvoiceAttributionQueue;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.enterprise.event.TransactionPhase;
@@ -12,30 +12,32 @@ import java.util.concurrent.CompletableFuture;
 /**
  * Observes {@link InvoiceAttributionsDirtyEvent} only after the originating
  * transaction has successfully committed ({@link TransactionPhase#AFTER_SUCCESS}),
- * then off-loads the attribution computation to a background thread so the
- * HTTP request that triggered the draft write returns immediately.
+ * then, on a background thread, marks the invoice in {@link InvoiceAttributionQueue}
+ * and starts a drain so the HTTP request that triggered the draft write returns
+ * immediately.
  *
- * <p>The actual computation runs in its own {@code @Transactional} scope
- * inside {@link InvoiceAttributionService#computeAttributions(String)}, which
- * re-reads the committed invoice from the database. A transient failure is
- * logged; the admin "Recompute attributions" action can recover the invoice.
+ * <p>Repeated marks of the same invoice coalesce into one recompute. The queue
+ * runs {@link dk.trustworks.intranet.aggregates.invoice.services.InvoiceAttributionService#computeAttributions(String)}
+ * in its own transaction and retries failures; if the mark itself cannot be
+ * written, the admin "Recompute attributions" action can recover the invoice.
  */
 @ApplicationScoped
 @JBossLog
 public class InvoiceAttributionDirtyObserver {
 
     @Inject
-    InvoiceAttributionService attributionService;
+    InvoiceAttributionQueue attributionQueue;
 
     public void onInvoiceCommitted(
             @Observes(during = TransactionPhase.AFTER_SUCCESS) InvoiceAttributionsDirtyEvent event) {
         String invoiceUuid = event.invoiceUuid();
         CompletableFuture.runAsync(() -> {
             try {
-                attributionService.computeAttributions(invoiceUuid);
+                attributionQueue.mark(invoiceUuid);
+                attributionQueue.drain();
             } catch (Exception e) {
                 log.errorf(e,
-                        "Async attribution computation failed for invoice uuid=%s — admin recompute can recover",
+                        "Queueing attribution recompute failed for invoice uuid=%s — admin recompute can recover",
                         invoiceUuid);
             }
         });
@@ -0,0 +1,97 @@
+package dk.trustworks.intranet.aggregates.invoice.jobs;
+
+import dk.trustworks.intranet.aggregates.invoice.jobs.QueuedInternalInvoiceFinalizer.Outcome;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bounded worker pool for finalizing invoices, one lane per issuing company.
+ *
+ * <p>e-conomic hands out the booked invoice number per agreement at book time, so two bookings
+ * for the same company must never overlap: each company's invoices run one after another, in the
+ * order discovery returned them, on a single worker. Different companies have independent number
+ * series and run concurrently, at most {@code invoice.finalization.parallelism} at a time. Each
+ * step brings its own transaction (the finalizer's {@code REQUIRES_NEW}), so a worker thread
+ * carries nothing between invoices.</p>
+ *
+ * <p>A failing invoice is logged and counted; its company's lane continues with the next invoice,
+ * exactly as the serial loop did.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class InvoiceFinalizationLanes {
+
+    @Inject
+    ManagedExecutor executor;
+
+    /** Companies finalized concurrently; 1 runs every lane on the caller thread. */
+    @ConfigProperty(name = "invoice.finalization.parallelism", defaultValue = "4")
+    int parallelism = 1;
+
+    public record Tally(int total, int processed, int skipped, int failed, int companies, long durationMs) {}
+
+    /**
+     * Runs {@code step} for every uuid, lane by lane.
+     *
+     * @param pass            label for the log lines
+     * @param uuidsByCompany  issuer company uuid → invoice uuids in booking order
+     * @param step            finalizes one invoice in its own transaction
+     */
+    public Tally run(String pass, Map<String, List<String>> uuidsByCompany, Function<String, Outcome> step) {
+        long started = System.currentTimeMillis();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        // Largest companies first, so the longest lane is not the one left running alone at the end.
+        ConcurrentLinkedQueue<Map.Entry<String, List<String>>> companies = new ConcurrentLinkedQueue<>(
+                uuidsByCompany.entrySet().stream()
+                        .sorted(Comparator.comparingInt((Map.Entry<String, List<String>> e) -> e.getValue().size()).reversed())
+                        .toList());
+
+        Runnable worker = () -> {
+            Map.Entry<String, List<String>> lane;
+            while ((lane = companies.poll()) != null) {
+                for (String uuid : lane.getValue()) {
+                    try {
+                        if (step.apply(uuid) == Outcome.PROCESSED) {
+                            processed.incrementAndGet();
+                        } else {
+                            skipped.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        log.warnf(e, "%s: finalize failed for invoice %s (company %s)", pass, uuid, lane.getKey());
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        };
+
+        int workers = Math.min(Math.max(parallelism, 1), uuidsByCompany.size());
+        if (workers <= 1 || executor == null) {
+            worker.run();
+        } else {
+            List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(CompletableFuture.runAsync(worker, executor));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        }
+
+        int total = uuidsByCompany.values().stream().mapToInt(List::size).sum();
+        return new Tally(total, processed.get(), skipped.get(), failed.get(), uuidsByCompany.size(),
+                System.currentTimeMillis() - started);
+    }
+}
@@ -28,6 +28,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,7 +43,8 @@ import java.util.stream.Collectors;
  * nightly re-booking duplicates.
  *
  * <p>The orchestration loop lives in {@link QueuedInternalInvoiceProcessorBatchlet}, which is
- * intentionally NON-transactional.
+ * intentionally NON-transactional and runs these methods on {@link InvoiceFinalizationLanes} —
+ * concurrently across issuing companies, serially within one.
  *
  * SPEC-INV-001 §9.1, §9.2.
  */
@@ -77,20 +79,27 @@ public class QueuedInternalInvoiceFinalizer {
     boolean attributionDrivenInternalInvoices;
 
     /**
-     * First-pass discovery: uuids of all QUEUED INTERNAL invoices that reference another invoice.
+     * First-pass discovery: uuids of all QUEUED INTERNAL invoices that reference another invoice,
+     * grouped by issuing company and ordered by the referenced invoice number within a company —
+     * the order {@link InvoiceFinalizationLanes} books them in.
      */
     @Transactional(Transactional.TxType.REQUIRES_NEW)
-    public List<String> findFirstPassUuids() {
+    public Map<String, List<String>> findFirstPassByCompany() {
         List<Invoice> queuedInvoices = Invoice.list(
-                "status = ?1 AND type = ?2 AND invoiceref > 0",
+                "status = ?1 AND type = ?2 AND invoiceref > 0 ORDER BY invoiceref, uuid",
                 InvoiceStatus.QUEUED, InvoiceType.INTERNAL
         );
-        return queuedInvoices.stream().map(Invoice::getUuid).collect(Collectors.toList());
+        Map<String, List<String>> byCompany = new LinkedHashMap<>();
+        for (Invoice invoice : queuedInvoices) {
+            String company = invoice.getCompany() != null ? invoice.getCompany().getUuid() : "";
+            byCompany.computeIfAbsent(company, k -> new ArrayList<>()).add(invoice.getUuid());
+        }
+        return byCompany;
     }
 
     /**
      * Second-pass discovery (Feature 3c): uuids of QUEUED settlement INTERNALs that reference a
-     * PHANTOM source.
+     * PHANTOM source, grouped by issuing company and ordered by settlement period.
      *
      * <p>Native, parameter-free discovery (selfbilled idiom): QUEUED settlement INTERNALs whose
      * invoice_ref_uuid points at a PHANTOM source. A separate native query keeps the PHANTOM-type
@@ -98,16 +107,22 @@ public class QueuedInternalInvoiceFinalizer {
      */
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     @SuppressWarnings("unchecked")
-    public List<String> findSettlementUuids() {
-        return em.createNativeQuery("""
-                SELECT i.uuid
+    public Map<String, List<String>> findSettlementByCompany() {
+        List<Object[]> rows = em.createNativeQuery("""
+                SELECT i.uuid, COALESCE(i.companyuuid, '')
                 FROM invoices i
                 JOIN invoices src ON src.uuid = i.invoice_ref_uuid
                 WHERE i.type = 'INTERNAL' AND i.status = 'QUEUED'
                   AND i.settlement_billing_client_uuid IS NOT NULL
                   AND i.settlement_year IS NOT NULL AND i.settlement_month IS NOT NULL
                   AND src.type = 'PHANTOM'
+                ORDER BY i.settlement_year, i.settlement_month, i.uuid
                 """).getResultList();
+        Map<String, List<String>> byCompany = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            byCompany.computeIfAbsent((String) row[1], k -> new ArrayList<>()).add((String) row[0]);
+        }
+        return byCompany;
     }
 
     /**
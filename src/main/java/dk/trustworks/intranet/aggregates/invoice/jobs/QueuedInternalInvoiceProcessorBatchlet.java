@@ -1,7 +1,9 @@
 package dk.trustworks.intranet.aggregates.invoice.jobs;
 
+import dk.trustworks.intranet.aggregates.invoice.jobs.InvoiceFinalizationLanes.Tally;
 import dk.trustworks.intranet.aggregates.invoice.jobs.QueuedInternalInvoiceFinalizer.Outcome;
 import dk.trustworks.intranet.aggregates.invoice.services.InternalInvoiceOrchestrator;
+import dk.trustworks.intranet.aggregates.invoice.services.InvoiceEconomicsUploadService;
 import dk.trustworks.intranet.aggregates.invoice.selfbilled.services.SelfBilledDeltaQuery;
 import dk.trustworks.intranet.aggregates.invoice.selfbilled.services.SelfBilledPaidGate;
 import dk.trustworks.intranet.batch.monitoring.BatchExceptionTracking;
@@ -12,6 +14,7 @@ import jakarta.inject.Named;
 import lombok.extern.jbosslog.JBossLog;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Processes queued INTERNAL invoices, creating them automatically (no review step) when
@@ -33,6 +36,12 @@ import java.util.List;
  * loop held one shared transaction; a single failed booking marked it rollback-only, reverting
  * every booking to QUEUED while e-conomics kept them, which caused nightly re-booking duplicates.)
  *
+ * <p>Invoices run on {@link InvoiceFinalizationLanes}: companies in parallel up to
+ * {@code invoice.finalization.parallelism}, each company's invoices strictly one after another so
+ * its e-conomic booking numbers are handed out in discovery order. A booked invoice whose
+ * DEBTOR-side voucher failed gets an {@code invoice_economics_upload} row that
+ * {@link EconomicsUploadRetryBatchlet} retries with backoff.
+ *
  * <p>Individual failures are logged as warnings and do not stop processing of remaining invoices.
  *
  * SPEC-INV-001 §9.1, §9.2.
@@ -46,35 +55,26 @@ public class QueuedInternalInvoiceProcessorBatchlet extends AbstractBatchlet {
     @Inject
     QueuedInternalInvoiceFinalizer finalizer;
 
+    @Inject
+    InvoiceFinalizationLanes lanes;
+
+    @Inject
+    InvoiceEconomicsUploadService uploadService;
+
     @Override
     public String process() throws Exception {
         log.info("QueuedInternalInvoiceProcessorBatchlet started");
 
         // First pass: QUEUED INTERNAL invoices that reference another (real, PAID) invoice.
-        List<String> firstPass = finalizer.findFirstPassUuids();
-        log.infof("Found %d queued internal invoices to process", firstPass.size());
-
-        int processed = 0;
-        int skipped = 0;
-        int failed = 0;
-
-        for (String uuid : firstPass) {
-            try {
-                Outcome outcome = finalizer.processOne(uuid);
-                if (outcome == Outcome.PROCESSED) {
-                    processed++;
-                } else {
-                    skipped++;
-                }
-            } catch (Exception e) {
-                log.warnf(e, "Auto-finalize failed for queued internal invoice %s", uuid);
-                failed++;
-                // Continue processing remaining invoices — each ran in its own REQUIRES_NEW tx.
-            }
-        }
+        Map<String, List<String>> firstPass = finalizer.findFirstPassByCompany();
+        log.infof("Found %d queued internal invoices across %d companies to process",
+                firstPass.values().stream().mapToInt(List::size).sum(), firstPass.size());
 
-        log.infof("QueuedInternalInvoiceProcessorBatchlet completed: total=%d, processed=%d, skipped=%d, failed=%d",
-                firstPass.size(), processed, skipped, failed);
+        Tally tally = lanes.run("first pass", firstPass, uuid -> queueDebtorRetry(uuid, finalizer.processOne(uuid)));
+
+        log.infof("QueuedInternalInvoiceProcessorBatchlet completed: total=%d, processed=%d, skipped=%d, failed=%d, "
+                        + "companies=%d, durationMs=%d",
+                tally.total(), tally.processed(), tally.skipped(), tally.failed(), tally.companies(), tally.durationMs());
 
         processSettlementInternals();
 
@@ -97,26 +97,32 @@ public class QueuedInternalInvoiceProcessorBatchlet extends AbstractBatchlet {
      * No item regeneration.
      */
     private void processSettlementInternals() {
-        List<String> settlement = finalizer.findSettlementUuids();
-        log.infof("Found %d queued settlement internals (PHANTOM-referenced) to evaluate", settlement.size());
-
-        int processed = 0, skipped = 0, failed = 0;
-        for (String uuid : settlement) {
-            try {
-                Outcome outcome = finalizer.processOneSettlement(uuid);
-                if (outcome == Outcome.PROCESSED) {
-                    processed++;
-                } else {
-                    skipped++;
-                }
-            } catch (Exception e) {
-                log.warnf(e, "Auto-finalize failed for settlement internal %s", uuid);
-                failed++;
-            }
-        }
+        Map<String, List<String>> settlement = finalizer.findSettlementByCompany();
+        log.infof("Found %d queued settlement internals (PHANTOM-referenced) to evaluate",
+                settlement.values().stream().mapToInt(List::size).sum());
+
+        Tally tally = lanes.run("settlement pass", settlement,
+                uuid -> queueDebtorRetry(uuid, finalizer.processOneSettlement(uuid)));
 
         log.infof("QueuedInternalInvoiceProcessorBatchlet settlement pass completed: total=%d, processed=%d, "
-                        + "skipped=%d, failed=%d",
-                settlement.size(), processed, skipped, failed);
+                        + "skipped=%d, failed=%d, durationMs=%d",
+                tally.total(), tally.processed(), tally.skipped(), tally.failed(), tally.durationMs());
+    }
+
+    /**
+     * A booked invoice whose DEBTOR-side voucher failed is left {@code PARTIALLY_UPLOADED}; hand
+     * that voucher to {@link EconomicsUploadRetryBatchlet} instead of leaving it for manual repair.
+     */
+    private Outcome queueDebtorRetry(String uuid, Outcome outcome) {
+        if (outcome != Outcome.PROCESSED) return outcome;
+        try {
+            if (uploadService.queueDebtorRetry(uuid)) {
+                log.warnf("Debtor-side voucher for internal invoice %s queued for retry", uuid);
+            }
+        } catch (Exception e) {
+            // The issuer booking has committed; only the retry hand-off is lost.
+            log.errorf(e, "Could not queue debtor-side voucher retry for internal invoice %s", uuid);
+        }
+        return outcome;
     }
 }
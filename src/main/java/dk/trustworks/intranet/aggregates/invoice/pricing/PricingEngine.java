@@ -10,12 +10,18 @@ import io.micrometer.core.annotation.Timed;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+@JBossLog
 @ApplicationScoped
 public class PricingEngine {
 
@@ -24,6 +30,19 @@ public class PricingEngine {
 
     @Inject PricingRuleCatalog catalog;
     @Inject MeterRegistry registry;
+    @Inject ManagedExecutor executor;
+
+    /** Pricing lanes a batch may occupy on the shared executor; 1 prices on the caller thread. */
+    @ConfigProperty(name = "invoice.pricing.batch.parallelism", defaultValue = "4")
+    int batchParallelism;
+
+    /**
+     * Outcome of {@link #priceAll}: results keyed by invoice uuid in input order, and the
+     * drafts that could not be priced with the reason (the single-draft path would have thrown).
+     */
+    public record BatchResult(Map<String, PriceResult> results, Map<String, String> failures, int ruleSets) {}
+
+    private record RuleKey(String contractTypeCode, LocalDate date) {}
 
     // Invoice.discount arrives unvalidated from the draft REST endpoints; reject out-of-range
     // percentages here so no pricing math ever runs on them.
@@ -37,10 +56,85 @@ public class PricingEngine {
     public PriceResult price(Invoice draft, Map<String, String> contractTypeItems) {
         Objects.requireNonNull(draft, "invoice draft");
         validateDiscount(draft.getDiscount());
-        final LocalDate date = draft.getInvoicedate() != null ? draft.getInvoicedate() : LocalDate.now();
+        final LocalDate date = pricingDate(draft);
+        return price(draft, contractTypeItems, catalog.select(draft.getContractType(), date), date);
+    }
+
+    /**
+     * Prices many drafts at once — e.g. every draft of a month at month-end. Drafts are grouped
+     * by (contract type, pricing date) and each group's rule set is resolved once on the caller
+     * thread; the groups are then priced on at most {@code invoice.pricing.batch.parallelism}
+     * lanes of the managed executor. Pricing itself is pure arithmetic over the draft and its
+     * (eagerly loaded) items, so each result equals what {@link #price(Invoice, Map)} returns
+     * for the same draft, apart from the random {@code calculationRef} of synthetic lines.
+     *
+     * @param contractTypeItemsByContract contract_type_items per contract uuid; missing contracts price with none
+     */
+    @Timed(value = "invoice.pricing.duration", description = "Pricing Engine timing") // Micrometer
+    public BatchResult priceAll(Collection<Invoice> drafts, Map<String, Map<String, String>> contractTypeItemsByContract) {
+        Map<RuleKey, List<Invoice>> groups = new LinkedHashMap<>();
+        for (Invoice draft : drafts) {
+            Objects.requireNonNull(draft, "invoice draft");
+            groups.computeIfAbsent(new RuleKey(draft.getContractType(), pricingDate(draft)), k -> new ArrayList<>()).add(draft);
+        }
+        Map<RuleKey, RuleSet> ruleSets = new HashMap<>();
+        groups.keySet().forEach(k -> ruleSets.put(k, catalog.select(k.contractTypeCode(), k.date())));
+
+        // Identity, not equals(): drafts are entities whose equality is field-based.
+        Map<Invoice, PriceResult> priced = Collections.synchronizedMap(new IdentityHashMap<>());
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        List<List<RuleKey>> lanes = lanes(groups, batchParallelism);
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (List<RuleKey> lane : lanes) {
+            Runnable work = () -> lane.forEach(key -> groups.get(key).forEach(draft -> {
+                try {
+                    validateDiscount(draft.getDiscount());
+                    Map<String, String> cti = contractTypeItemsByContract.getOrDefault(draft.getContractuuid(), Map.of());
+                    priced.put(draft, price(draft, cti, ruleSets.get(key), key.date()));
+                } catch (RuntimeException e) {
+                    failures.put(String.valueOf(draft.getUuid()), e.getMessage());
+                }
+            }));
+            if (lanes.size() == 1 || executor == null) {
+                work.run();
+            } else {
+                running.add(CompletableFuture.runAsync(work, executor));
+            }
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+
+        Map<String, PriceResult> results = new LinkedHashMap<>();
+        for (Invoice draft : drafts) {
+            PriceResult pr = priced.get(draft);
+            if (pr != null) results.put(draft.getUuid(), pr);
+        }
+        log.infof("Priced %d drafts in %d rule-set groups on %d lanes (%d failed)",
+                results.size(), groups.size(), lanes.size(), failures.size());
+        return new BatchResult(results, failures, groups.size());
+    }
+
+    /** Spreads groups over at most {@code parallelism} lanes, largest group first onto the lightest lane. */
+    static <K> List<List<K>> lanes(Map<K, ? extends Collection<?>> groups, int parallelism) {
+        int n = Math.max(1, Math.min(parallelism, groups.size()));
+        List<List<K>> lanes = new ArrayList<>();
+        int[] load = new int[n];
+        for (int i = 0; i < n; i++) lanes.add(new ArrayList<>());
+        groups.entrySet().stream()
+                .sorted(Comparator.comparingInt((Map.Entry<K, ? extends Collection<?>> e) -> e.getValue().size()).reversed())
+                .forEach(e -> {
+                    int lightest = 0;
+                    for (int i = 1; i < n; i++) if (load[i] < load[lightest]) lightest = i;
+                    lanes.get(lightest).add(e.getKey());
+                    load[lightest] += e.getValue().size();
+                });
+        return lanes;
+    }
 
-        var ruleSet = catalog.select(draft.getContractType(), date);
+    private static LocalDate pricingDate(Invoice draft) {
+        return draft.getInvoicedate() != null ? draft.getInvoicedate() : LocalDate.now();
+    }
 
+    private PriceResult price(Invoice draft, Map<String, String> contractTypeItems, RuleSet ruleSet, LocalDate date) {
         BigDecimal sumBefore = draft.getInvoiceitems().stream()
                 .filter(ii -> !ii.isEffectivelyCalculated())
                 .map(ii -> BigDecimal.valueOf(ii.getRate()).multiply(BigDecimal.valueOf(ii.getHours())))
@@ -3,12 +3,18 @@ package dk.trustworks.intranet.aggregates.invoice.pricing;
 
 
 import dk.trustworks.intranet.contracts.model.PricingRuleStepEntity;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.jbosslog.JBossLog;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Catalog of pricing rules for contract types.
@@ -21,8 +27,15 @@ import java.util.List;
  * {@link #select(String, LocalDate)}, which prices {@code invoice.discount}
  * and is visible in every breakdown.
  *
- * Rules are read from the database on every call — deliberately uncached
- * (reads are cheap; correctness over micro-performance, spec §9.7).
+ * Compiled rule sets are cached per (contract type, invoice date) and tagged
+ * with the {@link PricingRuleVersion} they were compiled under. Every lookup
+ * reads the current version first (one primary-key read) and only serves an
+ * entry compiled under that version, so a committed rule, contract type or
+ * override change is visible to the next lookup on every instance — the
+ * correctness of the former uncached reads (spec §9.7) without re-loading the
+ * rules for every invoice in a month-end run or every preview keystroke.
+ * A catalog constructed outside CDI (plain unit tests) has no version source
+ * and stays uncached.
  */
 @JBossLog
 @ApplicationScoped
@@ -39,6 +52,27 @@ public class PricingRuleCatalog {
      */
     public static final int GENERAL_FALLBACK_PRIORITY = 9000;
 
+    /** Entries kept before the cache is emptied; (type, date) pairs in use are far fewer. */
+    static final int MAX_CACHED_RULE_SETS = 2048;
+
+    record CacheKey(String contractTypeCode, LocalDate invoiceDate) {}
+
+    private record Compiled(long version, RuleSet ruleSet) {}
+
+    /** Version, size and hit counts of the compiled rule-set cache, for the debug endpoint. */
+    public record CacheStats(long version, int entries, long hits, long misses, double hitRate) {}
+
+    @Inject
+    PricingRuleVersion ruleVersion;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<CacheKey, Compiled> compiled = new ConcurrentHashMap<>();
+    private final AtomicLong lastVersion = new AtomicLong(-1);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
     /**
      * Select pricing rules for a contract type and date from the database.
      *
@@ -48,6 +82,49 @@ public class PricingRuleCatalog {
      *         (priority, then rule id — spec §9.8)
      */
     public RuleSet select(String contractTypeCode, LocalDate invoiceDate) {
+        if (ruleVersion == null) {
+            return compile(contractTypeCode, invoiceDate);
+        }
+        // Version before rules: a change committed in between makes this entry stale on the
+        // next lookup instead of being cached as current.
+        long version = ruleVersion.current();
+        if (lastVersion.getAndSet(version) != version) {
+            compiled.clear();
+        }
+        CacheKey key = new CacheKey(contractTypeCode, invoiceDate);
+        Compiled entry = compiled.get(key);
+        if (entry != null && entry.version() == version) {
+            record(hits, "hit");
+            return entry.ruleSet();
+        }
+        record(misses, "miss");
+        RuleSet rs = compile(contractTypeCode, invoiceDate);
+        if (compiled.size() >= MAX_CACHED_RULE_SETS) {
+            compiled.clear();
+        }
+        compiled.put(key, new Compiled(version, rs));
+        return rs;
+    }
+
+    public CacheStats cacheStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return new CacheStats(ruleVersion != null ? ruleVersion.current() : -1, compiled.size(), h, m,
+                h + m == 0 ? 0.0 : (double) h / (h + m));
+    }
+
+    private void record(LongAdder counter, String result) {
+        counter.increment();
+        if (registry != null) {
+            registry.counter("invoice.pricing.rule_cache.lookups", "result", result).increment();
+        }
+    }
+
+    /**
+     * Load and compile the rule set. The result is shared between callers once cached, so the
+     * engine must treat it (and its steps) as read-only.
+     */
+    private RuleSet compile(String contractTypeCode, LocalDate invoiceDate) {
         List<RuleStep> base = loadFromDatabaseByCode(contractTypeCode, invoiceDate);
         log.debug("Loaded " + base.size() + " rules from database for " + contractTypeCode);
 
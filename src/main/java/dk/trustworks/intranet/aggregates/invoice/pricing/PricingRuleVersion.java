@@ -0,0 +1,38 @@
+package dk.trustworks.intranet.aggregates.invoice.pricing;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+
+/**
+ * Cluster-wide change counter for everything {@link PricingRuleCatalog} compiles, kept in the
+ * single row of {@code pricing_rule_version} (V527).
+ *
+ * <p>Writers call {@link #bump(String)} inside their own transaction, so the new version
+ * commits (or rolls back) together with the rule change. Readers call {@link #current()} —
+ * one primary-key read — before loading rules, so a rule set compiled under an older
+ * version is never served once the change is visible.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class PricingRuleVersion {
+
+    @Inject
+    EntityManager em;
+
+    public long current() {
+        Object version = em.createNativeQuery("SELECT version FROM pricing_rule_version WHERE id = 1")
+                .getResultStream().findFirst().orElse(0L);
+        return ((Number) version).longValue();
+    }
+
+    /** Joins the caller's transaction; the writer must already be {@code @Transactional}. */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void bump(String reason) {
+        em.createNativeQuery("UPDATE pricing_rule_version SET version = version + 1, updated_at = CURRENT_TIMESTAMP(3) WHERE id = 1")
+                .executeUpdate();
+        log.debugf("pricing_rule_version bumped: %s", reason);
+    }
+}
@@ -16,11 +16,13 @@ import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceStatus;
 import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceType;
 import dk.trustworks.intranet.aggregates.invoice.resources.dto.*;
 import dk.trustworks.intranet.aggregates.invoice.services.EconomicsAgreementResolver;
+import dk.trustworks.intranet.aggregates.invoice.services.InvoiceAttributionQueue;
 import dk.trustworks.intranet.aggregates.invoice.services.InvoiceAttributionService;
 import dk.trustworks.intranet.aggregates.invoice.services.InternalInvoiceControllingService;
 import dk.trustworks.intranet.aggregates.invoice.services.InvoiceLedgerService;
 import dk.trustworks.intranet.security.ScopeContext;
 import dk.trustworks.intranet.aggregates.invoice.services.InvoiceNotesService;
+import dk.trustworks.intranet.aggregates.invoice.services.InvoiceNumberAllocator;
 import dk.trustworks.intranet.aggregates.invoice.services.InvoiceService;
 import dk.trustworks.intranet.security.ScopeEnforced;
 import dk.trustworks.intranet.dto.InvoiceReference;
@@ -112,6 +114,15 @@ public class InvoiceResource {
     @Inject
     dk.trustworks.intranet.security.RequestHeaderHolder requestHeaderHolder;
 
+    @Inject
+    dk.trustworks.intranet.aggregates.invoice.services.InvoicePricingBatchService pricingBatchService;
+
+    @Inject
+    InvoiceNumberAllocator invoiceNumberAllocator;
+
+    @Inject
+    InvoiceAttributionQueue attributionQueue;
+
     @GET
     public List<Invoice> list(@QueryParam("fromdate") String fromdate,
                               @QueryParam("todate")   String todate,
@@ -164,17 +175,19 @@ public class InvoiceResource {
     @GET
     @Path("/{invoiceuuid}/pdf")
     @Produces("application/pdf")
-    public Response downloadPdf(@PathParam("invoiceuuid") String invoiceuuid) {
-        byte[] pdfBytes = invoiceService.getInvoicePdfBytes(invoiceuuid);
-        if (pdfBytes == null || pdfBytes.length == 0) {
+    public Response downloadPdf(@PathParam("invoiceuuid") String invoiceuuid,
+                                @HeaderParam("Range") String range,
+                                @HeaderParam("If-None-Match") String ifNoneMatch) {
+        Invoice invoice = invoiceService.findOneByUuid(invoiceuuid);
+        Response.ResponseBuilder pdf = invoice == null ? null : invoiceService.streamInvoicePdf(invoice, range, ifNoneMatch);
+        if (pdf == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("No PDF available for invoice: " + invoiceuuid)
                     .type(MediaType.TEXT_PLAIN)
                     .build();
         }
-        Invoice invoice = invoiceService.findOneByUuid(invoiceuuid);
         String filename = buildPdfFilename(invoice.invoicenumber, invoiceuuid);
-        return Response.ok(pdfBytes, "application/pdf")
+        return pdf
                 .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
                 .build();
     }
@@ -340,6 +353,32 @@ public class InvoiceResource {
         }
     }
 
+    /**
+     * Runs the pricing engine over every draft of the month in one batch and returns the
+     * totals and breakdowns. Nothing is persisted.
+     */
+    @POST
+    @Path("/pricing/batch")
+    public Response priceDraftsForMonth(@QueryParam("month") String month) {
+        if (month == null || month.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("month is required").build();
+        }
+        return Response.ok(pricingBatchService.priceMonth(dateIt(month))).build();
+    }
+
+    /**
+     * Locally allocated invoice numbers of a company that were never used because the
+     * finalizing transaction rolled back.
+     */
+    @GET
+    @Path("/numbers/gaps")
+    public List<InvoiceNumberAllocator.Allocation> findInvoiceNumberGaps(@QueryParam("companyuuid") String companyuuid) {
+        if (companyuuid == null || companyuuid.isBlank()) {
+            throw new BadRequestException("companyuuid is required");
+        }
+        return invoiceNumberAllocator.findGaps(companyuuid);
+    }
+
     @PUT
     @Path("/{invoiceuuid}")
     @RolesAllowed({"invoices:write"})
@@ -1154,7 +1193,17 @@ public class InvoiceResource {
         LocalDate fromDate = LocalDate.parse(from);
         LocalDate toDate = LocalDate.parse(to);
         int count = invoiceAttributionService.backfillRange(fromDate, toDate);
-        return Map.of("processed", count);
+        // "processed" is the key existing callers read; the recompute itself runs on the queue
+        // (see /attributions/queue), so "enqueued" states what the count now means.
+        return Map.of("processed", count, "enqueued", count);
+    }
+
+    /** Backlog, failures and throughput of the attribution recompute queue. */
+    @GET
+    @Path("/attributions/queue")
+    @RolesAllowed({"invoices:read"})
+    public InvoiceAttributionQueue.Progress getAttributionQueueProgress() {
+        return attributionQueue.progress();
     }
 
     @GET
@@ -1433,14 +1482,17 @@ public class InvoiceResource {
      * <ul>
      *   <li>PENDING_REVIEW — fetch draft PDF from e-conomic via draft number.</li>
      *   <li>CREATED with an economics booked number — fetch booked PDF from e-conomic.</li>
-     *   <li>Legacy (no economics numbers) — stream bytes from S3 / DB as before.</li>
+     *   <li>Legacy (no economics numbers) — stream from S3 (honouring {@code Range} and
+     *       {@code If-None-Match}) or serve the DB bytes as before.</li>
      * </ul>
      */
     @GET
     @Path("/{invoiceuuid}/economics-pdf")
     @Produces("application/pdf")
     @RolesAllowed({"invoices:read"})
-    public Response economicsPdf(@PathParam("invoiceuuid") String uuid) {
+    public Response economicsPdf(@PathParam("invoiceuuid") String uuid,
+                                 @HeaderParam("Range") String range,
+                                 @HeaderParam("If-None-Match") String ifNoneMatch) {
         Invoice inv = invoiceService.findOneByUuid(uuid);
         if (inv == null) {
             return Response.status(Response.Status.NOT_FOUND)
@@ -1479,15 +1531,15 @@ public class InvoiceResource {
                 return Response.ok(pdf, "application/pdf").header("Content-Disposition", contentDisposition).build();
             }
 
-            // Legacy: retrieve from S3 / DB via existing service
-            byte[] pdfBytes = invoiceService.getInvoicePdfBytes(uuid);
-            if (pdfBytes == null || pdfBytes.length == 0) {
+            // Legacy: stream from S3 / DB via existing service
+            Response.ResponseBuilder pdf = invoiceService.streamInvoicePdf(inv, range, ifNoneMatch);
+            if (pdf == null) {
                 return Response.status(Response.Status.NOT_FOUND)
                         .entity("No PDF available for invoice: " + uuid)
                         .type(MediaType.TEXT_PLAIN)
                         .build();
             }
-            return Response.ok(pdfBytes, "application/pdf").header("Content-Disposition", contentDisposition).build();
+            return pdf.header("Content-Disposition", contentDisposition).build();
 
         } catch (WebApplicationException wae) {
             // Forward e-conomic's status (esp. 404 "not ready yet") rather
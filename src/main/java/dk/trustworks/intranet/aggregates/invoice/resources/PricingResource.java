@@ -3,6 +3,7 @@ package dk.trustworks.intranet.aggregates.invoice.resources;
 
 import dk.trustworks.intranet.aggregates.invoice.model.Invoice;
 import dk.trustworks.intranet.aggregates.invoice.pricing.PricingEngine;
+import dk.trustworks.intranet.aggregates.invoice.pricing.PricingRuleCatalog;
 
 import dk.trustworks.intranet.contracts.model.ContractTypeItem;
 import dk.trustworks.intranet.contracts.services.PricingPreviewService;
@@ -23,6 +24,14 @@ public class PricingResource {
 
     @Inject PricingEngine pricingEngine;
     @Inject PricingPreviewService pricingPreviewService;
+    @Inject PricingRuleCatalog pricingRuleCatalog;
+
+    /** Current rule version and hit rate of the compiled rule-set cache. */
+    @GET
+    @Path("/rule-cache")
+    public PricingRuleCatalog.CacheStats ruleCache() {
+        return pricingRuleCatalog.cacheStats();
+    }
 
     @GET
     @Path("/preview/{invoiceuuid}")
@@ -0,0 +1,30 @@
+package dk.trustworks.intranet.aggregates.invoice.resources.dto;
+
+import dk.trustworks.intranet.aggregates.invoice.pricing.CalculationBreakdownLine;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@code POST /invoices/pricing/batch}: the engine totals for every priceable draft of
+ * the month, and the drafts the engine rejected with the reason.
+ */
+public record PricingBatchResponse(
+        String month,
+        int drafts,
+        int ruleSets,
+        long durationMs,
+        List<PricedDraft> priced,
+        Map<String, String> failures
+) {
+    public record PricedDraft(
+            String invoiceuuid,
+            String contractType,
+            BigDecimal sumBeforeDiscounts,
+            BigDecimal sumAfterDiscounts,
+            BigDecimal vatAmount,
+            BigDecimal grandTotal,
+            List<CalculationBreakdownLine> breakdown
+    ) {}
+}
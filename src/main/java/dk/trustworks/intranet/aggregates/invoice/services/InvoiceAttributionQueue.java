@@ -0,0 +1,261 @@
+package dk.trustworks.intranet.aggregates.invoice.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable, coalescing queue of invoices whose attributions must be recomputed
+ * ({@code invoice_attribution_queue}, V529).
+ *
+ * <p>{@link #mark} and {@link #enqueueRange} upsert one row per invoice, so any number of marks
+ * before a worker gets to it cost one recompute. {@link #drain()} claims rows in batches with
+ * {@code FOR UPDATE SKIP LOCKED} (safe across instances) and recomputes distinct invoices on up to
+ * {@code invoice.attribution.queue.parallelism} workers, each in its own transaction through
+ * {@link InvoiceAttributionService#computeAttributions(String)}. A row marked again while it was
+ * being recomputed is released instead of deleted and runs once more; a failing row is retried on
+ * later drains, a minute more apart each time, until {@code max-attempts}, then left with its
+ * error for {@link #progress()}.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class InvoiceAttributionQueue {
+
+    public record Claim(String invoiceuuid, long generation) {}
+
+    public record Progress(long queued, long inFlight, long failed, long coalescedMarks,
+                           long recomputed, double meanRecomputeMs, int parallelism) {}
+
+    private static final String UPSERT = " ON DUPLICATE KEY UPDATE generation = generation + 1, marks = marks + 1, " +
+            "last_marked_at = CURRENT_TIMESTAMP(3), attempts = 0, not_before = NULL, last_error = NULL";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    InvoiceAttributionService attributionService;
+
+    @Inject
+    ManagedExecutor executor;
+
+    @Inject
+    MeterRegistry registry;
+
+    /** Invoices recomputed concurrently; 1 recomputes on the draining thread. */
+    @ConfigProperty(name = "invoice.attribution.queue.parallelism", defaultValue = "4")
+    int parallelism = 1;
+
+    @ConfigProperty(name = "invoice.attribution.queue.batch-size", defaultValue = "200")
+    int batchSize = 200;
+
+    @ConfigProperty(name = "invoice.attribution.queue.max-attempts", defaultValue = "5")
+    int maxAttempts = 5;
+
+    /** A claim older than this is assumed to belong to a crashed worker and is taken over. */
+    @ConfigProperty(name = "invoice.attribution.queue.lease", defaultValue = "PT10M")
+    Duration lease = Duration.ofMinutes(10);
+
+    private final String workerId = "intranet-" + UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void mark(String invoiceUuid) {
+        em.createNativeQuery("INSERT INTO invoice_attribution_queue (invoiceuuid) VALUES (:uuid)" + UPSERT)
+                .setParameter("uuid", invoiceUuid)
+                .executeUpdate();
+    }
+
+    /**
+     * Marks every invoice dated in {@code [from, to)} that has no attributions yet — the set
+     * the former one-by-one backfill walked.
+     *
+     * @return the number of invoices marked
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int enqueueRange(LocalDate from, LocalDate to) {
+        String unattributed = """
+                FROM invoices i
+                WHERE i.invoicedate >= :fromDate
+                  AND i.invoicedate < :toDate
+                  AND NOT EXISTS (
+                    SELECT 1 FROM invoice_item_attributions iia
+                    JOIN invoiceitems ii ON iia.invoiceitem_uuid = ii.uuid
+                    WHERE ii.invoiceuuid = i.uuid
+                  )
+                """;
+        int count = ((Number) em.createNativeQuery("SELECT COUNT(*) " + unattributed)
+                .setParameter("fromDate", from)
+                .setParameter("toDate", to)
+                .getSingleResult()).intValue();
+        em.createNativeQuery("INSERT INTO invoice_attribution_queue (invoiceuuid) SELECT i.uuid " + unattributed + UPSERT)
+                .setParameter("fromDate", from)
+                .setParameter("toDate", to)
+                .executeUpdate();
+        log.infof("enqueueRange: marked %d invoices for range %s to %s", count, from, to);
+        return count;
+    }
+
+    @Scheduled(every = "${invoice.attribution.queue.interval:5s}", identity = "invoice-attribution-queue",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledDrain() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warnf("invoice-attribution-queue drain failed: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes queued invoices until no claimable row is left. A drain already running on this
+     * instance absorbs the call.
+     *
+     * @return the number of invoices recomputed successfully
+     */
+    public int drain() {
+        if (!draining.compareAndSet(false, true)) return 0;
+        try {
+            int recomputed = 0;
+            List<Claim> batch;
+            while (!(batch = claim(batchSize)).isEmpty()) {
+                recomputed += process(batch);
+            }
+            return recomputed;
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private int process(List<Claim> batch) {
+        ConcurrentLinkedQueue<Claim> pending = new ConcurrentLinkedQueue<>(batch);
+        AtomicInteger recomputed = new AtomicInteger();
+        Timer timer = registry.timer("invoice.attribution.queue.recompute");
+        Runnable worker = () -> {
+            Claim claim;
+            while ((claim = pending.poll()) != null) {
+                Timer.Sample sample = Timer.start(registry);
+                try {
+                    attributionService.computeAttributions(claim.invoiceuuid());
+                    complete(claim);
+                    recomputed.incrementAndGet();
+                } catch (Exception e) {
+                    log.warnf(e, "Attribution recompute failed for invoice %s", claim.invoiceuuid());
+                    registry.counter("invoice.attribution.queue.failures").increment();
+                    fail(claim, e);
+                } finally {
+                    sample.stop(timer);
+                }
+            }
+        };
+
+        int workers = Math.min(Math.max(parallelism, 1), batch.size());
+        if (workers <= 1 || executor == null) {
+            worker.run();
+        } else {
+            List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                running.add(CompletableFuture.runAsync(worker, executor));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        }
+        return recomputed.get();
+    }
+
+    /** Claims up to {@code limit} rows for this instance, in its own transaction. */
+    @SuppressWarnings("unchecked")
+    protected List<Claim> claim(int limit) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            List<Object[]> rows = em.createNativeQuery("""
+                            SELECT invoiceuuid, generation FROM invoice_attribution_queue
+                            WHERE (claimed_at IS NULL OR claimed_at < :stale) AND attempts < :maxAttempts
+                              AND (not_before IS NULL OR not_before <= CURRENT_TIMESTAMP(3))
+                            ORDER BY enqueued_at
+                            LIMIT :limit
+                            FOR UPDATE SKIP LOCKED
+                            """)
+                    .setParameter("stale", staleBefore())
+                    .setParameter("maxAttempts", maxAttempts)
+                    .setParameter("limit", limit)
+                    .getResultList();
+            if (rows.isEmpty()) return List.of();
+            List<Claim> claims = rows.stream()
+                    .map(r -> new Claim((String) r[0], ((Number) r[1]).longValue()))
+                    .toList();
+            em.createNativeQuery("UPDATE invoice_attribution_queue SET claimed_at = CURRENT_TIMESTAMP(3), claimed_by = :worker " +
+                            "WHERE invoiceuuid IN (:uuids)")
+                    .setParameter("worker", workerId)
+                    .setParameter("uuids", claims.stream().map(Claim::invoiceuuid).toList())
+                    .executeUpdate();
+            return claims;
+        });
+    }
+
+    /** Removes the row unless the invoice was marked again meanwhile, in which case it is released. */
+    protected void complete(Claim claim) {
+        QuarkusTransaction.requiringNew().run(() -> {
+            int deleted = em.createNativeQuery("DELETE FROM invoice_attribution_queue WHERE invoiceuuid = :uuid AND generation = :generation")
+                    .setParameter("uuid", claim.invoiceuuid())
+                    .setParameter("generation", claim.generation())
+                    .executeUpdate();
+            if (deleted == 0) {
+                em.createNativeQuery("UPDATE invoice_attribution_queue SET claimed_at = NULL, claimed_by = NULL WHERE invoiceuuid = :uuid")
+                        .setParameter("uuid", claim.invoiceuuid())
+                        .executeUpdate();
+            }
+        });
+    }
+
+    protected void fail(Claim claim, Exception error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        QuarkusTransaction.requiringNew().run(() ->
+                em.createNativeQuery("UPDATE invoice_attribution_queue SET claimed_at = NULL, claimed_by = NULL, " +
+                                "attempts = attempts + 1, not_before = CURRENT_TIMESTAMP(3) + INTERVAL attempts MINUTE, " +
+                                "last_error = :error WHERE invoiceuuid = :uuid")
+                        .setParameter("error", message.length() > 5000 ? message.substring(0, 5000) : message)
+                        .setParameter("uuid", claim.invoiceuuid())
+                        .executeUpdate());
+    }
+
+    public Progress progress() {
+        Object[] row = (Object[]) em.createNativeQuery("""
+                        SELECT COUNT(*),
+                               COALESCE(SUM(claimed_at IS NOT NULL AND claimed_at >= :stale AND attempts < :maxAttempts), 0),
+                               COALESCE(SUM(attempts >= :maxAttempts), 0),
+                               COALESCE(SUM(marks - 1), 0)
+                        FROM invoice_attribution_queue
+                        """)
+                .setParameter("stale", staleBefore())
+                .setParameter("maxAttempts", maxAttempts)
+                .getSingleResult();
+        long total = ((Number) row[0]).longValue();
+        long inFlight = ((Number) row[1]).longValue();
+        long failed = ((Number) row[2]).longValue();
+        Timer timer = registry.timer("invoice.attribution.queue.recompute");
+        return new Progress(total - inFlight - failed, inFlight, failed, ((Number) row[3]).longValue(),
+                timer.count(), timer.mean(TimeUnit.MILLISECONDS), Math.max(parallelism, 1));
+    }
+
+    private Timestamp staleBefore() {
+        return Timestamp.valueOf(LocalDateTime.now().minus(lease));
+    }
+}
@@ -57,6 +57,9 @@ public class InvoiceAttributionService {
     @Inject
     PricingEngine pricingEngine;
 
+    @Inject
+    InvoiceAttributionQueue attributionQueue;
+
     @Inject
     com.fasterxml.jackson.databind.ObjectMapper objectMapper;
 
@@ -404,37 +407,14 @@ public class InvoiceAttributionService {
 
     // ── Batch backfill ────────────────────────────────────────────────
 
-    @Transactional
+    /**
+     * Queues every unattributed invoice dated in {@code [from, to)} for recompute; the
+     * {@link InvoiceAttributionQueue} workers process them in parallel, one transaction each.
+     *
+     * @return the number of invoices queued
+     */
     public int backfillRange(LocalDate from, LocalDate to) {
-        @SuppressWarnings("unchecked")
-        List<String> invoiceUuids = em.createNativeQuery("""
-                        SELECT i.uuid FROM invoices i
-                        WHERE i.invoicedate >= :fromDate
-                          AND i.invoicedate < :toDate
-                          AND NOT EXISTS (
-                            SELECT 1 FROM invoice_item_attributions iia
-                            JOIN invoiceitems ii ON iia.invoiceitem_uuid = ii.uuid
-                            WHERE ii.invoiceuuid = i.uuid
-                          )
-                        ORDER BY i.invoicedate
-                        """)
-                .setParameter("fromDate", from)
-                .setParameter("toDate", to)
-                .getResultList();
-
-        int count = 0;
-        for (String invoiceUuid : invoiceUuids) {
-            computeAttributions(invoiceUuid);
-            count++;
-            if (count % 100 == 0) {
-                em.flush();
-                em.clear();
-                log.infof("backfillRange: processed %d/%d invoices", count, invoiceUuids.size());
-            }
-        }
-
-        log.infof("backfillRange: completed %d invoices for range %s to %s", count, from, to);
-        return count;
+        return attributionQueue.enqueueRange(from, to);
     }
 
     // ── Find unattributed items ───────────────────────────────────────
@@ -2,6 +2,8 @@ package dk.trustworks.intranet.aggregates.invoice.services;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.trustworks.intranet.aggregates.invoice.economics.book.EconomicsBookedInvoice;
+import dk.trustworks.intranet.aggregates.invoice.economics.book.EconomicsBookingApiClient;
 import dk.trustworks.intranet.aggregates.invoice.model.Invoice;
 import dk.trustworks.intranet.aggregates.invoice.model.InvoiceEconomicsUpload;
 import dk.trustworks.intranet.aggregates.invoice.model.InvoiceEconomicsUpload.UploadStatus;
@@ -16,6 +18,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -55,6 +58,13 @@ public class InvoiceEconomicsUploadService {
     @Inject
     EntityManager em;
 
+    @Inject
+    EconomicsAgreementResolver agreements;
+
+    @Inject
+    @RestClient
+    EconomicsBookingApiClient bookApi;
+
     /**
      * Result of processing uploads for an invoice.
      */
@@ -115,9 +125,11 @@ public class InvoiceEconomicsUploadService {
 
     /**
      * Creates an upload task if it doesn't already exist.
+     *
+     * @return the new task, or the existing one for the same invoice, company and type
      */
-    private void createUploadTask(String invoiceuuid, String companyuuid,
-                                   UploadType uploadType, int journalNumber) {
+    private InvoiceEconomicsUpload createUploadTask(String invoiceuuid, String companyuuid,
+                                                    UploadType uploadType, int journalNumber) {
         // Check if upload task already exists
         InvoiceEconomicsUpload existing = InvoiceEconomicsUpload.find(
                 "invoiceuuid = ?1 AND companyuuid = ?2 AND uploadType = ?3",
@@ -127,7 +139,7 @@ public class InvoiceEconomicsUploadService {
         if (existing != null) {
             log.debugf("Upload task already exists for invoice %s, company %s, type %s",
                     invoiceuuid, companyuuid, uploadType);
-            return;
+            return existing;
         }
 
         InvoiceEconomicsUpload upload = new InvoiceEconomicsUpload(
@@ -136,6 +148,41 @@ public class InvoiceEconomicsUploadService {
         upload.persist();
 
         log.debugf("Created upload task: %s", upload.getUuid());
+        return upload;
+    }
+
+    /**
+     * Hands a failed DEBTOR-side voucher of a booked internal invoice to the retry job.
+     *
+     * <p>Q2C booking posts the debtor voucher inline and, when that post fails, only demotes the
+     * invoice to {@code PARTIALLY_UPLOADED}. This records the voucher as a FAILED DEBTOR upload so
+     * {@link #retryFailedUploads()} picks it up on its normal backoff schedule.
+     *
+     * @param invoiceuuid Invoice UUID
+     * @return true if a retry was queued; false when the invoice is not partially uploaded, has no
+     *         debtor company, or its debtor upload already succeeded
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean queueDebtorRetry(String invoiceuuid) {
+        Invoice invoice = Invoice.findById(invoiceuuid);
+        if (invoice == null
+                || invoice.getEconomicsStatus() != EconomicsInvoiceStatus.PARTIALLY_UPLOADED
+                || invoice.getDebtorCompanyuuid() == null || invoice.getDebtorCompanyuuid().isBlank()) {
+            return false;
+        }
+
+        InvoiceEconomicsUpload upload = createUploadTask(
+                invoiceuuid,
+                invoice.getDebtorCompanyuuid(),
+                UploadType.DEBTOR,
+                agreements.internalJournalNumber(invoice.getDebtorCompanyuuid())
+        );
+        if (upload.getStatus() != UploadStatus.PENDING) {
+            return false;
+        }
+        upload.markFailed("DEBTOR-side voucher failed while booking invoice " + invoice.getInvoicenumber());
+        upload.persist();
+        return true;
     }
 
     /**
@@ -213,6 +260,8 @@ public class InvoiceEconomicsUploadService {
                     upload.getJournalNumber(),
                     invoice.getPdf() != null ? invoice.getPdf().length : 0);
 
+            ensureBookedGross(invoice, upload);
+
             // Perform upload to e-conomics
             try (Response response = economicsInvoiceService.sendVoucherToCompany(
                     invoice, targetCompany, upload.getJournalNumber())) {
@@ -263,6 +312,26 @@ public class InvoiceEconomicsUploadService {
         }
     }
 
+    /**
+     * A DEBTOR voucher retried for a booked invoice runs on a freshly loaded entity, whose
+     * transient grandTotal is unset; {@code sendVoucherToCompany} refuses to post without it.
+     * Use the gross e-conomic booked, as {@code InternalInvoiceOrchestrator.adoptVendorBooking}
+     * does.
+     */
+    private void ensureBookedGross(Invoice invoice, InvoiceEconomicsUpload upload) {
+        if (upload.getUploadType() != UploadType.DEBTOR
+                || invoice.getGrandTotal() != null
+                || invoice.getEconomicsBookedNumber() == null) {
+            return;
+        }
+        EconomicsAgreementResolver.Tokens tokens = agreements.tokens(invoice.getCompany().getUuid());
+        EconomicsBookedInvoice booked = bookApi.getBooked(
+                tokens.appSecret(), tokens.agreementGrant(), invoice.getEconomicsBookedNumber());
+        if (booked != null) {
+            invoice.setGrandTotal(booked.getGrossAmount());
+        }
+    }
+
     /**
      * Extracts voucher number from e-conomics API response.
      */
@@ -289,8 +358,10 @@ public class InvoiceEconomicsUploadService {
         EconomicsInvoiceStatus newStatus;
 
         if (successCount == totalCount) {
-            // All uploads succeeded
-            newStatus = EconomicsInvoiceStatus.UPLOADED;
+            // All uploads succeeded; a Q2C-booked invoice stays BOOKED so the paid-status sync keeps tracking it
+            newStatus = invoice.getEconomicsBookedNumber() != null
+                    ? EconomicsInvoiceStatus.BOOKED
+                    : EconomicsInvoiceStatus.UPLOADED;
         } else if (successCount > 0) {
             // Partial success
             newStatus = EconomicsInvoiceStatus.PARTIALLY_UPLOADED;
@@ -0,0 +1,145 @@
+package dk.trustworks.intranet.aggregates.invoice.services;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hands out locally assigned invoice numbers per company from {@code invoice_number_sequence}
+ * (V528).
+ *
+ * <p>{@link #allocate} runs in its own short transaction: it locks the company's single sequence
+ * row, advances it, records the number as ALLOCATED and commits, so the lock is gone before the
+ * caller goes on to price and save the invoice. The caller then calls {@link #claim} in its own
+ * transaction; the number becomes USED only if that transaction commits. A number whose caller
+ * rolled back stays ALLOCATED and is marked RELEASED by {@link #releaseAbandoned()} — it is not
+ * handed out again, so the RELEASED rows are the record of every gap.</p>
+ *
+ * <p>Booked e-conomic numbers are written to {@code invoices.invoicenumber} as well, so an
+ * allocation never goes below the highest number already on an invoice of the company.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class InvoiceNumberAllocator {
+
+    public record Allocation(String companyuuid, int invoicenumber, String invoiceuuid, String status,
+                             LocalDateTime allocatedAt, LocalDateTime resolvedAt) {}
+
+    @Inject
+    EntityManager em;
+
+    /** How long an unclaimed number may wait for its transaction before it counts as a gap. */
+    @ConfigProperty(name = "invoice.number.release-after", defaultValue = "PT15M")
+    Duration releaseAfter;
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int allocate(String companyuuid, String invoiceuuid) {
+        // Not INSERT IGNORE: its duplicate check takes a shared lock on an existing row, and two
+        // allocators upgrading that to FOR UPDATE deadlock. The no-op upsert locks exclusively.
+        em.createNativeQuery("INSERT INTO invoice_number_sequence (companyuuid, next_number) VALUES (:company, 1) " +
+                        "ON DUPLICATE KEY UPDATE next_number = next_number")
+                .setParameter("company", companyuuid)
+                .executeUpdate();
+        Number next = (Number) em.createNativeQuery(
+                        "SELECT next_number FROM invoice_number_sequence WHERE companyuuid = :company FOR UPDATE")
+                .setParameter("company", companyuuid)
+                .getSingleResult();
+        // Plain read: no range lock on invoices, the sequence row lock already serializes allocators.
+        Number highest = (Number) em.createNativeQuery(
+                        "SELECT MAX(invoicenumber) FROM invoices WHERE companyuuid = :company")
+                .setParameter("company", companyuuid)
+                .getSingleResult();
+        int number = nextNumber(next.intValue(), highest);
+
+        em.createNativeQuery("UPDATE invoice_number_sequence SET next_number = :next, updated_at = CURRENT_TIMESTAMP(3) " +
+                        "WHERE companyuuid = :company")
+                .setParameter("next", number + 1)
+                .setParameter("company", companyuuid)
+                .executeUpdate();
+        em.createNativeQuery("INSERT INTO invoice_number_allocation (companyuuid, invoicenumber, invoiceuuid, status) " +
+                        "VALUES (:company, :number, :invoice, 'ALLOCATED')")
+                .setParameter("company", companyuuid)
+                .setParameter("number", number)
+                .setParameter("invoice", invoiceuuid)
+                .executeUpdate();
+        log.debugf("Allocated invoice number %d for company %s (invoice %s)", number, companyuuid, invoiceuuid);
+        return number;
+    }
+
+    /** Marks the number USED; joins the transaction that saves the invoice carrying it. */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void claim(String companyuuid, int invoicenumber) {
+        em.createNativeQuery("UPDATE invoice_number_allocation SET status = 'USED', resolved_at = CURRENT_TIMESTAMP(3) " +
+                        "WHERE companyuuid = :company AND invoicenumber = :number")
+                .setParameter("company", companyuuid)
+                .setParameter("number", invoicenumber)
+                .executeUpdate();
+    }
+
+    static int nextNumber(int sequenceNext, Number highestExisting) {
+        return Math.max(sequenceNext, highestExisting == null ? 1 : highestExisting.intValue() + 1);
+    }
+
+    @Scheduled(every = "${invoice.number.release-interval:15m}", identity = "invoice-number-release",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledRelease() {
+        try {
+            releaseAbandoned();
+        } catch (RuntimeException e) {
+            log.warnf("invoice-number-release failed: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves ALLOCATED numbers older than {@code invoice.number.release-after}: USED when an
+     * invoice of the company carries the number, otherwise RELEASED.
+     *
+     * @return the number of released (gap) numbers
+     */
+    @Transactional
+    public int releaseAbandoned() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(releaseAfter));
+        em.createNativeQuery("UPDATE invoice_number_allocation a SET a.status = 'USED', a.resolved_at = CURRENT_TIMESTAMP(3) " +
+                        "WHERE a.status = 'ALLOCATED' AND a.allocated_at < :cutoff AND EXISTS (" +
+                        "SELECT 1 FROM invoices i WHERE i.companyuuid = a.companyuuid AND i.invoicenumber = a.invoicenumber)")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate();
+        int released = em.createNativeQuery("UPDATE invoice_number_allocation SET status = 'RELEASED', resolved_at = CURRENT_TIMESTAMP(3) " +
+                        "WHERE status = 'ALLOCATED' AND allocated_at < :cutoff")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate();
+        if (released > 0) {
+            log.warnf("Released %d unused invoice numbers (finalizing transaction rolled back)", released);
+        }
+        return released;
+    }
+
+    /** RELEASED numbers of a company, newest first. */
+    @SuppressWarnings("unchecked")
+    public List<Allocation> findGaps(String companyuuid) {
+        List<Object[]> rows = em.createNativeQuery("SELECT companyuuid, invoicenumber, invoiceuuid, status, allocated_at, resolved_at " +
+                        "FROM invoice_number_allocation WHERE companyuuid = :company AND status = 'RELEASED' " +
+                        "ORDER BY invoicenumber DESC")
+                .setParameter("company", companyuuid)
+                .getResultList();
+        return rows.stream()
+                .map(r -> new Allocation((String) r[0], ((Number) r[1]).intValue(), (String) r[2], (String) r[3],
+                        toLocalDateTime(r[4]), toLocalDateTime(r[5])))
+                .toList();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDateTime ldt) return ldt;
+        return ((Timestamp) value).toLocalDateTime();
+    }
+}
@@ -1,5 +1,7 @@
 package dk.trustworks.intranet.aggregates.invoice.services;
 
+import dk.trustworks.intranet.fileservice.services.S3Download;
+import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
@@ -74,4 +76,19 @@ public class InvoicePdfS3Service {
             throw e;
         }
     }
+
+    /**
+     * Streams the PDF at {@code storageKey} for the REST layer, honouring {@code Range} and
+     * {@code If-None-Match}; see {@link S3Download}. Use {@link #getPdfByKey} when the bytes
+     * themselves are needed.
+     */
+    public Response.ResponseBuilder streamPdfByKey(String storageKey, String range, String ifNoneMatch) {
+        log.debugf("Streaming invoice PDF from S3 by key: %s", storageKey);
+        try {
+            return S3Download.get(s3, bucketName, storageKey, range, ifNoneMatch).type("application/pdf");
+        } catch (S3Exception e) {
+            log.errorf("Failed to stream invoice PDF from S3 by key: %s - %s", storageKey, e.awsErrorDetails().errorMessage());
+            throw e;
+        }
+    }
 }
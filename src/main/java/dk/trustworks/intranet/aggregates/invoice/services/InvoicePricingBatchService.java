@@ -0,0 +1,74 @@
+package dk.trustworks.intranet.aggregates.invoice.services;
+
+import dk.trustworks.intranet.aggregates.invoice.model.Invoice;
+import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceStatus;
+import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceType;
+import dk.trustworks.intranet.aggregates.invoice.pricing.PriceResult;
+import dk.trustworks.intranet.aggregates.invoice.pricing.PricingEngine;
+import dk.trustworks.intranet.aggregates.invoice.resources.dto.PricingBatchResponse;
+import dk.trustworks.intranet.contracts.model.ContractTypeItem;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Prices every engine-priced draft of a month in one {@link PricingEngine#priceAll} call,
+ * for month-end review. Read-only: nothing is persisted, as with {@code POST /pricing/preview}.
+ *
+ * <p>Drafts are those the preview endpoint runs the engine for — status DRAFT or
+ * PENDING_REVIEW, excluding credit notes (stored values) and INTERNAL invoices (plain sums).
+ * Contract type items for all drafts are loaded in one query.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class InvoicePricingBatchService {
+
+    static final List<InvoiceStatus> PRICED_STATUSES = List.of(InvoiceStatus.DRAFT, InvoiceStatus.PENDING_REVIEW);
+    static final List<InvoiceType> UNPRICED_TYPES = List.of(InvoiceType.CREDIT_NOTE, InvoiceType.INTERNAL);
+
+    @Inject
+    PricingEngine pricingEngine;
+
+    @Transactional
+    public PricingBatchResponse priceMonth(LocalDate month) {
+        LocalDate first = month.withDayOfMonth(1);
+        long start = System.nanoTime();
+        List<Invoice> drafts = loadDrafts(first);
+        Map<String, Map<String, String>> cti = loadContractTypeItems(
+                drafts.stream().map(Invoice::getContractuuid).filter(Objects::nonNull).distinct().toList());
+
+        PricingEngine.BatchResult batch = pricingEngine.priceAll(drafts, cti);
+
+        List<PricingBatchResponse.PricedDraft> priced = new ArrayList<>();
+        for (Invoice draft : drafts) {
+            PriceResult pr = batch.results().get(draft.getUuid());
+            if (pr == null) continue;
+            priced.add(new PricingBatchResponse.PricedDraft(draft.getUuid(), draft.getContractType(),
+                    pr.sumBeforeDiscounts, pr.sumAfterDiscounts, pr.vatAmount, pr.grandTotal, pr.breakdown));
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        log.infof("Batch pricing %s: %d drafts, %d rule sets, %d failed, %d ms",
+                first, drafts.size(), batch.ruleSets(), batch.failures().size(), durationMs);
+        return new PricingBatchResponse(first.toString(), drafts.size(), batch.ruleSets(), durationMs,
+                priced, new TreeMap<>(batch.failures()));
+    }
+
+    /** Hook for tests: the month's engine-priced drafts (items are eagerly fetched). */
+    protected List<Invoice> loadDrafts(LocalDate month) {
+        return Invoice.<Invoice>list("year = ?1 and month = ?2 and status in ?3 and type not in ?4",
+                month.getYear(), month.getMonthValue(), PRICED_STATUSES, UNPRICED_TYPES);
+    }
+
+    /** Hook for tests: {contractuuid → {key → value}} from {@code contract_type_items}. */
+    protected Map<String, Map<String, String>> loadContractTypeItems(Collection<String> contractuuids) {
+        Map<String, Map<String, String>> result = new HashMap<>();
+        if (contractuuids.isEmpty()) return result;
+        ContractTypeItem.<ContractTypeItem>list("contractuuid in ?1", contractuuids)
+                .forEach(ct -> result.computeIfAbsent(ct.getContractuuid(), k -> new HashMap<>()).put(ct.getKey(), ct.getValue()));
+        return result;
+    }
+}
@@ -116,6 +116,9 @@ public class InvoiceService {
     @Inject
     InvoicePdfS3Service invoicePdfS3Service;
 
+    @Inject
+    InvoiceNumberAllocator invoiceNumberAllocator;
+
     @Inject
     InvoiceFinalizationOrchestrator orchestrator;
 
@@ -1969,18 +1972,32 @@ public class InvoiceService {
     }
 
     /**
-     * Returns the next available invoice number for the given company.
-     * Must be called from within the caller's @Transactional context so the
-     * FOR UPDATE lock is held until the invoice row is persisted, preventing
-     * concurrent calls from reading the same MAX value.
+     * REST counterpart of {@link #getInvoicePdfBytes}: S3-stored PDFs are streamed with
+     * {@code Range} / {@code If-None-Match} support instead of being copied onto the heap.
+     * Unmigrated invoices are served from the DB column as before.
+     *
+     * @return the response to complete, or null when the invoice has no PDF
      */
-    public Integer getMaxInvoiceNumber(Invoice invoice) {
-        Object result = em.createNativeQuery(
-                        "SELECT MAX(invoicenumber) FROM invoices WHERE companyuuid = :companyuuid FOR UPDATE")
-                .setParameter("companyuuid", invoice.getCompany().getUuid())
-                .getSingleResult();
-        int max = result != null ? ((Number) result).intValue() : 0;
-        return max + 1;
+    public Response.ResponseBuilder streamInvoicePdf(Invoice invoice, String range, String ifNoneMatch) {
+        if (invoice.getPdfStorageKey() != null) {
+            return invoicePdfS3Service.streamPdfByKey(invoice.getPdfStorageKey(), range, ifNoneMatch);
+        }
+        byte[] pdf = invoice.getPdf();
+        if (pdf == null || pdf.length == 0) return null;
+        return Response.ok(pdf, "application/pdf");
+    }
+
+    /**
+     * Allocates the next invoice number for the invoice's company and claims it in the caller's
+     * transaction. The allocation commits on its own (see {@link InvoiceNumberAllocator}), so no
+     * lock is held while the caller goes on to price and save the invoice; if the caller rolls
+     * back, the number is later recorded as a released gap.
+     */
+    public Integer allocateInvoiceNumber(Invoice invoice) {
+        String companyuuid = invoice.getCompany().getUuid();
+        int number = invoiceNumberAllocator.allocate(companyuuid, invoice.getUuid());
+        invoiceNumberAllocator.claim(companyuuid, number);
+        return number;
     }
 
     @Transactional
@@ -2803,7 +2820,7 @@ public class InvoiceService {
         }
 
         // Assign invoice number
-        queuedInvoice.invoicenumber = getMaxInvoiceNumber(queuedInvoice);
+        queuedInvoice.invoicenumber = allocateInvoiceNumber(queuedInvoice);
 
         // Apply pricing engine for INTERNAL invoices (but not bonus calculation)
         if (queuedInvoice.getType() == InvoiceType.INTERNAL) {
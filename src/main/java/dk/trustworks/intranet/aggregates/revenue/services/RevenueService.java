@@ -7,6 +7,7 @@ import dk.trustworks.intranet.aggregateservices.FinanceService;
 import dk.trustworks.intranet.dao.crm.model.Client;
 import dk.trustworks.intranet.dao.crm.services.ClientService;
 import dk.trustworks.intranet.dao.workservice.model.WorkFull;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import dk.trustworks.intranet.dao.workservice.services.WorkService;
 import dk.trustworks.intranet.dto.DateValueDTO;
 import dk.trustworks.intranet.dto.FinanceDocument;
@@ -58,6 +59,9 @@ public class RevenueService {
     @Inject
     WorkService workService;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     @Inject
     ClientService clientService;
 
@@ -83,7 +87,7 @@ public class RevenueService {
 
     public List<DateValueDTO> getRegisteredRevenueByPeriod(String companyuuid, LocalDate fromdate, LocalDate todate) {
         String sql =
-            "select w.registered as date, sum(ifnull(w.rate, 0) * w.workduration * if(w.discount > 0, 1.0 - (w.discount / 100.0), 1)) AS value from work_full w " +
+            "select w.registered as date, sum(ifnull(w.rate, 0) * w.workduration * if(w.discount > 0, 1.0 - (w.discount / 100.0), 1)) AS value from " + workFullSource.table() + " w " +
             "where w.rate > 0 and w.consultant_company_uuid = '"+companyuuid+"' and registered >= '" + stringIt(fromdate) + "' and registered < '" + stringIt(todate) + "'" +
             "group by w.consultant_company_uuid, year(w.registered), month(w.registered); ";
         log.info("getRegisteredRevenueByPeriod sql: "+sql);
@@ -97,7 +101,7 @@ public class RevenueService {
 
     public List<KeyValueDTO> getRegisteredRevenuePerClient(String companyuuid, List<String> clientuuids) {
         List<Object[]> resultList = em.createNativeQuery(
-                "select w.clientuuid clientuuid, sum(w.rate * w.workduration * if(w.discount > 0, 1.0 - (w.discount / 100.0), 1)) as amount from work_full w " +
+                "select w.clientuuid clientuuid, sum(w.rate * w.workduration * if(w.discount > 0, 1.0 - (w.discount / 100.0), 1)) as amount from " + workFullSource.table() + " w " +
                 "where w.consultant_company_uuid = '"+companyuuid+"' registered >= '2021-07-01' and registered < '2022-07-01' and clientuuid in ('" + String.join("','", clientuuids) + "') group by w.clientuuid").getResultList();
         List<KeyValueDTO> result = new ArrayList<>();
         for (Object[] objects : resultList) {
@@ -127,7 +131,7 @@ public class RevenueService {
     }
 
     public List<GraphKeyValue> getRegisteredHoursPerConsultantForSingleMonth(String companyuuid, LocalDate month) {
-        List<WorkFull> workFullList = WorkFull.find("registered >= ?1 AND registered < ?2 and rate > 0.0 and consultant_company_uuid = ?3", month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1), companyuuid).list();
+        List<WorkFull> workFullList = workFullSource.list("registered >= ?1 AND registered < ?2 and rate > 0.0 and consultant_company_uuid = ?3", month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1), companyuuid);
         return workFullList.stream().map(work -> new GraphKeyValue(work.getUseruuid(), stringIt(month), work.getWorkduration())).collect(Collectors.toList());
     }
 
@@ -137,13 +141,13 @@ public class RevenueService {
 
     @CacheResult(cacheName = "employee-revenue")
     public double getRegisteredHoursForSingleMonthAndSingleConsultant(String useruuid, LocalDate month) {
-        List<WorkFull> workFullList = WorkFull.find("useruuid like ?1 AND registered >= ?2 AND registered < ?3 AND rate > 0.0", useruuid, month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1)).list();
+        List<WorkFull> workFullList = workFullSource.list("useruuid like ?1 AND registered >= ?2 AND registered < ?3 AND rate > 0.0", useruuid, month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1));
         return workFullList.stream().mapToDouble(WorkFull::getWorkduration).sum();
     }
 
     @CacheResult(cacheName = "employee-revenue")
     public double getRegisteredRevenueForSingleMonthAndSingleConsultant(String useruuid, LocalDate month) {
-        List<WorkFull> workFullList = WorkFull.find("useruuid like ?1 AND registered >= ?2 AND registered < ?3 AND rate > 0.0", useruuid, month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1)).list();
+        List<WorkFull> workFullList = workFullSource.list("useruuid like ?1 AND registered >= ?2 AND registered < ?3 AND rate > 0.0", useruuid, month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1));
         return workFullList.stream().mapToDouble(value -> value.getWorkduration()*value.getRate()).sum();
     }
 
@@ -185,7 +189,7 @@ public class RevenueService {
     @CacheResult(cacheName = "employee-revenue")
     public List<DateValueDTO> getRegisteredRevenueByPeriodAndSingleConsultant(String useruuid, String periodFrom, String periodTo) {
         // Parameter binding only — never concatenate user-supplied values into SQL.
-        String sql = "select w.registered as date, sum(ifnull(w.rate, 0) * w.workduration * if(w.discount > 0, w.discount / 100.0, 1)) AS value from work_full w " +
+        String sql = "select w.registered as date, sum(ifnull(w.rate, 0) * w.workduration * if(w.discount > 0, w.discount / 100.0, 1)) AS value from " + workFullSource.table() + " w " +
                 "where w.rate > 0 and w.useruuid = :useruuid and registered >= :periodFrom and registered < :periodTo " +
                 "group by year(w.registered), month(w.registered)";
         return ((List<Tuple>) em.createNativeQuery(sql, Tuple.class)
@@ -288,7 +292,7 @@ public class RevenueService {
     }
 
     public double getRegisteredHoursForSingleMonth(LocalDate month) {
-        try (Stream<WorkFull> workStream = WorkFull.stream("registered >= ?1 AND registered < ?2 and rate > 0.0", month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1))) {
+        try (Stream<WorkFull> workStream = workFullSource.stream("registered >= ?1 AND registered < ?2 and rate > 0.0", null, month.withDayOfMonth(1), month.withDayOfMonth(1).plusMonths(1))) {
             return workStream.mapToDouble(WorkFull::getWorkduration).sum();
         }
     }
@@ -313,15 +313,8 @@ public class UserResource {
     @Path("/{useruuid}/projects")
     public Set<Project> getProjectsByUser(@PathParam("useruuid") String useruuid,
                                           @QueryParam("date") String date) {
-        // NOTE: Current approach is N+1 (one call per contract). Prefer a bulk service method.
-        // Suggested ContractService API (implement there):
-        //   Set<Project> findProjectsByContracts(Collection<String> contractUuids);
         List<Contract> contracts = contractService.findTimeActiveConsultantContracts(useruuid, dateIt(date));
-        Set<Project> projects = new HashSet<>();
-        for (Contract c : contracts) {
-            projects.addAll(contractService.findProjectsByContract(c.getUuid())); // keep as-is if bulk API not yet available
-        }
-        return projects;
+        return new HashSet<>(contractService.findProjectsByContracts(contracts.stream().map(Contract::getUuid).toList()));
     }
 
     @GET
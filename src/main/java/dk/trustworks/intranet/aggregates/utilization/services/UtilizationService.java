@@ -2,6 +2,8 @@ package dk.trustworks.intranet.aggregates.utilization.services;
 
 import dk.trustworks.intranet.aggregates.availability.model.EmployeeAvailabilityPerMonth;
 import dk.trustworks.intranet.aggregates.availability.services.AvailabilityService;
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactVersionKeyGenerator;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import dk.trustworks.intranet.dto.BudgetFulfillmentDTO;
 import dk.trustworks.intranet.dto.DateValueDTO;
 import dk.trustworks.intranet.dto.KeyDateValueListDTO;
@@ -29,10 +31,13 @@ public class UtilizationService {
     @Inject
     EntityManager em;
 
+    @Inject
+    WorkFullSource workFullSource;
+
     @Inject
     AvailabilityService availabilityService;
 
-    @CacheResult(cacheName = "utilization")
+    @CacheResult(cacheName = "utilization", keyGenerator = BiFactVersionKeyGenerator.class)
     public @NotNull List<DateValueDTO> calculateActualUtilizationPerMonthByConsultant(String useruuid, LocalDate fromDate, LocalDate toDate, List<DateValueDTO> workService) {
         List<EmployeeAvailabilityPerMonth> availabilityPerMonths = availabilityService.getEmployeeDataPerMonth(useruuid, fromDate, toDate);
 
@@ -150,7 +155,7 @@ public class UtilizationService {
                         AND consultant_type = 'CONSULTANT'
                 ) DISTINCT_BDD
                     ON DISTINCT_BDD.useruuid = tr.useruuid
-                LEFT JOIN work_full wf
+                """ + "LEFT JOIN " + workFullSource.table() + " wf\n" + """
                     ON wf.useruuid = tr.useruuid
                     AND wf.registered = DISTINCT_BDD.document_date
                 WHERE tr.teamuuid = :teamId
@@ -373,7 +378,7 @@ public class UtilizationService {
      * Returns monthly aggregated data including net available hours, budget hours,
      * registered billable hours, and calculated utilization metrics.
      */
-    @CacheResult(cacheName = "budget-fulfillment")
+    @CacheResult(cacheName = "budget-fulfillment", keyGenerator = BiFactVersionKeyGenerator.class)
     public @NotNull List<BudgetFulfillmentDTO> calculateBudgetFulfillmentByConsultant(String useruuid, LocalDate fromDate, LocalDate toDate) {
         String sql = "SELECT " +
                 "    bdd.year, " +
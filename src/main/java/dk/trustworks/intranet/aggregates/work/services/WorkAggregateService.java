@@ -1,6 +1,7 @@
 package dk.trustworks.intranet.aggregates.work.services;
 
 import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository;
+import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository.DayRow;
 import dk.trustworks.intranet.aggregates.users.services.UserService;
 import dk.trustworks.intranet.dao.workservice.services.WorkService;
 import dk.trustworks.intranet.dto.DateValueDTO;
@@ -31,11 +32,12 @@ public class WorkAggregateService {
 
         DateValueDTO workByDay = workService.findWorkHoursByUserAndDay(useruuid, testDay);
         double workHours = workByDay != null ? workByDay.getValue() : 0;
-        biDataPerDayRepository.insertOrUpdateWork(useruuid, testDay, testDay.getYear(), testDay.getMonthValue(), testDay.getDayOfMonth(), workHours);
 
         DateValueDTO workRevenueByUserAndPeriod = workService.findWorkRevenueByUserAndDay(useruuid, testDay);
         double revenue = workRevenueByUserAndPeriod != null ? workRevenueByUserAndPeriod.getValue() : 0;
-        biDataPerDayRepository.insertOrUpdateRevenue(useruuid, testDay, testDay.getYear(), testDay.getMonthValue(), testDay.getDayOfMonth(), revenue);
+
+        // Hours and revenue land in the same fact_user_day row: one merged upsert instead of two.
+        biDataPerDayRepository.upsertDays(List.of(DayRow.work(useruuid, testDay, workHours, revenue)));
 
         log.infof("Work recalculated for BI data: userUuid=%s, date=%s, hours=%.2f, revenue=%.2f",
                 useruuid, testDay, workHours, revenue);
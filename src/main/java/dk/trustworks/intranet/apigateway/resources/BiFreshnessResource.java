@@ -0,0 +1,37 @@
+package dk.trustworks.intranet.apigateway.resources;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFreshnessTelemetry;
+import dk.trustworks.intranet.aggregates.bidata.services.BiFreshnessTelemetry.Snapshot;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
+
+/**
+ * BI freshness: pending {@code fact_change_log} backlog, oldest pending age, per-pipeline
+ * {@code bi_refresh_watermark} state and last success, the last Java drain run and the
+ * {@code refresh_state} transitions of the last 24 hours. Same numbers as the {@code bi.*}
+ * Micrometer meters and the EMF snapshot; reading them moves none of those meters.
+ */
+@Tag(name = "batch-tracking")
+@Path("/batch/bi-freshness")
+@RequestScoped
+@Produces(APPLICATION_JSON)
+@SecurityRequirement(name = "jwt")
+@RolesAllowed({"system:read"})
+public class BiFreshnessResource {
+
+    @Inject
+    BiFreshnessTelemetry telemetry;
+
+    @GET
+    public Snapshot freshness() {
+        return telemetry.snapshot();
+    }
+}
@@ -13,6 +13,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
 import org.apache.tika.Tika;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
 import java.util.List;
 
@@ -177,4 +178,23 @@ public class FileResource {
     public File findAllS3Files(@PathParam("uuid") String uuid) {
         return s3FileService.findOne(uuid);
     }
+
+    /**
+     * Raw object content, streamed from S3 with {@code Range} and {@code If-None-Match} support.
+     * {@code /s3/{uuid}} keeps returning the {@link File} with its bytes inlined.
+     */
+    @GET
+    @Path("/s3/{uuid}/content")
+    @Produces(MediaType.WILDCARD)
+    public Response streamS3File(@PathParam("uuid") String uuid,
+                                 @HeaderParam("Range") String range,
+                                 @HeaderParam("If-None-Match") String ifNoneMatch) {
+        try {
+            return s3FileService.stream(uuid, range, ifNoneMatch)
+                    .header("Content-Disposition", "attachment")
+                    .build();
+        } catch (NoSuchKeyException e) {
+            throw new NotFoundException("No file " + uuid);
+        }
+    }
 }
\ No newline at end of file
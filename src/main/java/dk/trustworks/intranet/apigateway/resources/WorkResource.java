@@ -1,5 +1,6 @@
 package dk.trustworks.intranet.apigateway.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dk.trustworks.intranet.aggregates.sender.AggregateEventSender;
 import dk.trustworks.intranet.aggregates.work.events.UpdateWorkEvent;
 import dk.trustworks.intranet.dao.workservice.model.Work;
@@ -14,11 +15,15 @@ import dk.trustworks.intranet.dto.work.WorkSummary;
 import dk.trustworks.intranet.security.RequestHeaderHolder;
 import dk.trustworks.intranet.security.ScopeEnforced;
 import dk.trustworks.intranet.security.ScopeGuard;
+import dk.trustworks.intranet.security.ScopeResolution;
 import dk.trustworks.intranet.utils.DateUtils;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SecuritySchemeType;
@@ -32,9 +37,16 @@ import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement
 import org.eclipse.microprofile.openapi.annotations.security.SecurityScheme;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static dk.trustworks.intranet.utils.DateUtils.dateIt;
@@ -63,6 +75,9 @@ public class WorkResource {
     static final String READ_SCOPE = "timeregistration:read";
     static final String WRITE_SCOPE = "timeregistration:write";
 
+    /** Newline-delimited JSON: one row per line, written as the database cursor advances. */
+    static final String NDJSON = "application/x-ndjson";
+
     @Inject
     WorkService workAPI;
 
@@ -78,6 +93,9 @@ public class WorkResource {
     @Inject
     ScopeGuard scope;
 
+    @Inject
+    ObjectMapper objectMapper;
+
     @GET
     @Path("/work")
     @ScopeEnforced
@@ -110,8 +128,18 @@ public class WorkResource {
     @GET
     @Path("/work/search/findByPeriod")
     @ScopeEnforced
-    public List<WorkFull> findByPeriod(@QueryParam("fromdate") String fromdate, @QueryParam("todate") String todate) {
-        return workAPI.findByPeriod(dateIt(fromdate), dateIt(todate));
+    @Produces({APPLICATION_JSON, NDJSON})
+    public Response findByPeriod(@QueryParam("fromdate") String fromdate, @QueryParam("todate") String todate,
+                                 @QueryParam("stream") boolean stream, @HeaderParam(HttpHeaders.ACCEPT) String accept) {
+        LocalDate from = dateIt(fromdate);
+        LocalDate to = dateIt(todate);
+        if (!isStreaming(stream, accept)) {
+            return Response.ok(workAPI.findByPeriod(from, to)).build();
+        }
+        Predicate<String> readable = readableSubjects();
+        return ndjson("findByPeriod", out -> workAPI.forEachByPeriod(from, to, false, row -> {
+            if (readable.test(row.getUseruuid())) out.write(row);
+        }));
     }
 
     @GET
@@ -158,6 +186,46 @@ public class WorkResource {
         log.infof("Work save completed: workUuid=%s, userUuid=%s, taskUuid=%s, registered=%s",
                 work.getUuid(), work.getUseruuid(), work.getTaskuuid(), work.getRegistered());
     }
+
+    /**
+     * Saves many cells (typically a consultant's week) in one request and one transaction. Each
+     * row follows the same rules as {@link #save(Work)}; a locked month or a rule violation
+     * rejects the whole batch before anything is written. Update events go out for the rows that
+     * were written, not for paid-out skips or the earlier copies of a repeated cell.
+     */
+    @POST
+    @Path("/work/batch")
+    @RolesAllowed({"timeregistration:write"})
+    public WorkService.BatchResult saveBatch(List<Work> works) {
+        if (works == null || works.isEmpty()) {
+            return WorkService.BatchResult.empty();
+        }
+        Set<String> checkedMonths = new HashSet<>();
+        for (Work work : works) {
+            if (work.getRegistered() == null) {
+                throw new BadRequestException("Every work entry must have a registered date");
+            }
+            scope.requireSubjectWhenActor(WRITE_SCOPE, work.getUseruuid(), "Work entries outside your reach");
+            LocalDate month = work.getRegistered().withDayOfMonth(1);
+            if (checkedMonths.add(work.getUseruuid() + "|" + month)
+                    && monthSubmissionService.isMonthLocked(work.getUseruuid(), month.getYear(), month.getMonthValue())) {
+                throw new WebApplicationException(
+                        work.getRegistered().getMonth() + " " + work.getRegistered().getYear() +
+                        " is submitted. Request an unlock to make changes.",
+                        jakarta.ws.rs.core.Response.Status.CONFLICT);
+            }
+        }
+        log.infof("Work batch save requested: rows=%d, requestedBy=%s", works.size(), requestHeaderHolder.getUserUuid());
+
+        WorkService.BatchResult result = workAPI.persistOrUpdateAll(works);
+
+        for (Work work : result.written()) {
+            sender.handleEvent(new UpdateWorkEvent(work.getUseruuid(), work));
+            if (work.getWorkas() != null && !work.getWorkas().isEmpty())
+                sender.handleEvent(new UpdateWorkEvent(work.getWorkas(), work));
+        }
+        return result;
+    }
 /*
     @GET
     @Path("/tasks/{uuid}/work")
@@ -241,27 +309,29 @@ public class WorkResource {
     @GET
     @Path("/work/search/findByPeriodLightweight")
     @ScopeEnforced
+    @Produces({APPLICATION_JSON, NDJSON})
     @Operation(
             summary = "Get lightweight work data by period",
             description = "Retrieves only essential work fields for optimal performance. " +
                     "Returns simplified work records without full entity relationships. " +
-                    "Use this for reports, exports, or when full work details are not needed."
+                    "Use this for reports, exports, or when full work details are not needed. " +
+                    "With ?stream=true or Accept: application/x-ndjson, rows are streamed one per line."
     )
     @APIResponses({
             @APIResponse(
                     responseCode = "200",
                     description = "Successfully retrieved lightweight work data",
-                    content = @Content(
-                            mediaType = APPLICATION_JSON,
-                            schema = @Schema(implementation = LightweightWork[].class)
-                    )
+                    content = {
+                            @Content(mediaType = APPLICATION_JSON, schema = @Schema(implementation = LightweightWork[].class)),
+                            @Content(mediaType = NDJSON, schema = @Schema(implementation = LightweightWork.class))
+                    }
             ),
             @APIResponse(
                     responseCode = "400",
                     description = "Invalid date format"
             )
     })
-    public List<LightweightWork> findByPeriodLightweight(
+    public Response findByPeriodLightweight(
             @Parameter(
                     description = "Start date (inclusive) in format YYYY-MM-DD",
                     required = true,
@@ -274,17 +344,29 @@ public class WorkResource {
                     required = true,
                     example = "2024-02-01"
             )
-            @QueryParam("todate") String todate) {
+            @QueryParam("todate") String todate,
+
+            @Parameter(description = "Stream the rows as NDJSON (same as Accept: application/x-ndjson)")
+            @QueryParam("stream") boolean stream,
+
+            @HeaderParam(HttpHeaders.ACCEPT) String accept) {
 
-        log.debugf("findByPeriodLightweight: fromdate=%s, todate=%s", fromdate, todate);
+        log.debugf("findByPeriodLightweight: fromdate=%s, todate=%s, stream=%b", fromdate, todate, stream);
 
         LocalDate from = dateIt(fromdate);
         LocalDate to = dateIt(todate);
 
+        if (isStreaming(stream, accept)) {
+            Predicate<String> readable = readableSubjects();
+            return ndjson("findByPeriodLightweight", out -> workAPI.forEachLightweightByPeriod(from, to, row -> {
+                if (readable.test(row.getUseruuid())) out.write(row);
+            }));
+        }
+
         List<Map<String, Object>> rawData = workAPI.findByPeriodLightweight(from, to);
 
         // Convert raw data to DTOs
-        return rawData.stream()
+        return Response.ok(rawData.stream()
                 .map(row -> LightweightWork.builder()
                         .uuid((String) row.get("uuid"))
                         .useruuid((String) row.get("useruuid"))
@@ -295,7 +377,7 @@ public class WorkResource {
                         .rate((Double) row.get("rate"))
                         .projectuuid((String) row.get("projectuuid"))
                         .build())
-                .collect(Collectors.toList());
+                .collect(Collectors.toList())).build();
     }
 
     @GET
@@ -343,27 +425,29 @@ public class WorkResource {
     @GET
     @Path("/work/search/findByPeriodGroupedByUser")
     @ScopeEnforced
+    @Produces({APPLICATION_JSON, NDJSON})
     @Operation(
             summary = "Get work data grouped by user",
             description = "Retrieves work entries grouped by user for the specified period. " +
                     "Optimized for user-centric reports and analytics. " +
-                    "Each user's work is fetched in batches to minimize memory usage."
+                    "Each user's work is fetched in batches to minimize memory usage. " +
+                    "With ?stream=true or Accept: application/x-ndjson, one line per user is streamed instead."
     )
     @APIResponses({
             @APIResponse(
                     responseCode = "200",
                     description = "Successfully retrieved work data grouped by user",
-                    content = @Content(
-                            mediaType = APPLICATION_JSON,
-                            schema = @Schema(implementation = WorkByUserResponse.class)
-                    )
+                    content = {
+                            @Content(mediaType = APPLICATION_JSON, schema = @Schema(implementation = WorkByUserResponse.class)),
+                            @Content(mediaType = NDJSON, schema = @Schema(implementation = WorkByUserResponse.UserEntries.class))
+                    }
             ),
             @APIResponse(
                     responseCode = "400",
                     description = "Invalid date format"
             )
     })
-    public WorkByUserResponse findByPeriodGroupedByUser(
+    public Response findByPeriodGroupedByUser(
             @Parameter(
                     description = "Start date (inclusive) in format YYYY-MM-DD",
                     required = true,
@@ -376,16 +460,40 @@ public class WorkResource {
                     required = true,
                     example = "2024-02-01"
             )
-            @QueryParam("todate") String todate) {
+            @QueryParam("todate") String todate,
+
+            @Parameter(description = "Stream one NDJSON line per user (same as Accept: application/x-ndjson)")
+            @QueryParam("stream") boolean stream,
+
+            @HeaderParam(HttpHeaders.ACCEPT) String accept) {
 
-        log.debugf("findByPeriodGroupedByUser: fromdate=%s, todate=%s", fromdate, todate);
+        log.debugf("findByPeriodGroupedByUser: fromdate=%s, todate=%s, stream=%b", fromdate, todate, stream);
 
         LocalDate from = dateIt(fromdate);
         LocalDate to = dateIt(todate);
 
+        if (isStreaming(stream, accept)) {
+            Predicate<String> readable = readableSubjects();
+            return ndjson("findByPeriodGroupedByUser", out -> {
+                // Rows arrive ordered by user; only the current user's entries are held.
+                List<WorkFull> current = new ArrayList<>();
+                workAPI.forEachByPeriod(from, to, true, row -> {
+                    if (!readable.test(row.getUseruuid())) return;
+                    if (!current.isEmpty() && !current.get(0).getUseruuid().equals(row.getUseruuid())) {
+                        out.write(new WorkByUserResponse.UserEntries(current.get(0).getUseruuid(), List.copyOf(current)));
+                        current.clear();
+                    }
+                    current.add(row);
+                });
+                if (!current.isEmpty()) {
+                    out.write(new WorkByUserResponse.UserEntries(current.get(0).getUseruuid(), List.copyOf(current)));
+                }
+            });
+        }
+
         Map<String, List<WorkFull>> workByUser = workAPI.findByPeriodGroupedByUser(from, to);
 
-        return WorkByUserResponse.of(workByUser, from, to);
+        return Response.ok(WorkByUserResponse.of(workByUser, from, to)).build();
     }
 
     @GET
@@ -445,4 +553,53 @@ public class WorkResource {
                 .build();
     }
 
+    static boolean isStreaming(boolean stream, String accept) {
+        return stream || (accept != null && accept.contains(NDJSON));
+    }
+
+    /**
+     * Per-row read filter for the streamed exports. {@code @ScopeEnforced} already refuses a
+     * bounded actor at the door; this keeps a row outside the actor's reach out of the stream
+     * should that ever be narrowed. Machine callers and unbounded actors see every row.
+     */
+    Predicate<String> readableSubjects() {
+        ScopeResolution reach = scope.reachOrNull(READ_SCOPE);
+        if (reach == null || reach.unbounded()) return subject -> true;
+        Set<String> subjects = reach.subjects();
+        return subjects::contains;
+    }
+
+    private static final int NDJSON_FLUSH_EVERY = 500;
+
+    /** Writes one JSON value per line, flushing every {@value #NDJSON_FLUSH_EVERY} lines. */
+    interface NdjsonSink {
+        void write(Object value);
+    }
+
+    /**
+     * NDJSON response whose body is produced while the entity is written. The status is already
+     * sent by then, so a failure mid-stream is logged and the stream is cut short.
+     */
+    private Response ndjson(String endpoint, Consumer<NdjsonSink> producer) {
+        StreamingOutput output = os -> {
+            long[] lines = {0};
+            try {
+                producer.accept(value -> {
+                    try {
+                        os.write(objectMapper.writeValueAsBytes(value));
+                        os.write('\n');
+                        if (++lines[0] % NDJSON_FLUSH_EVERY == 0) os.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                os.flush();
+                log.debugf("%s streamed %d NDJSON lines", endpoint, lines[0]);
+            } catch (RuntimeException e) {
+                log.errorf(e, "%s NDJSON stream aborted after %d lines", endpoint, lines[0]);
+                throw e;
+            }
+        };
+        return Response.ok(output, NDJSON).build();
+    }
 }
@@ -0,0 +1,26 @@
+package dk.trustworks.intranet.batch;
+
+import dk.trustworks.intranet.batch.model.PartitionStats;
+import jakarta.batch.api.partition.PartitionCollector;
+import jakarta.batch.runtime.context.StepContext;
+import jakarta.enterprise.context.Dependent;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import java.io.Serializable;
+
+/**
+ * Forwards the writer's {@link PartitionStats} to the partition analyzer after every chunk and
+ * at partition end.
+ */
+@Named("budgetAggregationPartitionCollector")
+@Dependent
+public class BudgetAggregationPartitionCollector implements PartitionCollector {
+
+    @Inject StepContext stepContext;
+
+    @Override
+    public Serializable collectPartitionData() {
+        return stepContext.getTransientUserData() instanceof PartitionStats stats ? stats : null;
+    }
+}
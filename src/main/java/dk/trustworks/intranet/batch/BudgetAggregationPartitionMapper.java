@@ -1,6 +1,7 @@
 package dk.trustworks.intranet.batch;
 
 import dk.trustworks.intranet.aggregates.users.services.UserService;
+import dk.trustworks.intranet.bi.services.BiReferenceDataSnapshot;
 import dk.trustworks.intranet.domain.user.entity.User;
 import dk.trustworks.intranet.userservice.model.enums.ConsultantType;
 import jakarta.batch.api.partition.PartitionMapper;
@@ -28,17 +29,29 @@ public class BudgetAggregationPartitionMapper implements PartitionMapper {
     @Inject
     UserService userService;
 
+    @Inject
+    BiReferenceDataSnapshot referenceData;
+
+    @Inject
+    BudgetAggregationWorkQueue workQueue;
+
     @Override
     public PartitionPlan mapPartitions() throws Exception {
         Properties jobParams = jobContext.getProperties();
         String startMonthStr = jobParams.getProperty("startMonth");
+        String endMonthStr = jobParams.getProperty("endMonth");
         String partitionsStr = jobParams.getProperty("partitions", "4");
         String delayMs = jobParams.getProperty("delayMs", "0");
 
+        // One reference-data build per run; every partition thread reads this snapshot.
+        referenceData.refresh();
+
         LocalDate startMonth = (startMonthStr == null || startMonthStr.isBlank())
                 ? LocalDate.now().minusMonths(2).withDayOfMonth(1)
                 : LocalDate.parse(startMonthStr).withDayOfMonth(1);
-        LocalDate endMonth = LocalDate.now().plusMonths(2).withDayOfMonth(1);
+        LocalDate endMonth = (endMonthStr == null || endMonthStr.isBlank())
+                ? LocalDate.now().plusMonths(2).withDayOfMonth(1)
+                : LocalDate.parse(endMonthStr).withDayOfMonth(1);
 
         // Narrow user filtering: active working consultants as of startMonth
         List<User> workingUsers = userService.findWorkingUsersByDate(startMonth, ConsultantType.CONSULTANT, ConsultantType.STUDENT);
@@ -46,21 +59,19 @@ public class BudgetAggregationPartitionMapper implements PartitionMapper {
         for (User u : workingUsers) userIds.add(u.getUuid());
 
         int totalUsers = userIds.size();
-        int partitions = Math.max(1, Math.min(Integer.parseInt(partitionsStr), Math.max(1, totalUsers)));
+        int queued = workQueue.seed(jobContext.getInstanceId(), userIds, startMonth, endMonth);
+        int partitions = Math.max(1, Math.min(Integer.parseInt(partitionsStr), Math.max(1, queued)));
 
-        // Prepare partition properties
+        // Partitions no longer own a slice of users: every reader pulls (user, month) units from the
+        // shared queue until it is drained, so the partition count only sets the parallelism.
         Properties[] props = new Properties[partitions];
-        int chunk = (int) Math.ceil(totalUsers / (double) partitions);
         for (int i = 0; i < partitions; i++) {
-            int from = i * chunk;
-            int to = Math.min(from + chunk, totalUsers);
-            List<String> slice = from < to ? userIds.subList(from, to) : List.of();
             Properties p = new Properties();
-            p.setProperty("users", String.join(",", slice));
             p.setProperty("startMonth", startMonth.toString());
             p.setProperty("endMonth", endMonth.toString());
             p.setProperty("delayMs", delayMs);
             p.setProperty("partitionId", String.valueOf(i));
+            p.setProperty("partitions", String.valueOf(partitions));
             props[i] = p;
         }
 
@@ -68,8 +79,10 @@ public class BudgetAggregationPartitionMapper implements PartitionMapper {
         plan.setPartitions(partitions);
         plan.setThreads(partitions);
         plan.setPartitionProperties(props);
-        log.infof("BudgetAggregation partitions mapped: totalUsers=%d partitions=%d chunk=%d startMonth=%s endMonth=%s",
-                totalUsers, partitions, chunk, startMonth, endMonth);
+        // On restart every partition starts fresh: progress lives in the work-unit table, not in partition checkpoints.
+        plan.setPartitionsOverride(true);
+        log.infof("BudgetAggregation partitions mapped: totalUsers=%d queuedUnits=%d partitions=%d startMonth=%s endMonth=%s",
+                totalUsers, queued, partitions, startMonth, endMonth);
         return plan;
     }
 }
\ No newline at end of file
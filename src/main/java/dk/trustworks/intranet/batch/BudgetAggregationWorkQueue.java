@@ -0,0 +1,132 @@
+package dk.trustworks.intranet.batch;
+
+import dk.trustworks.intranet.batch.model.UserMonth;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Shared work queue of (user, month) units for the budget-aggregation job.
+ *
+ * <p>The mapper {@link #seed seeds} the durable {@code budget_aggregation_work_unit} rows of a job
+ * instance and loads every unit that is not DONE into an in-memory queue. All partition readers
+ * {@link #poll} from that queue, so a thread that finishes a light user simply takes the next
+ * unit instead of idling while another partition works through a fixed slice of heavy users.
+ * The writer records completion with {@link #markDone} inside the unit's chunk transaction, which
+ * is what lets a restarted instance skip the units that were already written.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class BudgetAggregationWorkQueue {
+
+    static final String PENDING = "PENDING";
+    static final String DONE = "DONE";
+    static final String FAILED = "FAILED";
+
+    private static final int INSERT_CHUNK_SIZE = 500;
+    private static final int RETENTION_DAYS = 30;
+
+    @Inject
+    EntityManager em;
+
+    private final Map<Long, Queue<UserMonth>> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the unit rows of a new job instance (no-op for rows that already exist) and queues
+     * every unit that is not DONE. Called once per execution, including restarts.
+     *
+     * @return the number of queued units
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int seed(long jobInstanceId, List<String> users, LocalDate startMonth, LocalDate endMonth) {
+        em.createNativeQuery("DELETE FROM budget_aggregation_work_unit " +
+                        "WHERE job_instance_id <> :instance AND created_at < NOW() - INTERVAL " + RETENTION_DAYS + " DAY")
+                .setParameter("instance", jobInstanceId)
+                .executeUpdate();
+
+        List<UserMonth> units = new ArrayList<>();
+        for (String user : users) {
+            for (LocalDate month = startMonth.withDayOfMonth(1); month.isBefore(endMonth); month = month.plusMonths(1)) {
+                units.add(new UserMonth(user, month));
+            }
+        }
+        for (int from = 0; from < units.size(); from += INSERT_CHUNK_SIZE) {
+            List<UserMonth> chunk = units.subList(from, Math.min(from + INSERT_CHUNK_SIZE, units.size()));
+            StringBuilder sql = new StringBuilder("INSERT IGNORE INTO budget_aggregation_work_unit (job_instance_id, useruuid, month) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) sql.append(", ");
+                sql.append("(:instance, :user").append(i).append(", :month").append(i).append(")");
+            }
+            Query query = em.createNativeQuery(sql.toString());
+            query.setParameter("instance", jobInstanceId);
+            for (int i = 0; i < chunk.size(); i++) {
+                query.setParameter("user" + i, chunk.get(i).getUseruuid());
+                query.setParameter("month" + i, chunk.get(i).getMonth());
+            }
+            query.executeUpdate();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> open = em.createNativeQuery("SELECT useruuid, month FROM budget_aggregation_work_unit " +
+                        "WHERE job_instance_id = :instance AND status <> :done ORDER BY month, useruuid")
+                .setParameter("instance", jobInstanceId)
+                .setParameter("done", DONE)
+                .getResultList();
+        Queue<UserMonth> queue = new ConcurrentLinkedQueue<>();
+        for (Object[] row : open) {
+            LocalDate month = row[1] instanceof Date d ? d.toLocalDate() : LocalDate.parse(row[1].toString());
+            queue.add(new UserMonth((String) row[0], month));
+        }
+        queues.put(jobInstanceId, queue);
+        log.infof("Budget-aggregation work queue seeded: instance=%d units=%d queued=%d alreadyDone=%d",
+                jobInstanceId, units.size(), queue.size(), units.size() - queue.size());
+        return queue.size();
+    }
+
+    /** Next unit for any partition of the instance, or null when the queue is drained. */
+    public UserMonth poll(long jobInstanceId) {
+        Queue<UserMonth> queue = queues.get(jobInstanceId);
+        if (queue == null) return null;
+        UserMonth unit = queue.poll();
+        if (unit == null) queues.remove(jobInstanceId, queue);
+        return unit;
+    }
+
+    /** Marks a unit DONE; joins the chunk transaction so completion commits with the unit's writes. */
+    @Transactional
+    public void markDone(long jobInstanceId, UserMonth unit, String partitionId, long durationMs) {
+        updateStatus(jobInstanceId, unit, DONE, partitionId, durationMs);
+    }
+
+    /** Marks a unit FAILED in its own transaction; the chunk transaction may already be rollback-only. */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void markFailed(long jobInstanceId, UserMonth unit, String partitionId, long durationMs) {
+        updateStatus(jobInstanceId, unit, FAILED, partitionId, durationMs);
+    }
+
+    private void updateStatus(long jobInstanceId, UserMonth unit, String status, String partitionId, long durationMs) {
+        em.createNativeQuery("UPDATE budget_aggregation_work_unit " +
+                        "SET status = :status, partition_id = :partition, attempts = attempts + 1, " +
+                        "    duration_ms = :duration, completed_at = NOW() " +
+                        "WHERE job_instance_id = :instance AND useruuid = :user AND month = :month")
+                .setParameter("status", status)
+                .setParameter("partition", partitionId)
+                .setParameter("duration", durationMs)
+                .setParameter("instance", jobInstanceId)
+                .setParameter("user", unit.getUseruuid())
+                .setParameter("month", unit.getMonth())
+                .executeUpdate();
+    }
+}
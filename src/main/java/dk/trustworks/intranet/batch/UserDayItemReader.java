@@ -1,85 +1,66 @@
 package dk.trustworks.intranet.batch;
 
-import dk.trustworks.intranet.batch.model.UserDay;
-import dk.trustworks.intranet.utils.DateUtils;
+import dk.trustworks.intranet.batch.model.UserMonth;
 import jakarta.batch.api.BatchProperty;
 import jakarta.batch.api.chunk.ItemReader;
-import jakarta.batch.runtime.context.StepContext;
+import jakarta.batch.runtime.context.JobContext;
 import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import lombok.extern.jbosslog.JBossLog;
 
 import java.io.Serializable;
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
+/**
+ * Pulls (user, month) units from the job instance's shared {@link BudgetAggregationWorkQueue}
+ * until it is drained. Every partition reads from the same queue, so the partitions finish
+ * together regardless of how the heavy users are distributed.
+ *
+ * <p>The checkpoint is only the number of units this partition has read; restart progress is
+ * kept per unit in {@code budget_aggregation_work_unit}, so a restarted partition simply pulls
+ * from the re-seeded queue.</p>
+ */
 @JBossLog
 @Named("userDayItemReader")
 @Dependent
 public class UserDayItemReader implements ItemReader {
 
     @Inject
-    StepContext stepContext;
+    JobContext jobContext;
 
-    @Inject @BatchProperty(name = "users")
-    String usersCsv;
-
-    @Inject @BatchProperty(name = "startMonth")
-    String startStr; // ISO yyyy-MM-01
-
-    @Inject @BatchProperty(name = "endMonth")
-    String endStr;   // ISO yyyy-MM-01
+    @Inject
+    BudgetAggregationWorkQueue workQueue;
 
     @Inject @BatchProperty(name = "partitionId")
     String partitionId;
 
+    /**
+     * {@value #MODE_USER_MONTH} lets the writer recompute each unit with the set-based
+     * {@code UserMonthRecomputeEngine}; anything else (default) runs the per-(user, day) services
+     * for every weekday of the unit.
+     */
+    static final String MODE_USER_MONTH = "user-month";
 
-    private List<UserDay> items;
-    private int index;
+    private int read;
 
     @Override
     public void open(Serializable checkpoint) {
-        index = (checkpoint instanceof Integer) ? (Integer) checkpoint : 0;
-
-        LocalDate start = (startStr == null || startStr.isBlank())
-                ? LocalDate.now().minusMonths(2).withDayOfMonth(1)
-                : LocalDate.parse(startStr);
-        LocalDate end = (endStr == null || endStr.isBlank())
-                ? LocalDate.now().plusMonths(2).withDayOfMonth(1)
-                : LocalDate.parse(endStr);
-
-        List<String> users = (usersCsv == null || usersCsv.isBlank())
-                ? List.of()
-                : Arrays.asList(usersCsv.split(","));
-
-        items = new ArrayList<>();
-        for (String u : users) {
-            LocalDate day = start;
-            while (day.isBefore(end)) {
-                if (!DateUtils.isWeekend(day)) {
-                    items.add(new UserDay(u, day));
-                }
-                day = day.plusDays(1);
-            }
-        }
+        read = 0;
         String pid = (partitionId == null || partitionId.isBlank()) ? "?" : partitionId;
-        log.infof("UserDayItemReader initialized: partition=%s items=%d users=%d window=%s..%s",
-                pid, items.size(), users.size(), start, end);
+        log.infof("UserDayItemReader opened: partition=%s instance=%d previousCheckpoint=%s",
+                pid, jobContext.getInstanceId(), checkpoint);
     }
 
-
     @Override
     public Object readItem() {
-        if (items == null || index >= items.size()) return null;
-        return items.get(index++);
+        UserMonth unit = workQueue.poll(jobContext.getInstanceId());
+        if (unit != null) read++;
+        return unit;
     }
 
     @Override
-    public Serializable checkpointInfo() { return index; }
+    public Serializable checkpointInfo() { return read; }
 
     @Override
     public void close() {}
-}
\ No newline at end of file
+}
@@ -1,14 +1,18 @@
 package dk.trustworks.intranet.batch;
 
-import dk.trustworks.intranet.batch.model.UserDay;
+import dk.trustworks.intranet.batch.model.PartitionStats;
+import dk.trustworks.intranet.batch.model.UserMonth;
 import dk.trustworks.intranet.bi.services.BudgetCalculatingExecutor;
 import dk.trustworks.intranet.bi.services.UserAvailabilityCalculatorService;
+import dk.trustworks.intranet.bi.services.UserMonthRecomputeEngine;
 import dk.trustworks.intranet.bi.services.UserSalaryCalculatorService;
 import dk.trustworks.intranet.bi.services.WorkAggregateService;
+import dk.trustworks.intranet.utils.DateUtils;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import jakarta.batch.api.BatchProperty;
 import jakarta.batch.api.chunk.ItemWriter;
+import jakarta.batch.runtime.context.JobContext;
 import jakarta.batch.runtime.context.StepContext;
 import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
@@ -16,9 +20,10 @@ import jakarta.inject.Named;
 import lombok.extern.jbosslog.JBossLog;
 
 import java.io.Serializable;
-import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Properties;
+
+import static dk.trustworks.intranet.batch.UserDayItemReader.MODE_USER_MONTH;
 
 @JBossLog
 @Named("userDayOrchestrationWriter")
@@ -29,8 +34,11 @@ public class UserDayOrchestrationWriter implements ItemWriter {
     @Inject WorkAggregateService workAggregateService;
     @Inject BudgetCalculatingExecutor budgetCalculatingExecutor;
     @Inject UserSalaryCalculatorService userSalaryCalculatorService;
+    @Inject UserMonthRecomputeEngine userMonthRecomputeEngine;
     @Inject MeterRegistry registry;
-    @Inject StepContext stepContext; // optional
+    @Inject BudgetAggregationWorkQueue workQueue;
+    @Inject JobContext jobContext;
+    @Inject StepContext stepContext;
 
     @Inject @BatchProperty(name = "delayMs")
     String delayMsStr;
@@ -38,6 +46,14 @@ public class UserDayOrchestrationWriter implements ItemWriter {
     @Inject @BatchProperty(name = "partitionId")
     String partitionId;
 
+    @Inject @BatchProperty(name = "recomputeMode")
+    String recomputeMode;
+
+    @Inject @BatchProperty(name = "partitions")
+    String partitionsStr;
+
+    private long units;
+    private long failedUnits;
     private long processed;
     private long errors;
     private long startNs;
@@ -45,52 +61,132 @@ public class UserDayOrchestrationWriter implements ItemWriter {
 
     @Override
     public void open(Serializable checkpoint) {
-        processed = 0; errors = 0; startNs = System.nanoTime();
+        units = 0; failedUnits = 0; processed = 0; errors = 0; startNs = System.nanoTime();
         try { delayMs = (delayMsStr == null || delayMsStr.isBlank()) ? 0L : Long.parseLong(delayMsStr); }
         catch (Exception e) { delayMs = 0L; }
         String pid = (partitionId == null || partitionId.isBlank()) ? "?" : partitionId;
         log.infof("UserDayOrchestrationWriter opened: partition=%s delayMs=%d", pid, delayMs);
+        publishStats();
     }
 
     @Override
     public void writeItems(List<Object> items) {
+        for (Object o : items) {
+            if (!(o instanceof UserMonth unit)) continue;
+            long unitStart = System.nanoTime();
+            boolean ok = MODE_USER_MONTH.equalsIgnoreCase(recomputeMode == null ? "" : recomputeMode.trim())
+                    ? writeUserMonth(unit)
+                    : writeUserDays(unit);
+            long unitMs = (System.nanoTime() - unitStart) / 1_000_000;
+            if (ok) {
+                units++;
+                workQueue.markDone(jobContext.getInstanceId(), unit, partitionId, unitMs);
+            } else {
+                failedUnits++;
+                workQueue.markFailed(jobContext.getInstanceId(), unit, partitionId, unitMs);
+            }
+            publishStats();
+        }
+    }
+
+    /**
+     * Default mode: availability for all weekdays of the unit's month in one batched call, then the
+     * remaining per-(user, day) services for every weekday.
+     *
+     * @return false if any day failed, so the unit is retried on restart
+     */
+    private boolean writeUserDays(UserMonth unit) {
         Timer timer = registry.timer("batch.budget_agg.user_day.seconds");
         var success = registry.counter("batch.budget_agg.user_day", "result", "success");
         var error = registry.counter("batch.budget_agg.user_day", "result", "error");
 
-        for (Object o : items) {
-            if (!(o instanceof UserDay ud)) continue;
+        List<LocalDate> weekdays = unit.getMonth().datesUntil(unit.getMonth().plusMonths(1))
+                .filter(d -> !DateUtils.isWeekend(d)).toList();
+        try {
+            availabilityService.updateUserAvailabilityForDays(unit.getUseruuid(), weekdays);
+        } catch (Exception ex) {
+            errors++; error.increment();
+            log.errorf(ex, "UserDayOrchestrationWriter availability failed user=%s month=%s", unit.getUseruuid(), unit.getMonth());
+            return false;
+        }
+
+        boolean ok = true;
+        for (LocalDate day : weekdays) {
             Timer.Sample sample = Timer.start(registry);
             try {
-                availabilityService.updateUserAvailabilityByDay(ud.getUseruuid(), ud.getDay());
-                workAggregateService.recalculateWork(ud.getUseruuid(), ud.getDay());
-                budgetCalculatingExecutor.recalculateUserDailyBudgets(ud.getUseruuid(), ud.getDay());
-                userSalaryCalculatorService.recalculateSalary(ud.getUseruuid(), ud.getDay());
+                workAggregateService.recalculateWork(unit.getUseruuid(), day);
+                budgetCalculatingExecutor.recalculateUserDailyBudgets(unit.getUseruuid(), day);
+                userSalaryCalculatorService.recalculateSalary(unit.getUseruuid(), day);
                 processed++; success.increment();
             } catch (Exception ex) {
+                ok = false;
                 errors++; error.increment();
-                log.errorf(ex, "UserDayOrchestrationWriter failed user=%s day=%s", ud.getUseruuid(), ud.getDay());
+                log.errorf(ex, "UserDayOrchestrationWriter failed user=%s day=%s", unit.getUseruuid(), day);
             } finally {
                 sample.stop(timer);
             }
             if (delayMs > 0) {
                 try { Thread.sleep(delayMs); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
             }
-            if ((processed + errors) % 100 == 0) {
-                long durMs = (System.nanoTime() - startNs) / 1_000_000;
-                String pid = (partitionId == null || partitionId.isBlank()) ? "?" : partitionId;
-                log.infof("Partition %s progress: processed=%d errors=%d elapsedMs=%d", pid, processed, errors, durMs);
-            }
+            logProgress();
+        }
+        return ok;
+    }
+
+    /**
+     * Set-based mode: one transaction and a handful of statements for the whole user-month,
+     * instead of four transactions per weekday.
+     */
+    private boolean writeUserMonth(UserMonth um) {
+        Timer timer = registry.timer("batch.budget_agg.user_month.seconds");
+        Timer.Sample sample = Timer.start(registry);
+        boolean ok;
+        try {
+            userMonthRecomputeEngine.recompute(um.getUseruuid(), um.getMonth(), um.getMonth().plusMonths(1));
+            processed++;
+            ok = true;
+            registry.counter("batch.budget_agg.user_month", "result", "success").increment();
+        } catch (Exception ex) {
+            errors++;
+            ok = false;
+            registry.counter("batch.budget_agg.user_month", "result", "error").increment();
+            log.errorf(ex, "UserDayOrchestrationWriter failed user=%s month=%s", um.getUseruuid(), um.getMonth());
+        } finally {
+            sample.stop(timer);
+        }
+        if (delayMs > 0) {
+            try { Thread.sleep(delayMs); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+        }
+        logProgress();
+        return ok;
+    }
+
+    /** Hands the running totals to {@link BudgetAggregationPartitionCollector} via the partition's step context. */
+    private void publishStats() {
+        String pid = (partitionId == null || partitionId.isBlank()) ? "?" : partitionId;
+        int partitions;
+        try { partitions = (partitionsStr == null || partitionsStr.isBlank()) ? 0 : Integer.parseInt(partitionsStr); }
+        catch (NumberFormatException e) { partitions = 0; }
+        stepContext.setTransientUserData(new PartitionStats(pid, partitions, units, failedUnits, processed, errors,
+                (System.nanoTime() - startNs) / 1_000_000));
+    }
+
+    private void logProgress() {
+        if ((processed + errors) % 100 == 0) {
+            long durMs = (System.nanoTime() - startNs) / 1_000_000;
+            String pid = (partitionId == null || partitionId.isBlank()) ? "?" : partitionId;
+            log.infof("Partition %s progress: processed=%d errors=%d elapsedMs=%d", pid, processed, errors, durMs);
         }
     }
 
     @Override
-    public Serializable checkpointInfo() { return null; }
+    public Serializable checkpointInfo() { return units; }
 
     @Override
     public void close() {
         long durMs = (System.nanoTime() - startNs) / 1_000_000;
         String pid = (partitionId == null || partitionId.isBlank()) ? "?" : partitionId;
-        log.infof("Partition %s completed: processed=%d errors=%d elapsedMs=%d", pid, processed, errors, durMs);
+        log.infof("Partition %s completed: units=%d failedUnits=%d processed=%d errors=%d elapsedMs=%d",
+                pid, units, failedUnits, processed, errors, durMs);
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package dk.trustworks.intranet.batch.model;
+
+import java.io.Serializable;
+
+/**
+ * Running totals of one budget-aggregation partition, sent from the partition thread to
+ * {@code PartitionProgressAnalyzer} by the partition collector.
+ *
+ * @param partitions  number of partitions in the step, so the analyzer knows when all have finished
+ * @param units       work units written
+ * @param failedUnits work units with at least one failed day
+ * @param items       user-days (or user-months in set-based mode) recomputed
+ * @param errors      failed user-days / user-months
+ * @param elapsedMs   time since the partition's writer opened
+ */
+public record PartitionStats(String partitionId, int partitions, long units, long failedUnits, long items, long errors,
+                             long elapsedMs) implements Serializable {
+
+    /** Units per second over the partition's lifetime so far. */
+    public double unitsPerSecond() {
+        return elapsedMs > 0 ? units * 1000.0 / elapsedMs : 0.0;
+    }
+}
@@ -0,0 +1,20 @@
+package dk.trustworks.intranet.batch.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A (user, month) work unit for the set-based budget-aggregation mode.
+ * {@code month} is always the first day of the month.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserMonth implements Serializable {
+    private String useruuid;
+    private LocalDate month;
+}
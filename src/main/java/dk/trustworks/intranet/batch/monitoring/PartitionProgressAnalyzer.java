@@ -1,5 +1,7 @@
 package dk.trustworks.intranet.batch.monitoring;
 
+import dk.trustworks.intranet.batch.model.PartitionStats;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.batch.api.partition.PartitionAnalyzer;
 import jakarta.batch.runtime.BatchStatus;
 import jakarta.batch.runtime.context.JobContext;
@@ -8,6 +10,10 @@ import jakarta.inject.Inject;
 import jakarta.inject.Named;
 
 import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Named("partitionProgressAnalyzer")
 @Dependent
@@ -15,10 +21,18 @@ public class PartitionProgressAnalyzer implements PartitionAnalyzer {
 
     @Inject JobContext jobContext;
     @Inject BatchJobTrackingService trackingService;
+    @Inject MeterRegistry registry;
+
+    /** Latest stats per partition id; one analyzer instance serves one partitioned step. */
+    private final Map<String, PartitionStats> stats = new TreeMap<>();
+    private int completedPartitions;
 
     @Override
     public void analyzeCollectorData(Serializable data) throws Exception {
-        // Not used now. Could parse per-partition metrics if collectors are added later.
+        // Partitions that publish PartitionStats (via a PartitionCollector) get throughput/skew reporting.
+        if (data instanceof PartitionStats partitionStats) {
+            stats.put(partitionStats.partitionId(), partitionStats);
+        }
     }
 
     @Override
@@ -30,5 +44,35 @@ public class PartitionProgressAnalyzer implements PartitionAnalyzer {
             String msg = "Partition ended with status=" + batchStatus + (exitStatus != null ? (", exitStatus=" + exitStatus) : "");
             trackingService.appendDetails(executionId, msg);
         }
+        completedPartitions++;
+        int expected = stats.values().stream().mapToInt(PartitionStats::partitions).max().orElse(0);
+        if (expected > 0 && completedPartitions == expected) {
+            reportThroughput(executionId);
+        }
+    }
+
+    /**
+     * Once every partition has finished: units/s per partition and the finish-time skew
+     * (slowest partition's elapsed time over the mean). A skew near 1.0 means the partitions
+     * finished together.
+     */
+    private void reportThroughput(long executionId) {
+        String job = jobContext.getJobName();
+        double meanElapsed = stats.values().stream().mapToLong(PartitionStats::elapsedMs).average().orElse(0);
+        long maxElapsed = stats.values().stream().mapToLong(PartitionStats::elapsedMs).max().orElse(0);
+        double skew = meanElapsed > 0 ? maxElapsed / meanElapsed : 1.0;
+
+        for (PartitionStats s : stats.values()) {
+            registry.summary("batch.partition.units_per_second", "job", job, "partition", s.partitionId())
+                    .record(s.unitsPerSecond());
+        }
+        registry.summary("batch.partition.skew", "job", job).record(skew);
+
+        String perPartition = stats.values().stream()
+                .sorted(Comparator.comparing(PartitionStats::partitionId))
+                .map(s -> String.format("p%s=%.2f u/s (units=%d failed=%d items=%d errors=%d %dms)",
+                        s.partitionId(), s.unitsPerSecond(), s.units(), s.failedUnits(), s.items(), s.errors(), s.elapsedMs()))
+                .collect(Collectors.joining(", "));
+        trackingService.appendDetails(executionId, String.format("Partition throughput: %s; skew=%.2f", perPartition, skew));
     }
 }
@@ -0,0 +1,167 @@
+package dk.trustworks.intranet.bi.services;
+
+import dk.trustworks.intranet.contracts.model.Contract;
+import dk.trustworks.intranet.contracts.model.ContractConsultant;
+import dk.trustworks.intranet.contracts.model.ContractTypeItem;
+import dk.trustworks.intranet.contracts.model.enums.ContractStatus;
+import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.domain.user.entity.UserStatus;
+import dk.trustworks.intranet.utils.DateUtils;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, versioned view of the reference data the BI day/month recompute reads on every
+ * (user, day): clients, budget-bearing contracts with their consultant windows, the parsed
+ * contract-type discount modifier of each contract and the users' status histories.
+ *
+ * <p>Built once by {@link BiReferenceDataSnapshot} and then shared read-only by all recompute
+ * threads. The entities it holds are detached; callers must treat them (and the returned
+ * collections) as read-only.</p>
+ */
+@JBossLog
+public final class BiReferenceData {
+
+    /** Statuses whose consultant windows carry budget, same set as {@code ContractService.getContractsByDate}. */
+    static final Set<ContractStatus> BUDGET_STATUSES =
+            EnumSet.of(ContractStatus.TIME, ContractStatus.SIGNED, ContractStatus.CLOSED, ContractStatus.BUDGET);
+
+    /** One consultant window on a contract; the per-user index is sorted by {@code activeFrom}. */
+    record ContractWindow(ContractConsultant consultant, Contract contract) {
+    }
+
+    private final long version;
+    private final Instant builtAt;
+    private final Map<String, Client> clientsByUuid;
+    private final Map<String, List<ContractWindow>> windowsByUser;
+    private final Map<String, Double> discountByContract;
+    private final Map<String, List<UserStatus>> statusesByUser;
+
+    private BiReferenceData(long version, Instant builtAt, Map<String, Client> clientsByUuid,
+                            Map<String, List<ContractWindow>> windowsByUser, Map<String, Double> discountByContract,
+                            Map<String, List<UserStatus>> statusesByUser) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.clientsByUuid = clientsByUuid;
+        this.windowsByUser = windowsByUser;
+        this.discountByContract = discountByContract;
+        this.statusesByUser = statusesByUser;
+    }
+
+    /**
+     * Indexes already loaded (and detached) reference data. Contracts outside
+     * {@link #BUDGET_STATUSES} are dropped, as are consultant windows without dates.
+     */
+    static BiReferenceData of(long version, Collection<Contract> contracts, Collection<Client> clients,
+                              Collection<UserStatus> statuses) {
+        Map<String, Client> clientsByUuid = clients.stream()
+                .collect(Collectors.toUnmodifiableMap(Client::getUuid, c -> c, (a, b) -> a));
+
+        Map<String, List<ContractWindow>> windows = new HashMap<>();
+        Map<String, Double> discounts = new HashMap<>();
+        for (Contract contract : contracts) {
+            if (!BUDGET_STATUSES.contains(contract.getStatus())) continue;
+            discounts.put(contract.getUuid(), discountModifier(contract));
+            for (ContractConsultant cc : contract.getContractConsultants()) {
+                if (cc.getUseruuid() == null || cc.getActiveFrom() == null || cc.getActiveTo() == null) continue;
+                windows.computeIfAbsent(cc.getUseruuid(), k -> new ArrayList<>()).add(new ContractWindow(cc, contract));
+            }
+        }
+        Map<String, List<ContractWindow>> windowsByUser = new HashMap<>();
+        windows.forEach((user, list) -> {
+            list.sort(Comparator.comparing((ContractWindow w) -> w.consultant().getActiveFrom()));
+            windowsByUser.put(user, List.copyOf(list));
+        });
+
+        Map<String, List<UserStatus>> statusesByUser = statuses.stream()
+                .filter(s -> s.getUseruuid() != null)
+                .collect(Collectors.groupingBy(UserStatus::getUseruuid,
+                        Collectors.collectingAndThen(Collectors.toList(), List::copyOf)));
+
+        return new BiReferenceData(version, Instant.now(), clientsByUuid, Map.copyOf(windowsByUser),
+                Map.copyOf(discounts), Map.copyOf(statusesByUser));
+    }
+
+    /**
+     * The rate multiplier from a contract's type items: 1.0 minus every numeric item value in
+     * percent. Non-numeric values are logged and ignored, as the per-day budget path always did.
+     */
+    static double discountModifier(Contract contract) {
+        double modifier = 1.0;
+        if (contract.getContractTypeItems() == null) return modifier;
+        for (ContractTypeItem cti : contract.getContractTypeItems()) {
+            if (cti.getValue() == null || cti.getValue().trim().isEmpty()) continue;
+            try {
+                modifier -= Double.parseDouble(cti.getValue()) / 100.0;
+            } catch (NumberFormatException e) {
+                log.warnf("Invalid discount value '%s' for contract %s, skipping", cti.getValue(), contract.getUuid());
+            }
+        }
+        return modifier;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Instant builtAt() {
+        return builtAt;
+    }
+
+    public Client client(String clientuuid) {
+        return clientsByUuid.get(clientuuid);
+    }
+
+    /** Client lookup for budget rows; fails loudly like the old list scan when a contract's client is missing. */
+    public Function<Contract, Client> clientResolver() {
+        return contract -> {
+            Client client = clientsByUuid.get(contract.getClientuuid());
+            if (client == null) throw new RuntimeException(contract.toString());
+            return client;
+        };
+    }
+
+    /** Discount modifier of a contract, parsed once at build time; 1.0 for contracts not in the snapshot. */
+    public double discount(Contract contract) {
+        Double modifier = discountByContract.get(contract.getUuid());
+        return modifier != null ? modifier : discountModifier(contract);
+    }
+
+    /**
+     * Budget-bearing contracts on which the user has a consultant window covering {@code day}
+     * (both ends inclusive). Equivalent to {@code getContractsByDate(findByDayReadOnly(day), user, day)}.
+     */
+    public List<Contract> activeContracts(String useruuid, LocalDate day) {
+        List<ContractWindow> windows = windowsByUser.getOrDefault(useruuid, List.of());
+        Set<Contract> result = new LinkedHashSet<>();
+        for (ContractWindow window : windows) {
+            if (window.consultant().getActiveFrom().isAfter(day)) break;
+            if (DateUtils.isBetweenBothIncluded(day, window.consultant().getActiveFrom(), window.consultant().getActiveTo())) {
+                result.add(window.contract());
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /** Status history of a user, unordered like {@code UserStatus.findByUseruuid}. Never null. */
+    public List<UserStatus> statuses(String useruuid) {
+        return statusesByUser.getOrDefault(useruuid, List.of());
+    }
+
+    public int clientCount() {
+        return clientsByUuid.size();
+    }
+
+    public int contractCount() {
+        return discountByContract.size();
+    }
+
+    public int userCount() {
+        return statusesByUser.size();
+    }
+}
@@ -0,0 +1,135 @@
+package dk.trustworks.intranet.bi.services;
+
+import dk.trustworks.intranet.contracts.model.Contract;
+import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.domain.user.entity.UserStatus;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.vertx.ConsumeEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holder of the current {@link BiReferenceData}. Replaces the per-bean client list loaded at
+ * startup and the per-(user, day) contract/status queries of the BI recompute services.
+ *
+ * <p>The snapshot is rebuilt eagerly by {@link #refresh()} at the start of a batch run or BI
+ * refresh, and lazily by {@link #current()} after {@link #invalidate()} — which is called when
+ * contracts, consultants, contract type items, clients or user statuses change. Readers that
+ * need a consistent view for a whole unit of work should call {@link #current()} once and keep
+ * the returned instance.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class BiReferenceDataSnapshot {
+
+    /** Marker event fired inside a reference-data mutation; observed after commit. */
+    public record Changed() {
+    }
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    Event<Changed> changes;
+
+    private final AtomicReference<BiReferenceData> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private volatile boolean stale = true;
+
+    /** The current snapshot, rebuilding it first if it was never built or has been invalidated. */
+    public BiReferenceData current() {
+        BiReferenceData snapshot = current.get();
+        if (snapshot == null || stale) {
+            return rebuild();
+        }
+        return snapshot;
+    }
+
+    /** Forces a rebuild; used once per batch run / BI refresh so the run sees fresh data. */
+    public BiReferenceData refresh() {
+        stale = true;
+        return rebuild();
+    }
+
+    /** Marks the snapshot stale; the next {@link #current()} rebuilds it. */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /** Invalidates after the surrounding transaction commits (or immediately when there is none). */
+    public void scheduleAfterCommit() {
+        changes.fire(new Changed());
+    }
+
+    void afterSuccessfulCommit(@Observes(during = TransactionPhase.AFTER_SUCCESS) Changed ignored) {
+        invalidate();
+    }
+
+    private synchronized BiReferenceData rebuild() {
+        BiReferenceData existing = current.get();
+        if (existing != null && !stale) return existing;
+        // Clear the flag before loading: an invalidation that races the load marks it stale again.
+        stale = false;
+        long start = System.nanoTime();
+        BiReferenceData snapshot = QuarkusTransaction.requiringNew().call(() -> BiReferenceData.of(
+                versions.incrementAndGet(),
+                loadBudgetContracts(),
+                Client.<Client>listAll(),
+                UserStatus.<UserStatus>listAll()));
+        current.set(snapshot);
+        log.infof("BI reference data v%d built in %d ms: clients=%d contracts=%d users=%d",
+                snapshot.version(), (System.nanoTime() - start) / 1_000_000,
+                snapshot.clientCount(), snapshot.contractCount(), snapshot.userCount());
+        return snapshot;
+    }
+
+    /** Budget-bearing contracts with consultants, type items and projects in one round trip. */
+    private List<Contract> loadBudgetContracts() {
+        return em.createQuery(
+                        "SELECT DISTINCT c FROM Contract c " +
+                        "LEFT JOIN FETCH c.company " +
+                        "LEFT JOIN FETCH c.salesconsultant " +
+                        "LEFT JOIN FETCH c.contractConsultants " +
+                        "LEFT JOIN FETCH c.contractTypeItems " +
+                        "LEFT JOIN FETCH c.contractProjects " +
+                        "WHERE c.status IN :statuses", Contract.class)
+                .setParameter("statuses", BiReferenceData.BUDGET_STATUSES)
+                .setHint(HibernateHints.HINT_READ_ONLY, Boolean.TRUE)
+                .getResultList();
+    }
+
+    @ConsumeEvent(value = "domain.events.CREATE_CLIENT", blocking = true)
+    public void onCreateClient(String envelopeJson) {
+        invalidate();
+    }
+
+    @ConsumeEvent(value = "domain.events.MODIFY_CONTRACT_CONSULTANT", blocking = true)
+    public void onModifyContractConsultant(String envelopeJson) {
+        invalidate();
+    }
+
+    @ConsumeEvent(value = "domain.events.CREATE_USER_STATUS", blocking = true)
+    public void onCreateUserStatus(String envelopeJson) {
+        invalidate();
+    }
+
+    @ConsumeEvent(value = "domain.events.UPDATE_USER_STATUS", blocking = true)
+    public void onUpdateUserStatus(String envelopeJson) {
+        invalidate();
+    }
+
+    @ConsumeEvent(value = "domain.events.DELETE_USER_STATUS", blocking = true)
+    public void onDeleteUserStatus(String envelopeJson) {
+        invalidate();
+    }
+}
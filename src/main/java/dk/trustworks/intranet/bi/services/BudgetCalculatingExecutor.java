@@ -4,37 +4,26 @@ import dk.trustworks.intranet.aggregates.bidata.model.BiDataPerDay;
 import dk.trustworks.intranet.aggregates.budgets.model.EmployeeBudgetPerDayAggregate;
 import dk.trustworks.intranet.contracts.model.Contract;
 import dk.trustworks.intranet.contracts.model.ContractConsultant;
-import dk.trustworks.intranet.contracts.services.ContractService;
 import dk.trustworks.intranet.dao.crm.model.Client;
 import dk.trustworks.intranet.domain.user.entity.User;
 import dk.trustworks.intranet.utils.DateUtils;
-import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import jakarta.enterprise.context.control.ActivateRequestContext;
 import lombok.extern.jbosslog.JBossLog;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 @JBossLog
 @ApplicationScoped
 public class BudgetCalculatingExecutor {
 
-    private List<Client> clientList;
-
     @Inject
-    ContractService contractService;
-
-    @PostConstruct
-    @ActivateRequestContext
-    @Transactional
-    void init() {
-        clientList = Client.listAll();
-    }
+    BiReferenceDataSnapshot referenceData;
 
     /**
      * Recalculates and persists per-day budget aggregates for a single user on a specific day.
@@ -42,8 +31,9 @@ public class BudgetCalculatingExecutor {
      * Behavior:
      * - Deletes any existing EmployeeBudgetPerDayAggregate rows for the given user and document date.
      * - Skips weekends (no budgets are calculated for Saturdays and Sundays).
-     * - Resolves active contracts for the user on that day, applies contract type discount modifiers,
-     *   and builds EmployeeBudgetPerDayAggregate entries with 1/5 daily share of weekly hours.
+     * - Resolves active contracts, clients and discount modifiers from the shared {@link BiReferenceData}
+     *   snapshot (no per-call contract query), and builds EmployeeBudgetPerDayAggregate entries with
+     *   1/5 daily share of weekly hours.
      * - Adjusts the calculated list according to the user's availability (vacation, sickness, leave) for that day.
      * - Persists the resulting aggregates.
      *
@@ -64,52 +54,51 @@ public class BudgetCalculatingExecutor {
         EmployeeBudgetPerDayAggregate.delete("documentDate = ?1 and user = ?2", testDay, user);
         if(DateUtils.isWeekend(testDay)) return;
 
-        List<Contract> contracts = contractService.findByDayReadOnly(testDay);
-        List<Contract> activeContracts = contractService.getContractsByDate(contracts, user, testDay);
+        BiReferenceData reference = referenceData.current();
+        List<Contract> activeContracts = reference.activeContracts(user.getUuid(), testDay);
+
+        BiDataPerDay employeeData = BiDataPerDay.<BiDataPerDay>list("documentDate = ?1 AND user = ?2 AND consultantType IN ('CONSULTANT', 'STUDENT')", testDay, user)
+                .stream()
+                .filter(a -> a.getUser().getUuid().equals(user.getUuid())).findFirst().orElse(new BiDataPerDay());
+
+        List<EmployeeBudgetPerDayAggregate> employeeBudgetPerDayAggregates = calculateDailyBudgets(user, testDay, activeContracts, reference.clientResolver(), reference::discount, employeeData);
 
+        //QuarkusTransaction.requiringNew().run(() ->
+        EmployeeBudgetPerDayAggregate.persist(employeeBudgetPerDayAggregates);
+        //);
+    }
+
+    /**
+     * Builds the (unpersisted) budget rows of one user-day from already resolved inputs.
+     * Shared by {@link #recalculateUserDailyBudgets} and {@link UserMonthRecomputeEngine}.
+     *
+     * @param activeContracts contracts where the user has a consultant window covering {@code testDay}
+     * @param clientResolver  resolves a contract's client; must not return null
+     * @param discountResolver the contract's rate multiplier, see {@link BiReferenceData#discountModifier}
+     * @param employeeData    the user's CONSULTANT/STUDENT {@code fact_user_day} row for the day,
+     *                        or an empty {@link BiDataPerDay} when there is none
+     */
+    static List<EmployeeBudgetPerDayAggregate> calculateDailyBudgets(User user, LocalDate testDay, List<Contract> activeContracts,
+                                                                     Function<Contract, Client> clientResolver,
+                                                                     ToDoubleFunction<Contract> discountResolver,
+                                                                     BiDataPerDay employeeData) {
         List<EmployeeBudgetPerDayAggregate> employeeBudgetPerDayAggregateList = new ArrayList<>();
-        AtomicReference<Double> discountModifier = new AtomicReference<>(1.0);
 
         for (Contract contract : activeContracts) {
             ContractConsultant userContract = contract.findByUserAndDate(user, testDay);
             if(userContract == null) continue;
             if(userContract.getHours()==0.0) continue;
 
-            discountModifier.set(1.0);
-            if(contract.getContractTypeItems()!=null) {
-                contract.getContractTypeItems().forEach(cti -> {
-                    if (cti.getValue() != null && !cti.getValue().trim().isEmpty()) {
-                        try {
-                            discountModifier.updateAndGet(v -> (v - Double.parseDouble(cti.getValue()) / 100.0));
-                        } catch (NumberFormatException e) {
-                            log.warnf("Invalid discount value '%s' for contract %s, skipping", cti.getValue(), contract.getUuid());
-                        }
-                    }
-                });
-            }
-            EmployeeBudgetPerDayAggregate employeeBudgetPerDayAggregate = new EmployeeBudgetPerDayAggregate(testDay, getClient(clientList, contract), user, contract, userContract.getHours() / 5.0, userContract.getHours() / 5.0, userContract.getRate() * discountModifier.get());
+            double discountModifier = discountResolver.applyAsDouble(contract);
+            EmployeeBudgetPerDayAggregate employeeBudgetPerDayAggregate = new EmployeeBudgetPerDayAggregate(testDay, clientResolver.apply(contract), user, contract, userContract.getHours() / 5.0, userContract.getHours() / 5.0, userContract.getRate() * discountModifier);
 
             if(employeeBudgetPerDayAggregate.getBudgetHours()==0.0) continue;
             employeeBudgetPerDayAggregateList.add(employeeBudgetPerDayAggregate);
         }
-        List<EmployeeBudgetPerDayAggregate> employeeBudgetPerDayAggregates = new ArrayList<>(adjustForAvailabilityByUser(user, employeeBudgetPerDayAggregateList, testDay));
-
-        //QuarkusTransaction.requiringNew().run(() ->
-        EmployeeBudgetPerDayAggregate.persist(employeeBudgetPerDayAggregates);
-        //);
+        return new ArrayList<>(adjustForAvailability(employeeBudgetPerDayAggregateList, employeeData));
     }
 
-    private List<EmployeeBudgetPerDayAggregate> adjustForAvailabilityByUser(User user, List<EmployeeBudgetPerDayAggregate> employeeBudgetPerDayAggregateList, LocalDate lookupMonth) {
-        List<BiDataPerDay> employeeAvailabilityPerDayAggregate = BiDataPerDay.list("documentDate = ?1 AND user = ?2 AND consultantType IN ('CONSULTANT', 'STUDENT')", lookupMonth, user);
-        //List<String> userList = employeeBudgetPerDayAggregateList.stream().map(b -> b.getUser().getUuid()).distinct().toList();
-        List<EmployeeBudgetPerDayAggregate> employeeBudgetPerDayAggregates = employeeBudgetPerDayAggregateList
-                .stream()
-                .filter(budgetDocument -> budgetDocument.getUser().getUuid().equals(user.getUuid()) && budgetDocument.getDocumentDate().isEqual(lookupMonth))
-                .toList();
-        BiDataPerDay employeeData = employeeAvailabilityPerDayAggregate
-                .stream()
-                .filter(a -> a.getUser().getUuid().equals(user.getUuid())).findFirst().orElse(new BiDataPerDay());
-
+    private static List<EmployeeBudgetPerDayAggregate> adjustForAvailability(List<EmployeeBudgetPerDayAggregate> employeeBudgetPerDayAggregates, BiDataPerDay employeeData) {
         double sum = employeeBudgetPerDayAggregates.stream().mapToDouble(EmployeeBudgetPerDayAggregate::getBudgetHours).sum();
 
         for (EmployeeBudgetPerDayAggregate employeeBudgetPerDayAggregate : employeeBudgetPerDayAggregates) {
@@ -119,11 +108,7 @@ public class BudgetCalculatingExecutor {
                 employeeBudgetPerDayAggregate.setBudgetHours(factor * employeeData.getNetAvailableHours());
             }
         }
-        return employeeBudgetPerDayAggregateList;
-    }
-
-    private Client getClient(List<Client> clientList, Contract contract) {
-        return clientList.stream().filter(client -> client.getUuid().equals(contract.getClientuuid())).findAny().orElseThrow(() -> new RuntimeException(contract.toString()));
+        return employeeBudgetPerDayAggregates;
     }
 
 }
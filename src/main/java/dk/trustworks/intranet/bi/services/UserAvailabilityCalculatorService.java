@@ -1,8 +1,9 @@
 package dk.trustworks.intranet.bi.services;
 
 import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository;
-import dk.trustworks.intranet.aggregates.users.services.UserService;
+import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository.DayRow;
 import dk.trustworks.intranet.dao.workservice.model.WorkFull;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
 import dk.trustworks.intranet.domain.user.entity.User;
 import dk.trustworks.intranet.domain.user.entity.UserStatus;
 import dk.trustworks.intranet.utils.DateUtils;
@@ -13,7 +14,10 @@ import lombok.extern.jbosslog.JBossLog;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static dk.trustworks.intranet.dao.workservice.services.WorkService.SICKNESS;
 import static dk.trustworks.intranet.dao.workservice.services.WorkService.VACATION;
@@ -25,36 +29,119 @@ import static dk.trustworks.intranet.userservice.model.enums.StatusType.*;
 public class UserAvailabilityCalculatorService {
 
     @Inject
-    UserService userService;
+    BiDataPerDayRepository biDataRepository;
 
     @Inject
-    BiDataPerDayRepository biDataRepository;
+    BiReferenceDataSnapshot referenceData;
+
+    @Inject
+    WorkFullSource workFullSource;
 
+    /** Single-day form of {@link #updateUserAvailabilityForDays}. */
     @Transactional
     public void updateUserAvailabilityByDay(String useruuid, LocalDate testDay) {
         if (useruuid == null || testDay == null) {
             log.warnf("updateUserAvailabilityByDay called with nulls user=%s date=%s", useruuid, testDay);
             return;
         }
+        updateUserAvailabilityForDays(useruuid, List.of(testDay));
+    }
+
+    /**
+     * Recalculates availability for every day in {@code [fromInclusive, toExclusive)}, weekends
+     * included, exactly as {@link #updateUserAvailabilityByDay} would one day at a time.
+     *
+     * @return the number of {@code fact_user_day} rows written
+     */
+    @Transactional
+    public int updateUserAvailabilityForRange(String useruuid, LocalDate fromInclusive, LocalDate toExclusive) {
+        if (useruuid == null || fromInclusive == null || toExclusive == null) {
+            log.warnf("updateUserAvailabilityForRange called with nulls user=%s from=%s to=%s", useruuid, fromInclusive, toExclusive);
+            return 0;
+        }
+        return updateUserAvailabilityForDays(useruuid, fromInclusive.datesUntil(toExclusive).toList());
+    }
+
+    /**
+     * Recalculates availability for the given days of one user: statuses come from the shared
+     * reference snapshot, leave registrations for the whole span are loaded with one query, and
+     * all rows are written with one batched upsert. Days without a status company are skipped,
+     * leaving their availability columns untouched.
+     *
+     * @param days ascending days to recalculate
+     * @return the number of {@code fact_user_day} rows written
+     */
+    @Transactional
+    public int updateUserAvailabilityForDays(String useruuid, List<LocalDate> days) {
+        if (days.isEmpty()) return 0;
         User user = User.findById(useruuid);
         if (user == null) {
-            log.warnf("User not found user=%s date=%s; skipping availability update", useruuid, testDay);
-            return;
+            log.warnf("User not found user=%s days=%s..%s; skipping availability update", useruuid, days.get(0), days.get(days.size() - 1));
+            return 0;
         }
-        // Actively load user statuses into the transient collection to enable getUserStatus()
-        user.setStatuses(userService.findUserStatuses(useruuid));
+        // Fill the transient collection from the shared snapshot to enable getUserStatus()
+        user.setStatuses(new ArrayList<>(referenceData.current().statuses(useruuid)));
 
-        UserStatus userStatus = userService.getUserStatus(user, testDay);
-        if (userStatus == null) {
-            log.warnf("No UserStatus found for user=%s on %s; treating as zero availability", user.getUuid(), testDay);
-        }
-        if (userStatus == null || userStatus.getCompany() == null) {
-            log.warnf("Skipping availability write due to null company user=%s date=%s", user.getUuid(), testDay);
-            return;
+        Map<LocalDate, List<WorkFull>> leaveByDay = findLeaveWorkByDay(workFullSource, useruuid, days.get(0), days.get(days.size() - 1).plusDays(1));
+        List<DayRow> rows = new ArrayList<>(days.size());
+        for (LocalDate day : days) {
+            BiDataPerDayRepository.Availability availability = availabilityColumns(user, day, leaveByDay.getOrDefault(day, List.of()));
+            if (availability == null) {
+                log.warnf("Skipping availability write due to null company user=%s date=%s", user.getUuid(), day);
+                continue;
+            }
+            rows.add(DayRow.availability(user.getUuid(), day, availability));
         }
+        return biDataRepository.upsertDays(rows);
+    }
+
+    /**
+     * Vacation, sickness and maternity-leave registrations in {@code [fromInclusive, toExclusive)}
+     * grouped by day — the only work {@link #calculateDay} looks at.
+     */
+    static Map<LocalDate, List<WorkFull>> findLeaveWorkByDay(WorkFullSource source, String useruuid, LocalDate fromInclusive, LocalDate toExclusive) {
+        List<String> leaveTasks = new ArrayList<>(List.of(VACATION, SICKNESS));
+        if (MATERNITY_LEAVE.getTaskuuid() != null) leaveTasks.add(MATERNITY_LEAVE.getTaskuuid());
+        return source.list("useruuid = ?1 and registered >= ?2 and registered < ?3 and taskuuid in (?4)",
+                        useruuid, fromInclusive, toExclusive, leaveTasks)
+                .stream().collect(Collectors.groupingBy(WorkFull::getRegistered));
+    }
 
-        List<WorkFull> workList = WorkFull.list("useruuid = ?1 and registered = ?2", user.getUuid(), testDay);
+    /**
+     * The availability columns of one user-day, or null when the day's status has no company
+     * (the per-day path never writes availability for such days). Shared with
+     * {@link UserMonthRecomputeEngine}, which merges these columns into its own rows.
+     *
+     * @param user     user whose transient statuses are loaded
+     * @param workList the user's work on {@code day}; only leave registrations are used
+     */
+    static BiDataPerDayRepository.Availability availabilityColumns(User user, LocalDate day, List<WorkFull> workList) {
+        UserStatus userStatus = user.getUserStatus(day);
+        if (userStatus == null || userStatus.getCompany() == null) return null;
+        AvailabilityDay a = calculateDay(userStatus, day, workList);
+        return new BiDataPerDayRepository.Availability(
+                userStatus.getCompany().getUuid(),
+                BigDecimal.valueOf(a.grossAvailableHours()),
+                BigDecimal.valueOf(a.unavailableHours()),
+                BigDecimal.valueOf(a.vacationHours()),
+                BigDecimal.valueOf(a.sickHours()),
+                BigDecimal.valueOf(a.maternityLeaveHours()),
+                BigDecimal.valueOf(a.nonPaidLeaveHours()),
+                BigDecimal.valueOf(a.paidLeaveHours()),
+                userStatus.getType().name(),
+                userStatus.getStatus().name(),
+                userStatus.isTwBonusEligible());
+    }
 
+    /**
+     * Pure per-day availability math for one user. Shared by {@link #updateUserAvailabilityForDays}
+     * and {@link UserMonthRecomputeEngine} so the per-day and set-based paths cannot drift.
+     *
+     * @param userStatus the status in effect on {@code testDay} (must be non-null)
+     * @param testDay    the day being calculated
+     * @param workList   the user's work registrations on {@code testDay} only
+     */
+    static AvailabilityDay calculateDay(UserStatus userStatus, LocalDate testDay, List<WorkFull> workList) {
         int weeklyAllocation = userStatus.getAllocation();
         double fullAvailability = weeklyAllocation / 5.0;
         if (DateUtils.isWeekend(testDay)) fullAvailability = 0.0;
@@ -80,22 +167,15 @@ public class UserAvailabilityCalculatorService {
                 ? Math.min(7.4, fullAvailability)
                 : unavailableHours;
 
-        biDataRepository.insertOrUpdateData(
-                user.getUuid(),
-                testDay.toString(),
-                testDay.getYear(),
-                testDay.getMonthValue(),
-                testDay.getDayOfMonth(),
-                userStatus.getCompany().getUuid(),
-                BigDecimal.valueOf(fullAvailability),
-                BigDecimal.valueOf(unavailableHours),
-                BigDecimal.valueOf(vacationHours),
-                BigDecimal.valueOf(sicknessHours),
-                BigDecimal.valueOf(maternityLeaveHours),
-                BigDecimal.valueOf(nonPaidLeaveHours),
-                BigDecimal.valueOf(paidLeaveHours),
-                userStatus.getType().name(),
-                userStatus.getStatus().name(),
-                userStatus.isTwBonusEligible());
+        return new AvailabilityDay(fullAvailability, unavailableHours, vacationHours, sicknessHours,
+                maternityLeaveHours, nonPaidLeaveHours, paidLeaveHours);
+    }
+
+    /**
+     * The availability columns of one {@code fact_user_day} row, as computed by {@link #calculateDay}.
+     */
+    record AvailabilityDay(double grossAvailableHours, double unavailableHours, double vacationHours,
+                           double sickHours, double maternityLeaveHours, double nonPaidLeaveHours,
+                           double paidLeaveHours) {
     }
 }
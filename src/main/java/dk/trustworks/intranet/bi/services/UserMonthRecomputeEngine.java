@@ -0,0 +1,202 @@
+package dk.trustworks.intranet.bi.services;
+
+import dk.trustworks.intranet.aggregates.bidata.model.BiDataPerDay;
+import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository;
+import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository.DayRow;
+import dk.trustworks.intranet.aggregates.budgets.model.EmployeeBudgetPerDayAggregate;
+import dk.trustworks.intranet.contracts.model.Contract;
+import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.dao.workservice.model.WorkFull;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
+import dk.trustworks.intranet.domain.user.entity.Salary;
+import dk.trustworks.intranet.domain.user.entity.User;
+import dk.trustworks.intranet.domain.user.entity.UserStatus;
+import dk.trustworks.intranet.utils.DateUtils;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based recompute of a user's BI day facts ({@code fact_user_day} availability, work,
+ * revenue and salary columns plus {@code fact_budget_day}) for a (user, month-range) unit.
+ *
+ * <p>The per-day path runs {@link UserAvailabilityCalculatorService#updateUserAvailabilityByDay},
+ * {@link WorkAggregateService#recalculateWork}, {@link BudgetCalculatingExecutor#recalculateUserDailyBudgets}
+ * and {@link UserSalaryCalculatorService#recalculateSalary} once per weekday, each in its own
+ * transaction with its own lookups. This engine loads statuses, salaries, work and the user's
+ * contracts once per unit, computes every weekday in memory with the same day math (the static
+ * helpers on those services), and writes the results with multi-row statements
+ * ({@link BiDataPerDayRepository#upsertDays} for {@code fact_user_day}) in a single
+ * transaction. Clients, contracts and statuses come from the shared {@link BiReferenceData}
+ * snapshot. Output is the same as running the four per-day services for each weekday in
+ * order; weekends are skipped exactly like the per-day writer skips them.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class UserMonthRecomputeEngine {
+
+    /** Rows per multi-row {@code fact_budget_day} insert. 200 × 11 bind parameters stays far below MariaDB's limits. */
+    static final int BUDGET_INSERT_CHUNK_SIZE = 200;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    WorkFullSource workFullSource;
+
+    @Inject
+    BiReferenceDataSnapshot referenceData;
+
+    @Inject
+    BiDataPerDayRepository biDataRepository;
+
+    /**
+     * Recomputes every weekday in {@code [fromInclusive, toExclusive)} for one user.
+     *
+     * @return the number of weekdays and budget rows written; {@link RecomputeResult#EMPTY} when
+     *         the user does not exist or the range contains no weekdays
+     */
+    @Transactional
+    public RecomputeResult recompute(String useruuid, LocalDate fromInclusive, LocalDate toExclusive) {
+        User user = User.findById(useruuid);
+        if (user == null) {
+            log.warnf("recompute: user not found, skipping. useruuid=%s range=%s..%s", useruuid, fromInclusive, toExclusive);
+            return RecomputeResult.EMPTY;
+        }
+        List<LocalDate> weekdays = fromInclusive.datesUntil(toExclusive).filter(d -> !DateUtils.isWeekend(d)).toList();
+        if (weekdays.isEmpty()) return RecomputeResult.EMPTY;
+
+        // --- load phase: one query per input, for the whole range; reference data from the shared snapshot ---
+        BiReferenceData reference = referenceData.current();
+        List<UserStatus> statuses = new ArrayList<>(reference.statuses(useruuid));
+        user.setStatuses(statuses);
+        List<Salary> salaries = Salary.<Salary>list("useruuid = ?1 order by activefrom desc", useruuid);
+        Map<LocalDate, List<WorkFull>> workByDay = UserAvailabilityCalculatorService.findLeaveWorkByDay(workFullSource, useruuid, fromInclusive, toExclusive);
+        Map<LocalDate, double[]> billableByDay = loadBillableHoursAndRevenue(useruuid, fromInclusive, toExclusive);
+
+        // --- fact_user_day: availability + work + revenue + salary, merged per day ---
+        List<DayRow> rows = new ArrayList<>();
+        for (LocalDate day : weekdays) {
+            double[] billable = billableByDay.getOrDefault(day, new double[]{0.0, 0.0});
+            Salary salary = salaries.stream().filter(s -> !s.getActivefrom().isAfter(day)).findFirst().orElse(null);
+            int sal = UserSalaryCalculatorService.effectiveSalary(salary != null ? salary.getSalary() : 0, statuses, day);
+
+            // Null without a status company: like the per-day path, the availability columns stay untouched.
+            BiDataPerDayRepository.Availability availability =
+                    UserAvailabilityCalculatorService.availabilityColumns(user, day, workByDay.getOrDefault(day, List.of()));
+            rows.add(new DayRow(useruuid, day, availability, billable[0], billable[1], sal));
+        }
+        biDataRepository.upsertDays(rows);
+
+        // --- fact_budget_day: read availability back (as the per-day path does), then replace ---
+        Map<LocalDate, BiDataPerDay> availabilityByDay = BiDataPerDay.<BiDataPerDay>list(
+                        "user = ?1 AND documentDate >= ?2 AND documentDate < ?3 AND consultantType IN ('CONSULTANT', 'STUDENT')",
+                        user, fromInclusive, toExclusive)
+                .stream().collect(Collectors.toMap(BiDataPerDay::getDocumentDate, b -> b, (a, b) -> a));
+        Function<Contract, Client> clientResolver = reference.clientResolver();
+
+        List<EmployeeBudgetPerDayAggregate> budgets = new ArrayList<>();
+        for (LocalDate day : weekdays) {
+            List<Contract> activeContracts = reference.activeContracts(useruuid, day);
+            budgets.addAll(BudgetCalculatingExecutor.calculateDailyBudgets(user, day, activeContracts, clientResolver,
+                    reference::discount, availabilityByDay.getOrDefault(day, new BiDataPerDay())));
+        }
+        EmployeeBudgetPerDayAggregate.delete("user = ?1 and documentDate in ?2", user, weekdays);
+        insertBudgets(budgets);
+
+        return new RecomputeResult(weekdays.size(), budgets.size());
+    }
+
+    /**
+     * Billable hours and revenue per day — the range form of
+     * {@code WorkService.findWorkHoursByUserAndDay} / {@code findWorkRevenueByUserAndDay}.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<LocalDate, double[]> loadBillableHoursAndRevenue(String useruuid, LocalDate fromInclusive, LocalDate toExclusive) {
+        List<Object[]> rows = em.createNativeQuery(
+                        "SELECT wf.registered, COALESCE(SUM(wf.workduration), 0), COALESCE(SUM(wf.workduration * wf.rate), 0) " +
+                        "FROM " + workFullSource.table() + " wf " +
+                        "WHERE wf.useruuid = :useruuid " +
+                        "  AND wf.workduration > 0 " +
+                        "  AND wf.rate > 0 " +
+                        "  AND wf.registered >= :fromdate " +
+                        "  AND wf.registered < :todate " +
+                        "GROUP BY wf.registered")
+                .setParameter("useruuid", useruuid)
+                .setParameter("fromdate", fromInclusive)
+                .setParameter("todate", toExclusive)
+                .getResultList();
+        Map<LocalDate, double[]> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.put(toLocalDate(row[0]), new double[]{toDouble(row[1]), toDouble(row[2])});
+        }
+        return result;
+    }
+
+    /** Multi-row insert into {@code fact_budget_day}; the caller has already deleted the range. */
+    private void insertBudgets(List<EmployeeBudgetPerDayAggregate> budgets) {
+        for (int from = 0; from < budgets.size(); from += BUDGET_INSERT_CHUNK_SIZE) {
+            List<EmployeeBudgetPerDayAggregate> chunk = budgets.subList(from, Math.min(from + BUDGET_INSERT_CHUNK_SIZE, budgets.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO fact_budget_day (document_date, year, month, day, " +
+                    "clientuuid, useruuid, companyuuid, contractuuid, budgetHours, budgetHoursWithNoAvailabilityAdjustment, rate) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) sql.append(", ");
+                sql.append("(:documentDate").append(i).append(", :year").append(i).append(", :month").append(i)
+                   .append(", :day").append(i).append(", :clientuuid").append(i).append(", :useruuid").append(i)
+                   .append(", :companyuuid").append(i).append(", :contractuuid").append(i).append(", :budgetHours").append(i)
+                   .append(", :budgetHoursRaw").append(i).append(", :rate").append(i).append(")");
+            }
+            Query query = em.createNativeQuery(sql.toString());
+            for (int i = 0; i < chunk.size(); i++) {
+                EmployeeBudgetPerDayAggregate b = chunk.get(i);
+                query.setParameter("documentDate" + i, b.getDocumentDate());
+                query.setParameter("year" + i, b.getYear());
+                query.setParameter("month" + i, b.getMonth());
+                query.setParameter("day" + i, b.getDay());
+                query.setParameter("clientuuid" + i, b.getClient().getUuid());
+                query.setParameter("useruuid" + i, b.getUser().getUuid());
+                query.setParameter("companyuuid" + i, b.getCompany() != null ? b.getCompany().getUuid() : null);
+                query.setParameter("contractuuid" + i, b.getContract().getUuid());
+                query.setParameter("budgetHours" + i, b.getBudgetHours());
+                query.setParameter("budgetHoursRaw" + i, b.getBudgetHoursWithNoAvailabilityAdjustment());
+                query.setParameter("rate" + i, b.getRate());
+            }
+            query.executeUpdate();
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate localDate) return localDate;
+        if (value instanceof Date sqlDate) return sqlDate.toLocalDate();
+        return LocalDate.parse(value.toString());
+    }
+
+    private static double toDouble(Object value) {
+        if (value == null) return 0.0;
+        if (value instanceof Number number) return number.doubleValue();
+        return new BigDecimal(value.toString()).doubleValue();
+    }
+
+    /**
+     * Outcome of one {@link #recompute} call.
+     *
+     * @param days       weekdays recomputed
+     * @param budgetRows {@code fact_budget_day} rows written
+     */
+    public record RecomputeResult(int days, int budgetRows) {
+        public static final RecomputeResult EMPTY = new RecomputeResult(0, 0);
+    }
+}
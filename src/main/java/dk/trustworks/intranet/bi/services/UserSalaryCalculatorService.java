@@ -3,7 +3,6 @@ package dk.trustworks.intranet.bi.services;
 
 import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository;
 import dk.trustworks.intranet.aggregates.users.services.SalaryService;
-import dk.trustworks.intranet.aggregates.users.services.UserService;
 import dk.trustworks.intranet.domain.user.entity.Salary;
 import dk.trustworks.intranet.domain.user.entity.UserStatus;
 import dk.trustworks.intranet.userservice.model.enums.StatusType;
@@ -27,14 +26,24 @@ public class UserSalaryCalculatorService {
     @Inject
     BiDataPerDayRepository biDataRepository;
     @Inject
-    UserService userService;
+    BiReferenceDataSnapshot referenceData;
 
+    /** Statuses come from the shared reference snapshot, like the availability and month paths. */
     @Transactional
     public void recalculateSalary(String useruuid, LocalDate testDay) {
 
         int sal = salaryService.getUserSalaryByMonth(useruuid, testDay).getSalary(); // uses DB order/filter
+        sal = effectiveSalary(sal, referenceData.current().statuses(useruuid), testDay);
 
-        StatusType userStatus = userService.findUserStatuses(useruuid).stream()
+        updateSalary(useruuid, testDay, sal);
+    }
+
+    /**
+     * Zeroes the salary on days where the user's latest status is TERMINATED, PREBOARDING or
+     * NON_PAY_LEAVE. Shared by {@link #recalculateSalary} and {@link UserMonthRecomputeEngine}.
+     */
+    static int effectiveSalary(int salary, List<UserStatus> statuses, LocalDate testDay) {
+        StatusType userStatus = statuses.stream()
                 .sorted(Comparator.comparing(UserStatus::getStatusdate).reversed())
                 .filter(s -> !s.getStatusdate().isAfter(testDay))
                 .map(UserStatus::getStatus)
@@ -44,10 +53,9 @@ public class UserSalaryCalculatorService {
         if (userStatus == StatusType.TERMINATED ||
                 userStatus == StatusType.PREBOARDING ||
                 userStatus == StatusType.NON_PAY_LEAVE) {
-            sal = 0;
+            return 0;
         }
-
-        updateSalary(useruuid, testDay, sal);
+        return salary;
     }
 
     private void updateSalary(String useruuid, LocalDate activeFrom, int salary) {
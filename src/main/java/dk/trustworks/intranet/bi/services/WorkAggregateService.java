@@ -1,6 +1,7 @@
 package dk.trustworks.intranet.bi.services;
 
 import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository;
+import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository.DayRow;
 import dk.trustworks.intranet.aggregates.users.services.UserService;
 import dk.trustworks.intranet.dao.workservice.services.WorkService;
 import dk.trustworks.intranet.dto.DateValueDTO;
@@ -25,12 +26,13 @@ public class WorkAggregateService {
     @Inject
     BiDataPerDayRepository biDataPerDayRepository;
 
+    /** Work hours and revenue for one user-day, written as one merged {@code fact_user_day} upsert. */
     @Transactional
     public void recalculateWork(String useruuid, LocalDate testDay) {
         DateValueDTO workByDay = workService.findWorkHoursByUserAndDay(useruuid, testDay);
-        biDataPerDayRepository.insertOrUpdateWork(useruuid, testDay, testDay.getYear(), testDay.getMonthValue(), testDay.getDayOfMonth(), workByDay!=null?workByDay.getValue():0);
-
         DateValueDTO workRevenueByUserAndPeriod = workService.findWorkRevenueByUserAndDay(useruuid, testDay);
-        biDataPerDayRepository.insertOrUpdateRevenue(useruuid, testDay, testDay.getYear(), testDay.getMonthValue(), testDay.getDayOfMonth(), workRevenueByUserAndPeriod!=null?workRevenueByUserAndPeriod.getValue():0);
+        biDataPerDayRepository.upsertDays(List.of(DayRow.work(useruuid, testDay,
+                workByDay!=null?workByDay.getValue():0,
+                workRevenueByUserAndPeriod!=null?workRevenueByUserAndPeriod.getValue():0)));
     }
 }
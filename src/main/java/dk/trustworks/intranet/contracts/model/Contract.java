@@ -13,6 +13,7 @@ import dk.trustworks.intranet.domain.user.entity.User;
 import dk.trustworks.intranet.utils.DateUtils;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
@@ -25,6 +26,8 @@ import java.util.*;
 @Table(name = "contracts")
 public class Contract extends PanacheEntityBase {
 
+    public static final int HYDRATION_BATCH = 500;
+
     @Id
     private String uuid;
 
@@ -83,16 +86,21 @@ public class Contract extends PanacheEntityBase {
     @JoinColumn(name = "sales_consultant")
     private ContractSalesConsultant salesconsultant;
 
+    // Eager collections are initialised for up to HYDRATION_BATCH loaded contracts per
+    // query, so a list of contracts costs one query per collection rather than one per contract.
     @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
     @JoinColumn(name = "contractuuid")
+    @BatchSize(size = HYDRATION_BATCH)
     private Set<ContractConsultant> contractConsultants = new HashSet<>();
 
     @OneToMany(fetch = FetchType.EAGER)
     @JoinColumn(name = "contractuuid")
+    @BatchSize(size = HYDRATION_BATCH)
     private Set<ContractProject> contractProjects = new HashSet<>();
 
     @OneToMany(fetch = FetchType.EAGER)
     @JoinColumn(name = "contractuuid")
+    @BatchSize(size = HYDRATION_BATCH)
     @JsonProperty("contractTypeItems")
     private Set<ContractTypeItem> contractTypeItems = new HashSet<>();
 
@@ -6,6 +6,7 @@ import dk.trustworks.intranet.contracts.dto.ValidationOverrideDTO;
 import dk.trustworks.intranet.contracts.mappers.ContractOverrideMapper;
 import dk.trustworks.intranet.contracts.model.*;
 import dk.trustworks.intranet.contracts.model.enums.OverrideType;
+import dk.trustworks.intranet.aggregates.invoice.pricing.PricingRuleVersion;
 import dk.trustworks.intranet.dao.workservice.validation.TimesheetValidationPolicyInvalidator;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -50,6 +51,9 @@ public class ContractRuleOverrideService {
     @Inject
     TimesheetValidationPolicyInvalidator timesheetValidationPolicyInvalidator;
 
+    @Inject
+    PricingRuleVersion pricingRuleVersion;
+
     // ===== Validation Overrides =====
 
     /**
@@ -304,6 +308,7 @@ public class ContractRuleOverrideService {
      */
     @Transactional
     public PricingOverrideDTO createPricingOverride(String contractUuid, PricingOverrideDTO dto) {
+        bumpPricingRuleVersion("createPricingOverride");
         log.infof("Creating pricing override for contract %s, rule %s", contractUuid, dto.getRuleId());
 
         // Feature flag check
@@ -351,6 +356,7 @@ public class ContractRuleOverrideService {
      */
     @Transactional
     public PricingOverrideDTO updatePricingOverride(String contractUuid, Integer id, PricingOverrideDTO dto) {
+        bumpPricingRuleVersion("updatePricingOverride");
         log.infof("Updating pricing override id=%d for contract %s", id, contractUuid);
 
         PricingRuleOverride entity = PricingRuleOverride.findById(id);
@@ -380,6 +386,7 @@ public class ContractRuleOverrideService {
      */
     @Transactional
     public void deletePricingOverride(String contractUuid, Integer id) {
+        bumpPricingRuleVersion("deletePricingOverride");
         log.infof("Deleting pricing override id=%d for contract %s", id, contractUuid);
 
         PricingRuleOverride entity = PricingRuleOverride.findById(id);
@@ -458,4 +465,14 @@ public class ContractRuleOverrideService {
             timesheetValidationPolicyInvalidator.scheduleAfterCommit();
         }
     }
+
+    /**
+     * Invalidates PricingRuleCatalog's compiled rule sets when this transaction commits. Only
+     * pricing overrides feed the catalog; validation and rate overrides do not bump it.
+     */
+    private void bumpPricingRuleVersion(String reason) {
+        if (pricingRuleVersion != null) {
+            pricingRuleVersion.bump(reason);
+        }
+    }
 }
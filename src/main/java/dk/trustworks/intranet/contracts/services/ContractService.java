@@ -5,6 +5,7 @@ import dk.trustworks.intranet.contracts.dto.ValidationReport;
 import dk.trustworks.intranet.contracts.dto.ContractTypeItemDTO;
 import dk.trustworks.intranet.contracts.exceptions.ContractValidationException;
 import dk.trustworks.intranet.contracts.exceptions.ContractValidationException.ValidationError;
+import dk.trustworks.intranet.bi.services.BiReferenceDataSnapshot;
 import dk.trustworks.intranet.contracts.model.*;
 import dk.trustworks.intranet.contracts.model.enums.ContractStatus;
 import dk.trustworks.intranet.contracts.model.enums.LifecycleStatus;
@@ -12,6 +13,7 @@ import dk.trustworks.intranet.dao.crm.model.ClientActivityLog;
 import dk.trustworks.intranet.dao.crm.model.Project;
 import dk.trustworks.intranet.dao.crm.services.ClientActivityLogService;
 import dk.trustworks.intranet.dao.crm.services.ProjectService;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullMaterializer;
 import dk.trustworks.intranet.dto.DateValueDTO;
 import dk.trustworks.intranet.dto.ProjectUserDateDTO;
 import dk.trustworks.intranet.domain.user.entity.User;
@@ -53,6 +55,12 @@ public class ContractService {
     @Inject
     EntityManager em;
 
+    @Inject
+    BiReferenceDataSnapshot biReferenceData;
+
+    @Inject
+    WorkFullMaterializer workFullMaterializer;
+
     @jakarta.inject.Inject
     dk.trustworks.intranet.aggregates.invoice.economics.PaymentTermsMappingRepository paymentTermsMappingRepository;
 
@@ -146,7 +154,7 @@ public class ContractService {
         query.setParameter("todate", todate);
         List<Contract> contractList = query.getResultList();
         //List<Contract> contractList = Contract.find("(activeFrom <= ?1 AND activeTo >= ?1) OR (activeFrom <= ?2 AND activeTo >= ?2)", fromdate, todate).list();
-        contractList.forEach(this::addConsultantsToContract);
+        hydrateContracts(contractList);
         return contractList;
     }
 
@@ -217,25 +225,42 @@ public class ContractService {
     }
 
     public List<Project> findProjectsByContract(String contractuuid) {
-        Set<ContractProject> contractProjects = getContractProjects(contractuuid);
-        return contractProjects.stream()
+        return findProjectsByContracts(List.of(contractuuid));
+    }
+
+    /**
+     * Distinct projects linked to any of the contracts: one contract_project query and one
+     * project query in total.
+     */
+    public List<Project> findProjectsByContracts(Collection<String> contractuuids) {
+        List<String> projectuuids = getContractProjects(contractuuids).values().stream()
+                .flatMap(Set::stream)
                 .filter(cp -> {
                     if (cp.getProjectuuid() == null) {
                         log.warnf("Found ContractProject with null projectuuid: contract=%s, uuid=%s",
-                                contractuuid, cp.getUuid());
+                                cp.getContractuuid(), cp.getUuid());
                         return false;
                     }
                     return true;
                 })
-                .map(cp -> projectService.findByUuid(cp.getProjectuuid()))
-                .filter(project -> project != null)
-                .collect(Collectors.toList());
+                .map(ContractProject::getProjectuuid)
+                .distinct()
+                .toList();
+        if (projectuuids.isEmpty()) return new ArrayList<>();
+        return Project.<Project>list("uuid in ?1", projectuuids);
     }
 
     public Set<ContractProject> getContractProjects(String contractuuid) {
         return ContractProject.find("contractuuid like ?1", contractuuid).list().stream().map(panacheEntityBase -> (ContractProject) panacheEntityBase).collect(Collectors.toSet());
     }
 
+    /** contract_project rows for all given contracts in one query, grouped by contract. */
+    public Map<String, Set<ContractProject>> getContractProjects(Collection<String> contractuuids) {
+        if (contractuuids.isEmpty()) return new HashMap<>();
+        return ContractProject.<ContractProject>list("contractuuid in ?1", contractuuids).stream()
+                .collect(Collectors.groupingBy(ContractProject::getContractuuid, Collectors.toSet()));
+    }
+
     public List<ContractConsultant> getContractConsultants(String constractuuid) {
         return ContractConsultant.find("contractuuid like ?1", constractuuid).list();
     }
@@ -271,7 +296,7 @@ public class ContractService {
                 "WHERE (contract_period.min_activefrom <= :testDay AND contract_period.max_activeto >= :testDay)", Contract.class);
         query.setParameter("testDay", testDay);
         List<Contract> contractList = query.getResultList();
-        contractList.forEach(this::addConsultantsToContract);
+        hydrateContracts(contractList);
         return contractList;
     }
 
@@ -286,7 +311,7 @@ public class ContractService {
 
     public List<Contract> findByProjectuuid(String projectuuid) {
         List<ContractProject> contractProject = ContractProject.find("projectuuid LIKE ?1", projectuuid).list();
-        return contractProject.stream()
+        List<String> contractuuids = contractProject.stream()
                 .filter(cp -> {
                     if (cp.getContractuuid() == null) {
                         log.warnf("Found ContractProject with null contractuuid: project=%s, uuid=%s",
@@ -295,14 +320,22 @@ public class ContractService {
                     }
                     return true;
                 })
-                .map(cp -> (Contract) Contract.findById(cp.getContractuuid()))
-                .filter(contract -> contract != null)
+                .map(ContractProject::getContractuuid)
+                .toList();
+        if (contractuuids.isEmpty()) return new ArrayList<>();
+        Map<String, Contract> byUuid = Contract.<Contract>list("uuid in ?1", contractuuids).stream()
+                .collect(Collectors.toMap(Contract::getUuid, c -> c));
+        // One entry per contract_project row, in row order, as the per-row lookup returned.
+        return contractuuids.stream()
+                .map(byUuid::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     @Transactional
     @CacheInvalidateAll(cacheName = "employee-budgets")
     public Contract save(Contract contract) {
+        scheduleReferenceDataInvalidation();
         String userUuid = requestHeaderHolder.getUserUuid();
         validatePaymentTermsCompanyMatch(contract);
         log.debugf("Saving contract uuid=%s, client=%s, status=%s, user=%s",
@@ -341,6 +374,7 @@ public class ContractService {
     @Transactional
     @CacheInvalidateAll(cacheName = "employee-budgets")
     public Contract extendContract(String contractuuid) {
+        scheduleReferenceDataInvalidation();
         String userUuid = requestHeaderHolder.getUserUuid();
         log.debugf("Extending contract uuid=%s, user=%s", contractuuid, userUuid);
 
@@ -371,6 +405,7 @@ public class ContractService {
     @Transactional
     @CacheInvalidateAll(cacheName = "employee-budgets")
     public void update(Contract contract) {
+        scheduleReferenceDataInvalidation();
         validatePaymentTermsCompanyMatch(contract);
         String userUuid = requestHeaderHolder.getUserUuid();
         log.debugf("Updating contract uuid=%s, status=%s, user=%s", contract.getUuid(), contract.getStatus(), userUuid);
@@ -429,6 +464,11 @@ public class ContractService {
                 contract.getContractType(),
                 contract.getUuid());
         if(contract.getSalesconsultant()!=null) ContractSalesConsultant.persist(contract.getSalesconsultant());
+        // work_full carries the contract's company on every row it prices.
+        if (oldContract != null && (oldContract.getCompany() == null
+                || !oldContract.getCompany().getUuid().equals(contract.getCompany().getUuid()))) {
+            workFullMaterializer.refreshContract(contract.getUuid());
+        }
 
         // Log field-level changes
         if (oldContract != null) {
@@ -481,6 +521,7 @@ public class ContractService {
 
     @Transactional
     public void delete(String contractuuid) {
+        scheduleReferenceDataInvalidation();
         String userUuid = requestHeaderHolder.getUserUuid();
         log.debugf("Deleting contract uuid=%s, user=%s", contractuuid, userUuid);
 
@@ -492,6 +533,7 @@ public class ContractService {
         String clientUuid = contract != null ? contract.getClientuuid() : null;
         String contractName = contract != null ? contract.getName() : null;
         Contract.deleteById(contractuuid);
+        workFullMaterializer.refreshContract(contractuuid);
 
         // Log activity
         if (clientUuid != null) {
@@ -513,6 +555,7 @@ public class ContractService {
         validationService.enforceValidation(report);
 
         ContractProject.persist(projectLink);
+        workFullMaterializer.refreshContract(contractuuid);
 
         // Log activity
         Contract contract = Contract.findById(contractuuid);
@@ -549,12 +592,14 @@ public class ContractService {
             // Use Panache instance delete (em.remove()) instead of
             // static deleteById (JPQL bulk delete that bypasses the PC)
             contractProject.delete();
+            workFullMaterializer.refreshContract(contractuuid);
         }
     }
 
     @Transactional
     @CacheInvalidateAll(cacheName = "employee-budgets")
     public ContractConsultant addConsultant(String contractuuid, String consultantuuid, ContractConsultant contractConsultant) {
+        scheduleReferenceDataInvalidation();
         log.debugf("Adding consultant=%s to contract=%s, user=%s", consultantuuid, contractuuid, requestHeaderHolder.getUserUuid());
 
         // Validate the consultant before adding
@@ -562,6 +607,8 @@ public class ContractService {
         validationService.enforceValidation(report);
 
         ContractConsultant.persist(contractConsultant);
+        workFullMaterializer.refreshEffectiveUser(contractConsultant.getUseruuid(),
+                contractConsultant.getActiveFrom(), contractConsultant.getActiveTo());
 
         // Log activity
         Contract contract = Contract.findById(contractuuid);
@@ -579,6 +626,7 @@ public class ContractService {
     @Transactional
     @CacheInvalidateAll(cacheName = "employee-budgets")
     public void updateConsultant(ContractConsultant contractConsultant) {
+        scheduleReferenceDataInvalidation();
         log.debugf("Updating contract consultant uuid=%s, contract=%s, user=%s",
                 contractConsultant.getUuid(), contractConsultant.getContractuuid(), requestHeaderHolder.getUserUuid());
 
@@ -603,6 +651,13 @@ public class ContractService {
                 contractConsultant.getName(),
                 contractConsultant.getUuid());
 
+        // Work priced by the old or the new window changes rate/contract in work_full.
+        if (oldCc != null) {
+            workFullMaterializer.refreshEffectiveUser(oldCc.getUseruuid(),
+                    earliest(oldCc.getActiveFrom(), contractConsultant.getActiveFrom()),
+                    latest(oldCc.getActiveTo(), contractConsultant.getActiveTo()));
+        }
+
         // Log field-level changes
         if (oldCc != null) {
             Contract contract = Contract.findById(oldCc.getContractuuid());
@@ -637,6 +692,7 @@ public class ContractService {
     @Transactional
     @CacheInvalidateAll(cacheName = "employee-budgets")
     public void removeConsultant(String contractuuid, String consultantuuid) {
+        scheduleReferenceDataInvalidation();
         log.debugf("Removing consultant=%s from contract=%s, user=%s", consultantuuid, contractuuid, requestHeaderHolder.getUserUuid());
 
         ContractConsultant cc = ContractConsultant.findById(consultantuuid);
@@ -657,6 +713,7 @@ public class ContractService {
             // Use Panache instance delete (em.remove()) instead of
             // static deleteById (JPQL bulk delete that bypasses the PC)
             cc.delete();
+            workFullMaterializer.refreshEffectiveUser(cc.getUseruuid(), cc.getActiveFrom(), cc.getActiveTo());
 
             log.infof("Removed consultant=%s from contract=%s, user=%s", consultantuuid, contractuuid, requestHeaderHolder.getUserUuid());
         } else {
@@ -665,6 +722,16 @@ public class ContractService {
     }
 
 
+    private static LocalDate earliest(LocalDate a, LocalDate b) {
+        if (a == null) return b;
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate latest(LocalDate a, LocalDate b) {
+        if (a == null) return b;
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
     private ProjectUserDateDTO addContractAndRate(ProjectUserDateDTO projectUserDateDTO) {
         String sql = "select cc.* from contracts c " +
                 "right join contract_project pc ON  pc.contractuuid = c.uuid " +
@@ -685,6 +752,27 @@ public class ContractService {
         return projectUserDateDTO;
     }
 
+    /**
+     * Bulk counterpart of {@link #addConsultantsToContract}: attaches the latest approved sales
+     * consultant to every contract with one query. Consultants, projects and type items are the
+     * contracts' eager collections, which Hibernate initialises in batches of
+     * {@link Contract#HYDRATION_BATCH}, so they need no per-contract query either.
+     */
+    public void hydrateContracts(List<Contract> contracts) {
+        if (contracts == null || contracts.isEmpty()) return;
+        List<String> ids = contracts.stream().map(Contract::getUuid).toList();
+        Map<String, ContractSalesConsultant> salesByContract = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += Contract.HYDRATION_BATCH) {
+            List<String> chunk = ids.subList(from, Math.min(from + Contract.HYDRATION_BATCH, ids.size()));
+            ContractSalesConsultant.<ContractSalesConsultant>list("contractuuid in ?1 and status like 'APPROVED' order by created DESC", chunk)
+                    .forEach(sc -> salesByContract.putIfAbsent(sc.getContractuuid(), sc));
+        }
+        contracts.forEach(c -> {
+            ContractSalesConsultant sc = salesByContract.get(c.getUuid());
+            if (sc != null) c.setSalesconsultant(sc);
+        });
+    }
+
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public void addConsultantsToContract(Contract contract) {
         Set<ContractConsultant> contractConsultants = ContractConsultant.<ContractConsultant>stream("contractuuid like ?1", contract.getUuid()).collect(Collectors.toSet());
@@ -695,6 +783,7 @@ public class ContractService {
 
     @Transactional
     public ContractTypeItemDTO addContractTypeItem(String contractuuid, ContractTypeItem contractTypeItem) {
+        scheduleReferenceDataInvalidation();
         Contract contract = requireContract(contractuuid);
         validateContractTypeItem(contract, contractTypeItem, null);
         contractTypeItem.setContractuuid(contractuuid);
@@ -707,12 +796,14 @@ public class ContractService {
             }
             throw exception;
         }
+        workFullMaterializer.refreshContract(contractuuid);
         logAgreementParameterChange(contract, contractTypeItem.getKey(), null, contractTypeItem.getValue());
         return ContractTypeItemDTO.fromEntity(contractTypeItem);
     }
 
     @Transactional
     public ContractTypeItemDTO updateContractTypeItem(String contractuuid, ContractTypeItem contractTypeItem) {
+        scheduleReferenceDataInvalidation();
         Contract contract = requireContract(contractuuid);
         ContractTypeItem existing = ContractTypeItem.findById(contractTypeItem.getId());
         if (existing == null) {
@@ -734,6 +825,7 @@ public class ContractService {
             }
             throw exception;
         }
+        workFullMaterializer.refreshContract(contractuuid);
         logAgreementParameterChange(
                 contract,
                 existing.getKey(),
@@ -753,6 +845,7 @@ public class ContractService {
 
     @Transactional
     public void deleteContractTypeItem(String contractuuid, int itemId) {
+        scheduleReferenceDataInvalidation();
         Contract contract = requireContract(contractuuid);
         requireParameterAuditClient(contract);
         ContractTypeItem existing = ContractTypeItem.findById(itemId);
@@ -765,9 +858,17 @@ public class ContractService {
         String key = existing.getKey();
         String value = existing.getValue();
         existing.delete();
+        workFullMaterializer.refreshContract(contractuuid);
         logAgreementParameterChange(contract, key, value, null);
     }
 
+    /** The BI budget snapshot holds contracts, consultant windows and type items; rebuild it after commit. */
+    private void scheduleReferenceDataInvalidation() {
+        if (biReferenceData != null) {
+            biReferenceData.scheduleAfterCommit();
+        }
+    }
+
     private Contract requireContract(String contractuuid) {
         if (contractuuid == null || contractuuid.isBlank()) {
             throw new BadRequestException("Contract UUID is required");
@@ -1,5 +1,6 @@
 package dk.trustworks.intranet.contracts.services;
 
+import dk.trustworks.intranet.aggregates.invoice.pricing.PricingRuleVersion;
 import dk.trustworks.intranet.contracts.dto.ContractTypeDefinitionDTO;
 import dk.trustworks.intranet.contracts.dto.CreateContractTypeRequest;
 import dk.trustworks.intranet.contracts.dto.UpdateContractTypeRequest;
@@ -7,6 +8,7 @@ import dk.trustworks.intranet.contracts.model.Contract;
 import dk.trustworks.intranet.contracts.model.ContractTypeDefinition;
 import dk.trustworks.intranet.contracts.model.PricingRuleStepEntity;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
@@ -25,6 +27,9 @@ import java.util.stream.Collectors;
 @ApplicationScoped
 public class ContractTypeDefinitionService {
 
+    @Inject
+    PricingRuleVersion pricingRuleVersion;
+
     /**
      * Create a new contract type definition.
      *
@@ -34,6 +39,7 @@ public class ContractTypeDefinitionService {
      */
     @Transactional
     public ContractTypeDefinitionDTO create(CreateContractTypeRequest request) {
+        bumpPricingRuleVersion("create");
         log.info("ContractTypeDefinitionService.create");
         log.info("request = " + request);
 
@@ -75,6 +81,7 @@ public class ContractTypeDefinitionService {
      */
     @Transactional
     public ContractTypeDefinitionDTO update(String code, UpdateContractTypeRequest request) {
+        bumpPricingRuleVersion("update");
         log.info("ContractTypeDefinitionService.update");
         log.info("code = " + code + ", request = " + request);
 
@@ -115,6 +122,7 @@ public class ContractTypeDefinitionService {
      */
     @Transactional
     public void softDelete(String code) {
+        bumpPricingRuleVersion("softDelete");
         log.info("ContractTypeDefinitionService.softDelete");
         log.info("code = " + code);
 
@@ -146,6 +154,7 @@ public class ContractTypeDefinitionService {
      */
     @Transactional
     public void activate(String code) {
+        bumpPricingRuleVersion("activate");
         log.info("ContractTypeDefinitionService.activate");
         log.info("code = " + code);
 
@@ -260,4 +269,11 @@ public class ContractTypeDefinitionService {
     public boolean existsByCode(String code) {
         return ContractTypeDefinition.existsByCode(code);
     }
+
+    /** Invalidates PricingRuleCatalog's compiled rule sets when this transaction commits. */
+    private void bumpPricingRuleVersion(String reason) {
+        if (pricingRuleVersion != null) {
+            pricingRuleVersion.bump(reason);
+        }
+    }
 }
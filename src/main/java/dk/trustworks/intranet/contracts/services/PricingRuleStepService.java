@@ -1,5 +1,6 @@
 package dk.trustworks.intranet.contracts.services;
 
+import dk.trustworks.intranet.aggregates.invoice.pricing.PricingRuleVersion;
 import dk.trustworks.intranet.aggregates.invoice.pricing.RulePurpose;
 import dk.trustworks.intranet.aggregates.invoice.pricing.RuleStepType;
 import dk.trustworks.intranet.contracts.dto.*;
@@ -21,7 +22,8 @@ import java.util.stream.Collectors;
 /**
  * Service for managing pricing rule steps.
  * Provides CRUD operations, priority management, and validation.
- * Rule reads are deliberately uncached (spec §9.7) — the former
+ * Every write bumps {@link PricingRuleVersion} in the same transaction, which
+ * retires the compiled rule sets {@code PricingRuleCatalog} caches. The former
  * {@code @CacheInvalidate(cacheName = "pricing-rules")} annotations targeted a
  * cache that no {@code @CacheResult} ever populated and were removed.
  */
@@ -32,6 +34,9 @@ public class PricingRuleStepService {
     @Inject
     EntityManager em;
 
+    @Inject
+    PricingRuleVersion pricingRuleVersion;
+
     private static final int DEFAULT_PRIORITY_INCREMENT = 10;
 
     /**
@@ -45,6 +50,7 @@ public class PricingRuleStepService {
      */
     @Transactional
     public PricingRuleStepDTO createRule(String contractTypeCode, CreateRuleStepRequest request) {
+        bumpPricingRuleVersion("createRule");
         log.info("PricingRuleStepService.createRule");
         log.info("contractTypeCode = " + contractTypeCode + ", request = " + request);
 
@@ -105,6 +111,7 @@ public class PricingRuleStepService {
      */
     @Transactional
     public List<PricingRuleStepDTO> createRulesBulk(String contractTypeCode, BulkCreateRulesRequest request) {
+        bumpPricingRuleVersion("createRulesBulk");
         log.info("PricingRuleStepService.createRulesBulk");
         log.info("contractTypeCode = " + contractTypeCode + ", rulesCount = " + request.getRules().size());
 
@@ -179,6 +186,7 @@ public class PricingRuleStepService {
      */
     @Transactional
     public PricingRuleStepDTO updateRule(String contractTypeCode, String ruleId, UpdateRuleStepRequest request) {
+        bumpPricingRuleVersion("updateRule");
         log.info("PricingRuleStepService.updateRule");
         log.info("contractTypeCode = " + contractTypeCode + ", ruleId = " + ruleId);
 
@@ -229,6 +237,7 @@ public class PricingRuleStepService {
      */
     @Transactional
     public void deleteRule(String contractTypeCode, String ruleId) {
+        bumpPricingRuleVersion("deleteRule");
         log.info("PricingRuleStepService.deleteRule");
         log.info("contractTypeCode = " + contractTypeCode + ", ruleId = " + ruleId);
 
@@ -256,6 +265,7 @@ public class PricingRuleStepService {
      */
     @Transactional
     public PricingRuleStepDTO activateRule(String contractTypeCode, String ruleId) {
+        bumpPricingRuleVersion("activateRule");
         log.info("PricingRuleStepService.activateRule");
         log.info("contractTypeCode = " + contractTypeCode + ", ruleId = " + ruleId);
 
@@ -400,4 +410,11 @@ public class PricingRuleStepService {
     private static String normalizeParamKey(String paramKey) {
         return paramKey == null || paramKey.isBlank() ? null : paramKey.trim();
     }
+
+    /** Invalidates PricingRuleCatalog's compiled rule sets when this transaction commits. */
+    private void bumpPricingRuleVersion(String reason) {
+        if (pricingRuleVersion != null) {
+            pricingRuleVersion.bump(reason);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package dk.trustworks.intranet.dao.crm.services;
 
+import dk.trustworks.intranet.bi.services.BiReferenceDataSnapshot;
 import dk.trustworks.intranet.dao.crm.model.Client;
 import dk.trustworks.intranet.dao.crm.model.enums.ClientType;
 import dk.trustworks.intranet.security.RequestHeaderHolder;
@@ -13,6 +14,7 @@ import lombok.extern.jbosslog.JBossLog;
 import dk.trustworks.intranet.utils.StringSimilarity;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +30,9 @@ public class ClientService {
     @Inject
     RequestHeaderHolder requestHeaderHolder;
 
+    @Inject
+    BiReferenceDataSnapshot biReferenceData;
+
     public List<Client> listAllClients() {
         return Client.listAll(Sort.ascending("name"));
     }
@@ -36,6 +41,12 @@ public class ClientService {
         return Client.findById(uuid);
     }
 
+    /** The clients with the given uuids in one query; unknown uuids are skipped. */
+    public List<Client> findByUuids(Collection<String> uuids) {
+        if (uuids.isEmpty()) return List.of();
+        return Client.list("uuid in ?1", uuids);
+    }
+
     public List<Client> findByActiveTrue() {
         return Client.list("active = ?1", Sort.ascending("name"), true);
     }
@@ -54,6 +65,7 @@ public class ClientService {
 
     @Transactional
     public Client save(Client client) {
+        scheduleReferenceDataInvalidation();
         String userUuid = requestHeaderHolder != null ? requestHeaderHolder.getUserUuid() : null;
         client.setUuid(UUID.randomUUID().toString());
         if(client.getManaged() == null || client.getManaged().isBlank()) {
@@ -69,6 +81,7 @@ public class ClientService {
 
     @Transactional
     public void updateOne(Client client) {
+        scheduleReferenceDataInvalidation();
         String userUuid = requestHeaderHolder != null ? requestHeaderHolder.getUserUuid() : null;
         ClientType incomingType = client.getType() != null ? client.getType() : ClientType.CLIENT;
         log.infof("Updating client uuid=%s, name=%s, active=%s, type=%s, user=%s",
@@ -241,4 +254,10 @@ public class ClientService {
                 "consultantName", row[2] != null ? (String) row[2] : "Unknown"
         )).toList();
     }
-}
\ No newline at end of file
+
+    private void scheduleReferenceDataInvalidation() {
+        if (biReferenceData != null) {
+            biReferenceData.scheduleAfterCommit();
+        }
+    }
+}
@@ -13,6 +13,7 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.QueryParam;
 import lombok.extern.jbosslog.JBossLog;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,6 +41,12 @@ public class ProjectService {
         return Project.findById(uuid);
     }
 
+    /** The projects with the given uuids in one query; unknown uuids are skipped. */
+    public List<Project> findByUuids(Collection<String> uuids) {
+        if (uuids.isEmpty()) return List.of();
+        return Project.list("uuid in ?1", uuids);
+    }
+
     public List<Project> findByActiveTrue() {
         return Project.stream("active", Sort.ascending("name"), true).map(p -> (Project) p).collect(Collectors.toList());
     }
@@ -6,6 +6,7 @@ import io.quarkus.panache.common.Sort;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -21,6 +22,12 @@ public class TaskService {
         return Task.findById(uuid);
     }
 
+    /** The tasks with the given uuids in one query; unknown uuids are skipped. */
+    public List<Task> findByUuids(Collection<String> uuids) {
+        if (uuids.isEmpty()) return List.of();
+        return Task.list("uuid in ?1", uuids);
+    }
+
     @Transactional
     public Task save(Task task) {
         task.setUuid(UUID.randomUUID().toString());
@@ -0,0 +1,175 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import dk.trustworks.intranet.dao.workservice.model.Work;
+import io.quarkus.cache.CacheManager;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import lombok.extern.jbosslog.JBossLog;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Evicts only what a work write can have changed, after the write commits: the {@code work-cache}
+ * (project, month) entries and the contract amounts of the written rows, for both the new and the
+ * previous routing of an updated row.
+ * The availability caches are left alone: they read {@code fact_user_day}, which changes when
+ * the BI refresh for the user-month commits, not with the work row, and their keys carry the
+ * fact generation that refresh advances (see {@code AvailabilityCacheKeys}).
+ * The cached reads go through {@code work_full}, which routes a row by its task's project and by
+ * the contract-consultant join, not by the routing columns stored on {@code work}. The scope of a
+ * write is therefore resolved the same way, inside the writing transaction. A write whose project
+ * or contract cannot be resolved evicts every project of its month, or every contract amount.
+ * Replaces the {@code @CacheInvalidateAll} on the work write paths, which emptied both caches on
+ * every timesheet save. Hit ratios are visible through the Micrometer cache binding
+ * ({@code cache.gets{result=hit|miss}}, enabled per cache in application.yml).
+ */
+@JBossLog
+@ApplicationScoped
+public class WorkCacheEvictor {
+
+    static final String WORK_CACHE = "work-cache";
+
+    /** What one written row touched: the keys {@code work_full} routes it by. */
+    public record WorkWrite(String useruuid, LocalDate registered, String taskuuid, String workas) {
+        public static WorkWrite of(Work work) {
+            return new WorkWrite(work.getUseruuid(), work.getRegistered(), work.getTaskuuid(), work.getWorkas());
+        }
+
+        public YearMonth month() {
+            return YearMonth.from(registered);
+        }
+
+        /** The consultant whose contract prices the row, as in {@code work_full}. */
+        String consultantuuid() {
+            return workas != null ? workas : useruuid;
+        }
+    }
+
+    /**
+     * The {@code work-cache} scope of one write. A null project means the task's project could not
+     * be resolved; no contracts means the row matched no contract window.
+     */
+    public record WorkScope(YearMonth month, String projectuuid, Set<String> contractuuids) {}
+
+    public record WorkWritten(Set<WorkWrite> writes, List<WorkScope> scopes) {}
+
+    @Inject
+    Event<WorkWritten> events;
+
+    @Inject
+    CacheManager cacheManager;
+
+    @Inject
+    EntityManager em;
+
+    /**
+     * Evicts for the given writes once the surrounding transaction commits; immediately when
+     * there is none. Updates should pass the row both before and after, so a re-routed row also
+     * evicts its previous project and contract. Call after the rows are flushed: the scope is
+     * resolved here, in the writing transaction.
+     */
+    public void scheduleAfterCommit(Collection<WorkWrite> writes) {
+        if (writes.isEmpty()) return;
+        Set<WorkWrite> distinct = new LinkedHashSet<>(writes);
+        events.fire(new WorkWritten(distinct, resolveScopes(distinct)));
+    }
+
+    void afterSuccessfulCommit(@Observes(during = TransactionPhase.AFTER_SUCCESS) WorkWritten event) {
+        evict(event.writes(), event.scopes());
+    }
+
+    void evict(Set<WorkWrite> writes, List<WorkScope> scopes) {
+        invalidateIf(WORK_CACHE, key -> isWorkCacheKeyAffected(key, scopes));
+        log.debugf("Evicted work cache entries for %d user-month writes", writes.size());
+    }
+
+    private void invalidateIf(String cacheName, Predicate<Object> predicate) {
+        cacheManager.getCache(cacheName).ifPresent(cache -> cache.invalidateIf(predicate).await().indefinitely());
+    }
+
+    /**
+     * The project and contracts {@code work_full} gives each write, in one query: the task's
+     * project, and the contract-consultant windows of that project covering the consultant and
+     * date. A failed lookup leaves every scope unresolved, so the eviction widens instead of
+     * serving stale entries.
+     */
+    List<WorkScope> resolveScopes(Collection<WorkWrite> writes) {
+        Set<String> tasks = new LinkedHashSet<>();
+        Set<String> consultants = new LinkedHashSet<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (WorkWrite w : writes) {
+            if (w.taskuuid() != null) tasks.add(w.taskuuid());
+            consultants.add(w.consultantuuid());
+            if (from == null || w.registered().isBefore(from)) from = w.registered();
+            if (to == null || w.registered().isAfter(to)) to = w.registered();
+        }
+
+        List<Object[]> rows = List.of();
+        if (!tasks.isEmpty()) {
+            try {
+                @SuppressWarnings("unchecked")
+                List<Object[]> result = em.createNativeQuery(
+                                "SELECT t.uuid, t.projectuuid, cc.useruuid, cc.contractuuid, cc.activefrom, cc.activeto " +
+                                "FROM task t " +
+                                "LEFT JOIN contract_project cp ON cp.projectuuid = t.projectuuid " +
+                                "LEFT JOIN contract_consultants cc ON cc.contractuuid = cp.contractuuid " +
+                                "  AND cc.useruuid IN (:consultants) AND cc.activefrom <= :to AND cc.activeto >= :from " +
+                                "WHERE t.uuid IN (:tasks)")
+                        .setParameter("tasks", tasks)
+                        .setParameter("consultants", consultants)
+                        .setParameter("from", from)
+                        .setParameter("to", to)
+                        .getResultList();
+                rows = result;
+            } catch (RuntimeException e) {
+                log.warnf(e, "Could not resolve work-cache scope for %d writes — evicting widely", writes.size());
+            }
+        }
+
+        List<WorkScope> scopes = new ArrayList<>(writes.size());
+        for (WorkWrite w : writes) {
+            String projectuuid = null;
+            Set<String> contracts = new LinkedHashSet<>();
+            for (Object[] r : rows) {
+                if (!r[0].equals(w.taskuuid())) continue;
+                projectuuid = (String) r[1];
+                if (r[3] != null && w.consultantuuid().equals(r[2])
+                        && !toLocalDate(r[4]).isAfter(w.registered())
+                        && !toLocalDate(r[5]).isBefore(w.registered())) {
+                    contracts.add((String) r[3]);
+                }
+            }
+            scopes.add(new WorkScope(w.month(), projectuuid, contracts));
+        }
+        return scopes;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    static boolean isWorkCacheKeyAffected(Object key, List<WorkScope> scopes) {
+        if (key instanceof WorkCacheKeys.ProjectMonth projectMonth) {
+            return scopes.stream().anyMatch(s -> s.month().equals(projectMonth.month())
+                    && (s.projectuuid() == null || s.projectuuid().equals(projectMonth.projectuuid())));
+        }
+        if (key instanceof WorkCacheKeys.Contract contract) {
+            return scopes.stream().anyMatch(s -> s.contractuuids().isEmpty()
+                    || s.contractuuids().contains(contract.contractuuid()));
+        }
+        // Unknown key shape: evict rather than serve something we cannot reason about.
+        return true;
+    }
+}
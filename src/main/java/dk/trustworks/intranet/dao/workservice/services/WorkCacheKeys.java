@@ -0,0 +1,36 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import io.quarkus.cache.CacheKeyGenerator;
+
+import java.lang.reflect.Method;
+import java.time.YearMonth;
+
+/**
+ * Typed keys for the {@code work-cache}, so {@link WorkCacheEvictor} can address the entries a
+ * work write touched: a project's month of work, or a contract's used amount.
+ */
+public final class WorkCacheKeys {
+
+    private WorkCacheKeys() {
+    }
+
+    public record ProjectMonth(String projectuuid, YearMonth month) {}
+
+    public record Contract(String contractuuid) {}
+
+    /** {@code (int year, int month, String projectuuid)}. */
+    public static class ProjectMonthGenerator implements CacheKeyGenerator {
+        @Override
+        public Object generate(Method method, Object... params) {
+            return new ProjectMonth((String) params[2], YearMonth.of((Integer) params[0], (Integer) params[1]));
+        }
+    }
+
+    /** {@code (String contractuuid)}. */
+    public static class ContractGenerator implements CacheKeyGenerator {
+        @Override
+        public Object generate(Method method, Object... params) {
+            return new Contract((String) params[0]);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Keeps {@code work_full_mat} (V526) equal to the {@code work_full} view, row for row: a
+ * work uuid priced by several contract windows or type items has one table row per view row,
+ * numbered by {@code variant}.
+ *
+ * <p>Writers call the scoped refreshes inside their own transaction, so the table commits
+ * together with the source change: {@link #refreshRows} for written work rows,
+ * {@link #refreshEffectiveUser} when a contract-consultant window or rate changes, and
+ * {@link #refreshContract} when a contract's projects, type items or company change. Each scope
+ * is a predicate on the view's work columns, so the view merges into an indexed lookup on
+ * {@code work}. Sources that no hook sees (userstatus, task moves, user names) are repaired by
+ * {@link #checkConsistency()}, which compares per-month row counts and checksums with the view and
+ * re-materializes the months that differ.</p>
+ *
+ * <p>Readers choose between the view and the table through {@link WorkFullSource}; the statements
+ * here always read the view, which stays the source of truth.</p>
+ */
+@JBossLog
+@ApplicationScoped
+public class WorkFullMaterializer {
+
+    static final String COLUMNS = "uuid, useruuid, workas, taskuuid, workduration, registered, billable, paid_out, " +
+            "rate, discount, name, projectuuid, clientuuid, contractuuid, contract_company_uuid, " +
+            "consultant_company_uuid, type, comments, updated_at";
+
+    /** Per-row fingerprint; NULLs are spelled out so CONCAT_WS keeps field positions. */
+    static final String ROW_HASH = "CRC32(CONCAT_WS('|', uuid, useruuid, IFNULL(workas, '-'), IFNULL(taskuuid, '-'), " +
+            "workduration, registered, billable, IFNULL(paid_out, '-'), rate, discount, IFNULL(name, '-'), " +
+            "IFNULL(projectuuid, '-'), IFNULL(clientuuid, '-'), IFNULL(contractuuid, '-'), " +
+            "IFNULL(contract_company_uuid, '-'), IFNULL(consultant_company_uuid, '-'), IFNULL(type, '-'), " +
+            "IFNULL(comments, '-'), IFNULL(updated_at, '-')))";
+
+    static final String INSERT_COLUMNS = COLUMNS + ", variant";
+
+    private static final String EFFECTIVE_USER = "IF(workas IS NOT NULL, workas, useruuid)";
+    private static final int ROW_CHUNK = 500;
+
+    public record MonthChecksum(long rows, long hash) {}
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "work-full.materialized.maintain", defaultValue = "false")
+    boolean maintain;
+
+    @ConfigProperty(name = "work-full.materialized.read", defaultValue = "false")
+    boolean read;
+
+    @ConfigProperty(name = "work-full.materialized.consistency-lookback-months", defaultValue = "24")
+    int lookbackMonths;
+
+    /**
+     * Whether writes and the consistency job keep the table current: when asked to, and always
+     * while reads use it. With both switches off nothing touches the table; turning maintenance on
+     * later leaves the consistency job to rebuild the months that drifted meanwhile.
+     */
+    boolean maintained() {
+        return maintain || read;
+    }
+
+    /**
+     * The view's rows restricted by {@code scope}, numbered per work uuid by
+     * (contractuuid, rate, discount) as in the V526 backfill. {@code scope} must select whole work
+     * uuids (a predicate on uuid, user or registered date), so the numbering matches the table's.
+     */
+    static String sourceSql(String scope) {
+        return "SELECT " + COLUMNS + ", " +
+                "ROW_NUMBER() OVER (PARTITION BY wf.uuid ORDER BY wf.contractuuid, wf.rate, wf.discount) AS variant " +
+                "FROM work_full wf WHERE " + scope;
+    }
+
+    /** Re-materializes the given work rows; joins the caller's transaction. */
+    @Transactional
+    public void refreshRows(Collection<String> workUuids) {
+        if (!maintained() || workUuids.isEmpty()) return;
+        em.flush();
+        List<String> uuids = new ArrayList<>(new LinkedHashSet<>(workUuids));
+        for (int from = 0; from < uuids.size(); from += ROW_CHUNK) {
+            List<String> chunk = uuids.subList(from, Math.min(from + ROW_CHUNK, uuids.size()));
+            em.createNativeQuery("DELETE FROM work_full_mat WHERE uuid IN (:uuids)")
+                    .setParameter("uuids", chunk)
+                    .executeUpdate();
+            em.createNativeQuery("INSERT INTO work_full_mat (" + INSERT_COLUMNS + ") " + sourceSql("wf.uuid IN (:uuids)"))
+                    .setParameter("uuids", chunk)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Re-materializes the rows a consultant's contract assignment prices: work registered by or
+     * as the user in {@code [from, to]}. Joins the caller's transaction.
+     */
+    @Transactional
+    public void refreshEffectiveUser(String useruuid, LocalDate from, LocalDate to) {
+        if (!maintained() || useruuid == null || from == null || to == null) return;
+        em.flush();
+        em.createNativeQuery("DELETE FROM work_full_mat WHERE " + EFFECTIVE_USER + " = :user AND registered BETWEEN :from AND :to")
+                .setParameter("user", useruuid).setParameter("from", from).setParameter("to", to)
+                .executeUpdate();
+        int rows = em.createNativeQuery("INSERT INTO work_full_mat (" + INSERT_COLUMNS + ") " +
+                        sourceSql("IF(wf.workas IS NOT NULL, wf.workas, wf.useruuid) = :user AND wf.registered BETWEEN :from AND :to"))
+                .setParameter("user", useruuid).setParameter("from", from).setParameter("to", to)
+                .executeUpdate();
+        log.debugf("work_full_mat refreshed for user=%s [%s..%s]: %d rows", useruuid, from, to, rows);
+    }
+
+    /**
+     * Re-materializes the rows a contract prices or could price after a change to its projects,
+     * type items or company: the rows currently attributed to it, and the work of its consultants
+     * inside their windows on its linked projects. Joins the caller's transaction.
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public void refreshContract(String contractuuid) {
+        if (!maintained() || contractuuid == null) return;
+        em.flush();
+        List<String> uuids = em.createNativeQuery("""
+                SELECT wfm.uuid FROM work_full_mat wfm WHERE wfm.contractuuid = :contract
+                UNION
+                SELECT w.uuid
+                FROM contract_project cp
+                JOIN contract_consultants cc ON cc.contractuuid = cp.contractuuid
+                JOIN task t ON t.projectuuid = cp.projectuuid
+                JOIN work w ON w.taskuuid = t.uuid
+                    AND IF(w.workas IS NOT NULL, w.workas, w.useruuid) = cc.useruuid
+                    AND w.registered BETWEEN cc.activefrom AND cc.activeto
+                WHERE cp.contractuuid = :contract
+                """)
+                .setParameter("contract", contractuuid)
+                .getResultList();
+        refreshRows(uuids);
+        log.debugf("work_full_mat refreshed for contract=%s: %d work rows", contractuuid, uuids.size());
+    }
+
+    /** Replaces one month of the table with the view's rows. */
+    @Transactional
+    public int refreshMonth(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        em.createNativeQuery("DELETE FROM work_full_mat WHERE registered >= :from AND registered < :to")
+                .setParameter("from", from).setParameter("to", to)
+                .executeUpdate();
+        return em.createNativeQuery("INSERT INTO work_full_mat (" + INSERT_COLUMNS + ") " +
+                        sourceSql("wf.registered >= :from AND wf.registered < :to"))
+                .setParameter("from", from).setParameter("to", to)
+                .executeUpdate();
+    }
+
+    public MonthChecksum viewChecksum(YearMonth month) {
+        return checksum("(" + sourceSql("wf.registered >= :from AND wf.registered < :to") + ") v", month, false);
+    }
+
+    public MonthChecksum tableChecksum(YearMonth month) {
+        return checksum("work_full_mat", month, true);
+    }
+
+    private MonthChecksum checksum(String source, YearMonth month, boolean filter) {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(" + ROW_HASH + "), 0) FROM " + source +
+                (filter ? " WHERE registered >= :from AND registered < :to" : "");
+        Object[] row = (Object[]) em.createNativeQuery(sql)
+                .setParameter("from", month.atDay(1))
+                .setParameter("to", month.plusMonths(1).atDay(1))
+                .getSingleResult();
+        return new MonthChecksum(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    @Scheduled(every = "${work-full.materialized.consistency-interval:1h}", identity = "work-full-mat-consistency",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledConsistencyCheck() {
+        if (!maintained()) return;
+        try {
+            checkConsistency();
+        } catch (RuntimeException e) {
+            log.warnf("work-full-mat-consistency failed: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Compares the last {@code consistency-lookback-months} months (and next month, for
+     * pre-registered work) with the view; each drifted month is rebuilt in its own transaction.
+     * @return the months that were repaired
+     */
+    public List<YearMonth> checkConsistency() {
+        YearMonth last = YearMonth.now().plusMonths(1);
+        List<YearMonth> repaired = new ArrayList<>();
+        for (YearMonth month = last.minusMonths(lookbackMonths); !month.isAfter(last); month = month.plusMonths(1)) {
+            YearMonth m = month;
+            boolean drifted = QuarkusTransaction.requiringNew().call(() -> !viewChecksum(m).equals(tableChecksum(m)));
+            if (!drifted) continue;
+            int rows = QuarkusTransaction.requiringNew().call(() -> refreshMonth(m));
+            registry.counter("work_full_mat.repaired_months").increment();
+            log.warnf("work_full_mat drifted from work_full for %s; rebuilt %d rows", m, rows);
+            repaired.add(m);
+        }
+        registry.counter("work_full_mat.consistency_checks").increment();
+        return repaired;
+    }
+}
@@ -0,0 +1,126 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import dk.trustworks.intranet.dao.workservice.model.WorkFull;
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Where work-with-contract rows are read from: the {@code work_full} view, or with
+ * {@code work-full.materialized.read=true} the {@code work_full_mat} table (V526) that
+ * {@link WorkFullMaterializer} keeps equal to it. Off by default, so the view stays
+ * authoritative until the table has been verified in an environment.
+ *
+ * <p>Native SQL names {@link #table()} in its FROM clause. {@link WorkFull} reads go through the
+ * finders below: on the view they are the plain Panache queries, on the table the same condition
+ * runs as native SQL mapped to the entity. Conditions therefore name columns and use {@code ?n}
+ * parameters, which reads the same in HQL and SQL; the entity's fields are its column names.</p>
+ */
+@ApplicationScoped
+public class WorkFullSource {
+
+    static final String VIEW = "work_full";
+    static final String MATERIALIZED = "work_full_mat";
+
+    /** Rows per round trip for {@link #stream}. */
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    /** The view's columns as mapped by {@link WorkFull}; the table has the same names. */
+    private static final String ENTITY_COLUMNS = "uuid, contract_company_uuid, consultant_company_uuid, registered, " +
+            "workduration, clientuuid, projectuuid, taskuuid, contractuuid, useruuid, workas, rate, discount, " +
+            "name, comments, billable, paid_out";
+
+    @Inject
+    EntityManager em;
+
+    @ConfigProperty(name = "work-full.materialized.read", defaultValue = "false")
+    boolean readMaterialized;
+
+    /** Table or view name for native reads of {@code work_full} / {@code work_full_optimized}. */
+    public String table() {
+        return readMaterialized ? MATERIALIZED : VIEW;
+    }
+
+    /** {@code FROM <table> <alias>} as a line of a text-block query. */
+    public String from(String alias) {
+        return "FROM " + table() + " " + alias + "\n";
+    }
+
+    public List<WorkFull> list(String where, Object... params) {
+        if (!readMaterialized) return WorkFull.<WorkFull>find(where, params).list();
+        return nativeQuery(where, null, params).getResultList();
+    }
+
+    /** One page of the rows matching {@code where}, or of all rows when it is null. */
+    public List<WorkFull> page(String where, Page page, Object... params) {
+        if (!readMaterialized) {
+            return (where == null ? WorkFull.<WorkFull>findAll() : WorkFull.<WorkFull>find(where, params))
+                    .page(page).list();
+        }
+        return nativeQuery(where, null, params)
+                .setFirstResult(page.index * page.size)
+                .setMaxResults(page.size)
+                .getResultList();
+    }
+
+    public WorkFull first(String where, Object... params) {
+        if (!readMaterialized) return WorkFull.<WorkFull>find(where, params).firstResult();
+        List<WorkFull> rows = nativeQuery(where, null, params).setMaxResults(1).getResultList();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public long count(String where, Object... params) {
+        if (!readMaterialized) return WorkFull.count(where, params);
+        Query query = em.createNativeQuery("SELECT COUNT(*) FROM " + MATERIALIZED + " WHERE " + where);
+        bind(query, params);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * Read-only rows in {@code sort} order (unordered when null), fetched
+     * {@link #STREAM_FETCH_SIZE} at a time so the driver never buffers the whole result. The
+     * caller closes the stream.
+     */
+    public Stream<WorkFull> stream(String where, Sort sort, Object... params) {
+        if (!readMaterialized) {
+            return (sort == null ? WorkFull.<WorkFull>find(where, params) : WorkFull.<WorkFull>find(where, sort, params))
+                    .withHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                    .withHint(HibernateHints.HINT_READ_ONLY, Boolean.TRUE)
+                    .stream();
+        }
+        return nativeQuery(where, sort, params)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, Boolean.TRUE)
+                .getResultStream();
+    }
+
+    private Query nativeQuery(String where, Sort sort, Object... params) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(ENTITY_COLUMNS).append(" FROM ").append(MATERIALIZED);
+        if (where != null) sql.append(" WHERE ").append(where);
+        if (sort != null) sql.append(" ORDER BY ").append(orderBy(sort));
+        Query query = em.createNativeQuery(sql.toString(), WorkFull.class);
+        bind(query, params);
+        return query;
+    }
+
+    static String orderBy(Sort sort) {
+        return sort.getColumns().stream()
+                .map(c -> c.getName() + (c.getDirection() == Sort.Direction.Descending ? " DESC" : ""))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void bind(Query query, Object... params) {
+        for (int i = 0; i < params.length; i++) {
+            query.setParameter(i + 1, params[i]);
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package dk.trustworks.intranet.dao.workservice.services;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import dk.trustworks.intranet.dao.crm.services.ProjectService;
 import dk.trustworks.intranet.dao.workservice.model.Work;
 import dk.trustworks.intranet.dao.workservice.model.WorkFull;
 import dk.trustworks.intranet.dao.workservice.validation.TimesheetWorkValidationService;
 import dk.trustworks.intranet.dto.DateValueDTO;
 import dk.trustworks.intranet.dto.work.ConsultantWorkRevenue;
+import dk.trustworks.intranet.dto.work.LightweightWork;
 import dk.trustworks.intranet.utils.DateUtils;
-import io.quarkus.cache.CacheInvalidateAll;
 import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -19,15 +21,24 @@ import jakarta.transaction.Transactional;
 import jakarta.ws.rs.QueryParam;
 import lombok.extern.jbosslog.JBossLog;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.HibernateHints;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -44,6 +55,17 @@ public class WorkService {
     public static final String WORK_HOURS = "a7314f77-5e03-4f56-8b1c-0562e601f22f";
     private static final String HOURLY_TASK_UUID = "a7314f77-5e03-4f56-8b1c-0562e601f22f";
 
+    /** Rows per JDBC round trip for the streaming exports. */
+    static final int STREAM_FETCH_SIZE = WorkFullSource.STREAM_FETCH_SIZE;
+
+    private static final String LIGHTWEIGHT_BY_PERIOD_SQL =
+            "SELECT w.uuid, w.useruuid, w.registered, w.workduration, " +
+            "w.taskuuid, w.billable, w.rate, t.projectuuid " +
+            "FROM work w " +
+            "LEFT JOIN task t ON w.taskuuid = t.uuid " +
+            "WHERE w.registered >= :fromDate AND w.registered < :toDate " +
+            "ORDER BY w.registered, w.useruuid";
+
     @Inject
     EntityManager em;
 
@@ -59,8 +81,17 @@ public class WorkService {
     @Inject
     TimesheetWorkValidationService timesheetWorkValidationService;
 
+    @Inject
+    WorkCacheEvictor workCacheEvictor;
+
+    @Inject
+    WorkFullMaterializer workFullMaterializer;
+
+    @Inject
+    WorkFullSource workFullSource;
+
     public List<WorkFull> listAll(int page) {
-        return WorkFull.findAll().page(Page.of(page, 1000)).list();
+        return workFullSource.page(null, Page.of(page, 1000));
     }
 
     /**
@@ -70,7 +101,7 @@ public class WorkService {
      * @return List of WorkFull
      */
     public List<WorkFull> findByPeriod(LocalDate fromDate, LocalDate toDate) {
-        return WorkFull.find("registered >= ?1 AND registered < ?2", fromDate, toDate).list();
+        return workFullSource.list("registered >= ?1 AND registered < ?2", fromDate, toDate);
     }
 
     /**
@@ -83,9 +114,7 @@ public class WorkService {
      * @return List of WorkFull
      */
     public List<WorkFull> findByPeriodPaged(LocalDate fromDate, LocalDate toDate, int page, int pageSize) {
-        return WorkFull.find("registered >= ?1 AND registered < ?2", fromDate, toDate)
-                .page(Page.of(page, pageSize))
-                .list();
+        return workFullSource.page("registered >= ?1 AND registered < ?2", Page.of(page, pageSize), fromDate, toDate);
     }
 
     /**
@@ -96,8 +125,40 @@ public class WorkService {
      * @return Stream of WorkFull
      */
     public Stream<WorkFull> findByPeriodStream(LocalDate fromDate, LocalDate toDate) {
-        return WorkFull.find("registered >= ?1 AND registered < ?2", fromDate, toDate)
-                .stream();
+        return findByPeriodStream(fromDate, toDate, Sort.by("registered").and("useruuid"));
+    }
+
+    /**
+     * As {@link #findByPeriodStream(LocalDate, LocalDate)}, in the given order. The rows are
+     * read-only and fetched {@link #STREAM_FETCH_SIZE} at a time, so the driver never buffers
+     * the whole result.
+     */
+    public Stream<WorkFull> findByPeriodStream(LocalDate fromDate, LocalDate toDate, Sort sort) {
+        return workFullSource.stream("registered >= ?1 AND registered < ?2", sort, fromDate, toDate);
+    }
+
+    /**
+     * Feeds every work row in the period to {@code sink} as the JDBC cursor advances, for the
+     * NDJSON exports. Each row is detached once the sink returns, so neither the persistence
+     * context nor the heap grows with the period. The transaction keeps the connection (and
+     * cursor) open for the duration of the export.
+     * @param fromDate Including
+     * @param toDate Excluding
+     * @param groupByUser order by user first, so a consumer can emit one group per user
+     * @return number of rows passed to the sink
+     */
+    @Transactional
+    public long forEachByPeriod(LocalDate fromDate, LocalDate toDate, boolean groupByUser, Consumer<WorkFull> sink) {
+        Sort sort = groupByUser ? Sort.by("useruuid").and("registered") : Sort.by("registered").and("useruuid");
+        long count = 0;
+        try (Stream<WorkFull> rows = findByPeriodStream(fromDate, toDate, sort)) {
+            for (Iterator<WorkFull> it = rows.iterator(); it.hasNext(); count++) {
+                WorkFull row = it.next();
+                sink.accept(row);
+                em.detach(row);
+            }
+        }
+        return count;
     }
 
     /**
@@ -108,14 +169,7 @@ public class WorkService {
      * @return List of lightweight work data
      */
     public List<Map<String, Object>> findByPeriodLightweight(LocalDate fromDate, LocalDate toDate) {
-        String sql = "SELECT w.uuid, w.useruuid, w.registered, w.workduration, " +
-                     "w.taskuuid, w.billable, w.rate, t.projectuuid " +
-                     "FROM work w " +
-                     "LEFT JOIN task t ON w.taskuuid = t.uuid " +
-                     "WHERE w.registered >= :fromDate AND w.registered < :toDate " +
-                     "ORDER BY w.registered, w.useruuid";
-
-        List<Object[]> results = em.createNativeQuery(sql)
+        List<Object[]> results = em.createNativeQuery(LIGHTWEIGHT_BY_PERIOD_SQL)
                 .setParameter("fromDate", fromDate)
                 .setParameter("toDate", toDate)
                 .getResultList();
@@ -136,6 +190,39 @@ public class WorkService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streaming variant of {@link #findByPeriodLightweight(LocalDate, LocalDate)}: rows go to
+     * {@code sink} as the cursor advances, {@link #STREAM_FETCH_SIZE} per round trip.
+     * @param fromDate Including
+     * @param toDate Excluding
+     * @return number of rows passed to the sink
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public long forEachLightweightByPeriod(LocalDate fromDate, LocalDate toDate, Consumer<LightweightWork> sink) {
+        long count = 0;
+        try (Stream<Object[]> rows = em.createNativeQuery(LIGHTWEIGHT_BY_PERIOD_SQL)
+                .setParameter("fromDate", fromDate)
+                .setParameter("toDate", toDate)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); count++) {
+                Object[] row = it.next();
+                sink.accept(LightweightWork.builder()
+                        .uuid((String) row[0])
+                        .useruuid((String) row[1])
+                        .registered((LocalDate) row[2])
+                        .workduration((Double) row[3])
+                        .taskuuid((String) row[4])
+                        .billable((Boolean) row[5])
+                        .rate((Double) row[6])
+                        .projectuuid((String) row[7])
+                        .build());
+            }
+        }
+        return count;
+    }
+
     /**
      * Count total records for a period without fetching all data.
      * Useful for pagination metadata.
@@ -144,7 +231,7 @@ public class WorkService {
      * @return Total count of work records
      */
     public long countByPeriod(LocalDate fromDate, LocalDate toDate) {
-        return WorkFull.count("registered >= ?1 AND registered < ?2", fromDate, toDate);
+        return workFullSource.count("registered >= ?1 AND registered < ?2", fromDate, toDate);
     }
 
     /**
@@ -168,10 +255,10 @@ public class WorkService {
 
         // Fetch data for each user in batches to avoid memory issues
         for (String userId : userIds) {
-            List<WorkFull> userWork = WorkFull.find(
+            List<WorkFull> userWork = workFullSource.list(
                 "useruuid = ?1 AND registered >= ?2 AND registered < ?3",
                 userId, fromDate, toDate
-            ).list();
+            );
             result.put(userId, userWork);
         }
 
@@ -216,14 +303,14 @@ public class WorkService {
     }
 
     public WorkFull findByRegisteredAndUseruuidAndTaskuuid(LocalDate registered, String useruuid, String taskuuid) {
-        return WorkFull.find("registered = ?1 AND useruuid = ?2 AND taskuuid = ?3", registered, useruuid, taskuuid).firstResult();
+        return workFullSource.first("registered = ?1 AND useruuid = ?2 AND taskuuid = ?3", registered, useruuid, taskuuid);
     }
 
     public List<WorkFull> findByPeriodAndUserUUID(LocalDate fromdate, LocalDate todate, String useruuid) {
         if(todate.getDayOfMonth()>1) {
             log.debug("Non-month-aligned period end (todate not the 1st): "+todate);
         }
-        return WorkFull.find("registered >= ?1 AND registered < ?2 AND useruuid = ?3", fromdate, todate, useruuid).list();
+        return workFullSource.list("registered >= ?1 AND registered < ?2 AND useruuid = ?3", fromdate, todate, useruuid);
     }
 
     @SuppressWarnings("unchecked")
@@ -231,7 +318,7 @@ public class WorkService {
         String sql = "SELECT " +
                 "    MAKEDATE(YEAR(wf.registered), 1) + INTERVAL (MONTH(wf.registered) - 1) MONTH AS date, " +
                 "    SUM(wf.workduration) AS value " +
-                "FROM work_full wf " +
+                "FROM " + workFullSource.table() + " wf " +
                 "WHERE wf.useruuid = :useruuid " +
                 "    AND wf.workduration > 0 " +
                 "    AND wf.rate > 0 " +
@@ -252,7 +339,7 @@ public class WorkService {
     public DateValueDTO findWorkHoursByUserAndDay(String useruuid, LocalDate day) {
         final String sql =
                 "SELECT COALESCE(SUM(wf.workduration), 0) AS value " +
-                        "FROM work_full wf " +
+                        "FROM " + workFullSource.table() + " wf " +
                         "WHERE wf.useruuid = :useruuid " +
                         "  AND wf.workduration > 0 " +
                         "  AND wf.rate > 0 " +
@@ -271,7 +358,7 @@ public class WorkService {
         String sql = "SELECT " +
                 "    MAKEDATE(YEAR(wf.registered), 1) + INTERVAL (MONTH(wf.registered) - 1) MONTH AS date, " +
                 "    SUM(wf.workduration * wf.rate) AS value " +
-                "FROM work_full wf " +
+                "FROM " + workFullSource.table() + " wf " +
                 "WHERE wf.useruuid = :useruuid " +
                 "    AND wf.workduration > 0 " +
                 "    AND wf.rate > 0 " +
@@ -308,7 +395,7 @@ public class WorkService {
         String sql = "SELECT wf.useruuid AS useruuid, " +
                 "       SUM(wf.workduration)               AS hours, " +
                 "       SUM(wf.workduration * wf.rate)     AS revenue " +
-                "FROM work_full wf " +
+                "FROM " + workFullSource.table() + " wf " +
                 "WHERE wf.clientuuid = :clientUuid " +
                 "  AND wf.registered >= :periodStart " +
                 "  AND wf.registered <  :periodEnd " +
@@ -336,7 +423,7 @@ public class WorkService {
     public DateValueDTO findWorkRevenueByUserAndDay(String useruuid, LocalDate day) {
         final String sql =
                 "SELECT COALESCE(SUM(wf.workduration * wf.rate), 0) AS value " +
-                        "FROM work_full wf " +
+                        "FROM " + workFullSource.table() + " wf " +
                         "WHERE wf.useruuid = :useruuid " +
                         "  AND wf.workduration > 0 " +
                         "  AND wf.rate > 0 " +
@@ -358,15 +445,15 @@ public class WorkService {
 
     public List<WorkFull> findByPeriodAndProject(String fromdate, String todate, String projectuuid) {
         if(dateIt(todate).getDayOfMonth()>1) log.debug("Non-month-aligned period end (todate not the 1st): "+todate);
-        return WorkFull.find("registered >= ?1 AND registered < ?2 AND projectuuid = ?3", dateIt(fromdate), dateIt(todate), projectuuid).list();
+        return workFullSource.list("registered >= ?1 AND registered < ?2 AND projectuuid = ?3", dateIt(fromdate), dateIt(todate), projectuuid);
     }
 
     public List<WorkFull> findByTasks(List<String> taskuuids) {
-        return WorkFull.find("taskuuid IN (?1)", taskuuids).list();
+        return workFullSource.list("taskuuid IN (?1)", taskuuids);
     }
 
     public List<WorkFull> findByTask(String taskuuid) {
-        return WorkFull.find("taskuuid = ?1", taskuuid).list();
+        return workFullSource.list("taskuuid = ?1", taskuuid);
     }
 
     public List<Work> findByUserAndUnpaidAndTaskuuid(String useruuid, String taskuuid) {
@@ -395,11 +482,11 @@ public class WorkService {
     }
 
     public List<WorkFull> findByContract(String contractuuid) {
-        return WorkFull.find("contractuuid = ?1", contractuuid).list();
+        return workFullSource.list("contractuuid = ?1", contractuuid);
     }
 
     public List<WorkFull> findWorkFullByUserAndTasks(String useruuid, String taskuuids) {
-        return WorkFull.find("useruuid = ?1 AND taskuuid IN (?2)", useruuid, taskuuids).list();
+        return workFullSource.list("useruuid = ?1 AND taskuuid IN (?2)", useruuid, taskuuids);
     }
 
     public List<Work> findWorkByUserAndTasks(String useruuid, String taskuuids) {
@@ -445,7 +532,7 @@ public class WorkService {
     public Map<String, Map<String, Double>> findByUserAndTasksSumByMonth(@QueryParam("taskuuids") String taskuuids) {
         log.info("WorkResource.findByUserAndTasksSumByMonth");
         log.info("taskuuids = " + taskuuids);
-        List<WorkFull> workList = WorkFull.find("taskuuid IN (?1)", taskuuids).list();
+        List<WorkFull> workList = workFullSource.list("taskuuid IN (?1)", taskuuids);
         Map<String, Map<String, Double>> userMap = new HashMap<>();
         for (WorkFull work : workList) {
             userMap.putIfAbsent(work.getUseruuid(), new HashMap<>());
@@ -462,34 +549,34 @@ public class WorkService {
     }
 
     public double countByUserAndTasks(@QueryParam("useruuid") String useruuid, @QueryParam("taskuuids") String taskuuids) {
-        try (Stream<WorkFull> workStream = WorkFull.stream("useruuid = ?1 AND taskuuid IN (?2)", useruuid, taskuuids)) {
+        try (Stream<WorkFull> workStream = workFullSource.stream("useruuid = ?1 AND taskuuid IN (?2)", null, useruuid, taskuuids)) {
             return workStream.mapToDouble(WorkFull::getWorkduration).sum();
         }
     }
 
     public List<WorkFull> findByPeriodAndUserAndTasks(LocalDate fromdate, LocalDate todate, String useruuid, String taskuuids) {
         if(todate.getDayOfMonth()>1) log.debug("Non-month-aligned period end (todate not the 1st): "+todate);
-        return WorkFull.find("registered >= ?1 AND registered < ?2 AND useruuid = ?3 AND taskuuid IN (?4)", fromdate, todate, useruuid, taskuuids).list();
+        return workFullSource.list("registered >= ?1 AND registered < ?2 AND useruuid = ?3 AND taskuuid IN (?4)", fromdate, todate, useruuid, taskuuids);
     }
 
     public List<WorkFull> findByContractAndUserByPeriod(String contractuuid, String useruuid, LocalDate fromDate, LocalDate toDate) {
-        return WorkFull.find("contractuuid = ?1 AND useruuid = ?2 AND registered >= ?3 AND registered < ?4", contractuuid, useruuid, fromDate, toDate).list();
+        return workFullSource.list("contractuuid = ?1 AND useruuid = ?2 AND registered >= ?3 AND registered < ?4", contractuuid, useruuid, fromDate, toDate);
     }
 
     public List<WorkFull> findByContractAndUser(String contractuuid, String useruuid) {
-        return WorkFull.find("contractuuid = ?1 AND useruuid = ?2", contractuuid, useruuid).list();
+        return workFullSource.list("contractuuid = ?1 AND useruuid = ?2", contractuuid, useruuid);
     }
 
     public List<WorkFull> findByYearAndMonth(LocalDate month) {
         return findByPeriod(getFirstDayOfMonth(month), getFirstDayOfMonth(month).plusMonths(1));
     }
 
-    @io.quarkus.cache.CacheResult(cacheName = "work-cache")
+    @io.quarkus.cache.CacheResult(cacheName = "work-cache", keyGenerator = WorkCacheKeys.ProjectMonthGenerator.class)
     public List<WorkFull> findByYearAndMonthAndProject(int year, int month, String projectuuid) {
         return findByPeriodAndProject(getFirstDayOfMonth(year, month).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")), getFirstDayOfMonth(year, month).plusMonths(1).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")), projectuuid);
     }
 
-    @io.quarkus.cache.CacheResult(cacheName = "work-cache")
+    @io.quarkus.cache.CacheResult(cacheName = "work-cache", keyGenerator = WorkCacheKeys.ContractGenerator.class)
     public Double findAmountUsedByContract(String contractuuid) {
         return findByContract(contractuuid).stream().mapToDouble(value -> value.getRate()*value.getWorkduration()).sum();
     }
@@ -516,7 +603,7 @@ public class WorkService {
 
         // Use native query for efficient aggregation
         String sql = "SELECT contractuuid, SUM(rate * workduration) as amount " +
-                     "FROM work_full " +
+                     "FROM " + workFullSource.table() + " " +
                      "WHERE contractuuid IN (:uuids) " +
                      "GROUP BY contractuuid";
 
@@ -577,8 +664,6 @@ public class WorkService {
     }
 
     @Transactional
-    @CacheInvalidateAll(cacheName = "work-cache")
-    @CacheInvalidateAll(cacheName = "employee-availability")
     public void persistOrUpdateInTx(Work work, boolean routingTrusted) {
         log.debugf("persistOrUpdate called: userUuid=%s, taskUuid=%s, registered=%s, duration=%.2f, rate=%.2f",
                 work.getUseruuid(), work.getTaskuuid(), work.getRegistered(), work.getWorkduration(), work.getRate());
@@ -593,6 +678,8 @@ public class WorkService {
             work.setUuid(existing.getUuid());
             reconcileRoutingFields(work, existing, routingTrusted);
             updateExistingWork(work);
+            workFullMaterializer.refreshRows(List.of(work.getUuid()));
+            workCacheEvictor.scheduleAfterCommit(List.of(WorkCacheEvictor.WorkWrite.of(existing), WorkCacheEvictor.WorkWrite.of(work)));
             log.infof("Work updated: workUuid=%s, userUuid=%s, taskUuid=%s, registered=%s, duration=%.2f, rate=%.2f",
                     work.getUuid(), work.getUseruuid(), work.getTaskuuid(), work.getRegistered(), work.getWorkduration(), work.getRate());
         } else {
@@ -602,11 +689,195 @@ public class WorkService {
             // instead of a deferred commit-time RollbackException that Arc rewraps as
             // ArcUndeclaredThrowableException and GenericExceptionMapper turns into a 500.
             work.persistAndFlush();
+            workFullMaterializer.refreshRows(List.of(work.getUuid()));
+            workCacheEvictor.scheduleAfterCommit(List.of(WorkCacheEvictor.WorkWrite.of(work)));
             log.infof("Work created: workUuid=%s, userUuid=%s, taskUuid=%s, registered=%s, duration=%.2f, rate=%.2f",
                     work.getUuid(), work.getUseruuid(), work.getTaskuuid(), work.getRegistered(), work.getWorkduration(), work.getRate());
         }
     }
 
+    /**
+     * Outcome of {@link #persistOrUpdateAll(List)}. {@code written} holds the request rows that
+     * were inserted or updated, in request order; paid-out skips and the earlier rows of a tuple
+     * repeated in the batch are left out. It is not part of the response body.
+     */
+    public record BatchResult(int inserted, int updated, int skippedPaidOut, @JsonIgnore List<Work> written) {
+
+        public static BatchResult empty() {
+            return new BatchResult(0, 0, 0, List.of());
+        }
+    }
+
+    /**
+     * Batch save for POST /work/batch (a consultant's week in one request). Same per-row semantics
+     * as {@link #persistOrUpdate(Work)}, but:
+     * <ul>
+     *   <li>validation runs once for the batch against one preloaded contract context;</li>
+     *   <li>existing rows are fetched with one query and every insert/update is flushed in JDBC
+     *       batches ({@code statement-batch-size}) inside one transaction;</li>
+     *   <li>the touched cache entries are evicted once per batch instead of once per row.</li>
+     * </ul>
+     * A concurrent insert that trips {@code uq_work_user_date_task} is reconciled exactly like the
+     * single-row path: the whole batch is retried once in a fresh transaction, whose snapshot sees
+     * the winning row and updates it.
+     *
+     * <p>Each attempt works on fresh copies of the request rows: a rolled-back attempt leaves its
+     * instances persisted in a dead persistence context, with generated uuids and reconciled routing,
+     * so re-persisting them would insert stale state. The winning attempt's uuids and routing are
+     * copied back onto {@code works}, and its written rows are reported as the matching
+     * {@code works} entries, for the caller's events.</p>
+     */
+    public BatchResult persistOrUpdateAll(List<Work> works) {
+        if (works == null || works.isEmpty()) return BatchResult.empty();
+        List<Boolean> routingTrusted = timesheetWorkValidationService.validateAll(works);
+        List<Work> attempt = copiesForAttempt(works);
+        BatchResult result;
+        try {
+            result = self.persistOrUpdateAllInTx(attempt, routingTrusted);
+        } catch (PersistenceException e) {
+            if (!isDuplicateWorkKeyViolation(e)) {
+                throw e;
+            }
+            log.warnf("Concurrent duplicate work insert in batch of %d rows — reconciling idempotently in a fresh transaction",
+                    works.size());
+            attempt = copiesForAttempt(works);
+            result = self.persistOrUpdateAllInTx(attempt, routingTrusted);
+        }
+        Set<Work> writtenCopies = Collections.newSetFromMap(new IdentityHashMap<>());
+        writtenCopies.addAll(result.written());
+        List<Work> written = new ArrayList<>(writtenCopies.size());
+        for (int i = 0; i < works.size(); i++) {
+            Work saved = attempt.get(i);
+            Work original = works.get(i);
+            original.setUuid(saved.getUuid());
+            original.setContractuuid(saved.getContractuuid());
+            original.setProjectuuid(saved.getProjectuuid());
+            original.setClientuuid(saved.getClientuuid());
+            if (writtenCopies.contains(saved)) written.add(original);
+        }
+        return new BatchResult(result.inserted(), result.updated(), result.skippedPaidOut(), written);
+    }
+
+    /** Unmanaged copies of the request rows, carrying the client's uuid, for one batch attempt. */
+    static List<Work> copiesForAttempt(List<Work> works) {
+        List<Work> copies = new ArrayList<>(works.size());
+        for (Work work : works) {
+            Work copy = new Work();
+            copy.setUuid(work.getUuid());
+            copy.setRegistered(work.getRegistered());
+            copy.setWorkduration(work.getWorkduration());
+            copy.setClientuuid(work.getClientuuid());
+            copy.setProjectuuid(work.getProjectuuid());
+            copy.setTaskuuid(work.getTaskuuid());
+            copy.setContractuuid(work.getContractuuid());
+            copy.setUseruuid(work.getUseruuid());
+            copy.setWorkas(work.getWorkas());
+            copy.setRate(work.getRate());
+            copy.setComments(work.getComments());
+            copy.setBillable(work.isBillable());
+            copy.setPaidOut(work.getPaidOut());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    @Transactional
+    public BatchResult persistOrUpdateAllInTx(List<Work> works, List<Boolean> routingTrusted) {
+        // Last write wins for a tuple repeated within the batch, as it would with sequential saves.
+        Map<String, Integer> lastIndexByTuple = new LinkedHashMap<>();
+        for (int i = 0; i < works.size(); i++) {
+            Work work = works.get(i);
+            lastIndexByTuple.put(tupleKey(work.getRegistered(), work.getUseruuid(), work.getTaskuuid()), i);
+        }
+        Map<String, Work> existingByTuple = new HashMap<>();
+        for (Work existing : findExistingWorkForBatch(works)) {
+            existingByTuple.putIfAbsent(tupleKey(existing.getRegistered(), existing.getUseruuid(), existing.getTaskuuid()), existing);
+        }
+
+        int inserted = 0, updated = 0, skipped = 0;
+        List<WorkCacheEvictor.WorkWrite> touched = new ArrayList<>();
+        List<Work> written = new ArrayList<>();
+        for (int index : lastIndexByTuple.values().stream().sorted().toList()) {
+            Work work = works.get(index);
+            Work existing = existingByTuple.get(tupleKey(work.getRegistered(), work.getUseruuid(), work.getTaskuuid()));
+            if (existing != null) {
+                if (existing.isPaidOut()) {
+                    log.warnf("Skipping update for already paid-out work: workUuid=%s, userUuid=%s, taskUuid=%s, registered=%s",
+                            existing.getUuid(), work.getUseruuid(), work.getTaskuuid(), work.getRegistered());
+                    skipped++;
+                    continue;
+                }
+                work.setUuid(existing.getUuid());
+                reconcileRoutingFields(work, existing, Boolean.TRUE.equals(routingTrusted.get(index)));
+                touched.add(WorkCacheEvictor.WorkWrite.of(existing));
+                applyUpdate(existing, work);
+                touched.add(WorkCacheEvictor.WorkWrite.of(existing));
+                written.add(work);
+                updated++;
+            } else {
+                work.setUuid(UUID.randomUUID().toString());
+                persistBatched(work);
+                touched.add(WorkCacheEvictor.WorkWrite.of(work));
+                written.add(work);
+                inserted++;
+            }
+        }
+        // One flush: Hibernate groups the statements into JDBC batches, and a duplicate-key race
+        // surfaces here as a PersistenceException the caller retries.
+        flushBatch();
+        workFullMaterializer.refreshRows(written.stream().map(Work::getUuid).toList());
+        workCacheEvictor.scheduleAfterCommit(touched);
+        log.infof("Work batch saved: rows=%d, inserted=%d, updated=%d, skippedPaidOut=%d",
+                works.size(), inserted, updated, skipped);
+        return new BatchResult(inserted, updated, skipped, written);
+    }
+
+    /**
+     * All existing rows for the batch's (users, tasks, date range) in one query; callers match
+     * the exact tuples in memory. Package-private seam for unit tests.
+     */
+    List<Work> findExistingWorkForBatch(List<Work> works) {
+        Set<String> users = new LinkedHashSet<>();
+        Set<String> tasks = new LinkedHashSet<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Work work : works) {
+            users.add(work.getUseruuid());
+            tasks.add(work.getTaskuuid());
+            if (from == null || work.getRegistered().isBefore(from)) from = work.getRegistered();
+            if (to == null || work.getRegistered().isAfter(to)) to = work.getRegistered();
+        }
+        return Work.find("registered >= ?1 AND registered <= ?2 AND useruuid IN ?3 AND taskuuid IN ?4",
+                from, to, new ArrayList<>(users), new ArrayList<>(tasks)).list();
+    }
+
+    /**
+     * The fields {@link #updateExistingWork(Work)} writes, applied to the managed row so the
+     * UPDATE joins the flush batch. Package-private seam for unit tests.
+     */
+    void applyUpdate(Work existing, Work incoming) {
+        existing.setWorkduration(incoming.getWorkduration());
+        existing.setComments(incoming.getComments());
+        existing.setPaidOut(incoming.getPaidOut());
+        existing.setContractuuid(incoming.getContractuuid());
+        existing.setProjectuuid(incoming.getProjectuuid());
+        existing.setClientuuid(incoming.getClientuuid());
+    }
+
+    /** Package-private seam for unit tests. */
+    void persistBatched(Work work) {
+        work.persist();
+    }
+
+    /** Package-private seam for unit tests. */
+    void flushBatch() {
+        em.flush();
+    }
+
+    private static String tupleKey(LocalDate registered, String useruuid, String taskuuid) {
+        return registered + "|" + useruuid + "|" + taskuuid;
+    }
+
     /**
      * Panache lookup for an existing row on the {@code uq_work_user_date_task} tuple
      * (registered, useruuid, taskuuid). Package-private seam so the idempotency decision in
@@ -669,17 +940,18 @@ public class WorkService {
     }
 
     public List<WorkFull> findBillableWorkByUser(String useruuid) {
-        return WorkFull.find("useruuid = ?1", useruuid).list();
+        return workFullSource.list("useruuid = ?1", useruuid);
     }
 
     public double sumBillableByUserAndTasks(String useruuid, LocalDate localDate) {
-        return WorkFull.<WorkFull>find("useruuid = ?1 AND rate > 0 AND registered >= ?2 AND registered < ?3", useruuid, localDate, localDate.plusMonths(1)).stream().mapToDouble(WorkFull::getWorkduration).sum();
+        return workFullSource.list("useruuid = ?1 AND rate > 0 AND registered >= ?2 AND registered < ?3", useruuid, localDate, localDate.plusMonths(1)).stream().mapToDouble(WorkFull::getWorkduration).sum();
     }
 
     @Transactional
     public void setPaidAndUpdate(Work work) {
         work.setPaidOut(LocalDateTime.now());
         Work.update("paidOut = ?1 WHERE uuid = ?2 ", work.getPaidOut(), work.getUuid());
+        workFullMaterializer.refreshRows(List.of(work.getUuid()));
         log.infof("Work marked as paid: workUuid=%s, userUuid=%s, taskUuid=%s, registered=%s, duration=%.2f, rate=%.2f, paidOut=%s",
                 work.getUuid(), work.getUseruuid(), work.getTaskuuid(), work.getRegistered(),
                 work.getWorkduration(), work.getRate(), work.getPaidOut());
@@ -691,6 +963,7 @@ public class WorkService {
                 work.getUuid(), work.getUseruuid(), work.getTaskuuid(), work.getRegistered(), work.getPaidOut());
         work.setPaidOut(null);
         Work.update("paidOut = ?1 WHERE uuid = ?2 ", work.getPaidOut(), work.getUuid());
+        workFullMaterializer.refreshRows(List.of(work.getUuid()));
     }
 
     /**
@@ -714,6 +987,7 @@ public class WorkService {
         for (WorkFull work : workItems) {
             count += Work.update("paidOut = ?1 WHERE uuid = ?2 AND paidOut IS NULL", now, work.getUuid());
         }
+        workFullMaterializer.refreshRows(workItems.stream().map(WorkFull::getUuid).toList());
         log.infof("Batch paidout registration completed: contractUuid=%s, projectUuid=%s, month=%d, year=%d, workItems=%d, newlyMarked=%d, paidOutTimestamp=%s",
                 contractuuid, projectuuid, month, year, workItems.size(), count, now);
     }
@@ -5,8 +5,17 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Resolves and validates the concrete contract used by one timesheet cell.
@@ -40,14 +49,51 @@ public class TimesheetContractResolver {
     @Inject
     EntityManager em;
 
+    /**
+     * Batch variant of {@link #ELIGIBLE_CONTRACTS_SQL}: every (task, consultant) assignment window
+     * overlapping the batch's date range, filtered per row in memory.
+     */
+    private static final String BATCH_ELIGIBLE_CONTRACTS_SQL = """
+            SELECT DISTINCT
+                t.uuid,
+                cc.useruuid,
+                cc.activefrom,
+                cc.activeto,
+                c.uuid,
+                c.contracttype,
+                COALESCE(ctd.name, c.contracttype),
+                t.projectuuid,
+                p.clientuuid
+            FROM task t
+            JOIN project p ON p.uuid = t.projectuuid
+            JOIN contract_project cp ON cp.projectuuid = t.projectuuid
+            JOIN contracts c ON c.uuid = cp.contractuuid
+            JOIN contract_consultants cc ON cc.contractuuid = c.uuid
+            LEFT JOIN contract_type_definitions ctd ON ctd.code = c.contracttype
+            WHERE t.uuid IN (:taskUuids)
+              AND cc.useruuid IN (:userUuids)
+              AND cc.activefrom <= :toDate
+              AND cc.activeto >= :fromDate
+              AND c.clientuuid = p.clientuuid
+            ORDER BY c.uuid
+            """;
+
     public Resolution resolve(Work work, String effectiveUserUuid) {
+        return resolve(work, effectiveUserUuid, null);
+    }
+
+    /**
+     * Same decision as {@link #resolve(Work, String)}, answered from a {@link BatchContext}
+     * preloaded for the whole batch when one is given.
+     */
+    public Resolution resolve(Work work, String effectiveUserUuid, BatchContext context) {
         String requestedContractUuid = normalize(work.getContractuuid());
         if (requestedContractUuid != null && requestedContractUuid.length() > 36) {
             return Resolution.unresolved(null,
                     "The supplied contractUuid is not eligible for this work entry.", 0);
         }
 
-        PersistedAssociation persisted = findPersistedAssociation(work);
+        PersistedAssociation persisted = context != null ? context.persistedAssociation(work) : findPersistedAssociation(work);
         if (persisted != null && persisted.paidOut()) {
             return Resolution.paidOut(persisted.storedContractUuid());
         }
@@ -67,7 +113,9 @@ public class TimesheetContractResolver {
                             "No eligible contract could be resolved for this work entry.", 0);
         }
 
-        List<EligibleContract> eligibleCandidates = findEligibleCandidates(work, effectiveUserUuid);
+        List<EligibleContract> eligibleCandidates = context != null
+                ? context.eligibleCandidates(work, effectiveUserUuid)
+                : findEligibleCandidates(work, effectiveUserUuid);
         List<EligibleContract> candidates = eligibleCandidates.stream()
                 .filter(candidate -> matchesRequestedRouting(work, candidate))
                 .toList();
@@ -172,6 +220,130 @@ public class TimesheetContractResolver {
                 .toList();
     }
 
+    /**
+     * Loads the persisted associations and eligible contracts of a whole batch with two queries,
+     * instead of two per row. Rows without a date, task or user are left to the per-row rules.
+     */
+    @SuppressWarnings("unchecked")
+    public BatchContext preload(Collection<Work> works, Function<Work, String> effectiveUserUuid) {
+        Set<String> users = new LinkedHashSet<>();
+        Set<String> effectiveUsers = new LinkedHashSet<>();
+        Set<String> tasks = new LinkedHashSet<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Work work : works) {
+            String user = normalize(work.getUseruuid());
+            String task = normalize(work.getTaskuuid());
+            if (work.getRegistered() == null || user == null || task == null) continue;
+            users.add(user);
+            tasks.add(task);
+            String effective = normalize(effectiveUserUuid.apply(work));
+            if (effective != null) effectiveUsers.add(effective);
+            if (from == null || work.getRegistered().isBefore(from)) from = work.getRegistered();
+            if (to == null || work.getRegistered().isAfter(to)) to = work.getRegistered();
+        }
+        Map<String, PersistedAssociation> persisted = new HashMap<>();
+        Map<String, List<AssignmentWindow>> windows = new HashMap<>();
+        if (tasks.isEmpty()) return new BatchContext(persisted, windows);
+
+        List<Object[]> persistedRows = em.createNativeQuery("""
+                        SELECT w.registered,
+                               w.useruuid,
+                               w.taskuuid,
+                               w.contractuuid,
+                               c.contracttype,
+                               COALESCE(ctd.name, c.contracttype),
+                               COALESCE(w.projectuuid, t.projectuuid),
+                               COALESCE(w.clientuuid, p.clientuuid),
+                               w.paid_out
+                        FROM work w
+                        LEFT JOIN task t ON t.uuid = w.taskuuid
+                        LEFT JOIN project p ON p.uuid = t.projectuuid
+                        LEFT JOIN contracts c ON c.uuid = w.contractuuid
+                        LEFT JOIN contract_type_definitions ctd ON ctd.code = c.contracttype
+                        WHERE w.registered BETWEEN :fromDate AND :toDate
+                          AND w.useruuid IN (:userUuids)
+                          AND w.taskuuid IN (:taskUuids)
+                        """)
+                .setParameter("fromDate", from)
+                .setParameter("toDate", to)
+                .setParameter("userUuids", users)
+                .setParameter("taskUuids", tasks)
+                .getResultList();
+        for (Object[] row : persistedRows) {
+            String storedContractUuid = normalize(stringValue(row[3]));
+            EligibleContract contract = row[4] == null || storedContractUuid == null
+                    ? null
+                    : new EligibleContract(storedContractUuid, stringValue(row[4]), stringValue(row[5]),
+                            stringValue(row[6]), stringValue(row[7]));
+            persisted.putIfAbsent(tupleKey(toLocalDate(row[0]), stringValue(row[1]), stringValue(row[2])),
+                    new PersistedAssociation(storedContractUuid, contract, row[8] != null));
+        }
+
+        if (!effectiveUsers.isEmpty()) {
+            List<Object[]> windowRows = em.createNativeQuery(BATCH_ELIGIBLE_CONTRACTS_SQL)
+                    .setParameter("taskUuids", tasks)
+                    .setParameter("userUuids", effectiveUsers)
+                    .setParameter("fromDate", from)
+                    .setParameter("toDate", to)
+                    .getResultList();
+            for (Object[] row : windowRows) {
+                windows.computeIfAbsent(stringValue(row[0]) + "|" + stringValue(row[1]), k -> new ArrayList<>())
+                        .add(new AssignmentWindow(toLocalDate(row[2]), toLocalDate(row[3]), new EligibleContract(
+                                stringValue(row[4]), stringValue(row[5]), stringValue(row[6]),
+                                stringValue(row[7]), stringValue(row[8]))));
+            }
+        }
+        return new BatchContext(persisted, windows);
+    }
+
+    private static String tupleKey(LocalDate registered, String userUuid, String taskUuid) {
+        return registered + "|" + userUuid + "|" + taskUuid;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDate localDate) return localDate;
+        if (value instanceof Date date) return date.toLocalDate();
+        return LocalDate.parse(value.toString());
+    }
+
+    record AssignmentWindow(LocalDate activeFrom, LocalDate activeTo, EligibleContract contract) {
+        boolean covers(LocalDate day) {
+            return activeFrom != null && activeTo != null && !activeFrom.isAfter(day) && !activeTo.isBefore(day);
+        }
+    }
+
+    /** Preloaded lookups for one batch; see {@link #preload}. */
+    public static final class BatchContext {
+        private final Map<String, PersistedAssociation> persisted;
+        private final Map<String, List<AssignmentWindow>> windows;
+
+        BatchContext(Map<String, PersistedAssociation> persisted, Map<String, List<AssignmentWindow>> windows) {
+            this.persisted = persisted;
+            this.windows = windows;
+        }
+
+        PersistedAssociation persistedAssociation(Work work) {
+            if (work == null || work.getRegistered() == null
+                    || normalize(work.getUseruuid()) == null || normalize(work.getTaskuuid()) == null) {
+                return null;
+            }
+            return persisted.get(tupleKey(work.getRegistered(), normalize(work.getUseruuid()), normalize(work.getTaskuuid())));
+        }
+
+        /** Distinct contracts whose assignment window covers the row's date, ordered by contract uuid. */
+        List<EligibleContract> eligibleCandidates(Work work, String effectiveUserUuid) {
+            List<AssignmentWindow> candidates = windows.getOrDefault(
+                    normalize(work.getTaskuuid()) + "|" + normalize(effectiveUserUuid), List.of());
+            Set<EligibleContract> eligible = new LinkedHashSet<>();
+            for (AssignmentWindow window : candidates) {
+                if (window.covers(work.getRegistered())) eligible.add(window.contract());
+            }
+            return List.copyOf(eligible);
+        }
+    }
+
     private static boolean matchesRequestedRouting(Work work, EligibleContract candidate) {
         String requestedProjectUuid = normalize(work.getProjectuuid());
         String requestedClientUuid = normalize(work.getClientuuid());
@@ -4,6 +4,7 @@ import dk.trustworks.intranet.contracts.config.TimesheetRuleEnforcementConfig;
 import dk.trustworks.intranet.contracts.config.TimesheetRuleEnforcementConfig.Mode;
 import dk.trustworks.intranet.contracts.model.enums.ValidationType;
 import dk.trustworks.intranet.dao.workservice.model.Work;
+import dk.trustworks.intranet.dao.workservice.validation.TimesheetContractResolver.BatchContext;
 import dk.trustworks.intranet.dao.workservice.validation.TimesheetContractResolver.EligibleContract;
 import dk.trustworks.intranet.dao.workservice.validation.TimesheetContractResolver.Resolution;
 import dk.trustworks.intranet.dao.workservice.validation.TimesheetValidationPolicyCache.Policy;
@@ -48,7 +49,31 @@ public class TimesheetWorkValidationService {
             // Load-bearing rollout invariant: OFF must add zero reads to this high-frequency path.
             return false;
         }
+        return validate(work, mode, null);
+    }
+
+    /**
+     * Validates a batch (POST /work/batch) against one contract context loaded for all rows. Each
+     * row gets exactly the single-row decision; in ENFORCE mode the first violation rejects the
+     * whole batch before anything is written.
+     *
+     * @return the routing-trusted flag per row, in input order
+     */
+    public List<Boolean> validateAll(List<Work> works) {
+        Mode mode = config.mode();
+        List<Boolean> trusted = new ArrayList<>(works.size());
+        if (mode == Mode.OFF) {
+            works.forEach(work -> trusted.add(false));
+            return trusted;
+        }
+        BatchContext context = contractResolver.preload(works, TimesheetWorkValidationService::effectiveUserUuid);
+        for (Work work : works) {
+            trusted.add(validate(work, mode, context));
+        }
+        return trusted;
+    }
 
+    private boolean validate(Work work, Mode mode, BatchContext context) {
         // A zero/negative duration clears an existing cell and must never be trapped behind a rule
         // that only applies to positive registrations. Existing validation remains authoritative for
         // any general duration constraints outside the Phase 4 agreement-rule scope.
@@ -57,7 +82,9 @@ public class TimesheetWorkValidationService {
         }
 
         String effectiveUserUuid = effectiveUserUuid(work);
-        Resolution resolution = contractResolver.resolve(work, effectiveUserUuid);
+        Resolution resolution = context == null
+                ? contractResolver.resolve(work, effectiveUserUuid)
+                : contractResolver.resolve(work, effectiveUserUuid, context);
         if (resolution.skipsAgreementValidation()) {
             return false;
         }
@@ -46,6 +46,9 @@ public class WorkByUserResponse {
             required = true)
     private Long totalEntries;
 
+    /** One line of the NDJSON variant: a single user's entries for the period. */
+    public record UserEntries(String useruuid, List<WorkFull> entries) {}
+
     /**
      * Factory method to create WorkByUserResponse from data.
      */
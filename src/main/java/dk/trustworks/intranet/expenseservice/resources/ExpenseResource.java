@@ -31,6 +31,7 @@ import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
@@ -147,6 +148,33 @@ public class ExpenseResource {
     @GET
     @Path("/file/{uuid}")
     public ExpenseFile getFileById(@PathParam("uuid") String uuid) {
+        requireReceiptReach(uuid);
+        try {
+            return expenseFileService.getFileById(uuid);
+        } catch (ExpenseFileNotFoundException e) {
+            throw new NotFoundException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The stored receipt streamed straight from S3, with {@code Range} and {@code If-None-Match}
+     * support; same scoping as {@code /file/{uuid}}.
+     */
+    @GET
+    @Path("/file/{uuid}/content")
+    @Produces(MediaType.WILDCARD)
+    public Response streamFileById(@PathParam("uuid") String uuid,
+                                   @HeaderParam("Range") String range,
+                                   @HeaderParam("If-None-Match") String ifNoneMatch) {
+        requireReceiptReach(uuid);
+        try {
+            return expenseFileService.streamFileById(uuid, range, ifNoneMatch).build();
+        } catch (ExpenseFileNotFoundException e) {
+            throw new NotFoundException(e.getMessage(), e);
+        }
+    }
+
+    private void requireReceiptReach(String uuid) {
         // Phase 9.2: receipts are the route the phase file calls out — a list can
         // be correctly scoped while the file route serves any receipt by UUID.
         // The file shares the expense's uuid; the acting human must reach the
@@ -158,11 +186,6 @@ public class ExpenseResource {
             }
             scope.requireSubjectWhenActor("expenses:read", owning.getUseruuid(), OUTSIDE_REACH);
         }
-        try {
-            return expenseFileService.getFileById(uuid);
-        } catch (ExpenseFileNotFoundException e) {
-            throw new NotFoundException(e.getMessage(), e);
-        }
     }
 
     /**
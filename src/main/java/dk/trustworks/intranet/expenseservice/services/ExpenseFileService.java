@@ -1,6 +1,8 @@
 package dk.trustworks.intranet.expenseservice.services;
 
 import dk.trustworks.intranet.dto.ExpenseFile;
+import dk.trustworks.intranet.fileservice.services.S3Download;
+import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -86,6 +88,24 @@ public class ExpenseFileService {
         return file;
     }
 
+    /**
+     * Streams the stored receipt, honouring {@code Range} and {@code If-None-Match}; see
+     * {@link S3Download}. The body is the object as stored — the same string
+     * {@link #getFileById} puts in {@link ExpenseFile#getExpensefile()}.
+     */
+    public Response.ResponseBuilder streamFileById(String uuid, String range, String ifNoneMatch) throws S3Exception {
+        try {
+            return S3Download.get(s3, bucketName, uuid, range, ifNoneMatch);
+        } catch (S3Exception e) {
+            if (isMissingObject(e)) {
+                log.warnf("Expense file not found in S3: %s", uuid);
+                throw new ExpenseFileNotFoundException(uuid, e);
+            }
+            log.error("Could not stream file from S3", e);
+            throw e;
+        }
+    }
+
     private static boolean isMissingObject(S3Exception exception) {
         if (exception instanceof NoSuchKeyException) {
             return true;
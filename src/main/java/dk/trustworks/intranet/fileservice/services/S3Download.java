@@ -0,0 +1,132 @@
+package dk.trustworks.intranet.fileservice.services;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.util.Date;
+
+/**
+ * Streams an S3 object to a JAX-RS response without buffering it on the heap.
+ *
+ * <p>A {@code HeadObject} call supplies the object's ETag, length and type. {@code If-None-Match}
+ * is evaluated against that ETag (weak comparison, {@code *} matches any object) and answers 304
+ * with the object's own ETag. A satisfiable single byte range answers 206 with
+ * {@code Content-Range}, and an unsatisfiable one 416. Multi-range requests are answered with the
+ * whole object, which RFC 9110 permits.</p>
+ *
+ * <p>The object itself is only opened when the body is written, with {@code If-Match} on the
+ * ETag the headers were built from. A response that is never written, e.g. because the client
+ * went away first, therefore holds no S3 connection; one that is written closes the stream when
+ * it is done.</p>
+ *
+ * <p>Other S3 errors (missing key, access denied) propagate, so each service maps them the way its
+ * byte[] method already does.</p>
+ */
+public final class S3Download {
+
+    private S3Download() {
+    }
+
+    /**
+     * @param range       the request's {@code Range} header, or null
+     * @param ifNoneMatch the request's {@code If-None-Match} header, or null
+     * @return a builder carrying status, entity and caching headers; callers add
+     *         {@code Content-Disposition} and build
+     */
+    public static Response.ResponseBuilder get(S3Client s3, String bucket, String key,
+                                               String range, String ifNoneMatch) {
+        HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+        String etag = head.eTag();
+        if (matchesAny(ifNoneMatch, etag)) {
+            Response.ResponseBuilder notModified = Response.notModified()
+                    .header(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (etag != null) notModified.header(HttpHeaders.ETAG, etag);
+            return notModified;
+        }
+
+        long length = head.contentLength() != null ? head.contentLength() : 0L;
+        long[] bytes = byteRange(range, length);
+        if (bytes == UNSATISFIABLE) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + length)
+                    .header("Accept-Ranges", "bytes");
+        }
+
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(key);
+        if (etag != null) request.ifMatch(etag);
+        if (bytes != null) request.range("bytes=" + bytes[0] + "-" + bytes[1]);
+        GetObjectRequest get = request.build();
+        StreamingOutput body = out -> {
+            try (ResponseInputStream<GetObjectResponse> in = s3.getObject(get)) {
+                in.transferTo(out);
+            }
+        };
+
+        Response.ResponseBuilder builder = Response.status(bytes != null
+                        ? Response.Status.PARTIAL_CONTENT : Response.Status.OK)
+                .entity(body)
+                .header(HttpHeaders.CACHE_CONTROL, "private, no-cache")
+                .header("Accept-Ranges", "bytes")
+                .header(HttpHeaders.CONTENT_LENGTH, bytes != null ? bytes[1] - bytes[0] + 1 : length);
+        if (etag != null) builder.header(HttpHeaders.ETAG, etag);
+        if (bytes != null) builder.header("Content-Range", "bytes " + bytes[0] + "-" + bytes[1] + "/" + length);
+        if (head.contentType() != null) builder.type(head.contentType());
+        if (head.lastModified() != null) builder.lastModified(Date.from(head.lastModified()));
+        return builder;
+    }
+
+    static final long[] UNSATISFIABLE = new long[0];
+
+    /**
+     * The inclusive {@code [first, last]} bytes a single {@code bytes=} range selects from an
+     * object of {@code length} bytes; null to send the whole object (no, malformed or multi-range
+     * header); {@link #UNSATISFIABLE} when no byte of the object is selected.
+     */
+    static long[] byteRange(String range, long length) {
+        if (range == null) return null;
+        String trimmed = range.trim();
+        if (!trimmed.startsWith("bytes=") || trimmed.contains(",")) return null;
+        String spec = trimmed.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                if (last.isEmpty()) return null;
+                long suffix = Long.parseLong(last);
+                if (suffix == 0 || length == 0) return UNSATISFIABLE;
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long from = Long.parseLong(first);
+            long to = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (to < from) return null;
+            if (from >= length) return UNSATISFIABLE;
+            return new long[]{from, Math.min(to, length - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** {@code If-None-Match} against the object's ETag: weak comparison, {@code *} matches anything. */
+    static boolean matchesAny(String header, String etag) {
+        if (header == null || header.isBlank()) return false;
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (etag != null && opaque(tag).equals(opaque(etag))) return true;
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -17,6 +17,7 @@ import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.core.Response;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -103,6 +104,13 @@ public class S3FileService {
         }
     }
 
+    /**
+     * Streams the object behind {@code uuid}, honouring {@code Range} and {@code If-None-Match};
+     * see {@link S3Download}. {@link #findOne} still returns the bytes inside the {@link File}.
+     */
+    public Response.ResponseBuilder stream(String uuid, String range, String ifNoneMatch) {
+        return S3Download.get(s3, bucketName, uuid, range, ifNoneMatch);
+    }
 
     @Transactional
     public void save(File document) {
@@ -0,0 +1,45 @@
+-- ===================================================================
+-- V525: budget-aggregation — durable (user, month) work units
+-- ===================================================================
+-- Domain:  batch (budget-aggregation job)
+--
+-- Why:
+--   The job used to split users into fixed contiguous slices per
+--   partition and kept no record of what had been written, so one slow
+--   slice set the wall-clock time of the whole run and a restarted job
+--   recomputed every user-day again.
+--
+--   BudgetAggregationPartitionMapper now seeds one row per (user, month)
+--   for the job instance. Partition threads pull units from a shared
+--   in-memory queue (BudgetAggregationWorkQueue) and the writer marks a
+--   unit DONE in the same transaction as the unit's fact writes. On
+--   restart (same job_instance_id) only units that are not DONE are
+--   queued again.
+--
+-- Retention: rows of finished instances older than 30 days are deleted
+--   by the mapper when it seeds a new instance.
+--
+-- Idempotency: DDL is IF NOT EXISTS.
+--
+-- Date:   2026-10-16
+-- Rollback: additive; DROP TABLE budget_aggregation_work_unit;
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS budget_aggregation_work_unit (
+    job_instance_id BIGINT NOT NULL
+        COMMENT 'JBeret job instance id; stable across restarts of the same run',
+    useruuid VARCHAR(36) NOT NULL,
+    month DATE NOT NULL
+        COMMENT 'First day of the month the unit recomputes',
+    status VARCHAR(12) NOT NULL DEFAULT 'PENDING'
+        COMMENT 'PENDING | DONE | FAILED',
+    partition_id VARCHAR(8) NULL
+        COMMENT 'Partition that last processed the unit',
+    attempts INT NOT NULL DEFAULT 0,
+    duration_ms BIGINT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at DATETIME NULL,
+    PRIMARY KEY (job_instance_id, useruuid, month),
+    INDEX idx_bawu_instance_status (job_instance_id, status),
+    INDEX idx_bawu_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
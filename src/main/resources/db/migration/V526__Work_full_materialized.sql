@@ -0,0 +1,57 @@
+-- =============================================================================
+-- V526: work_full_mat — incrementally maintained materialization of work_full
+-- =============================================================================
+-- Purpose:
+--   work_full (V259) joins work with task, project, contract_project,
+--   contract_consultants, contracts, contract_type_items and two correlated
+--   userstatus subqueries on every read. It backs the timesheet, invoicing,
+--   availability and revenue reads. work_full_mat holds the same rows, kept
+--   current by the application:
+--     - WorkService write paths refresh the written rows in the same transaction;
+--     - ContractService consultant add/update/remove refreshes the affected
+--       consultant's rows over the old and new active windows;
+--     - WorkFullMaterializer's consistency job compares per-month checksums
+--       with the view and re-materializes drifted months (userstatus, task and
+--       user-name edits are only picked up this way).
+--   Reads switch to the table with work-full.materialized.read=true.
+--
+--   The earlier work_full_cache / refresh_work_full_cache pair (V83/V84) was
+--   dropped in V307: it was refreshed by a timer, had no readers, and hit
+--   duplicate-PK errors because work_full can return several rows per work
+--   uuid — one per matching contract consultant window and
+--   contract_type_item. This table holds the view's full row set instead.
+--   `variant` numbers the rows of one work uuid by (contractuuid, rate,
+--   discount), so the primary key (uuid, variant) covers the contract and
+--   rate a row was priced by. It is not a view column and no reader
+--   selects it.
+--
+-- Column types are copied from the view so checksums compare like for like.
+-- =============================================================================
+
+DROP TABLE IF EXISTS work_full_mat;
+
+CREATE TABLE work_full_mat AS
+SELECT uuid, useruuid, workas, taskuuid, workduration, registered, billable, paid_out,
+       rate, discount, name, projectuuid, clientuuid, contractuuid, contract_company_uuid,
+       consultant_company_uuid, type, comments, updated_at,
+       CAST(0 AS UNSIGNED) AS variant
+FROM work_full
+WHERE 1 = 0;
+
+ALTER TABLE work_full_mat
+    MODIFY variant INT UNSIGNED NOT NULL,
+    ADD PRIMARY KEY (uuid, variant),
+    ADD INDEX idx_wfm_registered (registered),
+    ADD INDEX idx_wfm_user_registered (useruuid, registered),
+    ADD INDEX idx_wfm_workas_registered (workas, registered),
+    ADD INDEX idx_wfm_project_registered (projectuuid, registered),
+    ADD INDEX idx_wfm_contract (contractuuid);
+
+INSERT INTO work_full_mat (uuid, useruuid, workas, taskuuid, workduration, registered, billable, paid_out,
+                           rate, discount, name, projectuuid, clientuuid, contractuuid, contract_company_uuid,
+                           consultant_company_uuid, type, comments, updated_at, variant)
+SELECT uuid, useruuid, workas, taskuuid, workduration, registered, billable, paid_out,
+       rate, discount, name, projectuuid, clientuuid, contractuuid, contract_company_uuid,
+       consultant_company_uuid, type, comments, updated_at,
+       ROW_NUMBER() OVER (PARTITION BY uuid ORDER BY contractuuid, rate, discount)
+FROM work_full;
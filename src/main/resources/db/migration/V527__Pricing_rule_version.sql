@@ -0,0 +1,18 @@
+-- ===================================================================
+-- V527: pricing_rule_version — change counter for the pricing rule cache
+-- ===================================================================
+-- PricingRuleCatalog caches compiled rule sets per (contract type, invoice
+-- date). Every write to pricing_rule_steps, contract_type_definitions or the
+-- contract override tables increments this single row in the same
+-- transaction (PricingRuleVersion.bump), and every catalog lookup reads it by
+-- primary key: a cached rule set is only served while the version it was
+-- compiled under is still current, on every application instance.
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS pricing_rule_version (
+    id         TINYINT     NOT NULL PRIMARY KEY,
+    version    BIGINT      NOT NULL DEFAULT 0,
+    updated_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+INSERT IGNORE INTO pricing_rule_version (id, version) VALUES (1, 0);
@@ -0,0 +1,42 @@
+-- ===================================================================
+-- V528: invoice_number_sequence / invoice_number_allocation
+-- ===================================================================
+-- Locally assigned invoice numbers came from
+--   SELECT MAX(invoicenumber) FROM invoices WHERE companyuuid = ? FOR UPDATE
+-- inside the finalizing transaction. That held a range lock on the invoices
+-- table until the invoice was saved, so finalizations for the same company
+-- queued behind each other for the whole transaction.
+--
+-- InvoiceNumberAllocator now takes the next number from one row per company
+-- in invoice_number_sequence, in a short transaction of its own, and records
+-- it in invoice_number_allocation:
+--   ALLOCATED  handed out; the finalizing transaction has not committed yet
+--   USED       the finalizing transaction committed with this number
+--   RELEASED   the finalizing transaction rolled back; the number is a gap
+-- Released numbers are not handed out again, so numbers stay increasing per
+-- company; the RELEASED rows are the audit trail of the gaps.
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS invoice_number_sequence (
+    companyuuid VARCHAR(36) NOT NULL PRIMARY KEY,
+    next_number INT         NOT NULL,
+    updated_at  DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+CREATE TABLE IF NOT EXISTS invoice_number_allocation (
+    id            BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    companyuuid   VARCHAR(36) NOT NULL,
+    invoicenumber INT         NOT NULL,
+    invoiceuuid   VARCHAR(40) NULL,
+    status        VARCHAR(16) NOT NULL,
+    allocated_at  DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    resolved_at   DATETIME(3) NULL,
+    UNIQUE KEY uq_ina_company_number (companyuuid, invoicenumber),
+    KEY idx_ina_status_allocated (status, allocated_at)
+);
+
+INSERT IGNORE INTO invoice_number_sequence (companyuuid, next_number)
+SELECT companyuuid, COALESCE(MAX(invoicenumber), 0) + 1
+FROM invoices
+WHERE companyuuid IS NOT NULL
+GROUP BY companyuuid;
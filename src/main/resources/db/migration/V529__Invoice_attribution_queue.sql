@@ -0,0 +1,31 @@
+-- ===================================================================
+-- V529: invoice_attribution_queue — durable, coalescing recompute queue
+-- ===================================================================
+-- Attribution recomputes used to run once per commit event, on an
+-- unbounded async task, and backfills walked invoices one by one in a
+-- single transaction. A bulk edit or credit-note run recomputed the same
+-- invoice several times over.
+--
+-- InvoiceAttributionQueue now marks invoices here. There is one row per
+-- invoice, so repeated marks coalesce: they only bump `generation` and
+-- `marks`. Workers claim rows with SELECT ... FOR UPDATE SKIP LOCKED and
+-- recompute each invoice in its own transaction. They delete the row only
+-- if no newer mark arrived meanwhile (same generation); otherwise the row
+-- is unclaimed and runs again. A failed row waits until not_before, one
+-- more minute per attempt. Rows that keep failing stay behind with
+-- last_error once attempts reach the configured maximum.
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS invoice_attribution_queue (
+    invoiceuuid    VARCHAR(40)  NOT NULL PRIMARY KEY,
+    generation     BIGINT       NOT NULL DEFAULT 1,
+    marks          INT          NOT NULL DEFAULT 1,
+    enqueued_at    DATETIME(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    last_marked_at DATETIME(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    claimed_at     DATETIME(3)  NULL,
+    claimed_by     VARCHAR(64)  NULL,
+    attempts       INT          NOT NULL DEFAULT 0,
+    not_before     DATETIME(3)  NULL,
+    last_error     TEXT         NULL,
+    KEY idx_iaq_claim (claimed_at, attempts, enqueued_at)
+);
@@ -0,0 +1,26 @@
+-- ===================================================================
+-- V530: fact_opex_distribution_source_hash — per-month input fingerprints
+-- ===================================================================
+-- OpexDistributionRefreshService used to DELETE the whole refresh window
+-- and recompute every month for every posting status. One late GL posting
+-- therefore rebuilt two fiscal years, and readers of
+-- fact_opex_distribution_mat saw an empty or half-filled table meanwhile.
+--
+-- The refresh now stores one content hash per (month, posting status,
+-- company). The hash covers that company's GL postings, lumps, account
+-- mapping, consultant ratio and staff salary base for the month: all the
+-- inputs the distribution reads. Only (month, status) slices with a
+-- changed hash set are recomputed. Each slice is replaced in its own
+-- transaction: its rows are deleted and re-inserted, and its hashes are
+-- rewritten. A slice whose swap fails keeps its old hashes, so the next
+-- run retries it.
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS fact_opex_distribution_source_hash (
+    month_key      VARCHAR(6)   NOT NULL,
+    posting_status VARCHAR(20)  NOT NULL,
+    company_id     VARCHAR(36)  NOT NULL,
+    content_hash   CHAR(64)     NOT NULL,
+    refreshed_at   DATETIME     NOT NULL,
+    PRIMARY KEY (month_key, posting_status, company_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
@@ -0,0 +1,41 @@
+-- ===================================================================
+-- V531: bi_refresh_state_transition — refresh_state changes at write time
+-- ===================================================================
+-- BiFreshnessTelemetry used to find refresh_state transitions by comparing
+-- one 60s sample of bi_refresh_watermark with the next. A drain that went
+-- RUNNING -> READY, or failed and was retried, between two samples never
+-- showed up.
+--
+-- bi_refresh_watermark has two kinds of writers: the Java drain
+-- (FactChangeLogDrainConsumer) and the stored procedures
+-- sp_nightly_bi_refresh / sp_incremental_bi_refresh. A trigger is the one
+-- place that sees all of them, so every change of refresh_state is logged
+-- here in the same transaction that makes it. The telemetry sampler tails
+-- this table by id; the freshness endpoint only reads it.
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS bi_refresh_state_transition (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    pipeline_name VARCHAR(64)  NOT NULL,
+    from_state    ENUM('UNINITIALIZED', 'RUNNING', 'READY', 'FAILED') NOT NULL,
+    to_state      ENUM('UNINITIALIZED', 'RUNNING', 'READY', 'FAILED') NOT NULL,
+    changed_at    DATETIME(6)  NOT NULL COMMENT 'UTC',
+    PRIMARY KEY (id),
+    KEY idx_bi_refresh_state_transition_changed (changed_at)
+) ENGINE=InnoDB;
+
+DROP TRIGGER IF EXISTS trg_bi_refresh_watermark_state_transition;
+
+DELIMITER $$
+
+CREATE TRIGGER trg_bi_refresh_watermark_state_transition
+AFTER UPDATE ON bi_refresh_watermark
+FOR EACH ROW
+BEGIN
+    IF NOT (OLD.refresh_state <=> NEW.refresh_state) THEN
+        INSERT INTO bi_refresh_state_transition (pipeline_name, from_state, to_state, changed_at)
+        VALUES (NEW.pipeline_name, OLD.refresh_state, NEW.refresh_state, UTC_TIMESTAMP(6));
+    END IF;
+END$$
+
+DELIMITER ;
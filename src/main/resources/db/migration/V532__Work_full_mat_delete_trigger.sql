@@ -0,0 +1,29 @@
+-- ===================================================================
+-- V532: remove work_full_mat rows when their work row is deleted
+-- ===================================================================
+-- WorkFullMaterializer refreshes work_full_mat from the application's
+-- write paths, but the application never deletes work: rows disappear
+-- through admin SQL and tooling outside it. Until the consistency job
+-- ran, a deleted work row stayed in work_full_mat and was still read
+-- once work-full.materialized.read was on.
+--
+-- trg_work_after_delete (V168) already sees every delete to log it to
+-- fact_change_log. It is recreated here to also drop the materialized
+-- rows of the deleted uuid, in the same statement. The delete is
+-- unconditional: a deleted work row has no view rows, so removing its
+-- table rows is correct whether or not the table is being maintained.
+-- ===================================================================
+
+DROP TRIGGER IF EXISTS trg_work_after_delete;
+
+DELIMITER //
+
+CREATE TRIGGER trg_work_after_delete AFTER DELETE ON work
+FOR EACH ROW
+BEGIN
+    INSERT INTO fact_change_log (useruuid, affected_date, change_type, source_table, source_id)
+    VALUES (OLD.useruuid, OLD.registered, 'WORK', 'work', OLD.uuid);
+    DELETE FROM work_full_mat WHERE uuid = OLD.uuid;
+END //
+
+DELIMITER ;
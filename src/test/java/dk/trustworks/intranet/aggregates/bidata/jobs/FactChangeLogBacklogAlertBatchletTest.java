@@ -1,8 +1,7 @@
 package dk.trustworks.intranet.aggregates.bidata.jobs;
 
+import dk.trustworks.intranet.aggregates.bidata.services.BiFreshnessTelemetry;
 import dk.trustworks.intranet.communicationsservice.services.SlackService;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,8 +23,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
- * Mockito-only unit tests. The single backlog query returns {@code Object[]}
- * with {pending, oldestMinutes}; we stub it via {@link #stubBacklog}.
+ * Mockito-only unit tests. The backlog comes from
+ * {@link BiFreshnessTelemetry#backlog()}; we stub it via {@link #stubBacklog}.
  */
 @ExtendWith(MockitoExtension.class)
 class FactChangeLogBacklogAlertBatchletTest {
@@ -36,14 +35,11 @@ class FactChangeLogBacklogAlertBatchletTest {
     FactChangeLogBacklogAlertBatchlet batchlet;
 
     @Mock
-    EntityManager em;
+    BiFreshnessTelemetry telemetry;
 
     @Mock
     SlackService slackService;
 
-    @Mock
-    Query backlogQuery;
-
     @BeforeEach
     void setUp() {
         batchlet.opsAlertChannel = CHANNEL;
@@ -126,7 +122,7 @@ class FactChangeLogBacklogAlertBatchletTest {
 
     @Test
     void scheduledRun_swallowsExceptions() {
-        when(em.createNativeQuery(anyString()))
+        when(telemetry.backlog())
                 .thenThrow(new RuntimeException("simulated DB outage"));
 
         batchlet.scheduledRun();
@@ -145,8 +141,7 @@ class FactChangeLogBacklogAlertBatchletTest {
     }
 
     private void stubBacklog(long pending, Long oldestMinutes) {
-        when(em.createNativeQuery(anyString())).thenReturn(backlogQuery);
-        when(backlogQuery.getSingleResult())
-                .thenReturn(new Object[]{Long.valueOf(pending), oldestMinutes});
+        when(telemetry.backlog())
+                .thenReturn(new BiFreshnessTelemetry.Backlog(pending, oldestMinutes == null ? null : oldestMinutes * 60));
     }
 }
@@ -0,0 +1,149 @@
+package dk.trustworks.intranet.aggregates.bidata.jobs;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.batch.model.UserMonth;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FactChangeLogDrainConsumerTest {
+
+    private static final Duration QUIET = Duration.ofSeconds(3);
+    private static final Duration MAX_DELAY = Duration.ofSeconds(30);
+    private static final Instant T0 = Instant.parse("2026-10-16T08:00:00Z");
+
+    @Test
+    void isDue_waitsForQuietPeriod() {
+        assertFalse(FactChangeLogDrainConsumer.isDue(T0.plusSeconds(2), T0, T0, QUIET, MAX_DELAY));
+        assertTrue(FactChangeLogDrainConsumer.isDue(T0.plusSeconds(3), T0, T0, QUIET, MAX_DELAY));
+    }
+
+    @Test
+    void isDue_continuousChanges_drainAtMaxDelay() {
+        Instant now = T0.plusSeconds(30);
+        assertTrue(FactChangeLogDrainConsumer.isDue(now, T0, now.minusSeconds(1), QUIET, MAX_DELAY));
+        assertFalse(FactChangeLogDrainConsumer.isDue(now.minusSeconds(1), T0, now.minusSeconds(2), QUIET, MAX_DELAY));
+    }
+
+    @Test
+    void isDue_nothingUnseen_neverDue() {
+        assertFalse(FactChangeLogDrainConsumer.isDue(T0.plusSeconds(600), null, null, QUIET, MAX_DELAY));
+    }
+
+    @Test
+    void distinctMonths_collapsesUsersOfTheSameMonth() {
+        LocalDate oct = LocalDate.of(2026, 10, 1);
+        LocalDate sep = LocalDate.of(2026, 9, 1);
+        List<LocalDate> months = FactChangeLogDrainConsumer.distinctMonths(List.of(
+                new UserMonth("u1", oct), new UserMonth("u2", oct), new UserMonth("u1", sep)));
+
+        assertEquals(List.of(sep, oct), months);
+    }
+
+    @Test
+    void drain_lockHeldElsewhere_leavesWatermarkAlone() throws Exception {
+        FactChangeLogDrainConsumer consumer = new FactChangeLogDrainConsumer();
+        consumer.dataSource = mock(AgroalDataSource.class);
+        consumer.registry = new SimpleMeterRegistry();
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet lockResult = mock(ResultSet.class);
+        when(consumer.dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SELECT GET_LOCK('bi_refresh', 0)")).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(0);
+
+        assertEquals(FactChangeLogDrainConsumer.DrainResult.LOCK_BUSY, consumer.drain());
+        verify(connection, never()).prepareStatement(anyString());
+        verify(statement, never()).execute(anyString());
+    }
+
+    @Test
+    void backoff_doublesPerFailureUpToTheCap() {
+        Duration base = Duration.ofSeconds(30);
+        Duration max = Duration.ofMinutes(15);
+        assertEquals(base, FactChangeLogDrainConsumer.backoff(1, base, max));
+        assertEquals(Duration.ofSeconds(60), FactChangeLogDrainConsumer.backoff(2, base, max));
+        assertEquals(Duration.ofSeconds(240), FactChangeLogDrainConsumer.backoff(4, base, max));
+        assertEquals(max, FactChangeLogDrainConsumer.backoff(10, base, max));
+        assertEquals(max, FactChangeLogDrainConsumer.backoff(1000, base, max));
+    }
+
+    @Test
+    void tick_failedDrain_retriesAfterAGrowingBackoffAndResetsOnSuccess() throws Exception {
+        int[] drains = {0};
+        boolean[] failing = {true};
+        FactChangeLogDrainConsumer consumer = new FactChangeLogDrainConsumer() {
+            @Override
+            DrainResult drain() throws SQLException {
+                drains[0]++;
+                if (failing[0]) throw new SQLException("sp_refresh_fact_tables failed");
+                return DrainResult.DRAINED;
+            }
+        };
+        consumer.quietPeriod = QUIET;
+        consumer.maxDelay = MAX_DELAY;
+        consumer.retryBackoff = Duration.ofSeconds(30);
+        consumer.maxRetryBackoff = Duration.ofMinutes(15);
+        consumer.factGeneration = mock(BiFactGeneration.class);
+        consumer.dataSource = mock(AgroalDataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet newestId = mock(ResultSet.class);
+        when(consumer.dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(newestId);
+        when(newestId.getLong(1)).thenReturn(5L);
+
+        consumer.tick(T0);
+        assertThrows(SQLException.class, () -> consumer.tick(T0.plusSeconds(3)));
+        assertEquals(1, drains[0]);
+
+        // No retry at the next polls, even though the window is still open.
+        consumer.tick(T0.plusSeconds(7));
+        consumer.tick(T0.plusSeconds(32));
+        assertEquals(1, drains[0]);
+        assertThrows(SQLException.class, () -> consumer.tick(T0.plusSeconds(33)));
+        assertEquals(2, drains[0]);
+
+        // The second failure doubles the wait.
+        consumer.tick(T0.plusSeconds(92));
+        assertEquals(2, drains[0]);
+        failing[0] = false;
+        consumer.tick(T0.plusSeconds(93));
+        assertEquals(3, drains[0]);
+        verify(consumer.factGeneration).refresh();
+
+        // A success resets the backoff: the next change drains after the quiet period alone.
+        when(newestId.getLong(1)).thenReturn(6L);
+        consumer.tick(T0.plusSeconds(100));
+        failing[0] = true;
+        assertThrows(SQLException.class, () -> consumer.tick(T0.plusSeconds(103)));
+        assertEquals(4, drains[0]);
+        consumer.tick(T0.plusSeconds(132));
+        assertEquals(4, drains[0]);
+        assertThrows(SQLException.class, () -> consumer.tick(T0.plusSeconds(133)));
+        assertEquals(5, drains[0]);
+    }
+}
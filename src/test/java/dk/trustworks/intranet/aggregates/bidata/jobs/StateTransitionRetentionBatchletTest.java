@@ -0,0 +1,68 @@
+package dk.trustworks.intranet.aggregates.bidata.jobs;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mockito-only unit tests — same pattern as {@link ChangeLogRetentionBatchletTest}.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StateTransitionRetentionBatchletTest {
+
+    @Mock
+    EntityManager em;
+
+    @Mock
+    Query deleteQuery;
+
+    private StateTransitionRetentionBatchlet batchlet;
+
+    @BeforeEach
+    void setUp() {
+        StateTransitionRetentionBatchlet real = new StateTransitionRetentionBatchlet();
+        real.em = em;
+        real.retentionDays = 30;
+        batchlet = Mockito.spy(real);
+        Mockito.doAnswer(inv -> batchlet.deleteOneChunk())
+                .when(batchlet).deleteOneChunkInOwnTransaction();
+        when(em.createNativeQuery(anyString())).thenReturn(deleteQuery);
+        when(deleteQuery.setParameter(eq("days"), eq(30))).thenReturn(deleteQuery);
+    }
+
+    @Test
+    void run_deletesTransitionsOlderThanTheRetentionInChunks() {
+        when(deleteQuery.executeUpdate())
+                .thenReturn(StateTransitionRetentionBatchlet.DELETE_CHUNK_SIZE, 3);
+
+        long deleted = batchlet.run();
+
+        assertEquals(StateTransitionRetentionBatchlet.DELETE_CHUNK_SIZE + 3L, deleted);
+        verify(deleteQuery, times(2)).executeUpdate();
+        verify(em, times(2)).createNativeQuery(contains("DELETE FROM bi_refresh_state_transition"));
+    }
+
+    @Test
+    void scheduledRun_swallowsExceptions_soSchedulerKeepsRunning() {
+        when(em.createNativeQuery(anyString()))
+                .thenThrow(new RuntimeException("simulated DB outage"));
+
+        batchlet.scheduledRun();
+    }
+}
@@ -0,0 +1,61 @@
+package dk.trustworks.intranet.aggregates.bidata.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.cache.CacheResult;
+import io.quarkus.cache.CompositeCacheKey;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BiFactVersionKeyGeneratorTest {
+
+    private static final BiFactGeneration.Generation GEN_7 =
+            new BiFactGeneration.Generation(7, LocalDateTime.of(2026, 10, 16, 2, 0));
+    private static final BiFactGeneration.Generation GEN_8 =
+            new BiFactGeneration.Generation(8, LocalDateTime.of(2026, 10, 16, 2, 0));
+
+    @CacheResult(cacheName = "utilization")
+    public Object cached(String useruuid, LocalDate from) {
+        return null;
+    }
+
+    @Test
+    void generate_prefixesArgumentsWithCurrentGeneration() throws Exception {
+        BiFactVersionKeyGenerator generator = new BiFactVersionKeyGenerator();
+        generator.generation = mock(BiFactGeneration.class);
+        Method method = getClass().getMethod("cached", String.class, LocalDate.class);
+        LocalDate from = LocalDate.of(2026, 1, 1);
+
+        when(generator.generation.current()).thenReturn(GEN_7);
+        Object first = generator.generate(method, "u1", from);
+        Object again = generator.generate(method, "u1", from);
+        when(generator.generation.current()).thenReturn(GEN_8);
+        Object afterRefresh = generator.generate(method, "u1", from);
+
+        assertEquals(new CompositeCacheKey(GEN_7, "u1", from), first);
+        assertEquals(first, again);
+        assertNotEquals(first, afterRefresh);
+        assertTrue(BiFactGeneration.isGeneration(afterRefresh, GEN_8));
+        assertFalse(BiFactGeneration.isGeneration(first, GEN_8));
+    }
+
+    @Test
+    void recordLookup_countsStaleServedOnlyWhileRefreshRunning() {
+        BiFactGeneration generation = new BiFactGeneration();
+        generation.registry = new SimpleMeterRegistry();
+
+        generation.recordLookup("utilization");
+
+        assertNull(generation.registry.find("bi.cache.stale_served").counter());
+    }
+}
@@ -0,0 +1,137 @@
+package dk.trustworks.intranet.aggregates.bidata.services;
+
+import dk.trustworks.intranet.perf.PerfMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BiFreshnessTelemetryTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-16T10:00:00Z");
+
+    @Test
+    void ageSeconds_usesNewerOfFullAndIncremental() {
+        LocalDateTime full = LocalDateTime.of(2026, 10, 16, 2, 0);
+        LocalDateTime incremental = LocalDateTime.of(2026, 10, 16, 9, 55);
+
+        assertEquals(300L, BiFreshnessTelemetry.ageSeconds(full, incremental, NOW));
+        assertEquals(8 * 3600L, BiFreshnessTelemetry.ageSeconds(full, null, NOW));
+        assertNull(BiFreshnessTelemetry.ageSeconds(null, null, NOW));
+    }
+
+    @Test
+    void backlog_convertsMinutesAndLeavesTheGaugesAlone() {
+        BiFreshnessTelemetry telemetry = telemetry();
+        Query query = mock(Query.class);
+        when(telemetry.em.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getSingleResult()).thenReturn(new Object[]{42L, 1_830L});
+
+        BiFreshnessTelemetry.Backlog backlog = telemetry.backlog();
+
+        assertEquals(30L, backlog.oldestPendingMinutes());
+        assertEquals(0.0, telemetry.registry.find("bi.fact_change_log.pending").gauge().value());
+    }
+
+    @Test
+    void snapshot_readsTransitionCountsFromTheLogAndMovesNoMeter() {
+        BiFreshnessTelemetry telemetry = telemetry();
+        Query transitions = route(telemetry, List.<Object[]>of(new Object[]{"FACT_USER_DAY", "READY", null, null, null, 7L}),
+                List.<Object[]>of(new Object[]{"READY", "RUNNING", 3L}, new Object[]{"RUNNING", "FAILED", 1L}),
+                List.of());
+
+        BiFreshnessTelemetry.Snapshot snapshot = telemetry.snapshot();
+
+        assertEquals(Map.of("READY->RUNNING", 3L, "RUNNING->FAILED", 1L), snapshot.stateTransitions());
+        assertEquals(42L, snapshot.backlog().pending());
+        verify(transitions).setParameter(eq("since"), any(LocalDateTime.class));
+        assertEquals(0.0, telemetry.registry.find("bi.fact_change_log.pending").gauge().value());
+        assertNull(telemetry.registry.find("bi.refresh.state").gauge());
+        assertNull(telemetry.registry.find("bi.refresh_state.transitions").counter());
+    }
+
+    @Test
+    void emit_countsEveryLoggedTransitionOnceAndUpdatesTheGauges() {
+        BiFreshnessTelemetry telemetry = telemetry();
+        Timestamp lastIncremental = Timestamp.valueOf(LocalDateTime.of(2026, 10, 16, 9, 59));
+        // A whole RUNNING -> FAILED -> RUNNING -> READY cycle between two samples; the watermark
+        // itself is READY again by the time it is read.
+        Query tail = route(telemetry,
+                List.<Object[]>of(new Object[]{"FACT_USER_DAY", "READY", null, null, lastIncremental, 8L}),
+                List.of(),
+                List.<Object[]>of(new Object[]{11L, "FACT_USER_DAY", "READY", "RUNNING"},
+                        new Object[]{12L, "FACT_USER_DAY", "RUNNING", "FAILED"},
+                        new Object[]{13L, "FACT_USER_DAY", "FAILED", "RUNNING"},
+                        new Object[]{14L, "FACT_USER_DAY", "RUNNING", "READY"}));
+
+        telemetry.emit();
+        when(tail.getResultList()).thenReturn(List.of());
+        telemetry.emit();
+
+        assertEquals(1.0, telemetry.registry.find("bi.refresh_state.transitions")
+                .tags("pipeline", "FACT_USER_DAY", "from", "READY", "to", "RUNNING").counter().count());
+        assertEquals(1.0, telemetry.registry.find("bi.refresh_state.transitions")
+                .tags("from", "RUNNING", "to", "FAILED").counter().count());
+        assertEquals(1.0, telemetry.registry.find("bi.refresh_state.transitions")
+                .tags("from", "FAILED", "to", "RUNNING").counter().count());
+        assertEquals(1.0, telemetry.registry.find("bi.refresh_state.transitions")
+                .tags("from", "RUNNING", "to", "READY").counter().count());
+        verify(tail).setParameter("after", 0L);
+        verify(tail).setParameter("after", 14L);
+        assertEquals(42.0, telemetry.registry.find("bi.fact_change_log.pending").gauge().value());
+        assertEquals(1_830.0, telemetry.registry.find("bi.fact_change_log.oldest_pending_seconds").gauge().value());
+        assertEquals(2.0, telemetry.registry.find("bi.refresh.state").tag("pipeline", "FACT_USER_DAY").gauge().value());
+    }
+
+    /**
+     * Answers each of the telemetry's queries by its table: a fixed backlog of 42 rows, the given
+     * watermark rows, transition counts and transition tail. Returns the tail query.
+     */
+    private static Query route(BiFreshnessTelemetry telemetry, List<Object[]> watermark,
+                               List<Object[]> counts, List<Object[]> tail) {
+        Query backlogQuery = mock(Query.class);
+        when(backlogQuery.getSingleResult()).thenReturn(new Object[]{42L, 1_830L});
+        Query watermarkQuery = mock(Query.class);
+        when(watermarkQuery.getResultList()).thenReturn(watermark);
+        Query countQuery = parameterised(counts);
+        Query tailQuery = parameterised(tail);
+        when(telemetry.em.createNativeQuery(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.contains("fact_change_log")) return backlogQuery;
+            if (sql.contains("bi_refresh_watermark")) return watermarkQuery;
+            return sql.contains("COUNT(*)") ? countQuery : tailQuery;
+        });
+        return tailQuery;
+    }
+
+    private static Query parameterised(List<Object[]> rows) {
+        Query query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(rows);
+        return query;
+    }
+
+    private BiFreshnessTelemetry telemetry() {
+        BiFreshnessTelemetry telemetry = new BiFreshnessTelemetry();
+        telemetry.em = mock(EntityManager.class);
+        telemetry.registry = new SimpleMeterRegistry();
+        telemetry.perfMetrics = mock(PerfMetrics.class);
+        telemetry.init();
+        return telemetry;
+    }
+}
@@ -111,7 +111,7 @@ class OpexDistributionRefreshBatchletTest {
         batchlet.onStart(null);
 
         verify(managedExecutor, times(1)).submit(org.mockito.ArgumentMatchers.<Runnable>any());
-        verify(refreshService, never()).refresh();
+        verify(refreshService, never()).refresh(true);
     }
 
     @Test
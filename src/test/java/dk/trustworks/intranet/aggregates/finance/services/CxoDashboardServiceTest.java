@@ -0,0 +1,175 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import dk.trustworks.intranet.aggregates.finance.dto.GrossMarginTTMDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.MonthlyRevenueMarginDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.RevenueYTDDataDTO;
+import dk.trustworks.intranet.aggregates.finance.dto.TTMRevenueGrowthDTO;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CxoDashboardServiceTest {
+
+    private static final CxoDashboardService.Filters FILTERS = new CxoDashboardService.Filters(
+            LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 15), LocalDate.of(2025, 3, 15),
+            null, null, null, null, Set.of("company-a"), null);
+
+    private ExecutorService pool;
+    private StubDashboard service;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        service = new StubDashboard();
+        service.cxoFinanceService = mock(CxoFinanceService.class);
+        service.executor = mock(ManagedExecutor.class, delegatesTo(pool));
+        service.parallelism = 4;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void compute_readsEachSliceOnceForAllKpisSharingIt() {
+        CxoDashboardService.Dashboard dashboard = service.compute(List.of(
+                CxoDashboardService.REVENUE_MARGIN_TREND, CxoDashboardService.TTM_REVENUE_GROWTH,
+                CxoDashboardService.REVENUE_YTD_VS_BUDGET, CxoDashboardService.GROSS_MARGIN_TTM), FILTERS);
+
+        assertEquals(1, service.revenueLoads.get());
+        assertEquals(1, service.costLoads.get());
+        assertEquals(0, service.userDayLoads.get());
+        assertEquals(Set.of("fact_company_revenue_mat", "fact_project_financials_mat"), dashboard.slices().keySet());
+        assertEquals(List.of(CxoDashboardService.REVENUE_MARGIN_TREND, CxoDashboardService.TTM_REVENUE_GROWTH,
+                CxoDashboardService.REVENUE_YTD_VS_BUDGET, CxoDashboardService.GROSS_MARGIN_TTM),
+                List.copyOf(dashboard.kpis().keySet()));
+        dashboard.kpis().values().forEach(result -> {
+            assertNull(result.error());
+            assertTrue(result.fromSlices());
+        });
+    }
+
+    @Test
+    void compute_derivesTheKpisWithTheSingleEndpointArithmetic() {
+        when(service.cxoFinanceService.queryBudgetRevenue(any(), any(), any(), any(), any(), any(), any())).thenReturn(500.0);
+        when(service.cxoFinanceService.queryActualCosts(any(), any(), any(), any(), any(), any(), any())).thenReturn(300.0);
+
+        CxoDashboardService.Dashboard dashboard = service.compute(List.of(
+                CxoDashboardService.REVENUE_MARGIN_TREND, CxoDashboardService.TTM_REVENUE_GROWTH,
+                CxoDashboardService.REVENUE_YTD_VS_BUDGET, CxoDashboardService.GROSS_MARGIN_TTM), FILTERS);
+
+        @SuppressWarnings("unchecked")
+        List<MonthlyRevenueMarginDTO> trend = (List<MonthlyRevenueMarginDTO>) dashboard.kpis()
+                .get(CxoDashboardService.REVENUE_MARGIN_TREND).value();
+        assertEquals(List.of("202501", "202502", "202503"), trend.stream().map(MonthlyRevenueMarginDTO::getMonthKey).toList());
+        assertEquals(100.0, trend.get(2).getRevenueDkk());
+        assertEquals(40.0, trend.get(2).getCostDkk());
+        assertEquals(60.0, trend.get(2).getMarginPercent(), 1e-9);
+        assertNull(trend.get(1).getMarginPercent(), "no revenue in Feb");
+
+        // Current TTM Apr 2024 – Mar 2025 = 200 + 100; prior TTM Apr 2023 – Mar 2024 = 150.
+        TTMRevenueGrowthDTO ttm = (TTMRevenueGrowthDTO) dashboard.kpis().get(CxoDashboardService.TTM_REVENUE_GROWTH).value();
+        assertEquals(300.0, ttm.getCurrentTTMRevenue());
+        assertEquals(150.0, ttm.getPriorTTMRevenue());
+        assertEquals(100.0, ttm.getGrowthPercent(), 1e-9);
+        assertArrayEquals(new double[]{200, 0, 100, 0, 0, 0, 0, 0, 0, 0, 0, 0}, ttm.getSparklineData());
+
+        // FY 2024/25 YTD (Jul 2024 – Mar 2025) = 100 against a 500 budget; prior FY Jul 2023 – Mar 2024 = 150.
+        RevenueYTDDataDTO ytd = (RevenueYTDDataDTO) dashboard.kpis().get(CxoDashboardService.REVENUE_YTD_VS_BUDGET).value();
+        assertEquals(100.0, ytd.getActualYTD());
+        assertEquals(20.0, ytd.getAttainmentPercent(), 1e-9);
+        assertEquals(150.0, ytd.getPriorYearYTD());
+
+        GrossMarginTTMDTO margin = (GrossMarginTTMDTO) dashboard.kpis().get(CxoDashboardService.GROSS_MARGIN_TTM).value();
+        assertEquals(300.0, margin.getCurrentTTMCost());
+        assertEquals(0.0, margin.getCurrentMarginPercent(), 1e-9);
+    }
+
+    @Test
+    void compute_reportsAFailingKpiWithoutFailingTheOthers() {
+        when(service.cxoFinanceService.getClientRetention(any(), any(), any(), any(), any(), any(), eq(Set.of("company-a"))))
+                .thenThrow(new IllegalStateException("boom"));
+
+        CxoDashboardService.Dashboard dashboard = service.compute(
+                List.of("client-retention", CxoDashboardService.TTM_REVENUE_GROWTH), FILTERS);
+
+        CxoDashboardService.KpiResult failed = dashboard.kpis().get("client-retention");
+        assertEquals("IllegalStateException: boom", failed.error());
+        assertNull(failed.value());
+        assertNull(dashboard.kpis().get(CxoDashboardService.TTM_REVENUE_GROWTH).error());
+    }
+
+    @Test
+    void compute_rejectsUnknownKpis() {
+        assertThrows(IllegalArgumentException.class, () -> service.compute(List.of("no-such-kpi"), FILTERS));
+    }
+
+    /** Slices from fixed maps instead of the fact tables; counts the loads. */
+    static class StubDashboard extends CxoDashboardService {
+
+        final AtomicInteger revenueLoads = new AtomicInteger();
+        final AtomicInteger costLoads = new AtomicInteger();
+        final AtomicInteger userDayLoads = new AtomicInteger();
+
+        @Override
+        protected <T> T inTransaction(Callable<T> read) {
+            try {
+                return read.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected NavigableMap<String, Double> loadRevenue(String fromKey, String toKey, Set<String> companyIds) {
+            revenueLoads.incrementAndGet();
+            NavigableMap<String, Double> revenue = new TreeMap<>();
+            revenue.put("202309", 150.0);
+            revenue.put("202404", 200.0);
+            revenue.put("202503", 100.0);
+            revenue.put("202501", 0.0);
+            return revenue.subMap(fromKey, true, toKey, true);
+        }
+
+        @Override
+        protected NavigableMap<String, Double> loadCost(String fromKey, String toKey, Filters f) {
+            costLoads.incrementAndGet();
+            NavigableMap<String, Double> cost = new TreeMap<>();
+            cost.put("202501", 10.0);
+            cost.put("202502", 20.0);
+            cost.put("202503", 40.0);
+            return cost.subMap(fromKey, true, toKey, true);
+        }
+
+        @Override
+        protected NavigableMap<String, double[]> loadUserDays(LocalDate from, LocalDate to, Filters f) {
+            userDayLoads.incrementAndGet();
+            return new TreeMap<>();
+        }
+    }
+}
@@ -119,8 +119,10 @@ class DistributionAwareOpexProviderReadPathIT {
     @Test
     @Transactional
     void emptyMatTable_unsettledMonth_returnsEmpty_notException() {
-        // Wipe to simulate cold-start / failed-refresh edge case.
+        // Wipe to simulate cold-start / failed-refresh edge case. The source hashes go
+        // too, so the next incremental refresh sees every month as changed.
         em.createNativeQuery("DELETE FROM fact_opex_distribution_mat").executeUpdate();
+        em.createNativeQuery("DELETE FROM fact_opex_distribution_source_hash").executeUpdate();
 
         YearMonth currentMonth = YearMonth.now();
         String mk = String.format("%04d%02d", currentMonth.getYear(), currentMonth.getMonthValue());
@@ -131,7 +133,8 @@ class DistributionAwareOpexProviderReadPathIT {
         // Zero rows, NO exception. The freshness health check alerts on this state.
         assertTrue(rows.isEmpty(), "empty mat table must return empty list, not throw");
 
-        // Restore the table so subsequent tests in the same run have data.
-        refreshService.refresh();
+        // No restore here: the refresh swaps months in their own transactions and would
+        // wait on this transaction's locks. The next @BeforeEach (or any later refresh)
+        // rebuilds the table because the hashes were wiped with it.
     }
 }
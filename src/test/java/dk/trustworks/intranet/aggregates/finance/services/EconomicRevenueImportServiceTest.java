@@ -2,7 +2,9 @@ package dk.trustworks.intranet.aggregates.finance.services;
 
 import dk.trustworks.intranet.aggregates.finance.dto.DryRunOutcome;
 import dk.trustworks.intranet.aggregates.finance.services.EconomicRevenueImportService.AggregatedVoucher;
+import dk.trustworks.intranet.aggregates.finance.services.EconomicRevenueImportService.CompanyFetch;
 import dk.trustworks.intranet.aggregates.finance.services.EconomicRevenueImportService.DedupLayer;
+import dk.trustworks.intranet.financeservice.model.IntegrationKey;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,6 +25,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -72,6 +75,11 @@ import static org.mockito.Mockito.when;
  *       {@link #testDeriveStoredAmountNegatesExactly()},
  *       {@link #testGuardRejectsAnAmountNotDerivedFromTheEntry()}</li>
  *   <li>Sentinel write — {@link #testEmptyRefreshAdvancesSentinelTimestamp()}</li>
+ *   <li>Page-write fallback — {@link #testRefreshReplaysAPageThatLosesAConstraintRace()},
+ *       {@link #testRefreshReplaysAPageThatFailsForAnyOtherReason()}</li>
+ *   <li>Page pipeline — {@link #testDedupePageClassifiesAWholePageWithOneLookup()},
+ *       {@link #testDedupePageCatchesRepeatsWithinThePageWhenLive()},
+ *       {@link #testInsertPageWritesOneMultiRowInsertPerTable()}</li>
  * </ul>
  */
 @ExtendWith(MockitoExtension.class)
@@ -572,6 +580,157 @@ class EconomicRevenueImportServiceTest {
         verify(sentinelQ, times(1)).executeUpdate();
     }
 
+    @Test
+    @DisplayName("Page fallback: a page that loses a V338 race is replayed voucher by voucher; only the collision is lost")
+    void testRefreshReplaysAPageThatLosesAConstraintRace() {
+        service.dryRun = false;
+        EconomicRevenueImportService spy = spyWithoutNetwork(List.of(
+                voucherAt(AS_UUID, 2104, 1001, 7001, "-100.00"),
+                voucherAt(AS_UUID, 2104, 1002, 7002, "-200.00"),
+                voucherAt(TECH_UUID, 3050, 1004, 7004, "-400.00")));
+
+        RuntimeException race = new RuntimeException("wrapped",
+                new SQLIntegrityConstraintViolationException("uniq_invoices_economic_entry"));
+        Query pageQ = updateQuery();
+        when(pageQ.executeUpdate()).thenThrow(race).thenReturn(1);
+        Query singleQ = updateQuery();
+        when(singleQ.executeUpdate()).thenReturn(1).thenThrow(race);
+        routeInserts(pageQ, singleQ);
+
+        DryRunOutcome outcome = spy.refresh(LocalDate.of(2024, 1, 1), LocalDate.of(2026, 1, 1));
+
+        assertEquals(3, outcome.totalIntendedInserts());
+        assertEquals(2, outcome.totalActualInserts(), "one replayed voucher and the TECH page");
+        assertEquals(1, outcome.skippedByLayer().get(DedupLayer.LAYER_3_ENTRY_COLLISION));
+        assertEquals(1, outcome.perCompany().get(AS_UUID).inserted());
+        assertEquals(1, outcome.perCompany().get(AS_UUID).skipped());
+        assertEquals(1, outcome.perCompany().get(TECH_UUID).inserted());
+        verify(singleQ, times(2)).executeUpdate();
+        verify(em, never()).createNativeQuery(contains("UPDATE invoices SET economics_entry_refreshed_at"));
+    }
+
+    @Test
+    @DisplayName("Page fallback: a non-constraint page failure is replayed too; the failing voucher is logged and the refresh continues")
+    void testRefreshReplaysAPageThatFailsForAnyOtherReason() {
+        service.dryRun = false;
+        EconomicRevenueImportService spy = spyWithoutNetwork(List.of(
+                voucherAt(AS_UUID, 2104, 1001, 7001, "-100.00"),
+                voucherAt(AS_UUID, 2104, 1002, 7002, "-200.00"),
+                voucherAt(CYBER_UUID, 3050, 1006, 7006, "-600.00")));
+
+        RuntimeException lockTimeout = new jakarta.persistence.PessimisticLockException("Lock wait timeout exceeded");
+        Query pageQ = updateQuery();
+        when(pageQ.executeUpdate()).thenThrow(lockTimeout).thenReturn(1);
+        Query singleQ = updateQuery();
+        when(singleQ.executeUpdate()).thenReturn(1).thenThrow(lockTimeout);
+        routeInserts(pageQ, singleQ);
+
+        DryRunOutcome outcome = spy.refresh(LocalDate.of(2024, 1, 1), LocalDate.of(2026, 1, 1));
+
+        assertEquals(3, outcome.totalIntendedInserts());
+        assertEquals(2, outcome.totalActualInserts());
+        assertEquals(0, outcome.skippedByLayer().get(DedupLayer.LAYER_3_ENTRY_COLLISION),
+                "a non-constraint failure is not a dedup hit");
+        assertEquals(1, outcome.perCompany().get(AS_UUID).inserted());
+        assertNull(outcome.perCompany().get(AS_UUID).error());
+        assertEquals(1, outcome.perCompany().get(CYBER_UUID).inserted(), "the next company still imports");
+        assertEquals(List.of(AS_UUID, TECH_UUID, CYBER_UUID), new ArrayList<>(outcome.perCompany().keySet()));
+    }
+
+    // ------------------------------------------------------------------------
+    // Page pipeline: one keyed lookup + one multi-row write per page
+    // ------------------------------------------------------------------------
+
+    @Test
+    @DisplayName("Page dedup: layers 2-4 for a whole page in one query, classified fail-fast in memory")
+    void testDedupePageClassifiesAWholePageWithOneLookup() {
+        Query lookup = mock(Query.class);
+        when(lookup.setParameter(anyString(), org.mockito.ArgumentMatchers.any())).thenReturn(lookup);
+        when(lookup.getResultList()).thenReturn(List.of(
+                new Object[]{"V", 1001},
+                new Object[]{"E", 7001},          // voucher 1001 is already a Layer 2 hit
+                new Object[]{"E", 7002},
+                new Object[]{"I", 100200L}));
+        when(em.createNativeQuery(contains("UNION ALL"))).thenReturn(lookup);
+
+        List<AggregatedVoucher> page = List.of(
+                sampleVoucher(AS_UUID, 1001, 7001, "any"),
+                sampleVoucher(AS_UUID, 1002, 7002, "any"),
+                sampleVoucher(AS_UUID, 1003, 7003, "Faktura 100-200"),
+                sampleVoucher(AS_UUID, 1004, 7004, "any"));
+
+        EconomicRevenueImportService.PageOutcome outcome = service.dedupePage(page);
+
+        assertEquals(List.of(page.get(3)), outcome.survivors());
+        assertEquals(1, outcome.skippedByLayer().get(DedupLayer.LAYER_2_VOUCHER_COLLISION));
+        assertEquals(1, outcome.skippedByLayer().get(DedupLayer.LAYER_3_ENTRY_COLLISION));
+        assertEquals(1, outcome.skippedByLayer().get(DedupLayer.LAYER_4_TEXT_MATCH));
+        verify(em, times(1)).createNativeQuery(anyString());
+        verify(lookup).setParameter(eq("company"), eq(AS_UUID));
+        verify(lookup).setParameter(eq("invoiceNumbers"), eq(java.util.Set.of(100200)));
+    }
+
+    @Test
+    @DisplayName("Page dedup: live mode catches a voucher number repeated inside the page, as the committed-row lookup did")
+    void testDedupePageCatchesRepeatsWithinThePageWhenLive() {
+        Query lookup = mock(Query.class);
+        when(lookup.setParameter(anyString(), org.mockito.ArgumentMatchers.any())).thenReturn(lookup);
+        when(lookup.getResultList()).thenReturn(Collections.emptyList());
+        when(em.createNativeQuery(contains("UNION ALL"))).thenReturn(lookup);
+
+        // Same voucher number on two accounts aggregates to two vouchers.
+        List<AggregatedVoucher> page = List.of(
+                voucherAt(AS_UUID, 2104, 1001, 7001, "-100.00"),
+                voucherAt(AS_UUID, 2106, 1001, 7002, "-50.00"));
+
+        service.dryRun = false;
+        EconomicRevenueImportService.PageOutcome live = service.dedupePage(page);
+        assertEquals(List.of(page.get(0)), live.survivors());
+        assertEquals(1, live.skippedByLayer().get(DedupLayer.LAYER_2_VOUCHER_COLLISION));
+
+        service.dryRun = true;
+        assertEquals(page, service.dedupePage(page).survivors(), "dry-run counts are unchanged");
+        verify(em, never()).createNativeQuery(contains("invoicenumber IN"));
+    }
+
+    @Test
+    @DisplayName("Page write: one INSERT per table for the whole page; rows linked by uuid; rate = -entry amount")
+    void testInsertPageWritesOneMultiRowInsertPerTable() {
+        Query invoiceQ = mock(Query.class);
+        Query itemQ = mock(Query.class);
+        when(invoiceQ.setParameter(anyString(), org.mockito.ArgumentMatchers.any())).thenReturn(invoiceQ);
+        when(itemQ.setParameter(anyString(), org.mockito.ArgumentMatchers.any())).thenReturn(itemQ);
+        when(invoiceQ.executeUpdate()).thenReturn(2);
+        when(itemQ.executeUpdate()).thenReturn(2);
+        when(em.createNativeQuery(contains("INSERT INTO invoices"))).thenReturn(invoiceQ);
+        when(em.createNativeQuery(contains("INSERT INTO invoiceitems"))).thenReturn(itemQ);
+
+        int inserted = service.insertPage(List.of(
+                voucherAt(AS_UUID, 2104, 1001, 7001, "-100.00"),
+                voucherAt(AS_UUID, 2106, 1002, 7002, "25.50")), LocalDateTime.of(2026, 5, 13, 2, 0), "BOOKED");
+
+        assertEquals(2, inserted);
+        verify(em, times(1)).createNativeQuery(contains("INSERT INTO invoices"));
+        verify(em, times(1)).createNativeQuery(contains("INSERT INTO invoiceitems"));
+
+        ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> values = ArgumentCaptor.forClass(Object.class);
+        verify(invoiceQ, atLeastOnce()).setParameter(names.capture(), values.capture());
+        Map<String, Object> invoiceParams = paramMap(names.getAllValues(), values.getAllValues());
+        ArgumentCaptor<String> itemNames = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> itemValues = ArgumentCaptor.forClass(Object.class);
+        verify(itemQ, atLeastOnce()).setParameter(itemNames.capture(), itemValues.capture());
+        Map<String, Object> itemParams = paramMap(itemNames.getAllValues(), itemValues.getAllValues());
+
+        assertEquals(7001, invoiceParams.get("entryNumber0"));
+        assertEquals(7002, invoiceParams.get("entryNumber1"));
+        assertEquals("BOOKED", invoiceParams.get("postingStatus"));
+        assertEquals(invoiceParams.get("uuid1"), itemParams.get("uuid1"));
+        assertNotEquals(invoiceParams.get("uuid0"), invoiceParams.get("uuid1"));
+        assertEquals(new BigDecimal("100.00"), itemParams.get("rate0"));
+        assertEquals(new BigDecimal("-25.50"), itemParams.get("rate1"), "a reversal stays negative");
+    }
+
     // ------------------------------------------------------------------------
     // Test helpers
     // ------------------------------------------------------------------------
@@ -594,73 +753,37 @@ class EconomicRevenueImportServiceTest {
     }
 
     /**
-     * Builds a spy that bypasses the network-dependent steps of refresh()
-     * (Company lookup, integration-key load, e-conomic REST calls,
-     * type-filter, aggregation) by stubbing the entire pre-dedup pipeline
-     * to return the given fixture as the surviving aggregated vouchers.
-     *
-     * <p>Approach: the refresh loop calls Company.findById which we can't mock
-     * cleanly without a Quarkus context (it's a Panache static). So we
-     * override the refresh by using the service's package-private helpers
-     * via a thin subclass.
+     * Builds a service whose refresh() runs for real from Stage 1 on, with only
+     * the network-dependent steps replaced: the integration-key load (a Panache
+     * static, which needs a Quarkus context) and the per-company e-conomic fetch,
+     * which returns the fixture vouchers of that company as its aggregated result.
+     * {@code fetchAll}, the page loop, the page-write fallback and the sentinel
+     * write are the production code.
      */
     private EconomicRevenueImportService spyWithoutNetwork(List<AggregatedVoucher> fixture) {
         EconomicRevenueImportService child = new EconomicRevenueImportService() {
             @Override
-            public DryRunOutcome refresh(LocalDate from, LocalDate to) {
-                // Mirror parent's algorithm but seed with the fixture rather than
-                // calling Company.findById / EconomicsAPI.
-                Map<String, java.math.BigDecimal> perCompanyDkk = new java.util.LinkedHashMap<>();
-                Map<Integer, java.math.BigDecimal> perAccountDkk = new java.util.HashMap<>();
-                java.util.EnumMap<DedupLayer, Integer> skippedByLayer = new java.util.EnumMap<>(DedupLayer.class);
-                for (DedupLayer dl : DedupLayer.values()) skippedByLayer.put(dl, 0);
-
-                int totalIntendedInserts = 0;
-                int totalActualInserts = 0;
-                java.time.LocalDateTime refreshedAt = java.time.LocalDateTime.now();
-
-                for (AggregatedVoucher v : fixture) {
-                    Optional<DedupLayer> hit = findExistingByVoucherColumns(v);
-                    if (hit.isPresent()) { skippedByLayer.merge(hit.get(), 1, Integer::sum); continue; }
-                    hit = findExistingByEntryNumber(v);
-                    if (hit.isPresent()) { skippedByLayer.merge(hit.get(), 1, Integer::sum); continue; }
-                    hit = findExistingByFakturaText(v);
-                    if (hit.isPresent()) { skippedByLayer.merge(hit.get(), 1, Integer::sum); continue; }
-
-                    // Mirrors the production derivation: stored amount = negated entry amount.
-                    java.math.BigDecimal storedAmount = deriveStoredAmount(v.sumAmount());
-                    perCompanyDkk.merge(v.companyUuid(), storedAmount, java.math.BigDecimal::add);
-                    perAccountDkk.merge(v.account(), storedAmount, java.math.BigDecimal::add);
-                    totalIntendedInserts++;
-
-                    if (dryRun) continue;
-                    try {
-                        insertInvoiceAndItem(v, refreshedAt);
-                        totalActualInserts++;
-                    } catch (SQLIntegrityConstraintViolationException race) {
-                        skippedByLayer.merge(DedupLayer.LAYER_3_ENTRY_COLLISION, 1, Integer::sum);
-                    }
-                }
-
-                // Sentinel write — only when truly zero net inserts and live mode.
-                if (totalActualInserts == 0 && !dryRun) {
-                    em.createNativeQuery("UPDATE invoices SET economics_entry_refreshed_at = :now " +
-                                    "WHERE uuid = (SELECT uuid FROM (" +
-                                    "  SELECT uuid FROM invoices WHERE economics_entry_number IS NOT NULL " +
-                                    "  ORDER BY economics_entry_refreshed_at ASC LIMIT 1) AS oldest)")
-                            .setParameter("now", refreshedAt)
-                            .executeUpdate();
+            Map<String, IntegrationKey.IntegrationKeyValue> loadIntegrationKeys() {
+                Map<String, IntegrationKey.IntegrationKeyValue> keys = new LinkedHashMap<>();
+                for (String companyUuid : ALL_COMPANY_UUIDS) {
+                    keys.put(companyUuid, new IntegrationKey.IntegrationKeyValue(
+                            "https://economic.invalid", "secret", "grant-" + companyUuid, 0, 0, 0, 0, 0));
                 }
+                return keys;
+            }
 
-                return new DryRunOutcome(totalIntendedInserts, totalActualInserts,
-                        java.util.Collections.unmodifiableMap(perCompanyDkk),
-                        java.util.Collections.unmodifiableMap(perAccountDkk),
-                        java.util.Collections.unmodifiableMap(skippedByLayer),
-                        dryRun);
+            @Override
+            CompanyFetch fetchCompany(String companyUuid, IntegrationKey.IntegrationKeyValue keys,
+                                      LocalDate from, LocalDate to) {
+                List<AggregatedVoucher> vouchers = fixture.stream()
+                        .filter(v -> v.companyUuid().equals(companyUuid))
+                        .toList();
+                return new CompanyFetch(companyUuid, vouchers, vouchers.size(), 0, 0, null);
             }
         };
         child.em = em;
         child.dryRun = service.dryRun;
+        child.self = child;
         return child;
     }
 
@@ -677,6 +800,31 @@ class EconomicRevenueImportServiceTest {
         lenient().when(em.createNativeQuery(contains("invoicenumber"))).thenReturn(miss);
     }
 
+    private static Query updateQuery() {
+        Query q = mock(Query.class);
+        when(q.setParameter(anyString(), org.mockito.ArgumentMatchers.any())).thenReturn(q);
+        return q;
+    }
+
+    /**
+     * Routes the multi-row page INSERT to {@code pageInvoices} and the single-voucher
+     * replay INSERT to {@code singleInvoice}; item INSERTs succeed and every dedup
+     * lookup misses.
+     */
+    private void routeInserts(Query pageInvoices, Query singleInvoice) {
+        Query items = updateQuery();
+        when(items.executeUpdate()).thenReturn(1);
+        Query miss = mock(Query.class);
+        when(miss.setParameter(anyString(), org.mockito.ArgumentMatchers.any())).thenReturn(miss);
+        when(miss.getResultList()).thenReturn(Collections.emptyList());
+        when(em.createNativeQuery(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.startsWith("INSERT INTO invoices ")) return sql.contains(":uuid0") ? pageInvoices : singleInvoice;
+            if (sql.startsWith("INSERT INTO invoiceitems ")) return items;
+            return miss;
+        });
+    }
+
     private static Map<String, Object> paramMap(List<String> names, List<Object> values) {
         Map<String, Object> m = new java.util.HashMap<>();
         for (int i = 0; i < names.size(); i++) {
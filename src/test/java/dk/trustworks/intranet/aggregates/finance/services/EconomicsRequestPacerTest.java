@@ -0,0 +1,39 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EconomicsRequestPacerTest {
+
+    @Test
+    void acquire_spacesRequestsAcrossThreads() {
+        EconomicsRequestPacer pacer = new EconomicsRequestPacer(50);   // one slot per 20 ms
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            long started = System.nanoTime();
+            CompletableFuture<?>[] calls = new CompletableFuture<?>[6];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = CompletableFuture.runAsync(pacer::acquire, pool);
+            }
+            CompletableFuture.allOf(calls).join();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            assertTrue(elapsedMs >= 90, "6 requests at 50/s need at least 5 gaps of 20 ms, took " + elapsedMs + " ms");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquire_doesNotWaitWhenPacingIsDisabled() {
+        EconomicsRequestPacer pacer = new EconomicsRequestPacer(0);
+        long started = System.nanoTime();
+        for (int i = 0; i < 1000; i++) pacer.acquire();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+    }
+}
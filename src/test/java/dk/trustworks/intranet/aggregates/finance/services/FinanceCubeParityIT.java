@@ -0,0 +1,243 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.dao.workservice.services.WorkFullSource;
+import dk.trustworks.intranet.services.PracticeService;
+import dk.trustworks.intranet.utils.TwConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parity test: the {@link FinanceCube} built from {@code fact_project_financials_mat} answers
+ * the sums the CxO queries ask of it with the same totals as the SQL they replace, and
+ * {@link CxoFinanceService} returns the same results with the cube enabled and disabled.
+ *
+ * <p>Each test runs on a committed fixture in 2098–2100 for two fresh companies: rows with NULL
+ * sector, service line, contract type and client, the internal client the top-5 metric excludes,
+ * a project-month split across both companies, a credit, and rows on either side of each window
+ * edge. Amounts are multiples of 0.25, so the cube's double sums are exact and the DTOs compare
+ * with {@code equals}. The fixture is deleted after each test.</p>
+ */
+@QuarkusTest
+class FinanceCubeParityIT {
+
+    private static final LocalDate TO_DATE = LocalDate.of(2099, 12, 10);
+
+    @Inject
+    FinanceCubeService financeCubeService;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    WorkFullSource workFullSource;
+
+    @Inject
+    DistributionAwareOpexProvider opexProvider;
+
+    @Inject
+    PracticeService practiceService;
+
+    @Inject
+    BiFactGeneration factGeneration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final String run = "parity-" + UUID.randomUUID();
+    private final String companyA = UUID.randomUUID().toString();
+    private final String companyB = UUID.randomUUID().toString();
+    private final List<String> clients = new ArrayList<>();
+    private final Map<String, String> projects = new HashMap<>();
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < 8; i++) clients.add(UUID.randomUUID().toString());
+        String internal = TwConstants.INTERNAL_CLIENT_TRUSTWORKS;
+        QuarkusTransaction.requiringNew().run(() -> {
+            // project, client, company, sector, service line, contract type, month, revenue, cost, hours
+            row("p1", clients.get(0), companyA, "PUBLIC", "PM", "T&M", "209901", 10000.50, 4000.25, 75.5);
+            row("p1", clients.get(0), companyB, "PUBLIC", "PM", "T&M", "209901", 2500.25, 1000.75, 18.0);
+            row("p2", clients.get(1), companyA, null, null, null, "209906", 8000.00, 3000.50, 60.0);
+            row("p3", null, companyB, "HEALTH", "DEV", "FIXED", "209912", 5000.75, 2500.00, 40.25);
+            row("p4", internal, companyA, "PUBLIC", "DEV", "T&M", "209912", 20000.00, 9000.25, 150.0);
+            row("p5", clients.get(2), companyA, "HEALTH", "PM", "FIXED", "209812", 7000.50, 1500.00, 50.0);
+            row("p6", clients.get(3), companyB, "PUBLIC", "PM", "T&M", "209801", 3000.00, 1200.25, 22.5);
+            row("p7", clients.get(4), companyA, "PUBLIC", "DEV", "FIXED", "209907", -1500.25, 500.00, 0.0);
+            row("p8", clients.get(5), companyB, null, "PM", "T&M", "209903", 4200.75, 1800.00, 31.0);
+            row("p9", clients.get(6), companyA, "PUBLIC", "PM", "T&M", "209910", 900.50, 300.00, 7.0);
+            row("p10", clients.get(7), companyB, "HEALTH", "DEV", "T&M", "210001", 6000.00, 2000.00, 45.0);
+            row("p11", clients.get(2), companyA, "PUBLIC", "PM", "T&M", "209905", 3300.25, 1100.00, 24.75);
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        QuarkusTransaction.requiringNew().run(() -> em.createNativeQuery(
+                        "DELETE FROM fact_project_financials_mat WHERE project_financial_id LIKE :run")
+                .setParameter("run", run + "%")
+                .executeUpdate());
+    }
+
+    @Test
+    @Transactional
+    void cube_sums_match_sql_over_the_whole_fact_table() {
+        FinanceCube cube = FinanceCube.build(financeCubeService.loadRows(), new BiFactGeneration.Generation(0, null));
+
+        assertTrue(cube.rowCount() >= 12, "the fixture is part of the cube");
+        assertEquals(sqlSum("recognized_revenue_dkk"),
+                cube.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, FinanceCube.Filter.months(null, null)), 0.01);
+        assertEquals(sqlSum("direct_delivery_cost_dkk"),
+                cube.sum(FinanceCube.Measure.DIRECT_DELIVERY_COST, FinanceCube.Filter.months(null, null)), 0.01);
+        assertEquals(sqlSum("total_hours"),
+                cube.sum(FinanceCube.Measure.TOTAL_HOURS, FinanceCube.Filter.months(null, null)), 0.01);
+    }
+
+    @Test
+    @Transactional
+    @SuppressWarnings("unchecked")
+    void cube_matches_sql_per_month_and_per_company() {
+        FinanceCube cube = FinanceCube.build(financeCubeService.loadRows(), new BiFactGeneration.Generation(0, null));
+        List<String> companies = em.createNativeQuery(
+                "SELECT DISTINCT companyuuid FROM fact_project_financials_mat WHERE companyuuid IS NOT NULL")
+                .getResultList();
+        assertTrue(companies.containsAll(List.of(companyA, companyB)));
+
+        for (String company : companies) {
+            Map<String, Double> expected = new TreeMap<>();
+            for (Tuple row : (List<Tuple>) em.createNativeQuery("""
+                            SELECT month_key, SUM(direct_delivery_cost_dkk) AS cost
+                            FROM fact_project_financials_mat
+                            WHERE companyuuid = :company
+                            GROUP BY month_key
+                            """, Tuple.class)
+                    .setParameter("company", company)
+                    .getResultList()) {
+                expected.put((String) row.get("month_key"), ((Number) row.get("cost")).doubleValue());
+            }
+            Map<String, Double> actual = cube.sumByMonth(FinanceCube.Measure.DIRECT_DELIVERY_COST,
+                    new FinanceCube.Filter(null, null, Set.of(company), null, null, null, null, null));
+
+            assertEquals(expected.keySet(), actual.keySet(), "months of " + company);
+            expected.forEach((month, cost) ->
+                    assertEquals(cost, actual.get(month), 0.01, company + " " + month));
+        }
+    }
+
+    @Test
+    void cxoFinanceService_returnsTheSameResultsWithAndWithoutTheCube() {
+        CxoFinanceService withCube = cxo(true);
+        CxoFinanceService withoutCube = cxo(false);
+        assertNotNull(withCube.financeCubeService.current());
+        assertNull(withoutCube.financeCubeService.current());
+
+        Set<String> both = Set.of(companyA, companyB);
+        List<Filters> cases = List.of(
+                new Filters(null, null, null, null, both),
+                new Filters(Set.of("PUBLIC"), null, null, null, both),
+                new Filters(null, Set.of("PM"), Set.of("T&M"), null, both),
+                new Filters(Set.of("PUBLIC", "HEALTH"), Set.of("PM", "DEV"), Set.of("T&M", "FIXED"), null, Set.of(companyA)),
+                new Filters(null, null, null, clients.get(0), both),
+                new Filters(null, null, null, TwConstants.INTERNAL_CLIENT_TRUSTWORKS, Set.of(companyA)));
+
+        for (Filters f : cases) {
+            assertEquals(
+                    withoutCube.getRevenueMarginTrend(LocalDate.of(2099, 1, 15), LocalDate.of(2099, 12, 3),
+                            f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companies()),
+                    withCube.getRevenueMarginTrend(LocalDate.of(2099, 1, 15), LocalDate.of(2099, 12, 3),
+                            f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companies()),
+                    "revenue/margin trend " + f);
+            assertEquals(
+                    withoutCube.getGrossMarginTTM(null, TO_DATE,
+                            f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companies()),
+                    withCube.getGrossMarginTTM(null, TO_DATE,
+                            f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companies()),
+                    "gross margin TTM " + f);
+            assertEquals(
+                    withoutCube.getRealizationRate(null, TO_DATE,
+                            f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companies()),
+                    withCube.getRealizationRate(null, TO_DATE,
+                            f.sectors(), f.serviceLines(), f.contractTypes(), f.clientId(), f.companies()),
+                    "realization rate " + f);
+            assertEquals(
+                    withoutCube.getTop5ClientsShare(null, TO_DATE,
+                            f.sectors(), f.serviceLines(), f.contractTypes(), null, f.companies()),
+                    withCube.getTop5ClientsShare(null, TO_DATE,
+                            f.sectors(), f.serviceLines(), f.contractTypes(), null, f.companies()),
+                    "top-5 client share " + f);
+        }
+    }
+
+    private record Filters(Set<String> sectors, Set<String> serviceLines, Set<String> contractTypes,
+                           String clientId, Set<String> companies) {}
+
+    /** A CxO service on its own cube holder, so the cube is built from the committed fixture. */
+    private CxoFinanceService cxo(boolean cubeEnabled) {
+        FinanceCubeService cubes = new FinanceCubeService();
+        cubes.em = em;
+        cubes.factGeneration = factGeneration;
+        cubes.registry = registry;
+        cubes.enabled = cubeEnabled;
+
+        CxoFinanceService service = new CxoFinanceService();
+        service.em = em;
+        service.workFullSource = workFullSource;
+        service.opexProvider = opexProvider;
+        service.practiceService = practiceService;
+        service.financeCubeService = cubes;
+        return service;
+    }
+
+    private void row(String project, String client, String company, String sector, String serviceLine,
+                     String contractType, String monthKey, double revenue, double cost, double hours) {
+        em.createNativeQuery("""
+                        INSERT INTO fact_project_financials_mat (project_financial_id, project_id, client_id, companyuuid,
+                            sector_id, service_line_id, contract_type_id, month_key, year, month_number,
+                            recognized_revenue_dkk, employee_salary_cost_dkk, external_consultant_cost_dkk,
+                            project_expense_cost_dkk, direct_delivery_cost_dkk, total_hours, consultant_count, data_source)
+                        VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8, ?9, ?10, ?11, ?12, 0, 0, ?12, ?13, 1, 'PARITY')
+                        """)
+                .setParameter(1, run + "-" + project + "-" + monthKey + "-" + company)
+                .setParameter(2, projects.computeIfAbsent(project, p -> UUID.randomUUID().toString()))
+                .setParameter(3, client)
+                .setParameter(4, company)
+                .setParameter(5, sector)
+                .setParameter(6, serviceLine)
+                .setParameter(7, contractType)
+                .setParameter(8, monthKey)
+                .setParameter(9, Integer.parseInt(monthKey.substring(0, 4)))
+                .setParameter(10, Integer.parseInt(monthKey.substring(4)))
+                .setParameter(11, revenue)
+                .setParameter(12, cost)
+                .setParameter(13, hours)
+                .executeUpdate();
+    }
+
+    private double sqlSum(String column) {
+        Object value = em.createNativeQuery("SELECT COALESCE(SUM(" + column + "), 0) FROM fact_project_financials_mat")
+                .getSingleResult();
+        return ((Number) value).doubleValue();
+    }
+}
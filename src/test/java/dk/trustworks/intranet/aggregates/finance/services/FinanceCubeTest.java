@@ -0,0 +1,94 @@
+package dk.trustworks.intranet.aggregates.finance.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FinanceCubeTest {
+
+    private static final FinanceCube CUBE = FinanceCube.build(List.of(
+            row("p3", "202503", "company-a", "client-2", "PUBLIC", "PM", "T&M", 40, 10),
+            row("p1", "202501", "company-a", "client-1", "PUBLIC", "PM", "T&M", 100, 60),
+            row("p2", "202501", "company-b", "client-2", "PRIVATE", "BA", "FIXED", 50, 20),
+            row("p4", "202502", "company-a", null, null, null, null, 7, 3),
+            row("p1", "202502", "company-a", "client-1", "PUBLIC", "PM", "T&M", -30, 5)
+    ), new BiFactGeneration.Generation(1, null));
+
+    @Test
+    void build_dictionaryEncodesEveryDimensionWithoutNull() {
+        assertEquals(5, CUBE.rowCount());
+        assertEquals(2, CUBE.cardinality(FinanceCube.Dimension.COMPANY));
+        assertEquals(2, CUBE.cardinality(FinanceCube.Dimension.CLIENT));
+        assertEquals(4, CUBE.cardinality(FinanceCube.Dimension.PROJECT));
+    }
+
+    @Test
+    void sum_restrictsToTheInclusiveMonthRange() {
+        assertEquals(167.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, FinanceCube.Filter.months(null, null)));
+        assertEquals(-23.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, FinanceCube.Filter.months("202502", "202502")));
+        assertEquals(17.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, FinanceCube.Filter.months("202502", "202612")));
+        assertEquals(0.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, FinanceCube.Filter.months("202601", "202612")));
+    }
+
+    @Test
+    void sum_inFiltersNeverMatchNull() {
+        FinanceCube.Filter publicSector = new FinanceCube.Filter(null, null, null, Set.of("PUBLIC"),
+                null, null, null, null);
+        assertEquals(110.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, publicSector));
+
+        FinanceCube.Filter companyA = new FinanceCube.Filter(null, null, Set.of("company-a"), null,
+                null, null, null, null);
+        assertEquals(78.0, CUBE.sum(FinanceCube.Measure.DIRECT_DELIVERY_COST, companyA));
+
+        FinanceCube.Filter client = new FinanceCube.Filter("202501", "202503", null, null,
+                Set.of("PM"), Set.of("T&M"), "client-1", null);
+        assertEquals(70.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, client));
+
+        FinanceCube.Filter unknown = new FinanceCube.Filter(null, null, Set.of("company-x"), null,
+                null, null, null, null);
+        assertEquals(0.0, CUBE.sum(FinanceCube.Measure.RECOGNIZED_REVENUE, unknown));
+    }
+
+    @Test
+    void sumByMonth_listsOnlyMonthsWithMatchingRows() {
+        FinanceCube.Filter companyB = new FinanceCube.Filter(null, null, Set.of("company-b"), null,
+                null, null, null, null);
+        NavigableMap<String, Double> byMonth = CUBE.sumByMonth(FinanceCube.Measure.DIRECT_DELIVERY_COST, companyB);
+        assertEquals(Map.of("202501", 20.0), byMonth);
+
+        NavigableMap<String, Double> all = CUBE.sumByMonth(FinanceCube.Measure.DIRECT_DELIVERY_COST,
+                FinanceCube.Filter.months("202501", "202503"));
+        assertEquals(List.of("202501", "202502", "202503"), List.copyOf(all.keySet()));
+        assertEquals(80.0, all.get("202501"));
+        assertEquals(8.0, all.get("202502"));
+    }
+
+    @Test
+    void sumBy_excludedClientsDropNullAndPositiveRowsOnlySkipsCreditNotes() {
+        FinanceCube.Filter excluding = new FinanceCube.Filter(null, null, null, null, null, null, null,
+                List.of("client-2"));
+        Map<String, Double> byClient = CUBE.sumBy(FinanceCube.Dimension.CLIENT,
+                FinanceCube.Measure.RECOGNIZED_REVENUE, excluding, true);
+        assertEquals(Map.of("client-1", 100.0), byClient);
+
+        Map<String, Double> withNull = CUBE.sumBy(FinanceCube.Dimension.CLIENT,
+                FinanceCube.Measure.RECOGNIZED_REVENUE, FinanceCube.Filter.months(null, null), false);
+        assertEquals(70.0, withNull.get("client-1"));
+        assertEquals(90.0, withNull.get("client-2"));
+        assertTrue(withNull.containsKey(null));
+        assertEquals(7.0, withNull.get(null));
+    }
+
+    private static FinanceCube.Row row(String project, String month, String company, String client, String sector,
+                                       String serviceLine, String contractType, double revenue, double cost) {
+        return new FinanceCube.Row(project, month, company, client, sector, serviceLine, contractType,
+                revenue, cost, 0, 0, 0, 0);
+    }
+}
@@ -4,11 +4,11 @@ import dk.trustworks.intranet.aggregates.accounting.services.IntercompanyCalcSer
 import dk.trustworks.intranet.aggregates.accounting.services.IntercompanyCalcService.FiscalYearData;
 import dk.trustworks.intranet.aggregates.finance.dto.OpexRow;
 import dk.trustworks.intranet.aggregates.utilization.services.UtilizationCalculationHelper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Tuple;
-import jakarta.transaction.Transactional;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.Test;
 
@@ -39,7 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * <p>For each month in the current fiscal year:
  * <ol>
  *   <li>Run the algorithm directly via {@code computeDistributionForMonths}</li>
- *   <li>Run the refresh service (DELETE + INSERT)</li>
+ *   <li>Run a forced refresh (DELETE + INSERT per month)</li>
  *   <li>Read back the materialized rows</li>
  *   <li>Assert (company, cost_center, expense_category, is_payroll) → amount maps match</li>
  * </ol>
@@ -67,14 +67,15 @@ class OpexDistributionRefreshParityIT {
     double salaryBufferMultiplier;
 
     @Test
-    @Transactional
     void materialized_rows_match_live_compute_for_every_month_in_current_fy() {
         var currentFy = UtilizationCalculationHelper.getCurrentFiscalYearRange();
         LocalDate fyStart = currentFy.start();
         LocalDate fyEnd = currentFy.end().plusDays(1);
 
-        FiscalYearData fyData = intercompanyCalcService.loadFiscalYear(
-                fyStart, fyEnd, salaryBufferMultiplier);
+        // The refresh commits each month in its own transaction; load in a separate
+        // one so the reads below are not pinned to a snapshot taken before it.
+        FiscalYearData fyData = QuarkusTransaction.requiringNew().call(() ->
+                intercompanyCalcService.loadFiscalYear(fyStart, fyEnd, salaryBufferMultiplier));
 
         List<YearMonth> months = new ArrayList<>(fyData.perMonth.keySet());
         List<OpexRow> liveRows = refreshService.computeDistributionForMonths(months, fyData);
@@ -93,7 +94,7 @@ class OpexDistributionRefreshParityIT {
                 "Live algorithm produced zero rows across the current FY — parity test "
                 + "would pass vacuously. Source data may be missing from the test database.");
 
-        refreshService.refresh();
+        refreshService.refresh(true);
 
         Map<YearMonth, Map<String, Double>> mat = new TreeMap<>();
         for (YearMonth ym : live.keySet()) {
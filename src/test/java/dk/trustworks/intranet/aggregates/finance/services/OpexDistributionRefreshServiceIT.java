@@ -5,7 +5,6 @@ import dk.trustworks.intranet.aggregates.utilization.services.UtilizationCalcula
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -18,13 +17,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  *
  * <p>Asserts three properties of {@code refresh()}:
  * <ol>
- *   <li>It inserts rows for the current fiscal year window.</li>
- *   <li>It is idempotent — a second call yields the same row count
- *       and reports {@code deleted == first.inserted}.</li>
+ *   <li>A forced refresh rewrites every row of the current fiscal year window.</li>
+ *   <li>It is incremental — a second call over unchanged inputs recomputes no
+ *       month, deletes and inserts nothing, and leaves the row count as it was.</li>
  *   <li>The window respects the configured {@code fyBack} property —
  *       i.e. the minimum {@code month_key} written is no earlier than
  *       {@code currentFiscalYearStart - fyBack years}.</li>
  * </ol>
+ *
+ * <p>The refresh swaps each month in its own transaction, so the tests run
+ * without a surrounding {@code @Transactional} and read what was committed.
  */
 @QuarkusTest
 class OpexDistributionRefreshServiceIT {
@@ -36,36 +38,35 @@ class OpexDistributionRefreshServiceIT {
     EntityManager em;
 
     @Test
-    @Transactional
     void refresh_populatesTableForCurrentFiscalYear() {
-        RefreshOutcome outcome = refreshService.refresh();
+        RefreshOutcome outcome = refreshService.refresh(true);
 
         assertTrue(outcome.inserted() > 0,
                 "expected refresh to insert rows, but inserted=" + outcome.inserted());
         assertTrue(outcome.took().toMillis() > 0L,
                 "expected non-zero refresh duration, but took=" + outcome.took());
+        assertEquals(0, outcome.slicesUnchanged(),
+                "a forced refresh must recompute every month");
 
-        long rowCount = ((Number) em.createNativeQuery(
-                        "SELECT COUNT(*) FROM fact_opex_distribution_mat")
-                .getSingleResult()).longValue();
-        assertEquals(outcome.inserted(), rowCount,
-                "row count in table must equal RefreshOutcome.inserted()");
+        assertEquals(outcome.inserted(), windowRowCount(outcome),
+                "row count in the window must equal RefreshOutcome.inserted()");
     }
 
     @Test
-    @Transactional
-    void refresh_isIdempotent_secondCallProducesIdenticalRowCount() {
-        RefreshOutcome first = refreshService.refresh();
+    void refresh_isIncremental_secondCallRecomputesNothing() {
+        RefreshOutcome first = refreshService.refresh(true);
         RefreshOutcome second = refreshService.refresh();
 
-        assertEquals(first.inserted(), second.inserted(),
-                "second refresh must insert the same number of rows as the first");
-        assertEquals(first.inserted(), second.deleted(),
-                "second refresh must delete exactly what the first inserted");
+        assertEquals(0, second.slicesRecomputed(),
+                "unchanged inputs must not be recomputed");
+        assertEquals(first.slicesRecomputed(), second.slicesUnchanged());
+        assertEquals(0, second.inserted());
+        assertEquals(0, second.deleted());
+        assertEquals(first.inserted(), windowRowCount(second),
+                "an incremental no-op refresh must leave the window's rows in place");
     }
 
     @Test
-    @Transactional
     void refresh_windowRespectsConfiguredFyBack() {
         RefreshOutcome outcome = refreshService.refresh();
 
@@ -78,4 +79,13 @@ class OpexDistributionRefreshServiceIT {
                 "minimum month_key " + minMonthKey
                         + " must not precede window floor " + windowFloorKey);
     }
+
+    private long windowRowCount(RefreshOutcome outcome) {
+        return ((Number) em.createNativeQuery(
+                        "SELECT COUNT(*) FROM fact_opex_distribution_mat " +
+                        "WHERE month_key >= :fromKey AND month_key < :toKey")
+                .setParameter("fromKey", UtilizationCalculationHelper.toMonthKey(outcome.windowFrom()))
+                .setParameter("toKey", UtilizationCalculationHelper.toMonthKey(outcome.windowTo()))
+                .getSingleResult()).longValue();
+    }
 }
@@ -1,29 +1,47 @@
 package dk.trustworks.intranet.aggregates.finance.services;
 
 import dk.trustworks.intranet.aggregates.accounting.services.IntercompanyCalcService;
+import dk.trustworks.intranet.aggregates.accounting.services.IntercompanyCalcService.FiscalYearData;
 import dk.trustworks.intranet.aggregates.accounting.services.IntercompanyCalcService.MonthData;
 import dk.trustworks.intranet.aggregates.finance.dto.OpexRow;
+import dk.trustworks.intranet.aggregates.finance.services.OpexDistributionRefreshService.MonthSlice;
+import dk.trustworks.intranet.aggregates.finance.services.OpexDistributionRefreshService.RefreshOutcome;
+import dk.trustworks.intranet.aggregates.finance.services.OpexDistributionRefreshService.SliceSwap;
+import dk.trustworks.intranet.aggregates.finance.services.OpexDistributionRefreshService.SliceWork;
+import dk.trustworks.intranet.aggregates.finance.services.OpexDistributionRefreshService.Sources;
 import dk.trustworks.intranet.financeservice.model.AccountingAccount;
 import dk.trustworks.intranet.financeservice.model.AccountingCategory;
 import dk.trustworks.intranet.financeservice.model.enums.CostType;
+import dk.trustworks.intranet.financeservice.model.enums.PostingStatus;
 import dk.trustworks.intranet.model.Company;
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
 
 /**
  * Tests verifying that OPEX distribution preserves the signed sign of GL
@@ -43,6 +61,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  *       row on the origin company.</li>
  * </ol>
  *
+ * <p>Tests 5+ cover the incremental refresh: per-company source hashes and
+ * recomputing only the (month, posting status) slices whose hashes changed.
+ *
  * <p>Tests use a fully synthetic in-memory {@link MonthData} (no DB) and
  * invoke the package-private {@code computeDistributionRowsForMonth} via
  * reflection, mirroring the isolation pattern used in
@@ -209,6 +230,185 @@ class OpexDistributionRefreshServiceTest {
                 "Barsel.dk refund must flow through as exact -247,025.38 negative cost");
     }
 
+    // -----------------------------------------------------------------------
+    // Test 5: change detection — a changed posting changes only the hash of
+    //         the company it belongs to, and reloading identical amounts at a
+    //         different scale (700 vs 700.00) changes nothing.
+    // -----------------------------------------------------------------------
+    @Test
+    void sourceHashes_changeOnlyForTheCompanyWhosePostingsChanged() {
+        Company a = synthCompany("c-hash-a");
+        Company b = synthCompany("c-hash-b");
+        AccountingAccount accountA = synthAccount(a, 4100, CostType.OPEX, false, false);
+        AccountingAccount accountB = synthAccount(b, 4100, CostType.OPEX, false, false);
+        AccountingCategory category = synthCategory(OPEX_GROUPNAME, accountA, accountB);
+
+        Map<String, String> before = OpexDistributionRefreshService.sourceHashes(
+                synthMonthData(List.of(a, b), List.of(category), gl(a, 4100, "700", b, 4100, "300"), Map.of()),
+                Map.of());
+        Map<String, String> rescaled = OpexDistributionRefreshService.sourceHashes(
+                synthMonthData(List.of(a, b), List.of(category), gl(a, 4100, "700.00", b, 4100, "300"), Map.of()),
+                Map.of());
+        Map<String, String> latePosting = OpexDistributionRefreshService.sourceHashes(
+                synthMonthData(List.of(a, b), List.of(category), gl(a, 4100, "700", b, 4100, "350"), Map.of()),
+                Map.of());
+
+        assertEquals(before, rescaled, "same amounts at another scale must hash the same");
+        assertEquals(before.get(a.getUuid()), latePosting.get(a.getUuid()));
+        assertNotEquals(before.get(b.getUuid()), latePosting.get(b.getUuid()),
+                "a late posting on company b must change b's hash");
+    }
+
+    // -----------------------------------------------------------------------
+    // Test 5b: the hashes are salted with the algorithm version, so a deploy
+    //          that changes the distribution invalidates unchanged inputs.
+    // -----------------------------------------------------------------------
+    @Test
+    void sourceHashes_changeWithTheAlgorithmSalt() {
+        Company company = synthCompany("c-hash-salt");
+        AccountingAccount account = synthAccount(company, 4100, CostType.OPEX, false, false);
+        MonthData md = synthMonthData(List.of(company),
+                List.of(synthCategory(OPEX_GROUPNAME, account)), gl(company, 4100, "700"), Map.of());
+
+        String nextVersion = OpexDistributionRefreshService.ALGORITHM_SALT.replaceFirst(
+                "^algorithm=" + OpexDistributionRefreshService.ALGORITHM_VERSION + ";",
+                "algorithm=" + (OpexDistributionRefreshService.ALGORITHM_VERSION + 1) + ";");
+
+        assertEquals(OpexDistributionRefreshService.sourceHashes(md, Map.of()),
+                OpexDistributionRefreshService.sourceHashes(md, Map.of(), OpexDistributionRefreshService.ALGORITHM_SALT));
+        assertNotEquals(OpexDistributionRefreshService.sourceHashes(md, Map.of()).get(company.getUuid()),
+                OpexDistributionRefreshService.sourceHashes(md, Map.of(), nextVersion).get(company.getUuid()),
+                "bumping ALGORITHM_VERSION must change every stored hash");
+    }
+
+    // -----------------------------------------------------------------------
+    // Test 6: incremental refresh — only slices whose hashes differ from the
+    //         stored ones are recomputed and swapped (concurrently); the rest
+    //         are only touched.
+    // -----------------------------------------------------------------------
+    @Test
+    void refresh_recomputesOnlyChangedSlices() {
+        Company company = synthCompany("c-incremental");
+        AccountingAccount account = synthAccount(company, 4100, CostType.OPEX, false, false);
+        AccountingCategory category = synthCategory(OPEX_GROUPNAME, account);
+        MonthData md = synthMonthData(List.of(company), List.of(category), gl(company, 4100, "700"), Map.of());
+
+        YearMonth settled = YearMonth.of(2099, 1);
+        Map<YearMonth, MonthData> perMonth = new LinkedHashMap<>();
+        for (int m = 1; m <= 4; m++) perMonth.put(YearMonth.of(2099, m), md);
+        FiscalYearData fyData = new FiscalYearData(List.of(company), List.of(category), perMonth, Map.of());
+
+        Map<MonthSlice, Map<String, String>> stored = new HashMap<>();
+        stored.put(new MonthSlice(settled, PostingStatus.BOOKED),
+                OpexDistributionRefreshService.sourceHashes(md, Map.of()));
+
+        RecordingService recording = new RecordingService(
+                new Sources(Map.of(PostingStatus.BOOKED, fyData), stored));
+        recording.intercompanyCalcService = new IntercompanyCalcService();
+        recording.parallelism = 3;
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        recording.executor = mock(ManagedExecutor.class, delegatesTo(pool));
+        try {
+            RefreshOutcome outcome = recording.refresh();
+
+            assertEquals(3, outcome.slicesRecomputed());
+            assertEquals(1, outcome.slicesUnchanged());
+            assertEquals(3, outcome.inserted(), "one 700 DKK row per recomputed month");
+            assertEquals(Set.of(YearMonth.of(2099, 2), YearMonth.of(2099, 3), YearMonth.of(2099, 4)),
+                    recording.replaced.keySet());
+            assertTrue(recording.replaced.values().stream().allMatch(rows ->
+                    rows.size() == 1 && rows.get(0).opexAmountDkk() == 700.0));
+            assertEquals(List.of(new MonthSlice(settled, PostingStatus.BOOKED)), recording.touched);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void refresh_forcedRecomputesEverySlice() {
+        Company company = synthCompany("c-forced");
+        MonthData md = synthMonthData(List.of(company), List.of(), Map.of(), Map.of());
+        FiscalYearData fyData = new FiscalYearData(List.of(company), List.of(),
+                Map.of(TEST_MONTH, md), Map.of());
+        Map<MonthSlice, Map<String, String>> stored = Map.of(new MonthSlice(TEST_MONTH, PostingStatus.BOOKED),
+                OpexDistributionRefreshService.sourceHashes(md, Map.of()));
+
+        RecordingService recording = new RecordingService(
+                new Sources(Map.of(PostingStatus.BOOKED, fyData), stored));
+
+        RefreshOutcome outcome = recording.refresh(true);
+
+        assertEquals(1, outcome.slicesRecomputed());
+        assertEquals(Set.of(TEST_MONTH), recording.replaced.keySet());
+        assertTrue(recording.touched.isEmpty());
+    }
+
+    @Test
+    void replaceSlices_failedSliceDoesNotStopTheOthersButIsReported() {
+        Company company = synthCompany("c-failing");
+        MonthData md = synthMonthData(List.of(company), List.of(), Map.of(), Map.of());
+        YearMonth failing = YearMonth.of(2099, 2);
+        RecordingService recording = new RecordingService(null) {
+            @Override
+            protected SliceSwap replaceSlice(MonthSlice slice, List<OpexRow> rows, Map<String, String> hashes,
+                                             LocalDateTime refreshedAt) {
+                if (slice.month().equals(failing)) throw new IllegalStateException("lock wait timeout");
+                return super.replaceSlice(slice, rows, hashes, refreshedAt);
+            }
+        };
+
+        List<SliceWork> work = new ArrayList<>();
+        for (int m = 1; m <= 3; m++) {
+            work.add(new SliceWork(new MonthSlice(YearMonth.of(2099, m), PostingStatus.DRAFT), md, Map.of(), Map.of()));
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> recording.replaceSlices(work, LocalDateTime.now()));
+        assertTrue(e.getMessage().startsWith("1 of 3"), e.getMessage());
+        assertEquals(Set.of(YearMonth.of(2099, 1), YearMonth.of(2099, 3)), recording.replaced.keySet());
+    }
+
+    /** Refresh service with the database replaced by in-memory recording. */
+    private static class RecordingService extends OpexDistributionRefreshService {
+        final Sources sources;
+        final Map<YearMonth, List<OpexRow>> replaced = new ConcurrentHashMap<>();
+        final List<MonthSlice> touched = new ArrayList<>();
+
+        RecordingService(Sources sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        protected Sources loadSources(LocalDate windowFrom, LocalDate windowToExclusive, String fromKey, String toKey) {
+            return sources;
+        }
+
+        @Override
+        protected SliceSwap replaceSlice(MonthSlice slice, List<OpexRow> rows, Map<String, String> hashes,
+                                         LocalDateTime refreshedAt) {
+            replaced.put(slice.month(), rows);
+            return new SliceSwap(0, rows.size());
+        }
+
+        @Override
+        protected void touchSlices(List<MonthSlice> slices, LocalDateTime refreshedAt) {
+            touched.addAll(slices);
+        }
+    }
+
+    private static Map<String, Map<Integer, BigDecimal>> gl(Company company, int accountCode, String amount) {
+        Map<String, Map<Integer, BigDecimal>> gl = new HashMap<>();
+        gl.put(company.getUuid(), new HashMap<>(Map.of(accountCode, new BigDecimal(amount))));
+        return gl;
+    }
+
+    private static Map<String, Map<Integer, BigDecimal>> gl(Company a, int accountA, String amountA,
+                                                            Company b, int accountB, String amountB) {
+        Map<String, Map<Integer, BigDecimal>> gl = gl(a, accountA, amountA);
+        gl.putAll(gl(b, accountB, amountB));
+        return gl;
+    }
+
     // =======================================================================
     // Reflection helper
     // =======================================================================
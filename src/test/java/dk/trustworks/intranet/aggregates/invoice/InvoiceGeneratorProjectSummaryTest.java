@@ -0,0 +1,122 @@
+package dk.trustworks.intranet.aggregates.invoice;
+
+import dk.trustworks.intranet.aggregates.invoice.model.Invoice;
+import dk.trustworks.intranet.aggregates.invoice.model.InvoiceItem;
+import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceStatus;
+import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceType;
+import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.dao.crm.model.Project;
+import dk.trustworks.intranet.dao.crm.model.Task;
+import dk.trustworks.intranet.dao.crm.model.enums.TaskType;
+import dk.trustworks.intranet.dao.workservice.model.WorkFull;
+import dk.trustworks.intranet.dto.ProjectSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for {@link InvoiceGenerator#summarize}, the one-pass aggregation behind
+ * {@code GET /invoices/candidates/months/{month}}. Plain JUnit — dimensions are passed in as maps.
+ */
+class InvoiceGeneratorProjectSummaryTest {
+
+    private final Client client = client("client-1", "Acme");
+    private final Project project = project("project-1", "Platform", "client-1");
+    private final Task task = new Task("Development", TaskType.CONSULTANT, "project-1");
+
+    @Test
+    void aggregatesWorkPerContractAndProject() {
+        List<WorkFull> work = List.of(
+                work("contract-1", "project-1", "client-1", 7.5, 1000),
+                work("contract-1", "project-1", "client-1", 2.0, 1200),
+                work("contract-2", "project-1", "client-1", 1.0, 900),
+                work("contract-1", "project-1", "client-1", 0.0, 1000));
+
+        Map<String, ProjectSummary> byContract = summaries(work, List.of());
+
+        assertEquals(2, byContract.size());
+        assertEquals(9900.0, byContract.get("contract-1").getRegisteredamount());
+        assertEquals(900.0, byContract.get("contract-2").getRegisteredamount());
+        assertEquals("Platform", byContract.get("contract-1").getProjectname());
+        assertSame(client, byContract.get("contract-1").getClient());
+    }
+
+    @Test
+    void attachesCreatedAndDraftInvoicesOfTheSameContractAndProject() {
+        Invoice created = invoice("contract-1", "project-1", InvoiceStatus.CREATED, InvoiceType.INVOICE, 10, 1000);
+        Invoice creditNote = invoice("contract-1", "project-1", InvoiceStatus.CREATED, InvoiceType.CREDIT_NOTE, 2, 1000);
+        Invoice draft = invoice("contract-1", "project-1", InvoiceStatus.DRAFT, InvoiceType.INVOICE, 1, 1000);
+        Invoice otherContract = invoice("contract-2", "project-1", InvoiceStatus.CREATED, InvoiceType.INVOICE, 5, 1000);
+
+        ProjectSummary summary = summaries(List.of(work("contract-1", "project-1", "client-1", 1.0, 1000)),
+                List.of(created, creditNote, draft, otherContract)).get("contract-1");
+
+        assertEquals(List.of(created, creditNote), summary.getInvoiceList());
+        assertEquals(List.of(draft), summary.getDraftInvoiceList());
+        assertEquals(2, summary.getInvoices());
+        assertEquals(8000.0, summary.getInvoicedamount());
+    }
+
+    @Test
+    void resolvesProjectAndClientThroughTheTaskWhenTheViewCouldNot() {
+        WorkFull orphan = work("contract-1", null, null, 3.0, 1000);
+        orphan.setTaskuuid(task.getUuid());
+
+        List<ProjectSummary> result = InvoiceGenerator.summarize(List.of(orphan), List.of(),
+                Map.of(task.getUuid(), task), Map.of("project-1", project), Map.of("client-1", client));
+
+        assertEquals(1, result.size());
+        assertEquals("Platform", result.get(0).getProjectname());
+        assertEquals("Acme", result.get(0).getClientname());
+    }
+
+    private Map<String, ProjectSummary> summaries(List<WorkFull> work, List<Invoice> invoices) {
+        return InvoiceGenerator.summarize(work, invoices, Map.of(), Map.of("project-1", project), Map.of("client-1", client))
+                .stream().collect(Collectors.toMap(ProjectSummary::getContractuuid, Function.identity()));
+    }
+
+    private static WorkFull work(String contract, String project, String client, double hours, double rate) {
+        WorkFull w = new WorkFull();
+        w.setContractuuid(contract);
+        w.setProjectuuid(project);
+        w.setClientuuid(client);
+        w.setWorkduration(hours);
+        w.setRate(rate);
+        return w;
+    }
+
+    private static Invoice invoice(String contract, String project, InvoiceStatus status, InvoiceType type, double hours, double rate) {
+        Invoice invoice = new Invoice();
+        invoice.setContractuuid(contract);
+        invoice.projectuuid = project;
+        invoice.status = status;
+        invoice.type = type;
+        InvoiceItem item = new InvoiceItem();
+        item.hours = hours;
+        item.rate = rate;
+        invoice.invoiceitems = new ArrayList<>(List.of(item));
+        return invoice;
+    }
+
+    private static Client client(String uuid, String name) {
+        Client c = new Client();
+        c.setUuid(uuid);
+        c.setName(name);
+        return c;
+    }
+
+    private static Project project(String uuid, String name, String clientuuid) {
+        Project p = new Project();
+        p.setUuid(uuid);
+        p.setName(name);
+        p.setClientuuid(clientuuid);
+        return p;
+    }
+}
@@ -0,0 +1,191 @@
+package dk.trustworks.intranet.aggregates.invoice.bonus.services;
+
+import dk.trustworks.intranet.aggregates.bidata.services.BiFactGeneration;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamBonusProjectionService.LeaderPeriod;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberMonth;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.MemberOverride;
+import dk.trustworks.intranet.aggregates.invoice.bonus.services.TeamFiscalYearData.TeamMonth;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pure-logic unit tests for {@link TeamFiscalYearData} (no DB, no CDI): the member-month inclusion
+ * rule, the collapsed team months, the pool revenue and the fully-excluded team set, which must
+ * reproduce the per-team SQL predicates they replaced.
+ */
+class TeamFiscalYearDataTest {
+
+    private static final double DELTA = 1e-9;
+    private static final List<YearMonth> MONTHS = List.of(YearMonth.of(2025, 7), YearMonth.of(2025, 8));
+    private static final TeamFiscalYearData.Key KEY = new TeamFiscalYearData.Key(
+            2025, YearMonth.of(2025, 8), new BiFactGeneration.Generation(0, null), 0, 0);
+
+    // --- inclusion rule ---
+
+    @Test
+    void includedInBonus_activeMember_isIncluded() {
+        TeamFiscalYearData data = data(List.of(active("t1", "u1", "202507", 100, 160)), Map.of());
+        assertTrue(data.includedInBonus(data.memberMonths("t1").getFirst()));
+    }
+
+    @Test
+    void includedInBonus_fullLeaveWithoutOverride_isExcluded() {
+        TeamFiscalYearData data = data(List.of(leave("t1", "u1", "202507")), Map.of());
+        assertFalse(data.includedInBonus(data.memberMonths("t1").getFirst()));
+    }
+
+    @Test
+    void includedInBonus_fullLeaveForceIncluded_isIncluded() {
+        TeamFiscalYearData data = data(List.of(leave("t1", "u1", "202507")),
+                Map.of("t1|u1|202507", new MemberOverride(true, "back in scope")));
+        assertTrue(data.includedInBonus(data.memberMonths("t1").getFirst()));
+    }
+
+    @Test
+    void includedInBonus_activeForceExcluded_isExcluded() {
+        TeamFiscalYearData data = data(List.of(active("t1", "u1", "202507", 100, 160)),
+                Map.of("t1|u1|202507", new MemberOverride(false, null)));
+        assertFalse(data.includedInBonus(data.memberMonths("t1").getFirst()));
+    }
+
+    @Test
+    void includedInBonus_onlyDaysAsSameTeamLeader_isExcluded() {
+        // ACTIVE days exist, but all of them as the team's own leader: no non-leader member days.
+        MemberMonth leaderOnly = new MemberMonth("t1", "u1", "202507", "A", "A",
+                100, 160, 50_000, 20, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        TeamFiscalYearData data = data(List.of(leaderOnly), Map.of());
+        assertFalse(data.includedInBonus(leaderOnly));
+    }
+
+    // --- team months ---
+
+    @Test
+    void teamMonths_sumIncludedMembersPerMonth() {
+        TeamFiscalYearData data = data(List.of(
+                active("t1", "u1", "202507", 100, 160),
+                active("t1", "u2", "202507", 60, 140),
+                active("t1", "u1", "202508", 80, 100),
+                active("t2", "u3", "202507", 10, 10)), Map.of());
+
+        List<TeamMonth> months = data.teamMonths("t1");
+
+        assertEquals(2, months.size());
+        assertEquals(YearMonth.of(2025, 7), months.get(0).month());
+        assertEquals(160, months.get(0).billable(), DELTA);
+        assertEquals(300, months.get(0).available(), DELTA);
+        assertEquals(2, months.get(0).memberCount());
+        assertEquals(0.8, months.get(1).utilization(), DELTA);
+    }
+
+    @Test
+    void teamMonths_forceIncludedLeaveOnlyMonth_countsHeadcountWithoutActiveData() {
+        TeamFiscalYearData data = data(List.of(leave("t1", "u1", "202508")),
+                Map.of("t1|u1|202508", new MemberOverride(true, null)));
+
+        List<TeamMonth> months = data.teamMonths("t1");
+
+        assertEquals(1, months.size());
+        assertEquals(1, months.getFirst().memberCount());
+        assertFalse(months.getFirst().hasActiveData());
+        assertEquals(0.0, months.getFirst().utilization(), DELTA);
+    }
+
+    @Test
+    void teamMonths_monthWithoutIncludedMembers_hasNoRow() {
+        TeamFiscalYearData data = data(List.of(leave("t1", "u1", "202507")), Map.of());
+        assertTrue(data.teamMonths("t1").isEmpty());
+    }
+
+    // --- pool revenue ---
+
+    @Test
+    void poolRevenue_appliesOverridesAndSkipsNonBonusTeams() {
+        MemberMonth plain = new MemberMonth("t1", "u1", "202507", "A", "A",
+                0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1_000, 50);
+        MemberMonth forceIncluded = new MemberMonth("t1", "u2", "202507", "B", "B",
+                0, 0, 0, 0, 0, 0, 0, 1, 0, 1, 0, 200, 30);
+        MemberMonth forceExcluded = new MemberMonth("t1", "u3", "202507", "C", "C",
+                0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 400, 0);
+        MemberMonth otherTeam = new MemberMonth("x", "u4", "202507", "D", "D",
+                0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 9_999, 0);
+        TeamFiscalYearData data = data(List.of(plain, forceIncluded, forceExcluded, otherTeam), Map.of(
+                "t1|u2|202507", new MemberOverride(true, null),
+                "t1|u3|202507", new MemberOverride(false, null)));
+
+        // plain: ACTIVE revenue only; force-included: + its leave revenue; force-excluded: nothing.
+        assertEquals(1_000 + 200 + 30, data.poolRevenue(), DELTA);
+    }
+
+    @Test
+    void poolRevenue_skipsFullyExcludedTeams() {
+        TeamFiscalYearData data = new TeamFiscalYearData(KEY, MONTHS, Map.of("t1", "Team 1", "t2", "Team 2"),
+                List.of(active("t1", "u1", "202507", 1, 1), active("t2", "u2", "202507", 1, 1)),
+                Map.of("t1", List.of(leader("l1")), "t2", List.of(leader("l2"))),
+                Map.of(), Map.of(), Map.of("t1", Map.of("l1", "left the company")), Map.of());
+
+        assertEquals(Set.of("t1"), data.fullyExcludedTeamIds());
+        assertEquals(1_000, data.poolRevenue(), DELTA);
+    }
+
+    // --- fully-excluded teams ---
+
+    @Test
+    void fullyExcludedTeamIds_partiallyExcludedOrLeaderlessTeams_areNotFullyExcluded() {
+        TeamFiscalYearData data = new TeamFiscalYearData(KEY, MONTHS, Map.of("t1", "Team 1", "t2", "Team 2"),
+                List.of(), Map.of("t1", List.of(leader("l1"), leader("l2"))),
+                Map.of(), Map.of(), Map.of("t1", Map.of("l1", "n/a"), "t2", Map.of("l9", "n/a")), Map.of());
+
+        assertTrue(data.fullyExcludedTeamIds().isEmpty());
+    }
+
+    // --- leader revenue ---
+
+    @Test
+    void leaderRevenue_sumsOnlyTheGivenMonths() {
+        TeamFiscalYearData data = new TeamFiscalYearData(KEY, MONTHS, Map.of(), List.of(), Map.of(),
+                Map.of(), Map.of(), Map.of(), Map.of("202507|l1", 300.0, "202508|l1", 200.0, "202508|l2", 7.0));
+
+        assertEquals(500.0, data.leaderRevenue("l1", List.of("202507", "202508")), DELTA);
+        assertEquals(200.0, data.leaderRevenue("l1", List.of("202508")), DELTA);
+        assertEquals(0.0, data.leaderRevenue("l3", List.of("202507")), DELTA);
+    }
+
+    // --- window coverage ---
+
+    @Test
+    void covers_onlyWindowsInsideTheConsideredMonths() {
+        TeamFiscalYearData data = data(List.of(), Map.of());
+        assertTrue(data.coversExactly(YearMonth.of(2025, 7), YearMonth.of(2025, 8)));
+        assertTrue(data.covers(YearMonth.of(2025, 8), YearMonth.of(2025, 8)));
+        assertFalse(data.covers(YearMonth.of(2025, 6), YearMonth.of(2025, 8)));
+        assertFalse(data.coversExactly(YearMonth.of(2025, 7), YearMonth.of(2025, 7)));
+    }
+
+    private static TeamFiscalYearData data(List<MemberMonth> memberMonths, Map<String, MemberOverride> overrides) {
+        return new TeamFiscalYearData(KEY, MONTHS, Map.of("t1", "Team 1"), memberMonths,
+                Map.of(), overrides, Map.of(), Map.of(), Map.of());
+    }
+
+    private static MemberMonth active(String teamId, String user, String monthKey, double billable, double available) {
+        return new MemberMonth(teamId, user, monthKey, user, user,
+                billable, available, 1_000, 20, billable, available, 20, 0, 0, 0, 0, 1_000, 0);
+    }
+
+    private static MemberMonth leave(String teamId, String user, String monthKey) {
+        return new MemberMonth(teamId, user, monthKey, user, user,
+                0, 0, 0, 0, 0, 0, 0, 20, 20, 0, 0, 0, 0);
+    }
+
+    private static LeaderPeriod leader(String uuid) {
+        return new LeaderPeriod(uuid, uuid, LocalDate.of(2024, 1, 1), null);
+    }
+}
@@ -0,0 +1,106 @@
+package dk.trustworks.intranet.aggregates.invoice.jobs;
+
+import dk.trustworks.intranet.aggregates.invoice.jobs.QueuedInternalInvoiceFinalizer.Outcome;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+
+class InvoiceFinalizationLanesTest {
+
+    private ExecutorService pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    @Test
+    void run_keepsEachCompanyInOrderAndNeverOverlapsItsBookings() {
+        Map<String, List<String>> byCompany = new LinkedHashMap<>();
+        for (String company : List.of("c1", "c2", "c3")) {
+            List<String> uuids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) uuids.add(company + "-" + i);
+            byCompany.put(company, uuids);
+        }
+        Map<String, List<String>> booked = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        InvoiceFinalizationLanes.Tally tally = lanes(3).run("test", byCompany, uuid -> {
+            String company = uuid.substring(0, 2);
+            if (inFlight.computeIfAbsent(company, k -> new AtomicInteger()).incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            booked.computeIfAbsent(company, k -> Collections.synchronizedList(new ArrayList<>())).add(uuid);
+            inFlight.get(company).decrementAndGet();
+            return Outcome.PROCESSED;
+        });
+
+        assertEquals(0, overlaps.get());
+        assertEquals(byCompany, booked);
+        assertEquals(60, tally.total());
+        assertEquals(60, tally.processed());
+        assertEquals(3, tally.companies());
+    }
+
+    @Test
+    void run_overlapsDifferentCompanies() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Map<String, List<String>> byCompany = Map.of("c1", List.of("c1-0"), "c2", List.of("c2-0"));
+
+        InvoiceFinalizationLanes.Tally tally = lanes(2).run("test", byCompany, uuid -> {
+            bothStarted.countDown();
+            try {
+                // Only returns true if the other company's invoice is running at the same time.
+                return bothStarted.await(5, TimeUnit.SECONDS) ? Outcome.PROCESSED : Outcome.SKIPPED;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(2, tally.processed());
+    }
+
+    @Test
+    void run_countsFailuresAndContinuesTheLane() {
+        List<String> seen = new ArrayList<>();
+
+        InvoiceFinalizationLanes.Tally tally = new InvoiceFinalizationLanes().run("test",
+                Map.of("c1", List.of("a", "b", "c")), uuid -> {
+                    seen.add(uuid);
+                    if (uuid.equals("a")) throw new IllegalStateException("booking rejected");
+                    return uuid.equals("b") ? Outcome.SKIPPED : Outcome.PROCESSED;
+                });
+
+        assertEquals(List.of("a", "b", "c"), seen);
+        assertEquals(1, tally.failed());
+        assertEquals(1, tally.skipped());
+        assertEquals(1, tally.processed());
+        assertTrue(tally.durationMs() >= 0);
+    }
+
+    private InvoiceFinalizationLanes lanes(int parallelism) {
+        pool = Executors.newFixedThreadPool(parallelism);
+        InvoiceFinalizationLanes lanes = new InvoiceFinalizationLanes();
+        lanes.executor = mock(ManagedExecutor.class, delegatesTo(pool));
+        lanes.parallelism = parallelism;
+        return lanes;
+    }
+}
@@ -1,12 +1,15 @@
 package dk.trustworks.intranet.aggregates.invoice.jobs;
 
+import dk.trustworks.intranet.aggregates.invoice.services.InvoiceEconomicsUploadService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.*;
 
@@ -14,12 +17,14 @@ import static org.mockito.Mockito.*;
 class QueuedInternalInvoiceProcessorBatchletTest {
 
     @Mock QueuedInternalInvoiceFinalizer finalizer;
+    @Mock InvoiceEconomicsUploadService uploadService;
+    @Spy InvoiceFinalizationLanes lanes = new InvoiceFinalizationLanes();
     @InjectMocks QueuedInternalInvoiceProcessorBatchlet batchlet;
 
     @Test
     void one_invoice_failure_does_not_stop_the_loop() throws Exception {
-        when(finalizer.findFirstPassUuids()).thenReturn(List.of("A", "B"));
-        when(finalizer.findSettlementUuids()).thenReturn(List.of());
+        when(finalizer.findFirstPassByCompany()).thenReturn(Map.of("company-1", List.of("A", "B")));
+        when(finalizer.findSettlementByCompany()).thenReturn(Map.of());
         when(finalizer.processOne("A")).thenThrow(new RuntimeException("boom"));
         when(finalizer.processOne("B")).thenReturn(QueuedInternalInvoiceFinalizer.Outcome.PROCESSED);
 
@@ -28,4 +33,18 @@ class QueuedInternalInvoiceProcessorBatchletTest {
         verify(finalizer).processOne("A");
         verify(finalizer).processOne("B"); // loop continued past A's failure — proves isolation contract
     }
+
+    @Test
+    void booked_invoices_are_offered_to_the_debtor_retry_queue() throws Exception {
+        when(finalizer.findFirstPassByCompany()).thenReturn(Map.of("company-1", List.of("A", "B")));
+        when(finalizer.findSettlementByCompany()).thenReturn(Map.of());
+        when(finalizer.processOne("A")).thenReturn(QueuedInternalInvoiceFinalizer.Outcome.PROCESSED);
+        when(finalizer.processOne("B")).thenReturn(QueuedInternalInvoiceFinalizer.Outcome.SKIPPED);
+        when(uploadService.queueDebtorRetry("A")).thenThrow(new RuntimeException("db down"));
+
+        batchlet.process();
+
+        verify(uploadService).queueDebtorRetry("A");
+        verify(uploadService, never()).queueDebtorRetry("B");
+    }
 }
@@ -0,0 +1,155 @@
+package dk.trustworks.intranet.aggregates.invoice.pricing;
+
+import dk.trustworks.intranet.aggregates.invoice.model.Invoice;
+import dk.trustworks.intranet.aggregates.invoice.model.InvoiceItem;
+import dk.trustworks.intranet.aggregates.invoice.model.enums.InvoiceItemOrigin;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PricingEngineBatchTest {
+
+    private static final LocalDate D = LocalDate.of(2026, 3, 31);
+
+    /** One trapperabat step whose percent comes from the contract's items; counts rule-set loads. */
+    private static final class TrapperabatCatalog extends PricingRuleCatalog {
+        int loads;
+
+        @Override
+        protected List<RuleStep> loadFromDatabaseByCode(String code, LocalDate date) {
+            loads++;
+            RuleStep step = new RuleStep();
+            step.id = code + "-trapperabat";
+            step.label = "Trapperabat";
+            step.type = RuleStepType.PERCENT_DISCOUNT_ON_SUM;
+            step.percent = BigDecimal.ONE;
+            step.paramKey = "trapperabat";
+            step.priority = 10;
+            return List.of(step);
+        }
+    }
+
+    @Test
+    void priceAll_matchesSingleDraftPricing() {
+        Invoice a = invoice("SKI0217_2025", 0.0, base(1200.0, 10.0));
+        Invoice b = invoice("SKI0217_2025", 5.0, base(950.0, 37.5), base(1100.0, 2.0));
+        Invoice c = invoice("PERIOD", 2.5, base(1000.0, 1.0));
+        Map<String, Map<String, String>> cti = Map.of(a.getContractuuid(), Map.of("trapperabat", "4"));
+
+        PricingEngine.BatchResult batch = engine().priceAll(List.of(a, b, c), cti);
+
+        assertEquals(List.of(a.getUuid(), b.getUuid(), c.getUuid()), List.copyOf(batch.results().keySet()));
+        for (Invoice draft : List.of(a, b, c)) {
+            PriceResult single = engine().price(draft, cti.getOrDefault(draft.getContractuuid(), Map.of()));
+            assertSamePricing(single, batch.results().get(draft.getUuid()));
+        }
+    }
+
+    @Test
+    void priceAll_resolvesEachRuleSetOnce() {
+        PricingEngine engine = engine();
+        TrapperabatCatalog catalog = (TrapperabatCatalog) engine.catalog;
+
+        engine.priceAll(List.of(
+                invoice("SKI0217_2025", 0.0, base(100.0, 1.0)),
+                invoice("SKI0217_2025", 0.0, base(200.0, 1.0)),
+                invoice("SKI0217_2025", 0.0, base(300.0, 1.0)),
+                invoice("PERIOD", 0.0, base(400.0, 1.0))), Map.of());
+
+        assertEquals(2, catalog.loads);
+    }
+
+    @Test
+    void priceAll_reportsInvalidDraftsWithoutFailingTheBatch() {
+        Invoice ok = invoice("PERIOD", 0.0, base(100.0, 1.0));
+        Invoice bad = invoice("PERIOD", 150.0, base(100.0, 1.0));
+
+        PricingEngine.BatchResult batch = engine().priceAll(List.of(ok, bad), Map.of());
+
+        assertEquals(List.of(ok.getUuid()), List.copyOf(batch.results().keySet()));
+        assertTrue(batch.failures().get(bad.getUuid()).contains("between 0 and 100"));
+    }
+
+    @Test
+    void lanes_areBoundedAndBalanced() {
+        Map<String, List<Integer>> groups = Map.of(
+                "a", List.of(1, 2, 3, 4), "b", List.of(1, 2), "c", List.of(1, 2), "d", List.of(1));
+
+        List<List<String>> lanes = PricingEngine.lanes(groups, 2);
+
+        assertEquals(2, lanes.size());
+        assertEquals(List.of("a"), lanes.get(0).subList(0, 1));
+        assertEquals(1, PricingEngine.lanes(groups, 1).size());
+        assertEquals(4, PricingEngine.lanes(groups, 16).size());
+    }
+
+    private static void assertSamePricing(PriceResult expected, PriceResult actual) {
+        assertEquals(expected.sumBeforeDiscounts, actual.sumBeforeDiscounts);
+        assertEquals(expected.sumAfterDiscounts, actual.sumAfterDiscounts);
+        assertEquals(expected.vatAmount, actual.vatAmount);
+        assertEquals(expected.grandTotal, actual.grandTotal);
+        assertEquals(expected.breakdown.size(), actual.breakdown.size());
+        for (int i = 0; i < expected.breakdown.size(); i++) {
+            CalculationBreakdownLine e = expected.breakdown.get(i);
+            CalculationBreakdownLine g = actual.breakdown.get(i);
+            assertEquals(e.ruleId, g.ruleId);
+            assertEquals(e.label, g.label);
+            assertEquals(e.base, g.base);
+            assertEquals(e.rateOrAmount, g.rateOrAmount);
+            assertEquals(e.delta, g.delta);
+            assertEquals(e.cumulative, g.cumulative);
+        }
+        assertEquals(expected.syntheticItems.size(), actual.syntheticItems.size());
+        for (int i = 0; i < expected.syntheticItems.size(); i++) {
+            InvoiceItem e = expected.syntheticItems.get(i);
+            InvoiceItem g = actual.syntheticItems.get(i);
+            assertEquals(e.getItemname(), g.getItemname());
+            assertEquals(e.getRate(), g.getRate());
+            assertEquals(e.getPosition(), g.getPosition());
+            assertEquals(e.getRuleId(), g.getRuleId());
+        }
+    }
+
+    private static PricingEngine engine() {
+        PricingEngine engine = new PricingEngine();
+        engine.catalog = new TrapperabatCatalog();
+        engine.registry = new SimpleMeterRegistry();
+        return engine;
+    }
+
+    private static InvoiceItem base(double rate, double hours) {
+        InvoiceItem ii = new InvoiceItem();
+        ii.setUuid(UUID.randomUUID().toString());
+        ii.setItemname("Consultant");
+        ii.setRate(rate);
+        ii.setHours(hours);
+        ii.setPosition(1);
+        ii.setOrigin(InvoiceItemOrigin.BASE);
+        return ii;
+    }
+
+    private static Invoice invoice(String contractType, double discount, InvoiceItem... bases) {
+        Invoice inv = new Invoice();
+        inv.setUuid(UUID.randomUUID().toString());
+        inv.contractType = contractType;
+        inv.setContractuuid(UUID.randomUUID().toString());
+        inv.setInvoicedate(D);
+        inv.setVat(25.0);
+        inv.setDiscount(discount);
+        inv.invoiceitems = new ArrayList<>();
+        for (InvoiceItem b : bases) {
+            b.setInvoiceuuid(inv.getUuid());
+            inv.invoiceitems.add(b);
+        }
+        return inv;
+    }
+}
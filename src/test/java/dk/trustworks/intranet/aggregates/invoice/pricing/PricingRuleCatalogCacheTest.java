@@ -0,0 +1,88 @@
+package dk.trustworks.intranet.aggregates.invoice.pricing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PricingRuleCatalogCacheTest {
+
+    private static final LocalDate D = LocalDate.of(2026, 3, 31);
+
+    /** Counts database loads so hits and misses are observable. */
+    private static final class CountingCatalog extends PricingRuleCatalog {
+        int loads;
+
+        @Override
+        protected List<RuleStep> loadFromDatabaseByCode(String code, LocalDate date) {
+            loads++;
+            return List.of();
+        }
+    }
+
+    private CountingCatalog catalog;
+    private PricingRuleVersion version;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new CountingCatalog();
+        version = mock(PricingRuleVersion.class);
+        registry = new SimpleMeterRegistry();
+        catalog.ruleVersion = version;
+        catalog.registry = registry;
+        when(version.current()).thenReturn(7L);
+    }
+
+    @Test
+    void sameVersion_servesTheCompiledRuleSet() {
+        RuleSet first = catalog.select("SKI0217_2025", D);
+        RuleSet second = catalog.select("SKI0217_2025", D);
+
+        assertSame(first, second);
+        assertEquals(1, catalog.loads);
+        assertEquals(1.0, registry.counter("invoice.pricing.rule_cache.lookups", "result", "hit").count());
+        assertEquals(1.0, registry.counter("invoice.pricing.rule_cache.lookups", "result", "miss").count());
+    }
+
+    @Test
+    void keyIncludesContractTypeAndDate() {
+        catalog.select("SKI0217_2025", D);
+        catalog.select("SKI0215_2025", D);
+        catalog.select("SKI0217_2025", D.plusDays(1));
+
+        assertEquals(3, catalog.loads);
+    }
+
+    @Test
+    void versionBump_recompiles() {
+        RuleSet before = catalog.select("SKI0217_2025", D);
+        when(version.current()).thenReturn(8L);
+        RuleSet after = catalog.select("SKI0217_2025", D);
+
+        assertNotSame(before, after);
+        assertEquals(2, catalog.loads);
+        PricingRuleCatalog.CacheStats stats = catalog.cacheStats();
+        assertEquals(8L, stats.version());
+        assertEquals(1, stats.entries());
+        assertEquals(0, stats.hits());
+        assertEquals(2, stats.misses());
+    }
+
+    @Test
+    void withoutVersionSource_everyLookupLoads() {
+        CountingCatalog plain = new CountingCatalog();
+        plain.select("SKI0217_2025", D);
+        plain.select("SKI0217_2025", D);
+
+        assertEquals(2, plain.loads);
+    }
+}
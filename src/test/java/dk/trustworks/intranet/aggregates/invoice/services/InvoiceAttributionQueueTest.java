@@ -0,0 +1,104 @@
+package dk.trustworks.intranet.aggregates.invoice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class InvoiceAttributionQueueTest {
+
+    private ExecutorService pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    @Test
+    void drain_recomputesEveryClaimedBatchAndRecordsFailures() {
+        InvoiceAttributionService attributions = mock(InvoiceAttributionService.class);
+        doThrow(new IllegalStateException("frozen internal")).when(attributions).computeAttributions("inv-3");
+        StubQueue queue = new StubQueue(attributions,
+                List.of(claim("inv-1"), claim("inv-2")), List.of(claim("inv-3")));
+
+        int recomputed = queue.drain();
+
+        assertEquals(2, recomputed);
+        assertEquals(Set.of("inv-1", "inv-2"), Set.copyOf(queue.completed));
+        assertEquals(List.of("inv-3"), queue.failed);
+        assertEquals(3, queue.meters.timer("invoice.attribution.queue.recompute").count());
+        assertEquals(1.0, queue.meters.counter("invoice.attribution.queue.failures").count());
+    }
+
+    @Test
+    void drain_recomputesDistinctInvoicesConcurrently() {
+        CountDownLatch overlapping = new CountDownLatch(2);
+        InvoiceAttributionService attributions = mock(InvoiceAttributionService.class);
+        doAnswer(inv -> {
+            overlapping.countDown();
+            if (!overlapping.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("ran serially");
+            return null;
+        }).when(attributions).computeAttributions(anyString());
+        StubQueue queue = new StubQueue(attributions, List.of(claim("inv-1"), claim("inv-2")));
+        pool = Executors.newFixedThreadPool(2);
+        queue.executor = mock(ManagedExecutor.class, delegatesTo(pool));
+        queue.parallelism = 2;
+
+        assertEquals(2, queue.drain());
+        assertTrue(queue.failed.isEmpty());
+    }
+
+    private static InvoiceAttributionQueue.Claim claim(String uuid) {
+        return new InvoiceAttributionQueue.Claim(uuid, 1);
+    }
+
+    /** Serves the given batches from claim() and records complete()/fail() instead of touching the table. */
+    private static class StubQueue extends InvoiceAttributionQueue {
+        final Deque<List<Claim>> batches;
+        final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+        final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+        @SafeVarargs
+        StubQueue(InvoiceAttributionService attributions, List<Claim>... batches) {
+            this.batches = new ArrayDeque<>(List.of(batches));
+            this.attributionService = attributions;
+            this.registry = meters;
+        }
+
+        @Override
+        protected List<Claim> claim(int limit) {
+            return batches.isEmpty() ? List.of() : batches.poll();
+        }
+
+        @Override
+        protected void complete(Claim claim) {
+            completed.add(claim.invoiceuuid());
+        }
+
+        @Override
+        protected void fail(Claim claim, Exception error) {
+            failed.add(claim.invoiceuuid());
+        }
+    }
+}
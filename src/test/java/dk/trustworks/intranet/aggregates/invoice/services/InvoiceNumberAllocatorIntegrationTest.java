@@ -0,0 +1,157 @@
+package dk.trustworks.intranet.aggregates.invoice.services;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.TransactionalException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link InvoiceNumberAllocator} against the real sequence tables: allocations commit on their
+ * own, a claim lives and dies with the finalizing transaction, abandoned numbers become gaps, and
+ * concurrent finalizations of one company never share a number.
+ */
+@QuarkusTest
+class InvoiceNumberAllocatorIntegrationTest {
+
+    @Inject
+    InvoiceNumberAllocator allocator;
+
+    @Inject
+    EntityManager em;
+
+    /** A company without invoices, so its numbers start at 1. */
+    private final String company = UUID.randomUUID().toString();
+
+    @AfterEach
+    void cleanUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            em.createNativeQuery("DELETE FROM invoice_number_allocation WHERE companyuuid = :company")
+                    .setParameter("company", company).executeUpdate();
+            em.createNativeQuery("DELETE FROM invoice_number_sequence WHERE companyuuid = :company")
+                    .setParameter("company", company).executeUpdate();
+        });
+    }
+
+    @Test
+    void allocate_commitsEvenWhenTheCallersTransactionRollsBack() {
+        QuarkusTransaction.begin();
+        int first = allocator.allocate(company, "invoice-1");
+        QuarkusTransaction.rollback();
+
+        assertEquals(1, first);
+        assertEquals("ALLOCATED", status(first), "REQUIRES_NEW: the allocation outlives the rollback");
+        assertEquals(2, allocator.allocate(company, "invoice-2"), "a rolled-back number is not handed out again");
+    }
+
+    @Test
+    void claim_requiresATransactionAndFollowsItsOutcome() {
+        int rolledBack = allocator.allocate(company, "invoice-1");
+        int committed = allocator.allocate(company, "invoice-2");
+
+        assertThrows(TransactionalException.class, () -> allocator.claim(company, committed));
+
+        QuarkusTransaction.begin();
+        allocator.claim(company, rolledBack);
+        QuarkusTransaction.rollback();
+        QuarkusTransaction.requiringNew().run(() -> allocator.claim(company, committed));
+
+        assertEquals("ALLOCATED", status(rolledBack));
+        assertEquals("USED", status(committed));
+    }
+
+    @Test
+    void releaseAbandoned_turnsStaleUnclaimedNumbersIntoGaps() {
+        int abandoned = allocator.allocate(company, "invoice-1");
+        int claimed = allocator.allocate(company, "invoice-2");
+        int fresh = allocator.allocate(company, "invoice-3");
+        int alsoAbandoned = allocator.allocate(company, "invoice-4");
+        QuarkusTransaction.requiringNew().run(() -> allocator.claim(company, claimed));
+        backdate(abandoned, claimed, alsoAbandoned);
+
+        assertTrue(allocator.releaseAbandoned() >= 2);
+
+        assertEquals("RELEASED", status(abandoned));
+        assertEquals("USED", status(claimed));
+        assertEquals("ALLOCATED", status(fresh), "younger than invoice.number.release-after");
+        List<InvoiceNumberAllocator.Allocation> gaps = allocator.findGaps(company);
+        assertEquals(List.of(alsoAbandoned, abandoned),
+                gaps.stream().map(InvoiceNumberAllocator.Allocation::invoicenumber).toList(), "newest first");
+        assertEquals("invoice-4", gaps.get(0).invoiceuuid());
+        assertTrue(gaps.stream().allMatch(g -> g.resolvedAt() != null && "RELEASED".equals(g.status())));
+    }
+
+    @Test
+    void allocate_concurrentCallersGetDistinctConsecutiveNumbers() throws Exception {
+        int threads = 8;
+        int perThread = 5;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Callable<List<Integer>> worker = () -> {
+                    start.await();
+                    List<Integer> numbers = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        numbers.add(allocator.allocate(company, UUID.randomUUID().toString()));
+                    }
+                    return numbers;
+                };
+                results.add(pool.submit(worker));
+            }
+            start.countDown();
+
+            Set<Integer> numbers = new TreeSet<>();
+            for (Future<List<Integer>> result : results) {
+                numbers.addAll(result.get(60, TimeUnit.SECONDS));
+            }
+            Set<Integer> expected = IntStream.rangeClosed(1, threads * perThread).boxed().collect(Collectors.toSet());
+            assertEquals(expected, numbers);
+            assertEquals(threads * perThread, ((Number) QuarkusTransaction.requiringNew().call(() -> em.createNativeQuery(
+                            "SELECT COUNT(*) FROM invoice_number_allocation WHERE companyuuid = :company AND status = 'ALLOCATED'")
+                    .setParameter("company", company)
+                    .getSingleResult())).intValue());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private String status(int number) {
+        return QuarkusTransaction.requiringNew().call(() -> (String) em.createNativeQuery(
+                        "SELECT status FROM invoice_number_allocation WHERE companyuuid = :company AND invoicenumber = :number")
+                .setParameter("company", company)
+                .setParameter("number", number)
+                .getSingleResult());
+    }
+
+    /** Moves the allocations a day back, well past {@code invoice.number.release-after}. */
+    private void backdate(Integer... numbers) {
+        QuarkusTransaction.requiringNew().run(() -> em.createNativeQuery(
+                        "UPDATE invoice_number_allocation SET allocated_at = allocated_at - INTERVAL 1 DAY " +
+                        "WHERE companyuuid = :company AND invoicenumber IN (:numbers)")
+                .setParameter("company", company)
+                .setParameter("numbers", List.of(numbers))
+                .executeUpdate());
+    }
+}
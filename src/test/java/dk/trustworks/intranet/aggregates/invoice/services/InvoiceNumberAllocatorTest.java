@@ -0,0 +1,25 @@
+package dk.trustworks.intranet.aggregates.invoice.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvoiceNumberAllocatorTest {
+
+    @Test
+    void nextNumber_continuesTheSequence() {
+        assertEquals(1042, InvoiceNumberAllocator.nextNumber(1042, 1041));
+        assertEquals(1042, InvoiceNumberAllocator.nextNumber(1042, 1038), "released gaps are not handed out again");
+    }
+
+    @Test
+    void nextNumber_neverFallsBehindNumbersAlreadyOnInvoices() {
+        // e-conomic booked numbers land in invoices.invoicenumber without passing the allocator
+        assertEquals(27898, InvoiceNumberAllocator.nextNumber(1042, 27897));
+    }
+
+    @Test
+    void nextNumber_startsAtOneForACompanyWithoutInvoices() {
+        assertEquals(1, InvoiceNumberAllocator.nextNumber(1, null));
+    }
+}
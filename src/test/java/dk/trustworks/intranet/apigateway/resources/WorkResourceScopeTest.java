@@ -1,29 +1,40 @@
 package dk.trustworks.intranet.apigateway.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dk.trustworks.intranet.aggregates.sender.AggregateEventSender;
 import dk.trustworks.intranet.dao.workservice.services.MonthSubmissionService;
 import dk.trustworks.intranet.dao.workservice.services.WorkService;
+import dk.trustworks.intranet.dto.work.LightweightWork;
 import dk.trustworks.intranet.security.AuthorizationService;
 import dk.trustworks.intranet.security.DataScope;
 import dk.trustworks.intranet.security.RequestHeaderHolder;
 import dk.trustworks.intranet.security.ScopeEnforced;
 import dk.trustworks.intranet.security.ScopeGuard;
+import dk.trustworks.intranet.security.ScopeResolution;
 import dk.trustworks.intranet.security.TestScopeGuards;
 import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
+import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -122,6 +133,37 @@ class WorkResourceScopeTest {
         verify(workService, never()).persistOrUpdate(any());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamedExportDropsRowsOutsideABoundedReach() throws Exception {
+        actorIs(ACTOR);
+        when(authorizationService.resolveReach(eq(ACTOR), eq(WorkResource.READ_SCOPE), any(), anySet()))
+                .thenReturn(new ScopeResolution(DataScope.OWN, false, Set.of(ACTOR)));
+        doAnswer(inv -> {
+            Consumer<LightweightWork> sink = inv.getArgument(2);
+            sink.accept(LightweightWork.builder().uuid("w1").useruuid(ACTOR).build());
+            sink.accept(LightweightWork.builder().uuid("w2").useruuid(OTHER).build());
+            return 2L;
+        }).when(workService).forEachLightweightByPeriod(any(), any(), any());
+        resource.objectMapper = new ObjectMapper();
+
+        Response response = resource.findByPeriodLightweight("2026-07-01", "2026-08-01", true, null);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(body);
+
+        String[] lines = body.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("\"w1\""));
+        verify(workService, never()).findByPeriodLightweight(any(), any());
+    }
+
+    @Test
+    void ndjsonAcceptHeaderSelectsStreaming() {
+        assertTrue(WorkResource.isStreaming(false, "application/x-ndjson"));
+        assertTrue(WorkResource.isStreaming(true, APPLICATION_JSON));
+        assertFalse(WorkResource.isStreaming(false, APPLICATION_JSON));
+    }
+
     // ---- Placement pins: the company-wide surfaces carry @ScopeEnforced -----
 
     @Test
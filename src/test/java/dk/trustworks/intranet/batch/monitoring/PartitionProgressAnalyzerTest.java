@@ -0,0 +1,54 @@
+package dk.trustworks.intranet.batch.monitoring;
+
+import dk.trustworks.intranet.batch.model.PartitionStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.context.JobContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+class PartitionProgressAnalyzerTest {
+
+    @Test
+    void analyzeStatus_reportsThroughputAndSkew_onlyAfterLastPartition() throws Exception {
+        PartitionProgressAnalyzer analyzer = analyzer();
+
+        analyzer.analyzeCollectorData(new PartitionStats("0", 2, 40, 0, 880, 0, 20_000));
+        analyzer.analyzeCollectorData(new PartitionStats("1", 2, 10, 1, 220, 3, 30_000));
+        analyzer.analyzeStatus(BatchStatus.COMPLETED, "COMPLETED");
+        verify(analyzer.trackingService, never()).appendDetails(anyLong(), anyString());
+
+        analyzer.analyzeStatus(BatchStatus.COMPLETED, "COMPLETED");
+
+        ArgumentCaptor<String> details = ArgumentCaptor.forClass(String.class);
+        verify(analyzer.trackingService).appendDetails(eq(7L), details.capture());
+        assertTrue(details.getValue().contains("p0=2.00 u/s"), details.getValue());
+        assertTrue(details.getValue().contains("skew=1.20"), details.getValue());
+        assertEquals(1.2, analyzer.registry.find("batch.partition.skew").summary().max(), 1e-9);
+        verify(analyzer.trackingService, times(2)).incrementCompletedSubtasks(7L);
+    }
+
+    @Test
+    void analyzeStatus_withoutCollectorData_onlyCountsCompletions() throws Exception {
+        PartitionProgressAnalyzer analyzer = analyzer();
+
+        analyzer.analyzeStatus(BatchStatus.FAILED, "boom");
+
+        verify(analyzer.trackingService).incrementCompletedSubtasks(7L);
+        verify(analyzer.trackingService).appendDetails(7L, "Partition ended with status=FAILED, exitStatus=boom");
+    }
+
+    private PartitionProgressAnalyzer analyzer() {
+        PartitionProgressAnalyzer analyzer = new PartitionProgressAnalyzer();
+        analyzer.jobContext = mock(JobContext.class);
+        when(analyzer.jobContext.getExecutionId()).thenReturn(7L);
+        when(analyzer.jobContext.getJobName()).thenReturn("budget-aggregation");
+        analyzer.trackingService = mock(BatchJobTrackingService.class);
+        analyzer.registry = new SimpleMeterRegistry();
+        return analyzer;
+    }
+}
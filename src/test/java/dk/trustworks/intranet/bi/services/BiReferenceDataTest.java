@@ -0,0 +1,97 @@
+package dk.trustworks.intranet.bi.services;
+
+import dk.trustworks.intranet.contracts.model.Contract;
+import dk.trustworks.intranet.contracts.model.ContractConsultant;
+import dk.trustworks.intranet.contracts.model.ContractTypeItem;
+import dk.trustworks.intranet.contracts.model.enums.ContractStatus;
+import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.domain.user.entity.UserStatus;
+import dk.trustworks.intranet.userservice.model.enums.ConsultantType;
+import dk.trustworks.intranet.userservice.model.enums.StatusType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BiReferenceDataTest {
+
+    private static final String USER = "dae02077-5419-4a28-aacb-1f7d64e21f6b";
+    private static final String OTHER = "7948c5e8-162c-4053-b905-0f59a21d7746";
+
+    @Test
+    void activeContracts_usesInclusiveWindows_andSkipsNonBudgetStatuses() {
+        Client client = new Client("Contact", "Acme");
+        Contract signed = contract(client, ContractStatus.SIGNED);
+        window(signed, USER, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 3, 31));
+        Contract later = contract(client, ContractStatus.BUDGET);
+        window(later, USER, LocalDate.of(2026, 3, 31), LocalDate.of(2026, 6, 30));
+        Contract inactive = contract(client, ContractStatus.INACTIVE);
+        window(inactive, USER, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 12, 31));
+
+        BiReferenceData data = BiReferenceData.of(1, List.of(signed, later, inactive), List.of(client), List.of());
+
+        assertEquals(List.of(signed), data.activeContracts(USER, LocalDate.of(2026, 1, 1)));
+        assertEquals(List.of(signed, later), data.activeContracts(USER, LocalDate.of(2026, 3, 31)));
+        assertEquals(List.of(later), data.activeContracts(USER, LocalDate.of(2026, 6, 30)));
+        assertTrue(data.activeContracts(USER, LocalDate.of(2026, 7, 1)).isEmpty());
+        assertTrue(data.activeContracts(OTHER, LocalDate.of(2026, 2, 1)).isEmpty());
+        assertEquals(2, data.contractCount());
+    }
+
+    @Test
+    void discount_isParsedOnce_andIgnoresNonNumericValues() {
+        Client client = new Client("Contact", "Acme");
+        Contract contract = contract(client, ContractStatus.TIME);
+        contract.getContractTypeItems().add(item(1, "DISCOUNT", "10"));
+        contract.getContractTypeItems().add(item(2, "ADMIN_FEE", "2.5"));
+        contract.getContractTypeItems().add(item(3, "NOTE", "n/a"));
+
+        BiReferenceData data = BiReferenceData.of(1, List.of(contract), List.of(client), List.of());
+
+        assertEquals(0.875, data.discount(contract), 1e-9);
+    }
+
+    @Test
+    void clientResolver_failsForUnknownClient_andStatusesAreGroupedByUser() {
+        Client client = new Client("Contact", "Acme");
+        Contract orphan = contract(new Client("Contact", "Gone"), ContractStatus.SIGNED);
+        UserStatus status = new UserStatus(ConsultantType.CONSULTANT, StatusType.ACTIVE, LocalDate.of(2020, 1, 1), 37, USER);
+
+        BiReferenceData data = BiReferenceData.of(7, List.of(orphan), List.of(client), List.of(status));
+
+        assertEquals(7, data.version());
+        assertSame(client, data.client(client.getUuid()));
+        assertThrows(RuntimeException.class, () -> data.clientResolver().apply(orphan));
+        assertEquals(List.of(status), data.statuses(USER));
+        assertTrue(data.statuses(OTHER).isEmpty());
+    }
+
+    private Contract contract(Client client, ContractStatus status) {
+        Contract contract = new Contract();
+        contract.setClientuuid(client.getUuid());
+        contract.setStatus(status);
+        return contract;
+    }
+
+    private void window(Contract contract, String useruuid, LocalDate from, LocalDate to) {
+        ContractConsultant cc = new ContractConsultant();
+        cc.setUuid(contract.getUuid() + "-" + useruuid);
+        cc.setContractuuid(contract.getUuid());
+        cc.setUseruuid(useruuid);
+        cc.setActiveFrom(from);
+        cc.setActiveTo(to);
+        cc.setHours(37.0);
+        cc.setRate(1000.0);
+        contract.getContractConsultants().add(cc);
+    }
+
+    private ContractTypeItem item(int id, String key, String value) {
+        ContractTypeItem item = new ContractTypeItem();
+        item.setId(id);
+        item.setKey(key);
+        item.setValue(value);
+        return item;
+    }
+}
@@ -0,0 +1,142 @@
+package dk.trustworks.intranet.bi.services;
+
+import dk.trustworks.intranet.aggregates.bidata.model.BiDataPerDay;
+import dk.trustworks.intranet.aggregates.budgets.model.EmployeeBudgetPerDayAggregate;
+import dk.trustworks.intranet.contracts.model.Contract;
+import dk.trustworks.intranet.contracts.model.ContractConsultant;
+import dk.trustworks.intranet.contracts.model.ContractTypeItem;
+import dk.trustworks.intranet.dao.crm.model.Client;
+import dk.trustworks.intranet.dao.workservice.model.WorkFull;
+import dk.trustworks.intranet.domain.user.entity.User;
+import dk.trustworks.intranet.domain.user.entity.UserStatus;
+import dk.trustworks.intranet.model.Company;
+import dk.trustworks.intranet.userservice.model.enums.ConsultantType;
+import dk.trustworks.intranet.userservice.model.enums.StatusType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static dk.trustworks.intranet.dao.workservice.services.WorkService.VACATION;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Plain unit test for the static day-math helpers that {@link UserMonthRecomputeEngine} shares with
+ * the per-(user, day) services. The engine only differs in how inputs are loaded and rows written,
+ * so pinning these helpers pins the parity of the two paths.
+ */
+class UserMonthRecomputeDayMathTest {
+
+    private static final String USER = "dae02077-5419-4a28-aacb-1f7d64e21f6b";
+
+    @Test
+    void calculateDay_fridayReservesTwoHours_andVacationIsCappedAtFullAvailability() {
+        LocalDate friday = LocalDate.of(2026, 3, 6);
+        UserStatus status = new UserStatus(ConsultantType.CONSULTANT, StatusType.ACTIVE, LocalDate.of(2020, 1, 1), 37, USER);
+
+        var day = UserAvailabilityCalculatorService.calculateDay(status, friday, List.of(work(VACATION, 9.0)));
+
+        assertEquals(7.4, day.grossAvailableHours(), 1e-9);
+        assertEquals(2.0, day.unavailableHours(), 1e-9);
+        assertEquals(7.4, day.vacationHours(), 1e-9);
+        assertEquals(0.0, day.sickHours(), 1e-9);
+    }
+
+    @Test
+    void calculateDay_nonPayLeaveStatusConsumesTheWholeDay() {
+        LocalDate tuesday = LocalDate.of(2026, 3, 3);
+        UserStatus status = new UserStatus(ConsultantType.CONSULTANT, StatusType.NON_PAY_LEAVE, LocalDate.of(2026, 1, 1), 37, USER);
+
+        var day = UserAvailabilityCalculatorService.calculateDay(status, tuesday, List.of());
+
+        assertEquals(7.4, day.nonPaidLeaveHours(), 1e-9);
+        assertEquals(0.0, day.paidLeaveHours(), 1e-9);
+        assertEquals(0.0, day.unavailableHours(), 1e-9);
+    }
+
+    @Test
+    void availabilityColumns_skipsDaysWithoutStatusCompany_andMapsStatusColumns() {
+        LocalDate monday = LocalDate.of(2026, 3, 2);
+        Company company = new Company();
+        company.setUuid("d8894494-2fb4-4f72-9e05-e6032e6dd691");
+        UserStatus active = new UserStatus(ConsultantType.CONSULTANT, StatusType.ACTIVE, LocalDate.of(2020, 1, 1), 37, USER);
+        active.setCompany(company);
+        User user = new User();
+        user.setUuid(USER);
+        user.setStatuses(new ArrayList<>(List.of(active)));
+
+        var columns = UserAvailabilityCalculatorService.availabilityColumns(user, monday, List.of(work(VACATION, 3.0)));
+
+        assertEquals(company.getUuid(), columns.companyUuid());
+        assertEquals(0, BigDecimal.valueOf(7.4).compareTo(columns.grossAvailableHours()));
+        assertEquals(0, BigDecimal.valueOf(3.0).compareTo(columns.vacationHours()));
+        assertEquals("CONSULTANT", columns.consultantType());
+        assertEquals("ACTIVE", columns.statusType());
+
+        user.setStatuses(new ArrayList<>());
+        assertNull(UserAvailabilityCalculatorService.availabilityColumns(user, monday, List.of()));
+    }
+
+    @Test
+    void effectiveSalary_isZeroAfterTermination_andUnchangedBefore() {
+        List<UserStatus> statuses = List.of(
+                new UserStatus(ConsultantType.CONSULTANT, StatusType.ACTIVE, LocalDate.of(2020, 1, 1), 37, USER),
+                new UserStatus(ConsultantType.CONSULTANT, StatusType.TERMINATED, LocalDate.of(2026, 3, 1), 0, USER));
+
+        assertEquals(50000, UserSalaryCalculatorService.effectiveSalary(50000, statuses, LocalDate.of(2026, 2, 27)));
+        assertEquals(0, UserSalaryCalculatorService.effectiveSalary(50000, statuses, LocalDate.of(2026, 3, 2)));
+    }
+
+    @Test
+    void calculateDailyBudgets_appliesDiscount_andScalesToNetAvailability() {
+        LocalDate day = LocalDate.of(2026, 3, 3);
+        User user = new User();
+        user.setUuid(USER);
+        Client client = new Client("Contact", "Acme");
+        Contract a = contract(client, 37.0, 1000.0, "10");
+        Contract b = contract(client, 37.0, 1000.0, null);
+        BiDataPerDay availability = new BiDataPerDay();
+        availability.grossAvailableHours = BigDecimal.valueOf(7.4);
+
+        List<EmployeeBudgetPerDayAggregate> budgets = BudgetCalculatingExecutor.calculateDailyBudgets(
+                user, day, List.of(a, b), c -> client, BiReferenceData::discountModifier, availability);
+
+        assertEquals(2, budgets.size());
+        double total = budgets.stream().mapToDouble(EmployeeBudgetPerDayAggregate::getBudgetHours).sum();
+        assertEquals(7.4, total, 1e-9);
+        EmployeeBudgetPerDayAggregate discounted = budgets.stream().filter(x -> x.getContract() == a).findFirst().orElseThrow();
+        assertEquals(900.0, discounted.getRate(), 1e-9);
+        assertEquals(7.4, discounted.getBudgetHoursWithNoAvailabilityAdjustment(), 1e-9);
+    }
+
+    private Contract contract(Client client, double weeklyHours, double rate, String discount) {
+        Contract contract = new Contract();
+        contract.setClientuuid(client.getUuid());
+        ContractConsultant cc = new ContractConsultant();
+        cc.setUuid(contract.getUuid() + "-cc");
+        cc.setContractuuid(contract.getUuid());
+        cc.setUseruuid(USER);
+        cc.setActiveFrom(LocalDate.of(2026, 1, 1));
+        cc.setActiveTo(LocalDate.of(2026, 12, 31));
+        cc.setHours(weeklyHours);
+        cc.setRate(rate);
+        contract.getContractConsultants().add(cc);
+        if (discount != null) {
+            ContractTypeItem item = new ContractTypeItem();
+            item.setKey("DISCOUNT");
+            item.setValue(discount);
+            contract.getContractTypeItems().add(item);
+        }
+        return contract;
+    }
+
+    private WorkFull work(String taskuuid, double hours) {
+        WorkFull work = new WorkFull();
+        work.setTaskuuid(taskuuid);
+        work.setWorkduration(hours);
+        return work;
+    }
+}
@@ -0,0 +1,46 @@
+package dk.trustworks.intranet.bi.services;
+
+import dk.trustworks.intranet.aggregates.bidata.repositories.BiDataPerDayRepository;
+import dk.trustworks.intranet.aggregates.users.services.SalaryService;
+import dk.trustworks.intranet.domain.user.entity.Salary;
+import dk.trustworks.intranet.domain.user.entity.UserStatus;
+import dk.trustworks.intranet.userservice.model.enums.ConsultantType;
+import dk.trustworks.intranet.userservice.model.enums.StatusType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The per-(user, day) salary path reads statuses from the shared {@link BiReferenceData}
+ * snapshot, not from the database.
+ */
+class UserSalaryCalculatorServiceTest {
+
+    private static final String USER = "dae02077-5419-4a28-aacb-1f7d64e21f6b";
+
+    @Test
+    void recalculateSalary_zeroesDaysAfterTheSnapshotsTermination() {
+        UserSalaryCalculatorService service = new UserSalaryCalculatorService();
+        service.salaryService = mock(SalaryService.class);
+        service.biDataRepository = mock(BiDataPerDayRepository.class);
+        service.referenceData = mock(BiReferenceDataSnapshot.class);
+        when(service.referenceData.current()).thenReturn(BiReferenceData.of(1, List.of(), List.of(), List.of(
+                new UserStatus(ConsultantType.CONSULTANT, StatusType.ACTIVE, LocalDate.of(2020, 1, 1), 37, USER),
+                new UserStatus(ConsultantType.CONSULTANT, StatusType.TERMINATED, LocalDate.of(2026, 3, 1), 0, USER))));
+        LocalDate before = LocalDate.of(2026, 2, 27);
+        LocalDate after = LocalDate.of(2026, 3, 2);
+        when(service.salaryService.getUserSalaryByMonth(USER, before)).thenReturn(new Salary(before, 50000, USER));
+        when(service.salaryService.getUserSalaryByMonth(USER, after)).thenReturn(new Salary(after, 50000, USER));
+
+        service.recalculateSalary(USER, before);
+        service.recalculateSalary(USER, after);
+
+        verify(service.biDataRepository).insertOrUpdateSalary(USER, before, 2026, 2, 27, 50000);
+        verify(service.biDataRepository).insertOrUpdateSalary(USER, after, 2026, 3, 2, 0);
+    }
+}
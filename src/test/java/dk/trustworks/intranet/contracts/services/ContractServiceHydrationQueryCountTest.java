@@ -0,0 +1,109 @@
+package dk.trustworks.intranet.contracts.services;
+
+import dk.trustworks.intranet.contracts.model.Contract;
+import dk.trustworks.intranet.dao.crm.model.Project;
+import io.quarkus.test.TestTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the statement counts of the contract list lookups: hydrating N contracts must cost a
+ * fixed number of queries, not one or more per contract. The fixtures sit on a far-future day
+ * so no real contract is active on it.
+ */
+@QuarkusTest
+class ContractServiceHydrationQueryCountTest {
+
+    private static final int CONTRACTS = 12;
+    private static final LocalDate DAY = LocalDate.of(2091, 6, 15);
+
+    @Inject ContractService contractService;
+    @Inject EntityManager entityManager;
+
+    @Test
+    @TestTransaction
+    void findByDay_hydratesAllContractsInConstantQueries() {
+        List<String> contracts = fixtures();
+        Statistics stats = freshStatistics();
+
+        List<Contract> found = contractService.findByDay(DAY);
+
+        // contracts + consultants + projects + type items + sales consultants, plus the
+        // batched many-to-one loads (sales_consultant, company).
+        long statements = stats.getPrepareStatementCount();
+        assertEquals(CONTRACTS, found.size());
+        assertTrue(statements <= 7, "findByDay used " + statements + " statements for " + CONTRACTS + " contracts");
+        found.forEach(c -> {
+            assertTrue(contracts.contains(c.getUuid()));
+            assertEquals(1, c.getContractConsultants().size());
+            assertEquals(1, c.getContractProjects().size());
+            assertEquals(1, c.getContractTypeItems().size());
+            assertEquals("sales-" + c.getUuid().substring(0, 8), c.getSalesconsultant().getSalesconsultant());
+        });
+    }
+
+    @Test
+    @TestTransaction
+    void findProjectsByContracts_usesTwoQueries() {
+        List<String> contracts = fixtures();
+        Statistics stats = freshStatistics();
+
+        List<Project> projects = contractService.findProjectsByContracts(contracts);
+
+        assertEquals(CONTRACTS, projects.size());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    private Statistics freshStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics stats = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.setStatisticsEnabled(true);
+        stats.clear();
+        return stats;
+    }
+
+    private List<String> fixtures() {
+        String clientUuid = UUID.randomUUID().toString();
+        entityManager.createNativeQuery("INSERT INTO client(uuid, name) VALUES (?1, 'Hydration Client')")
+                .setParameter(1, clientUuid)
+                .executeUpdate();
+        List<String> contracts = new ArrayList<>();
+        for (int i = 0; i < CONTRACTS; i++) {
+            String contract = UUID.randomUUID().toString();
+            String project = UUID.randomUUID().toString();
+            contracts.add(contract);
+            insert("INSERT INTO contracts(uuid, contracttype, clientuuid, status, name) VALUES (?1, 'PERIOD', ?2, 'SIGNED', ?3)",
+                    contract, clientUuid, "Hydration " + i);
+            insert("INSERT INTO contract_consultants(uuid, contractuuid, useruuid, name, activefrom, activeto, rate, hours) "
+                    + "VALUES (?1, ?2, ?3, 'Consultant', ?4, ?5, 1000, 10)",
+                    UUID.randomUUID().toString(), contract, UUID.randomUUID().toString(), DAY.minusMonths(1), DAY.plusMonths(1));
+            insert("INSERT INTO project(uuid, clientuuid, name, active) VALUES (?1, ?2, ?3, 1)",
+                    project, clientUuid, "Hydration project " + i);
+            insert("INSERT INTO contract_project(uuid, contractuuid, projectuuid) VALUES (?1, ?2, ?3)",
+                    UUID.randomUUID().toString(), contract, project);
+            insert("INSERT INTO contract_type_items(contractuuid, name, value) VALUES (?1, 'trapperabat', '2')", contract);
+            insert("INSERT INTO contract_sales(uuid, contractuuid, sales_consultant, status, created) VALUES (?1, ?2, ?3, 'APPROVED', NOW())",
+                    UUID.randomUUID().toString(), contract, "sales-" + contract.substring(0, 8));
+        }
+        return contracts;
+    }
+
+    private void insert(String sql, Object... params) {
+        var query = entityManager.createNativeQuery(sql);
+        for (int i = 0; i < params.length; i++) query.setParameter(i + 1, params[i]);
+        query.executeUpdate();
+    }
+}
@@ -0,0 +1,91 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheManager;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class WorkCacheEvictorTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2026, 3);
+    private static final List<WorkCacheEvictor.WorkWrite> WRITES =
+            List.of(new WorkCacheEvictor.WorkWrite("u1", MARCH.atDay(10), "t1", null));
+    private static final List<WorkCacheEvictor.WorkScope> SCOPES =
+            List.of(new WorkCacheEvictor.WorkScope(MARCH, "p1", Set.of("c1")));
+
+    @Test
+    void workCache_evictsOnlyTheWrittenProjectMonthAndContract() {
+        assertTrue(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.ProjectMonth("p1", MARCH), SCOPES));
+        assertFalse(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.ProjectMonth("p1", MARCH.plusMonths(1)), SCOPES));
+        assertFalse(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.ProjectMonth("p2", MARCH), SCOPES));
+        assertTrue(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.Contract("c1"), SCOPES));
+        assertFalse(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.Contract("c2"), SCOPES));
+    }
+
+    @Test
+    void workCache_unresolvedScopeEvictsEveryProjectOfTheMonthAndEveryContract() {
+        List<WorkCacheEvictor.WorkScope> unresolved = List.of(new WorkCacheEvictor.WorkScope(MARCH, null, Set.of()));
+
+        assertTrue(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.ProjectMonth("p2", MARCH), unresolved));
+        assertFalse(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.ProjectMonth("p2", MARCH.plusMonths(1)), unresolved));
+        assertTrue(WorkCacheEvictor.isWorkCacheKeyAffected(new WorkCacheKeys.Contract("c2"), unresolved));
+    }
+
+    @Test
+    void resolveScopes_takesProjectFromTaskAndContractFromTheConsultantWindow() {
+        WorkCacheEvictor evictor = new WorkCacheEvictor();
+        evictor.em = mock(EntityManager.class);
+        Query query = mock(Query.class);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.<Object[]>of(
+                new Object[]{"t1", "p1", "u1", "c1", Date.valueOf("2026-01-01"), Date.valueOf("2026-12-31")},
+                new Object[]{"t1", "p1", "u1", "c-old", Date.valueOf("2025-01-01"), Date.valueOf("2026-02-28")},
+                new Object[]{"t1", "p1", "u2", "c2", Date.valueOf("2026-01-01"), Date.valueOf("2026-12-31")},
+                new Object[]{"t2", "p2", null, null, null, null}));
+        when(evictor.em.createNativeQuery(anyString())).thenReturn(query);
+
+        List<WorkCacheEvictor.WorkScope> scopes = evictor.resolveScopes(List.of(
+                new WorkCacheEvictor.WorkWrite("u1", MARCH.atDay(10), "t1", null),
+                new WorkCacheEvictor.WorkWrite("u3", MARCH.atDay(10), "t1", "u2"),
+                new WorkCacheEvictor.WorkWrite("u1", MARCH.atDay(11), "t2", null),
+                new WorkCacheEvictor.WorkWrite("u1", MARCH.atDay(12), "t-gone", null)));
+
+        assertEquals(new WorkCacheEvictor.WorkScope(MARCH, "p1", Set.of("c1")), scopes.get(0));
+        assertEquals(new WorkCacheEvictor.WorkScope(MARCH, "p1", Set.of("c2")), scopes.get(1), "workas prices the row");
+        assertEquals(new WorkCacheEvictor.WorkScope(MARCH, "p2", Set.of()), scopes.get(2), "no contract window");
+        assertEquals(new WorkCacheEvictor.WorkScope(MARCH, null, Set.of()), scopes.get(3), "unknown task");
+    }
+
+    @Test
+    void evict_leavesTheAvailabilityCachesToTheFactGeneration() {
+        WorkCacheEvictor evictor = new WorkCacheEvictor();
+        evictor.cacheManager = mock(CacheManager.class);
+        Cache workCache = mock(Cache.class);
+        when(workCache.invalidateIf(any())).thenReturn(Uni.createFrom().voidItem());
+        when(evictor.cacheManager.getCache(WorkCacheEvictor.WORK_CACHE)).thenReturn(Optional.of(workCache));
+
+        evictor.evict(Set.copyOf(WRITES), SCOPES);
+
+        verify(workCache).invalidateIf(any());
+        verify(evictor.cacheManager).getCache(WorkCacheEvictor.WORK_CACHE);
+        verifyNoMoreInteractions(evictor.cacheManager);
+    }
+}
@@ -0,0 +1,167 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import dk.trustworks.intranet.dao.workservice.model.Work;
+import io.quarkus.test.TestTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parity test: {@code work_full_mat} holds the same rows as the {@code work_full} view for a work
+ * registration that several contracts price — two contracts linking the same project and
+ * consultant, one of them with two type items — and stays equal after the contract hooks run.
+ *
+ * <p>Fixtures use a synthetic future date and fresh UUIDs and are rolled back by
+ * {@code @TestTransaction}.</p>
+ */
+@QuarkusTest
+@TestProfile(WorkFullMaterializerParityIT.MaintainedProfile.class)
+class WorkFullMaterializerParityIT {
+
+    /** Maintenance is off by default; these tests exercise it. */
+    public static class MaintainedProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("work-full.materialized.maintain", "true");
+        }
+    }
+
+    private static final LocalDate DAY = LocalDate.of(2099, 3, 10);
+
+    @Inject
+    WorkFullMaterializer materializer;
+
+    @Inject
+    EntityManager em;
+
+    @Test
+    @TestTransaction
+    void oneWorkUuidMatchingSeveralContracts_keepsEveryViewRow() {
+        Fixture fixture = seed();
+        String contractB = fixture.contracts().get(1);
+        execute("INSERT INTO contract_type_items(contractuuid, name, value) VALUES (?1, 'trapperabat', '5')", contractB);
+        execute("INSERT INTO contract_type_items(contractuuid, name, value) VALUES (?1, 'rabat', '10')", contractB);
+        String workUuid = registerWork(fixture, 7.5);
+
+        materializer.refreshRows(List.of(workUuid));
+
+        assertEquals(3, viewRows(workUuid).size(), "contract A once, contract B once per type item");
+        assertEquals(viewRows(workUuid), tableRows(workUuid));
+        assertEquals(sum("work_full", workUuid), sum("work_full_mat", workUuid), 0.001);
+    }
+
+    @Test
+    @TestTransaction
+    void contractHookRefresh_followsTypeItemAndProjectChanges() {
+        Fixture fixture = seed();
+        String contractA = fixture.contracts().get(0);
+        String workUuid = registerWork(fixture, 4.0);
+        materializer.refreshRows(List.of(workUuid));
+
+        execute("INSERT INTO contract_type_items(contractuuid, name, value) VALUES (?1, 'trapperabat', '3')", contractA);
+        materializer.refreshContract(contractA);
+        assertEquals(viewRows(workUuid), tableRows(workUuid));
+
+        execute("DELETE FROM contract_project WHERE contractuuid = ?1", contractA);
+        materializer.refreshContract(contractA);
+        assertEquals(1, viewRows(workUuid).size(), "only contract B still prices the work");
+        assertEquals(viewRows(workUuid), tableRows(workUuid));
+        assertEquals(sum("work_full", workUuid), sum("work_full_mat", workUuid), 0.001);
+    }
+
+    @Test
+    @TestTransaction
+    void deletingWork_removesItsTableRows() {
+        Fixture fixture = seed();
+        String workUuid = registerWork(fixture, 6.0);
+        materializer.refreshRows(List.of(workUuid));
+        assertEquals(2, tableRows(workUuid).size());
+
+        execute("DELETE FROM work WHERE uuid = ?1", workUuid);
+
+        assertTrue(tableRows(workUuid).isEmpty(), "trg_work_after_delete (V532) drops the materialized rows");
+    }
+
+    private record Fixture(String user, String task, List<String> contracts) {}
+
+    /** One client, project, task and consultant; two contracts with different rates link the project. */
+    private Fixture seed() {
+        String client = UUID.randomUUID().toString();
+        String project = UUID.randomUUID().toString();
+        String task = UUID.randomUUID().toString();
+        String user = UUID.randomUUID().toString();
+        execute("INSERT INTO client(uuid, name) VALUES (?1, 'Parity Client')", client);
+        execute("INSERT INTO project(uuid, clientuuid, name, active) VALUES (?1, ?2, 'Parity project', 1)", project, client);
+        execute("INSERT INTO task(uuid, name, type, projectuuid) VALUES (?1, 'Parity task', 'CONSULTANT', ?2)", task, project);
+        List<String> contracts = List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        int rate = 1000;
+        for (String contract : contracts) {
+            execute("INSERT INTO contracts(uuid, contracttype, clientuuid, status, name) VALUES (?1, 'PERIOD', ?2, 'SIGNED', 'Parity')",
+                    contract, client);
+            execute("INSERT INTO contract_project(uuid, contractuuid, projectuuid) VALUES (?1, ?2, ?3)",
+                    UUID.randomUUID().toString(), contract, project);
+            execute("INSERT INTO contract_consultants(uuid, contractuuid, useruuid, name, activefrom, activeto, rate, hours) "
+                            + "VALUES (?1, ?2, ?3, 'Consultant', ?4, ?5, ?6, 10)",
+                    UUID.randomUUID().toString(), contract, user, DAY.minusMonths(1), DAY.plusMonths(1), rate);
+            rate += 200;
+        }
+        return new Fixture(user, task, contracts);
+    }
+
+    private String registerWork(Fixture fixture, double hours) {
+        Work work = new Work();
+        work.setUuid(UUID.randomUUID().toString());
+        work.setUseruuid(fixture.user());
+        work.setTaskuuid(fixture.task());
+        work.setRegistered(DAY);
+        work.setWorkduration(hours);
+        work.setBillable(true);
+        work.persistAndFlush();
+        return work.getUuid();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> viewRows(String workUuid) {
+        return em.createNativeQuery("SELECT " + rowFingerprint() + " FROM work_full WHERE uuid = ?1 ORDER BY 1")
+                .setParameter(1, workUuid)
+                .getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> tableRows(String workUuid) {
+        return em.createNativeQuery("SELECT " + rowFingerprint() + " FROM work_full_mat WHERE uuid = ?1 ORDER BY 1")
+                .setParameter(1, workUuid)
+                .getResultList();
+    }
+
+    private static String rowFingerprint() {
+        return "CONCAT_WS('|', IFNULL(contractuuid, '-'), rate, discount, IFNULL(contract_company_uuid, '-'), "
+                + "workduration, registered, IFNULL(projectuuid, '-'), IFNULL(clientuuid, '-'))";
+    }
+
+    private double sum(String source, String workUuid) {
+        Object value = em.createNativeQuery("SELECT COALESCE(SUM(workduration * rate), 0) FROM " + source + " WHERE uuid = ?1")
+                .setParameter(1, workUuid)
+                .getSingleResult();
+        return ((Number) value).doubleValue();
+    }
+
+    private void execute(String sql, Object... params) {
+        var query = em.createNativeQuery(sql);
+        for (int i = 0; i < params.length; i++) {
+            query.setParameter(i + 1, params[i]);
+        }
+        query.executeUpdate();
+    }
+}
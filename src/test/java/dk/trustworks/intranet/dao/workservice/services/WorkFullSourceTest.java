@@ -0,0 +1,26 @@
+package dk.trustworks.intranet.dao.workservice.services;
+
+import io.quarkus.panache.common.Sort;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorkFullSourceTest {
+
+    @Test
+    void table_isTheViewUntilMaterializedReadsAreSwitchedOn() {
+        WorkFullSource source = new WorkFullSource();
+        assertEquals("work_full", source.table());
+        assertEquals("FROM work_full wf\n", source.from("wf"));
+
+        source.readMaterialized = true;
+        assertEquals("work_full_mat", source.table());
+        assertEquals("FROM work_full_mat wf\n", source.from("wf"));
+    }
+
+    @Test
+    void orderBy_spellsOutThePanacheSort() {
+        assertEquals("registered, useruuid", WorkFullSource.orderBy(Sort.by("registered").and("useruuid")));
+        assertEquals("useruuid DESC, registered", WorkFullSource.orderBy(Sort.descending("useruuid").and("registered")));
+    }
+}
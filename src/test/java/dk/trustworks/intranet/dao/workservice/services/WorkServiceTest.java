@@ -1,22 +1,29 @@
 package dk.trustworks.intranet.dao.workservice.services;
 
 import dk.trustworks.intranet.dao.workservice.model.Work;
+import dk.trustworks.intranet.dao.workservice.validation.TimesheetWorkValidationService;
+import jakarta.persistence.PersistenceException;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Plain unit test (no DB / no @QuarkusTest) for the idempotent unit of work
@@ -48,6 +55,8 @@ class WorkServiceTest {
         Work incoming = spy(newWork("fresh-client-uuid", 4.0));
 
         WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
         doReturn(List.of(existing)).when(service).findExistingWork(any(LocalDate.class), anyString(), anyString());
         doNothing().when(service).updateExistingWork(any(Work.class));
 
@@ -73,6 +82,8 @@ class WorkServiceTest {
         Work incoming = spy(newWork("fresh-client-uuid", 8.0));
 
         WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
         doReturn(List.of(existing)).when(service).findExistingWork(any(LocalDate.class), anyString(), anyString());
 
         service.persistOrUpdateInTx(incoming);
@@ -89,6 +100,8 @@ class WorkServiceTest {
         doNothing().when(incoming).persistAndFlush();
 
         WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
         doReturn(Collections.emptyList()).when(service).findExistingWork(any(LocalDate.class), anyString(), anyString());
 
         service.persistOrUpdateInTx(incoming);
@@ -112,6 +125,8 @@ class WorkServiceTest {
         incoming.setClientuuid("actual-client");
 
         WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
         doReturn(List.of(existing)).when(service).findExistingWork(any(LocalDate.class), anyString(), anyString());
         doNothing().when(service).updateExistingWork(any(Work.class));
 
@@ -132,6 +147,8 @@ class WorkServiceTest {
         Work incoming = newWork("client-uuid", 3.0);
 
         WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
         doReturn(List.of(existing)).when(service).findExistingWork(any(LocalDate.class), anyString(), anyString());
         doNothing().when(service).updateExistingWork(any(Work.class));
 
@@ -154,6 +171,8 @@ class WorkServiceTest {
         incoming.setClientuuid("attacker-client");
 
         WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
         doReturn(List.of(existing)).when(service).findExistingWork(any(LocalDate.class), anyString(), anyString());
         doNothing().when(service).updateExistingWork(any(Work.class));
 
@@ -165,6 +184,93 @@ class WorkServiceTest {
         verify(service).updateExistingWork(incoming);
     }
 
+    @Test
+    void batchUpdatesExistingInsertsNewSkipsPaidOut_andFlushesOnce() {
+        Work existing = newWork("existing-uuid", 2.0);
+        Work paidOut = newWork("paid-uuid", 1.0);
+        paidOut.setRegistered(REGISTERED.plusDays(1));
+        paidOut.setPaidOut(LocalDateTime.of(2026, 7, 1, 0, 0));
+
+        Work update = newWork("client-uuid", 5.0);
+        Work skipped = newWork(null, 7.5);
+        skipped.setRegistered(REGISTERED.plusDays(1));
+        Work insert = newWork(null, 3.0);
+        insert.setRegistered(REGISTERED.plusDays(2));
+
+        WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
+        doReturn(List.of(existing, paidOut)).when(service).findExistingWorkForBatch(any());
+        doNothing().when(service).persistBatched(any(Work.class));
+        doNothing().when(service).flushBatch();
+
+        WorkService.BatchResult result = service.persistOrUpdateAllInTx(
+                List.of(update, skipped, insert), List.of(true, true, true));
+
+        assertEquals(new WorkService.BatchResult(1, 1, 1, List.of(update, insert)), result);
+        assertEquals(5.0, existing.getWorkduration(), "update lands on the managed row so it joins the flush batch");
+        assertEquals("existing-uuid", update.getUuid());
+        assertEquals(1.0, paidOut.getWorkduration(), "paid-out rows are never touched");
+        verify(service).persistBatched(insert);
+        verify(service, never()).persistBatched(update);
+        verify(service).flushBatch();
+    }
+
+    @Test
+    void batchWithRepeatedTuple_lastRowWins() {
+        Work first = newWork(null, 2.0);
+        Work second = newWork(null, 6.0);
+
+        WorkService service = spy(new WorkService());
+        service.workCacheEvictor = mock(WorkCacheEvictor.class);
+        service.workFullMaterializer = mock(WorkFullMaterializer.class);
+        doReturn(Collections.emptyList()).when(service).findExistingWorkForBatch(any());
+        doNothing().when(service).persistBatched(any(Work.class));
+        doNothing().when(service).flushBatch();
+
+        WorkService.BatchResult result = service.persistOrUpdateAllInTx(List.of(first, second), List.of(false, false));
+
+        assertEquals(new WorkService.BatchResult(1, 0, 0, List.of(second)), result);
+        verify(service).persistBatched(second);
+        verify(service, never()).persistBatched(first);
+    }
+
+    @Test
+    void batchRetryAfterDuplicateKey_runsOnFreshRows_andReportsTheWinningUuids() {
+        Work requested = newWork(null, 3.0);
+        List<List<Work>> attempts = new ArrayList<>();
+
+        TimesheetWorkValidationService validator = mock(TimesheetWorkValidationService.class);
+        when(validator.validateAll(any())).thenReturn(List.of(true));
+        WorkService transactionalProxy = mock(WorkService.class);
+        when(transactionalProxy.persistOrUpdateAllInTx(any(), any())).thenAnswer(invocation -> {
+            List<Work> rows = invocation.getArgument(0);
+            attempts.add(rows);
+            if (attempts.size() == 1) {
+                // The lost insert race: this attempt already assigned a uuid and re-routed its rows.
+                rows.getFirst().setUuid("rolled-back-uuid");
+                rows.getFirst().setContractuuid("stale-contract");
+                throw new PersistenceException("uq_work_user_date_task");
+            }
+            rows.getFirst().setUuid("winner-uuid");
+            return new WorkService.BatchResult(0, 1, 0, List.of(rows.getFirst()));
+        });
+        WorkService service = new WorkService();
+        service.timesheetWorkValidationService = validator;
+        service.self = transactionalProxy;
+
+        WorkService.BatchResult result = service.persistOrUpdateAll(List.of(requested));
+
+        assertEquals(new WorkService.BatchResult(0, 1, 0, List.of(requested)), result);
+        assertEquals(2, attempts.size());
+        Work retried = attempts.get(1).getFirst();
+        assertNotSame(requested, retried);
+        assertNotSame(attempts.get(0).getFirst(), retried, "the retry must not reuse the rolled-back instance");
+        assertNull(retried.getContractuuid(), "the retry starts from the request, not the rolled-back routing");
+        assertEquals(3.0, retried.getWorkduration());
+        assertEquals("winner-uuid", requested.getUuid(), "events must carry the committed row's uuid");
+    }
+
     private static Work newWork(String uuid, double workduration) {
         Work work = new Work();
         work.setUuid(uuid);
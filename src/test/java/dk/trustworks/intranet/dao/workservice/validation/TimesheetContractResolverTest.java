@@ -115,6 +115,24 @@ class TimesheetContractResolverTest {
         assertEquals(ResolutionStatus.PAID_OUT_NOOP, resolver.resolve(work, "consultant").status());
     }
 
+    @Test
+    void batchContextAppliesAssignmentWindowsPerRowWithoutQueries() {
+        Work work = work();
+        LocalDate day = work.getRegistered();
+        TimesheetContractResolver.BatchContext context = new TimesheetContractResolver.BatchContext(
+                java.util.Map.of(),
+                java.util.Map.of("task|consultant", List.of(
+                        new TimesheetContractResolver.AssignmentWindow(day.minusMonths(1), day.plusMonths(1), FIRST),
+                        new TimesheetContractResolver.AssignmentWindow(day, day, FIRST),
+                        new TimesheetContractResolver.AssignmentWindow(day.minusMonths(2), day.minusDays(1), SECOND))));
+
+        // No EntityManager: any per-row query would fail the test.
+        Resolution result = new TimesheetContractResolver().resolve(work, "consultant", context);
+
+        assertTrue(result.isResolved());
+        assertEquals(FIRST, result.contract());
+    }
+
     private static TimesheetContractResolver resolverWith(EligibleContract... contracts) {
         TimesheetContractResolver resolver = spy(new TimesheetContractResolver());
         doReturn(List.of(contracts)).when(resolver).findEligibleCandidates(
@@ -68,6 +68,16 @@ class TimesheetWorkValidationServiceTest {
         service.requestHeaderHolder = requestHeaderHolder;
     }
 
+    @Test
+    void validateAll_offPerformsZeroLookupsForTheWholeBatch() {
+        when(config.mode()).thenReturn(Mode.OFF);
+
+        List<Boolean> trusted = service.validateAll(List.of(work(2.0, null), work(3.0, null)));
+
+        assertEquals(List.of(false, false), trusted);
+        verifyNoInteractions(contractResolver, policyCache, validationLogWriter, requestHeaderHolder);
+    }
+
     @Test
     void offPerformsZeroContractOrRuleLookups() {
         when(config.mode()).thenReturn(Mode.OFF);
@@ -0,0 +1,161 @@
+package dk.trustworks.intranet.fileservice.services;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class S3DownloadTest {
+
+    private static final String ETAG = "\"9b2cf535f27731c974343645a3985328\"";
+    private static final byte[] PDF = "%PDF-1.7 body".getBytes(StandardCharsets.US_ASCII);
+
+    @Mock
+    S3Client s3;
+
+    @Test
+    void get_streamsTheWholeObjectWithItsEtag() throws Exception {
+        head();
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(object(new ByteArrayInputStream(PDF)));
+
+        Response response = S3Download.get(s3, "invoices", "invoices/a.pdf", null, null).build();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(ETAG, response.getHeaderString(HttpHeaders.ETAG));
+        assertEquals(String.valueOf(PDF.length), response.getHeaderString(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(PDF, write(response));
+
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3).getObject(request.capture());
+        assertNull(request.getValue().range());
+        assertEquals(ETAG, request.getValue().ifMatch(), "the body is the object the headers describe");
+    }
+
+    @Test
+    void get_opensTheObjectOnlyWhenTheBodyIsWrittenAndClosesIt() throws Exception {
+        head();
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream tracked = new ByteArrayInputStream(PDF) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(object(tracked));
+
+        Response response = S3Download.get(s3, "invoices", "k", null, null).build();
+        verify(s3, never()).getObject(any(GetObjectRequest.class));
+
+        write(response);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void get_forwardsASingleRangeAndAnswersPartialContent() throws Exception {
+        head();
+
+        Response response = S3Download.get(s3, "invoices", "k", "bytes=0-3", null).build();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-3/" + PDF.length, response.getHeaderString("Content-Range"));
+        assertEquals("4", response.getHeaderString(HttpHeaders.CONTENT_LENGTH));
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(object(new ByteArrayInputStream(PDF, 0, 4)));
+        write(response);
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3).getObject(request.capture());
+        assertEquals("bytes=0-3", request.getValue().range());
+    }
+
+    @Test
+    void get_answersNotModifiedWithTheObjectsOwnEtag() {
+        head();
+
+        Response weak = S3Download.get(s3, "invoices", "k", null, "W/" + ETAG).build();
+        Response list = S3Download.get(s3, "invoices", "k", null, "\"other\", " + ETAG).build();
+        Response any = S3Download.get(s3, "invoices", "k", null, "*").build();
+
+        for (Response response : new Response[]{weak, list, any}) {
+            assertEquals(304, response.getStatus());
+            assertEquals(ETAG, response.getHeaderString(HttpHeaders.ETAG));
+        }
+        verify(s3, never()).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    void get_answersRangeNotSatisfiableAndRethrowsOtherErrors() {
+        head();
+        assertEquals(416, S3Download.get(s3, "invoices", "k", "bytes=999-", null).build().getStatus());
+
+        when(s3.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        assertThrows(NoSuchKeyException.class, () -> S3Download.get(s3, "invoices", "k", null, null));
+    }
+
+    @Test
+    void byteRange_resolvesAgainstTheObjectLength() {
+        assertArrayEquals(new long[]{100, 999}, S3Download.byteRange(" bytes=100- ", 1000));
+        assertArrayEquals(new long[]{0, 999}, S3Download.byteRange("bytes=0-5000", 1000));
+        assertArrayEquals(new long[]{900, 999}, S3Download.byteRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 999}, S3Download.byteRange("bytes=-5000", 1000));
+        assertSame(S3Download.UNSATISFIABLE, S3Download.byteRange("bytes=1000-", 1000));
+        assertSame(S3Download.UNSATISFIABLE, S3Download.byteRange("bytes=-0", 1000));
+        assertNull(S3Download.byteRange("bytes=0-9,20-29", 1000));
+        assertNull(S3Download.byteRange("bytes=9-0", 1000));
+        assertNull(S3Download.byteRange("items=0-9", 1000));
+        assertNull(S3Download.byteRange(null, 1000));
+    }
+
+    @Test
+    void matchesAny_comparesWeaklyAcrossTheList() {
+        assertTrue(S3Download.matchesAny("W/" + ETAG, ETAG));
+        assertTrue(S3Download.matchesAny("\"a\" , " + ETAG, ETAG));
+        assertTrue(S3Download.matchesAny("*", ETAG));
+        assertFalse(S3Download.matchesAny("\"a\"", ETAG));
+        assertFalse(S3Download.matchesAny(null, ETAG));
+    }
+
+    private void head() {
+        when(s3.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder()
+                .eTag(ETAG).contentLength((long) PDF.length).contentType("application/pdf").build());
+    }
+
+    private static ResponseInputStream<GetObjectResponse> object(InputStream body) {
+        return new ResponseInputStream<>(GetObjectResponse.builder().eTag(ETAG).build(), AbortableInputStream.create(body));
+    }
+
+    private static byte[] write(Response response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        return out.toByteArray();
+    }
+}